@@ -0,0 +1,120 @@
+package com.pg85.otg.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.customobject.bo3.BO3;
+import com.pg85.otg.gen.OTGChunkGenerator;
+import com.pg85.otg.headless.HeadlessEngine;
+import com.pg85.otg.presets.Preset;
+
+/**
+ * Starts the headless engine once per benchmark JVM. The sample
+ * preset (see the otg.benchmarks.preset system property) is copied
+ * to a temp folder, since OTG rewrites its config files when loading.
+ */
+class BenchmarkContext
+{
+	static final String PRESET_PROPERTY = "otg.benchmarks.preset";
+	static final String PRESET_FOLDER_NAME = "Default";
+	private static final String BENCHMARK_BO3 = "BenchmarkTree.bo3";
+
+	private static BenchmarkContext instance;
+
+	private final HeadlessEngine engine;
+	private final Preset preset;
+
+	private BenchmarkContext() throws IOException
+	{
+		String presetDir = System.getProperty(PRESET_PROPERTY);
+		if (presetDir == null || !new File(presetDir).isDirectory())
+		{
+			throw new IllegalStateException("Set " + PRESET_PROPERTY + " to the folder of the preset to benchmark.");
+		}
+
+		Path otgRootFolder = Files.createTempDirectory(Constants.MOD_ID_SHORT + "-benchmarks");
+		copyFolder(Paths.get(presetDir), otgRootFolder.resolve(Constants.PRESETS_FOLDER).resolve(PRESET_FOLDER_NAME));
+
+		this.engine = new HeadlessEngine(otgRootFolder);
+		OTG.startEngine(this.engine);
+		this.engine.getPresetLoader().registerBiomes();
+		this.preset = this.engine.getPresetLoader().getPresetByFolderName(PRESET_FOLDER_NAME);
+	}
+
+	static synchronized BenchmarkContext get() throws IOException
+	{
+		if (instance == null)
+		{
+			instance = new BenchmarkContext();
+		}
+		return instance;
+	}
+
+	HeadlessEngine getEngine()
+	{
+		return this.engine;
+	}
+
+	Preset getPreset()
+	{
+		return this.preset;
+	}
+
+	OTGChunkGenerator createChunkGenerator(long seed)
+	{
+		return this.engine.createChunkGenerator(PRESET_FOLDER_NAME, seed);
+	}
+
+	/**
+	 * Loads the BO3 bundled with the benchmarks.
+	 */
+	BO3 loadBenchmarkBO3() throws IOException
+	{
+		File file = this.engine.getOTGRootFolder().resolve(BENCHMARK_BO3).toFile();
+		if (!file.exists())
+		{
+			InputStream in = BenchmarkContext.class.getResourceAsStream("/" + BENCHMARK_BO3);
+			try {
+				Files.copy(in, file.toPath());
+			} finally {
+				in.close();
+			}
+		}
+		BO3 bo3 = new BO3(BENCHMARK_BO3.substring(0, BENCHMARK_BO3.length() - 4), file);
+		if (!bo3.onEnable(PRESET_FOLDER_NAME, this.engine.getOTGRootFolder(), this.engine.getLogger(), this.engine.getCustomObjectManager(), this.engine.getPresetLoader().getMaterialReader(PRESET_FOLDER_NAME), this.engine.getCustomObjectResourcesManager(), this.engine.getModLoadedChecker()))
+		{
+			throw new IllegalStateException("Could not load " + BENCHMARK_BO3);
+		}
+		return bo3;
+	}
+
+	private static void copyFolder(final Path source, final Path target) throws IOException
+	{
+		Files.walkFileTree(source, new SimpleFileVisitor<Path>()
+		{
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+			{
+				Files.createDirectories(target.resolve(source.relativize(dir).toString()));
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException
+			{
+				Files.copy(file, target.resolve(source.relativize(file).toString()), StandardCopyOption.REPLACE_EXISTING);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
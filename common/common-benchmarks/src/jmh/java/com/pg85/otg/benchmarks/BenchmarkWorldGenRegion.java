@@ -0,0 +1,271 @@
+package com.pg85.otg.benchmarks;
+
+import java.util.Random;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.gen.OTGChunkGenerator;
+import com.pg85.otg.headless.HeadlessChunkBuffer;
+import com.pg85.otg.interfaces.IBiome;
+import com.pg85.otg.interfaces.IBiomeConfig;
+import com.pg85.otg.interfaces.ICachedBiomeProvider;
+import com.pg85.otg.interfaces.IEntityFunction;
+import com.pg85.otg.interfaces.ILogger;
+import com.pg85.otg.interfaces.IPluginConfig;
+import com.pg85.otg.interfaces.IWorldConfig;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.biome.ReplaceBlockMatrix;
+import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.gen.LocalWorldGenRegion;
+import com.pg85.otg.util.materials.LocalMaterialData;
+import com.pg85.otg.util.minecraft.TreeType;
+
+/**
+ * Decoration area backed by in-memory chunks, the 2x2 chunks
+ * starting at the chunk being decorated. Trees, entities,
+ * dungeons and fossils are ignored.
+ */
+class BenchmarkWorldGenRegion extends LocalWorldGenRegion
+{
+	private final long seed;
+	private final Random worldRandom;
+	private final OTGChunkGenerator chunkGenerator;
+	private final ChunkCoordinate chunkBeingDecorated;
+	private final HeadlessChunkBuffer[] chunks;
+
+	BenchmarkWorldGenRegion(String presetFolderName, IPluginConfig pluginConfig, IWorldConfig worldConfig, ILogger logger, long seed, OTGChunkGenerator chunkGenerator, ChunkCoordinate chunkBeingDecorated, HeadlessChunkBuffer[] chunks)
+	{
+		super(presetFolderName, pluginConfig, worldConfig, logger, chunkBeingDecorated.getChunkX(), chunkBeingDecorated.getChunkZ(), chunkGenerator.getCachedBiomeProvider());
+		this.seed = seed;
+		this.worldRandom = new Random(seed);
+		this.chunkGenerator = chunkGenerator;
+		this.chunkBeingDecorated = chunkBeingDecorated;
+		this.chunks = chunks;
+	}
+
+	// Returns null for chunks outside the area being decorated.
+	private HeadlessChunkBuffer getChunk(int x, int z)
+	{
+		int chunkX = (x >> 4) - this.chunkBeingDecorated.getChunkX();
+		int chunkZ = (z >> 4) - this.chunkBeingDecorated.getChunkZ();
+		if (chunkX < 0 || chunkX > 1 || chunkZ < 0 || chunkZ > 1)
+		{
+			return null;
+		}
+		return this.chunks[chunkX * 2 + chunkZ];
+	}
+
+	@Override
+	public ILogger getLogger()
+	{
+		return this.logger;
+	}
+
+	@Override
+	public long getSeed()
+	{
+		return this.seed;
+	}
+
+	@Override
+	public Random getWorldRandom()
+	{
+		return this.worldRandom;
+	}
+
+	@Override
+	public ChunkCoordinate getSpawnChunk()
+	{
+		return ChunkCoordinate.fromChunkCoords(0, 0);
+	}
+
+	@Override
+	public ICachedBiomeProvider getCachedBiomeProvider()
+	{
+		return this.chunkGenerator.getCachedBiomeProvider();
+	}
+
+	@Override
+	public IBiome getBiomeForDecoration(int x, int z)
+	{
+		return this.decorationBiomeCache.getBiome(x, z);
+	}
+
+	@Override
+	public IBiomeConfig getBiomeConfigForDecoration(int x, int z)
+	{
+		return this.decorationBiomeCache.getBiomeConfig(x, z);
+	}
+
+	@Override
+	public double getBiomeBlocksNoiseValue(int xInWorld, int zInWorld)
+	{
+		return this.chunkGenerator.getBiomeBlocksNoiseValue(xInWorld, zInWorld);
+	}
+
+	@Override
+	public boolean placeTree(TreeType type, Random rand, int x, int y, int z)
+	{
+		return false;
+	}
+
+	@Override
+	public LocalMaterialData getMaterialDirect(int x, int y, int z)
+	{
+		return getMaterial(x, y, z);
+	}
+
+	@Override
+	public LocalMaterialData getMaterial(int x, int y, int z)
+	{
+		if (y >= Constants.WORLD_HEIGHT || y < Constants.WORLD_DEPTH)
+		{
+			return null;
+		}
+		HeadlessChunkBuffer chunk = getChunk(x, z);
+		return chunk != null ? chunk.getBlock(x, y, z) : null;
+	}
+
+	@Override
+	public LocalMaterialData getMaterialWithoutLoading(int x, int y, int z)
+	{
+		return getMaterial(x, y, z);
+	}
+
+	@Override
+	public int getBlockAboveLiquidHeight(int x, int z)
+	{
+		int highestY = getHighestBlockYAt(x, z, false, true, false, false, false);
+		return highestY >= 0 ? highestY + 1 : -1;
+	}
+
+	@Override
+	public int getBlockAboveSolidHeight(int x, int z)
+	{
+		int highestY = getHighestBlockYAt(x, z, true, false, true, true, false);
+		return highestY >= 0 ? highestY + 1 : -1;
+	}
+
+	@Override
+	public int getHighestBlockAboveYAt(int x, int z)
+	{
+		int highestY = getHighestBlockYAt(x, z, true, true, false, false, false);
+		return highestY >= 0 ? highestY + 1 : -1;
+	}
+
+	@Override
+	public int getHighestBlockYAtWithoutLoading(int x, int z, boolean findSolid, boolean findLiquid, boolean ignoreLiquid, boolean ignoreSnow, boolean ignoreLeaves)
+	{
+		return getHighestBlockYAt(x, z, findSolid, findLiquid, ignoreLiquid, ignoreSnow, ignoreLeaves);
+	}
+
+	@Override
+	public int getHighestBlockYAt(int x, int z, boolean findSolid, boolean findLiquid, boolean ignoreLiquid, boolean ignoreSnow, boolean ignoreLeaves)
+	{
+		HeadlessChunkBuffer chunk = getChunk(x, z);
+		if (chunk == null)
+		{
+			return -1;
+		}
+
+		LocalMaterialData material;
+		boolean isSolid;
+		boolean isLiquid;
+		for (int y = Constants.WORLD_HEIGHT - 1; y >= 0; y--)
+		{
+			material = chunk.getBlock(x, y, z);
+			isLiquid = material.isLiquid();
+			isSolid = material.isSolid() || (!ignoreSnow && material.getRegistryName().equals("minecraft:snow"));
+			if (!(ignoreLiquid && isLiquid))
+			{
+				if ((findSolid && isSolid) || (findLiquid && isLiquid))
+				{
+					return y;
+				}
+				if ((findSolid && isLiquid) || (findLiquid && isSolid))
+				{
+					return -1;
+				}
+			}
+		}
+
+		// Can happen if this is a chunk filled with air
+		return -1;
+	}
+
+	@Override
+	public int getHeightMapHeight(int x, int z)
+	{
+		return getHighestBlockAboveYAt(x, z);
+	}
+
+	@Override
+	public int getLightLevel(int x, int y, int z)
+	{
+		// Everything is lit as if it were day.
+		return y < Constants.WORLD_DEPTH || y >= Constants.WORLD_HEIGHT ? -1 : 15;
+	}
+
+	@Override
+	public void setBlockDirect(int x, int y, int z, LocalMaterialData material)
+	{
+		setBlock(x, y, z, material, null, null);
+	}
+
+	@Override
+	public void setBlock(int x, int y, int z, LocalMaterialData material)
+	{
+		setBlock(x, y, z, material, null, null);
+	}
+
+	@Override
+	public void setBlock(int x, int y, int z, LocalMaterialData material, NamedBinaryTag nbt)
+	{
+		setBlock(x, y, z, material, nbt, null);
+	}
+
+	@Override
+	public void setBlock(int x, int y, int z, LocalMaterialData material, ReplaceBlockMatrix replaceBlocksMatrix)
+	{
+		setBlock(x, y, z, material, null, replaceBlocksMatrix);
+	}
+
+	@Override
+	public void setBlock(int x, int y, int z, LocalMaterialData material, NamedBinaryTag nbt, ReplaceBlockMatrix replaceBlocksMatrix)
+	{
+		if (y < Constants.WORLD_DEPTH || y >= Constants.WORLD_HEIGHT || material.isEmpty())
+		{
+			return;
+		}
+		HeadlessChunkBuffer chunk = getChunk(x, z);
+		if (chunk == null)
+		{
+			return;
+		}
+		if (replaceBlocksMatrix != null)
+		{
+			material = material.parseWithBiomeAndHeight(this.getWorldConfig().getBiomeConfigsHaveReplacement(), replaceBlocksMatrix, y);
+		}
+		chunk.setBlock(x, y, z, material);
+	}
+
+	@Override
+	public void spawnEntity(IEntityFunction newEntityData) { }
+
+	@Override
+	public void placeDungeon(Random random, int x, int y, int z) { }
+
+	@Override
+	public void placeFossil(Random random, int x, int y, int z) { }
+
+	@Override
+	public boolean isInsideWorldBorder(ChunkCoordinate chunkCoordinate)
+	{
+		return true;
+	}
+
+	@Override
+	public boolean chunkHasDefaultStructure(Random worldRandom, ChunkCoordinate chunkCoordinate)
+	{
+		return false;
+	}
+}
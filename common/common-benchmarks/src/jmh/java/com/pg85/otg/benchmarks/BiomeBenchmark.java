@@ -0,0 +1,82 @@
+package com.pg85.otg.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.gen.biome.layers.BiomeLayers;
+import com.pg85.otg.gen.biome.layers.util.CachingLayerSampler;
+import com.pg85.otg.interfaces.IBiome;
+import com.pg85.otg.interfaces.IBiomeConfig;
+import com.pg85.otg.interfaces.ICachedBiomeProvider;
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * Biome generation, through the cached biome provider and
+ * directly through the layer stack.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class BiomeBenchmark
+{
+	private static final long SEED = 1234L;
+	// Size of the regions requested by getNoiseBiomeConfigsForRegion, in noise
+	// coords (4x4 blocks), same as /otg map uses for its tiles.
+	private static final int REGION_SIZE = 64;
+
+	private ICachedBiomeProvider cachedBiomeProvider;
+	private CachingLayerSampler sampler;
+	private final ChunkWalker chunkWalker = new ChunkWalker();
+	private final ChunkWalker regionWalker = new ChunkWalker(REGION_SIZE / 4);
+	private final ChunkWalker samplerWalker = new ChunkWalker();
+
+	@Setup
+	public void setup() throws IOException
+	{
+		BenchmarkContext context = BenchmarkContext.get();
+		this.cachedBiomeProvider = context.createChunkGenerator(SEED).getCachedBiomeProvider();
+		this.sampler = BiomeLayers.create(SEED, context.getEngine().getHeadlessPresetLoader().getPresetGenerationData(BenchmarkContext.PRESET_FOLDER_NAME), context.getEngine().getLogger());
+	}
+
+	@Benchmark
+	public IBiome[] getBiomesForChunk()
+	{
+		return this.cachedBiomeProvider.getBiomesForChunk(this.chunkWalker.next());
+	}
+
+	@Benchmark
+	public IBiomeConfig[] getNoiseBiomeConfigsForRegion()
+	{
+		ChunkCoordinate chunkCoord = this.regionWalker.next();
+		return this.cachedBiomeProvider.getNoiseBiomeConfigsForRegion(chunkCoord.getChunkX() * 4, chunkCoord.getChunkZ() * 4, REGION_SIZE);
+	}
+
+	/**
+	 * Samples the noise biomes (4x4 blocks) of a chunk from the layers,
+	 * without the biome provider's caches.
+	 */
+	@Benchmark
+	public void sampleLayers(Blackhole blackhole)
+	{
+		ChunkCoordinate chunkCoord = this.samplerWalker.next();
+		int noiseX = chunkCoord.getChunkX() * 4;
+		int noiseZ = chunkCoord.getChunkZ() * 4;
+		for (int x = 0; x < Constants.CHUNK_SIZE / 4; x++)
+		{
+			for (int z = 0; z < Constants.CHUNK_SIZE / 4; z++)
+			{
+				blackhole.consume(this.sampler.sample(noiseX + x, noiseZ + z));
+			}
+		}
+	}
+}
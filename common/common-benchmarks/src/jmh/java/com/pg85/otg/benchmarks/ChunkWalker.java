@@ -0,0 +1,34 @@
+package com.pg85.otg.benchmarks;
+
+import com.pg85.otg.util.ChunkCoordinate;
+
+/**
+ * Walks over chunks row by row, so benchmarks don't
+ * generate the same chunk twice in a run.
+ */
+class ChunkWalker
+{
+	private static final int ROW_LENGTH = 1024;
+
+	private final int step;
+	private int index = 0;
+
+	ChunkWalker()
+	{
+		this(1);
+	}
+
+	// Step is in chunks, for benchmarks that work on areas larger than a chunk.
+	ChunkWalker(int step)
+	{
+		this.step = step;
+	}
+
+	ChunkCoordinate next()
+	{
+		int chunkX = (this.index % ROW_LENGTH) * this.step;
+		int chunkZ = (this.index / ROW_LENGTH) * this.step;
+		this.index++;
+		return ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
+	}
+}
@@ -0,0 +1,98 @@
+package com.pg85.otg.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.pg85.otg.customobject.bo3.BO3;
+import com.pg85.otg.gen.OTGChunkGenerator;
+import com.pg85.otg.headless.HeadlessChunkBuffer;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.gen.DecorationArea;
+import com.pg85.otg.util.gen.JigsawStructureData;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+
+/**
+ * BO3 spawning during decoration, using a small tree bundled
+ * with the benchmarks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class CustomObjectBenchmark
+{
+	private static final long SEED = 1234L;
+	// Number of areas tried when looking for one the tree can spawn in.
+	private static final int MAX_AREAS = 256;
+
+	private BO3 bo3;
+	private BenchmarkWorldGenRegion worldGenRegion;
+	private HeadlessChunkBuffer[] populatedChunks;
+	private HeadlessChunkBuffer[] chunks;
+	private int spawnX;
+	private int spawnZ;
+	private final Random random = new Random();
+
+	@Setup
+	public void setup() throws IOException
+	{
+		BenchmarkContext context = BenchmarkContext.get();
+		this.bo3 = context.loadBenchmarkBO3();
+		OTGChunkGenerator chunkGenerator = context.createChunkGenerator(SEED);
+
+		// Find an area with a surface the tree can spawn on, so the
+		// benchmark measures spawning rather than failed checks.
+		ChunkWalker areaWalker = new ChunkWalker(2);
+		for (int i = 0; i < MAX_AREAS; i++)
+		{
+			ChunkCoordinate chunkCoord = areaWalker.next();
+			this.populatedChunks = new HeadlessChunkBuffer[4];
+			this.chunks = new HeadlessChunkBuffer[4];
+			for (int j = 0; j < 4; j++)
+			{
+				ChunkCoordinate coord = ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + j / 2, chunkCoord.getChunkZ() + j % 2);
+				this.populatedChunks[j] = new HeadlessChunkBuffer(coord);
+				this.random.setSeed(coord.getChunkX() * 341873128712L + coord.getChunkZ() * 132897987541L);
+				chunkGenerator.populateNoise(context.getPreset().getWorldConfig().getWorldHeightCap(), this.random, this.populatedChunks[j], coord, new ObjectArrayList<JigsawStructureData>(), new ObjectArrayList<JigsawStructureData>());
+				this.chunks[j] = new HeadlessChunkBuffer(coord);
+			}
+			this.worldGenRegion = new BenchmarkWorldGenRegion(BenchmarkContext.PRESET_FOLDER_NAME, context.getEngine().getPluginConfig(), context.getPreset().getWorldConfig(), context.getEngine().getLogger(), SEED, chunkGenerator, chunkCoord, this.chunks);
+			this.spawnX = chunkCoord.getBlockX() + DecorationArea.DECORATION_OFFSET + DecorationArea.BO_CHUNK_CENTER_X;
+			this.spawnZ = chunkCoord.getBlockZ() + DecorationArea.DECORATION_OFFSET + DecorationArea.BO_CHUNK_CENTER_Z;
+			if (spawnTree())
+			{
+				return;
+			}
+		}
+		throw new IllegalStateException("Could not find an area to spawn " + this.bo3.getName() + " in.");
+	}
+
+	/**
+	 * Spawns the tree in the middle of the decoration area, includes
+	 * restoring the 4 chunks of the area to their generated state.
+	 */
+	@Benchmark
+	public boolean spawnAsTree()
+	{
+		return spawnTree();
+	}
+
+	private boolean spawnTree()
+	{
+		for (int i = 0; i < this.chunks.length; i++)
+		{
+			this.chunks[i].copyFrom(this.populatedChunks[i]);
+		}
+		this.random.setSeed(SEED);
+		return this.bo3.spawnAsTree(null, this.worldGenRegion, this.random, this.spawnX, this.spawnZ, -1, -1);
+	}
+}
@@ -0,0 +1,100 @@
+package com.pg85.otg.benchmarks;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.gen.OTGChunkGenerator;
+import com.pg85.otg.headless.HeadlessChunkBuffer;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.gen.JigsawStructureData;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+
+/**
+ * Base terrain generation: noise, surface blocks and carvers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class TerrainBenchmark
+{
+	private static final long SEED = 1234L;
+	// Chunks carved by the carve benchmark, each is populated once beforehand.
+	private static final int CARVED_CHUNKS = 16;
+
+	private OTGChunkGenerator chunkGenerator;
+	private int worldHeightCap;
+	private final Random random = new Random();
+	private final ObjectList<JigsawStructureData> structures = new ObjectArrayList<JigsawStructureData>();
+	private final ObjectList<JigsawStructureData> junctions = new ObjectArrayList<JigsawStructureData>();
+	private final BitSet carvingMask = new BitSet(Constants.CHUNK_SIZE * Constants.CHUNK_SIZE * Constants.WORLD_HEIGHT);
+	private final ChunkWalker chunkWalker = new ChunkWalker();
+
+	private HeadlessChunkBuffer generatedChunk;
+	private HeadlessChunkBuffer[] populatedChunks;
+	private HeadlessChunkBuffer carvedChunk;
+	private int carvedChunkIndex = 0;
+
+	@Setup
+	public void setup() throws IOException
+	{
+		BenchmarkContext context = BenchmarkContext.get();
+		this.chunkGenerator = context.createChunkGenerator(SEED);
+		this.worldHeightCap = context.getPreset().getWorldConfig().getWorldHeightCap();
+
+		this.populatedChunks = new HeadlessChunkBuffer[CARVED_CHUNKS];
+		for (int i = 0; i < CARVED_CHUNKS; i++)
+		{
+			this.populatedChunks[i] = new HeadlessChunkBuffer(ChunkCoordinate.fromChunkCoords(i, -1));
+			populate(this.populatedChunks[i]);
+		}
+		this.carvedChunk = new HeadlessChunkBuffer(ChunkCoordinate.fromChunkCoords(0, -1));
+		this.generatedChunk = new HeadlessChunkBuffer(ChunkCoordinate.fromChunkCoords(0, 0));
+	}
+
+	/**
+	 * Generates a chunk that hasn't been generated before, so biome
+	 * and noise caches only help as much as they would in a world.
+	 */
+	@Benchmark
+	public HeadlessChunkBuffer populateNoise()
+	{
+		this.generatedChunk.reset(this.chunkWalker.next());
+		populate(this.generatedChunk);
+		return this.generatedChunk;
+	}
+
+	/**
+	 * Carves a populated chunk, includes copying the populated chunk.
+	 */
+	@Benchmark
+	public HeadlessChunkBuffer carve()
+	{
+		HeadlessChunkBuffer populatedChunk = this.populatedChunks[this.carvedChunkIndex];
+		this.carvedChunkIndex = (this.carvedChunkIndex + 1) % CARVED_CHUNKS;
+		this.carvedChunk.copyFrom(populatedChunk);
+		this.carvingMask.clear();
+		ChunkCoordinate chunkCoord = populatedChunk.getChunkCoordinate();
+		this.chunkGenerator.carve(this.carvedChunk, SEED, chunkCoord.getChunkX(), chunkCoord.getChunkZ(), this.carvingMask);
+		return this.carvedChunk;
+	}
+
+	private void populate(HeadlessChunkBuffer buffer)
+	{
+		ChunkCoordinate chunkCoord = buffer.getChunkCoordinate();
+		this.random.setSeed(chunkCoord.getChunkX() * 341873128712L + chunkCoord.getChunkZ() * 132897987541L);
+		this.chunkGenerator.populateNoise(this.worldHeightCap, this.random, buffer, chunkCoord, this.structures, this.junctions);
+	}
+}
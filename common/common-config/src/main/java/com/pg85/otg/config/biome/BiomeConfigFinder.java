@@ -7,6 +7,7 @@ import com.pg85.otg.constants.Constants;
 import com.pg85.otg.interfaces.ILogger;
 import com.pg85.otg.interfaces.IMaterialReader;
 import com.pg85.otg.util.biome.WeightedMobSpawnGroup;
+import com.pg85.otg.util.helpers.ConcurrencyHelper;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.minecraft.EntityCategory;
@@ -19,6 +20,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 /**
  * This class searches for the appropriate file for each biome.
@@ -46,57 +49,93 @@ public final class BiomeConfigFinder
 	 */
 	public Map<String, BiomeConfigStub> findBiomes(List<String> worldBiomes, int worldHeightScale, Collection<Path> directories, ILogger logger, IMaterialReader materialReader)
 	{
-		Map<String, BiomeConfigStub> biomeConfigsStore = new HashMap<String, BiomeConfigStub>();
+		return findBiomes(worldBiomes, worldHeightScale, directories, null, logger, materialReader);
+	}
 
+	/**
+	 * Finds the biomes in the given directories, reading the biome files
+	 * on the given executor.
+	 * 
+	 * @param directories The directories to search in.
+	 * @param executor	The executor to read the files on, or null to read
+	 *					them on the calling thread.
+	 *
+	 * @return A map of biome name --> location on disk.
+	 */
+	public Map<String, BiomeConfigStub> findBiomes(List<String> worldBiomes, int worldHeightScale, Collection<Path> directories, ExecutorService executor, ILogger logger, IMaterialReader materialReader)
+	{
 		// Search all directories
+		List<File> biomeFiles = new ArrayList<File>();
 		for (Path directoryPath  : directories)
 		{
 			File directory = directoryPath.toFile();
 			// Account for the possibility that folder creation failed
 			if (directory.exists())
 			{
-				loadBiomesFromDirectory(worldBiomes, worldHeightScale, biomeConfigsStore, directory, logger, materialReader);
+				addBiomeFilesFromDirectory(directory, biomeFiles);
 			}
 		}
-		
+
+		// Load biomeconfigs
+		List<Callable<BiomeConfigStub>> tasks = new ArrayList<Callable<BiomeConfigStub>>(biomeFiles.size());
+		for (File file : biomeFiles)
+		{
+			tasks.add(() -> {
+				String biomeName = toBiomeName(file);
+				File renamedFile = renameBiomeFile(file, biomeName, logger);
+				SettingsMap settings = FileSettingsReader.read(biomeName, renamedFile, logger);
+				return new BiomeConfigStub(settings, file.toPath(), biomeName, logger, materialReader);
+			});
+		}
+
+		// Stubs are added in the order the files were found, so duplicate names resolve the same way every time.
+		Map<String, BiomeConfigStub> biomeConfigsStore = new HashMap<String, BiomeConfigStub>();
+		for (BiomeConfigStub biomeConfigStub : ConcurrencyHelper.invokeAll(executor, tasks))
+		{
+			biomeConfigsStore.put(biomeConfigStub.getBiomeName(), biomeConfigStub);
+		}
 		return biomeConfigsStore;
 	}
 
 	/**
-	 * Loads the biomes from the given directory.
+	 * Adds the biome files in the given directory and its subdirectories.
 	 * 
-	 * @param biomeConfigsStore Map to store all the found biome configs in.
-	 * @param directory		 The directory to load from.
-	 * @param remainingBiomes	The biomes that should still be loaded. When a
-	 *						  biome is found, it is removed from this map.
+	 * @param directory  The directory to search in.
+	 * @param biomeFiles List to add all the found biome files to.
 	 */
-	private void loadBiomesFromDirectory(List<String> worldBiomes, int worldHeightScale, Map<String, BiomeConfigStub> biomeConfigsStore, File directory, ILogger logger, IMaterialReader materialReader)
+	private void addBiomeFilesFromDirectory(File directory, List<File> biomeFiles)
 	{
 		for (File file : directory.listFiles())
 		{
 			// Search recursively
 			if (file.isDirectory())
 			{
-				loadBiomesFromDirectory(worldBiomes, worldHeightScale, biomeConfigsStore, file, logger, materialReader);
+				addBiomeFilesFromDirectory(file, biomeFiles);
 				continue;
 			}
 
-			// Extract name from filename
-			String biomeName = toBiomeName(file);
-			if (biomeName == null)
+			// Skip files that aren't biome files
+			if (toBiomeName(file) != null)
 			{
-				// Not a valid biome file
-				continue;
+				biomeFiles.add(file);
 			}
-			
-			// Load biomeconfig
-			File renamedFile = renameBiomeFile(file, biomeName, logger);
-			SettingsMap settings = FileSettingsReader.read(biomeName, renamedFile, logger);
-			BiomeConfigStub biomeConfigStub = new BiomeConfigStub(settings, file.toPath(), biomeName, logger, materialReader);
-			biomeConfigsStore.put(biomeName, biomeConfigStub);
 		}
 	}
 
+	/**
+	 * Creates a stub for settings that have already been read, for
+	 * instance from a cache.
+	 * 
+	 * @param settings  The settings of the biome.
+	 * @param file	  The file the biome is stored in.
+	 * @param biomeName The name of the biome.
+	 * @return The stub.
+	 */
+	public BiomeConfigStub createBiomeConfigStub(SettingsMap settings, Path file, String biomeName, ILogger logger, IMaterialReader materialReader)
+	{
+		return new BiomeConfigStub(settings, file, biomeName, logger, materialReader);
+	}
+
 	/**
 	 * Tries to rename the config file so that it has the correct extension.
 	 * Does nothing if the config file already has the correct extension. If
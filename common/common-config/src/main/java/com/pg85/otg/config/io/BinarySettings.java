@@ -0,0 +1,100 @@
+package com.pg85.otg.config.io;
+
+import com.pg85.otg.config.io.RawSettingValue.ValueType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads and writes the raw settings of a {@link SettingsMap} in a binary
+ * format, used to cache config files so they don't have to be parsed again.
+ * Only settings and functions are stored, with their line numbers, which is
+ * all {@link FileSettingsReader} reads from a file.
+ */
+public final class BinarySettings
+{
+	private BinarySettings() { }
+
+	/**
+	 * Writes the settings and functions in the given map to the stream.
+	 * @param settings The settings map.
+	 * @param stream   The stream to write to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void write(SettingsMap settings, DataOutputStream stream) throws IOException
+	{
+		int count = 0;
+		for (RawSettingValue value : settings.getRawSettings())
+		{
+			if (isStored(value))
+			{
+				count++;
+			}
+		}
+		stream.writeInt(count);
+		for (RawSettingValue value : settings.getRawSettings())
+		{
+			if (isStored(value))
+			{
+				stream.writeByte(value.getType().ordinal());
+				stream.writeInt(value.getLineNumber());
+				writeString(value.getRawValue(), stream);
+			}
+		}
+	}
+
+	/**
+	 * Reads a settings map written by {@link #write(SettingsMap, DataOutputStream)}.
+	 * @param configName The name of the config, see {@link FileSettingsReader#read}.
+	 * @param stream	 The stream to read from.
+	 * @return The settings.
+	 * @throws IOException If an IO error occurs or the data is invalid.
+	 */
+	public static SettingsMap read(String configName, DataInputStream stream) throws IOException
+	{
+		SettingsMap settings = new SimpleSettingsMap(configName);
+		int count = stream.readInt();
+		for (int i = 0; i < count; i++)
+		{
+			int type = stream.readByte();
+			if (type != ValueType.PLAIN_SETTING.ordinal() && type != ValueType.FUNCTION.ordinal())
+			{
+				throw new IOException("Invalid setting type " + type);
+			}
+			int lineNumber = stream.readInt();
+			RawSettingValue value = RawSettingValue.create(ValueType.values()[type], readString(stream));
+			settings.addRawSetting(lineNumber > 0 ? value.withLineNumber(lineNumber) : value);
+		}
+		return settings;
+	}
+
+	/**
+	 * Writes a string of any length as UTF-8, unlike
+	 * {@link DataOutputStream#writeUTF(String)}.
+	 */
+	public static void writeString(String string, DataOutputStream stream) throws IOException
+	{
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		stream.writeInt(bytes.length);
+		stream.write(bytes);
+	}
+
+	public static String readString(DataInputStream stream) throws IOException
+	{
+		int length = stream.readInt();
+		if (length < 0)
+		{
+			throw new IOException("Invalid string length " + length);
+		}
+		byte[] bytes = new byte[length];
+		stream.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static boolean isStored(RawSettingValue value)
+	{
+		return value.getType() == ValueType.PLAIN_SETTING || value.getType() == ValueType.FUNCTION;
+	}
+}
@@ -19,4 +19,5 @@ public class PluginConfigStandardValues extends Settings
 	public static final Setting<Boolean> LOG_PERFORMANCE = booleanSetting("LogPerformance", false);
 	public static final Setting<Boolean> DEVELOPER_MODE = booleanSetting("DeveloperMode", false);
 	public static final Setting<Integer> WORKER_THREADS = intSetting("WorkerThreads", 0, 0, 10);
+	public static final Setting<Integer> BO4DATA_CACHE_SIZE = intSetting("BO4DataCacheSize", 2000000, 0, Integer.MAX_VALUE);
 }
@@ -90,6 +90,7 @@ public class WorldStandardValues extends Settings
 		RAVINE_MAX_LENGTH = intSetting("RavineMaxLength", 112, 1, 500),
 		MAXIMUM_CUSTOM_STRUCTURE_RADIUS = intSetting("MaximumCustomStructureRadius", 5, 1, 100),
 		CARVER_LAVA_BLOCK_HEIGHT = intSetting("CarverLavaBlockHeight", 10, 0, 255),
+		BIOME_CACHE_SIZE = intSetting("BiomeCacheSize", 256, 16, 65536),
 <<<<<<< HEAD
 		RANDOM_TICK_SPEED = intSetting("RandomTickSpeed", 3, 0, Integer.MAX_VALUE),
 		SPAWN_RADIUS = intSetting("SpawnRadius", 10, 0, Integer.MAX_VALUE),
@@ -165,6 +166,7 @@ public class WorldStandardValues extends Settings
 		USE_OLD_BO3_STRUCTURE_RARITY = booleanSetting("UseOldBO3StructureRarity", true),				
 		DECORATION_BOUNDS_CHECK = booleanSetting("DecorationBoundsCheck", true),
 		DISABLE_OREGEN = booleanSetting("DisableOreGen", false),
+		PERSISTENT_BIOME_CACHE = booleanSetting("PersistentBiomeCache", false),
 
 		OLD_GROUP_RARITY = booleanSetting("OldGroupRarity", true), //TODO: for 1.16 1.0, switch this to false --Authvin
 		OLD_LAND_RARITY = booleanSetting("OldLandRarity", true), //TODO: for 1.16 1.0, switch this to false --Authvin
@@ -117,6 +117,7 @@ public abstract class OTGEngine
 		this.customObjectResourcesManager = new CustomObjectResourcesManager();
 		this.customObjectManager = new CustomObjectManager(
 			getPluginConfig().getDeveloperModeEnabled(), 
+			getPluginConfig().getBO4DataCacheSize(), 
 			this.logger, 
 			this.otgRootFolder, 
 			getPresetsDirectory(), 
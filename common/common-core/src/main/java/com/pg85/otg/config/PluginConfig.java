@@ -48,6 +48,7 @@ public final class PluginConfig extends PluginConfigBase
 		this.decorationEnabled = reader.getSetting(PluginConfigStandardValues.DECORATION_ENABLED, logger);
 		this.developerMode = reader.getSetting(PluginConfigStandardValues.DEVELOPER_MODE, logger);
 		this.workerThreads = reader.getSetting(PluginConfigStandardValues.WORKER_THREADS, logger);
+		this.bo4DataCacheSize = reader.getSetting(PluginConfigStandardValues.BO4DATA_CACHE_SIZE, logger);
 	}
 
 	@Override
@@ -69,6 +70,13 @@ public final class PluginConfig extends PluginConfigBase
 			"base terrain and BO4 generation. Higher values may not result in better ",
 			"performance, experiment to see what works best for your cpu."
 		);
+
+		writer.putSetting(PluginConfigStandardValues.BO4DATA_CACHE_SIZE, this.bo4DataCacheSize,
+			"The maximum amount of blocks from BO4Data files to keep in memory, so BO4Data",
+			"files don't have to be read again each time a branch is spawned. Each cached",
+			"block takes roughly 32 bytes. Set to 0 to disable the cache.",
+			"Defaults to: 2000000"
+		);
 		
 		writer.header2("Logging");
 
@@ -19,6 +19,7 @@ public abstract class PluginConfigBase extends ConfigFile implements IPluginConf
 	protected LogLevels logLevel;
 	protected ConfigMode settingsMode;
 	protected int workerThreads;
+	protected int bo4DataCacheSize;
 	protected boolean developerMode;
 	protected boolean logCustomObjects;
 	protected boolean logStructurePlotting;
@@ -46,6 +47,12 @@ public abstract class PluginConfigBase extends ConfigFile implements IPluginConf
 		return this.workerThreads;
 	}
 
+	@Override
+	public int getBO4DataCacheSize()
+	{
+		return this.bo4DataCacheSize;
+	}
+
 	@Override
 	public boolean getDeveloperModeEnabled()
 	{
@@ -235,6 +235,8 @@ public class WorldConfig extends WorldConfigBase
 		this.betterSnowFall = reader.getSetting(WorldStandardValues.BETTER_SNOW_FALL, logger);
 		this.waterLevelMax = reader.getSetting(WorldStandardValues.WATER_LEVEL_MAX, logger);
 		this.waterLevelMin = reader.getSetting(WorldStandardValues.WATER_LEVEL_MIN, logger);
+		this.biomeCacheSize = reader.getSetting(WorldStandardValues.BIOME_CACHE_SIZE, logger);
+		this.persistentBiomeCache = reader.getSetting(WorldStandardValues.PERSISTENT_BIOME_CACHE, logger);
 
 		// FromImageMode
 
@@ -639,6 +641,18 @@ public class WorldConfig extends WorldConfigBase
 			"Values above 0 will lead to large cliffs/overhangs, floating islands, and/or a cavern world depending on other settings.",
 			"Values less than 0 will make terrain volatility more 'spiky' but lessen the likelihood of overhangs and floating terrain."
 		);
+
+		writer.header2("Caching");
+
+		writer.putSetting(WorldStandardValues.BIOME_CACHE_SIZE, this.biomeCacheSize,
+			"The number of chunks of biome data kept in memory by each world's biome cache, shared by all worldgen threads.",
+			"Higher values use more memory but mean less biome generation when threads work on nearby chunks. Defaults to: 256."
+		);
+
+		writer.putSetting(WorldStandardValues.PERSISTENT_BIOME_CACHE, this.persistentBiomeCache,
+			"Set this to true to save generated biome data in the world's save folder, so it doesn't have to be generated again after a restart.",
+			"The cache is rebuilt automatically when the preset's configs or the seed change. Defaults to: false."
+		);
 		
 		writer.header1("Blocks");
 		
@@ -96,6 +96,8 @@ abstract class WorldConfigBase extends ConfigFile implements IWorldConfig
 	protected int worldHeightCap;
 	protected int worldHeightScale;
 	protected int maxSmoothRadius = 2;
+	protected int biomeCacheSize;
+	protected boolean persistentBiomeCache;
 	protected boolean betterSnowFall;	
 	protected int waterLevelMin;
 	protected int waterLevelMax;
@@ -515,6 +517,18 @@ abstract class WorldConfigBase extends ConfigFile implements IWorldConfig
 	{
 		return this.maxSmoothRadius;
 	}
+
+	@Override
+	public int getBiomeCacheSize()
+	{
+		return this.biomeCacheSize;
+	}
+
+	@Override
+	public boolean getPersistentBiomeCacheEnabled()
+	{
+		return this.persistentBiomeCache;
+	}
 	
 	@Override
 	public boolean getWoodlandMansionsEnabled()
@@ -0,0 +1,93 @@
+package com.pg85.otg.gen;
+
+import com.pg85.otg.interfaces.IBiome;
+import com.pg85.otg.interfaces.IBiomeConfig;
+
+/**
+ * The biome config settings used by base terrain generation, packed into
+ * primitive arrays indexed by biome id. Biome smoothing reads these for
+ * every cell of every smoothing window, so it's a lot cheaper than calling
+ * the IBiomeConfig getters for each cell.
+ *
+ * Immutable, shared by all worldgen threads.
+ */
+final class BiomeNoiseParams
+{
+	// Offsets of the double settings for a biome in params, starting at id * STRIDE.
+	static final int VOLATILITY_1 = 0;
+	static final int VOLATILITY_2 = 1;
+	static final int FRACTURE_HORIZONTAL = 2;
+	static final int FRACTURE_VERTICAL = 3;
+	static final int VOLATILITY_WEIGHT_1 = 4;
+	static final int VOLATILITY_WEIGHT_2 = 5;
+	static final int MAX_AVERAGE_DEPTH = 6;
+	static final int MAX_AVERAGE_HEIGHT = 7;
+	static final int STRIDE = 8;
+
+	final int biomeCount;
+
+	final float[] height;
+	final float[] volatility;
+	final double[] params;
+	final int[] smoothRadius;
+	final int[] chcSmoothRadius;
+	final boolean[] disableBiomeHeight;
+
+	// CHC data for a biome starts at id * chcStride, hasCHC is false for
+	// biomes whose CHC is all zeroes, which don't need to be smoothed.
+	final int chcStride;
+	final double[] chc;
+	final boolean[] hasCHC;
+
+	BiomeNoiseParams(IBiome[] biomesById, int chcStride)
+	{
+		this.biomeCount = biomesById.length;
+		this.chcStride = chcStride;
+
+		this.height = new float[this.biomeCount];
+		this.volatility = new float[this.biomeCount];
+		this.params = new double[this.biomeCount * STRIDE];
+		this.smoothRadius = new int[this.biomeCount];
+		this.chcSmoothRadius = new int[this.biomeCount];
+		this.disableBiomeHeight = new boolean[this.biomeCount];
+		this.chc = new double[this.biomeCount * chcStride];
+		this.hasCHC = new boolean[this.biomeCount];
+
+		IBiomeConfig biomeConfig;
+		int offset;
+		for (int id = 0; id < this.biomeCount; id++)
+		{
+			// The id mapping can have gaps, those ids are never sampled.
+			if (biomesById[id] == null)
+			{
+				continue;
+			}
+			biomeConfig = biomesById[id].getBiomeConfig();
+
+			this.height[id] = biomeConfig.getBiomeHeight();
+			this.volatility[id] = biomeConfig.getBiomeVolatility();
+			offset = id * STRIDE;
+			this.params[offset + VOLATILITY_1] = biomeConfig.getVolatility1();
+			this.params[offset + VOLATILITY_2] = biomeConfig.getVolatility2();
+			this.params[offset + FRACTURE_HORIZONTAL] = biomeConfig.getFractureHorizontal();
+			this.params[offset + FRACTURE_VERTICAL] = biomeConfig.getFractureVertical();
+			this.params[offset + VOLATILITY_WEIGHT_1] = biomeConfig.getVolatilityWeight1();
+			this.params[offset + VOLATILITY_WEIGHT_2] = biomeConfig.getVolatilityWeight2();
+			this.params[offset + MAX_AVERAGE_DEPTH] = biomeConfig.getMaxAverageDepth();
+			this.params[offset + MAX_AVERAGE_HEIGHT] = biomeConfig.getMaxAverageHeight();
+			this.smoothRadius[id] = biomeConfig.getSmoothRadius();
+			this.chcSmoothRadius[id] = biomeConfig.getCHCSmoothRadius();
+			this.disableBiomeHeight[id] = biomeConfig.disableBiomeHeight();
+
+			offset = id * chcStride;
+			for (int y = 0; y < chcStride; y++)
+			{
+				this.chc[offset + y] = biomeConfig.getCHCData(y);
+				if (this.chc[offset + y] != 0.0D)
+				{
+					this.hasCHC[id] = true;
+				}
+			}
+		}
+	}
+}
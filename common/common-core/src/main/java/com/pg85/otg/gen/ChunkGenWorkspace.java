@@ -0,0 +1,149 @@
+package com.pg85.otg.gen;
+
+import java.util.Arrays;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.util.gen.GeneratingChunk;
+import com.pg85.otg.util.helpers.MathHelper;
+
+import it.unimi.dsi.fastutil.HashCommon;
+
+/**
+ * Per-thread scratch space for OTGChunkGenerator, so that base terrain
+ * generation doesn't allocate anything once a thread's workspace has
+ * been created. Arrays are sized for the generator's world height and
+ * the largest allowed smoothing radius up front.
+ *
+ * A workspace must only ever be used by the thread that owns it, and
+ * the contents of its arrays are only valid until the next call that
+ * uses them.
+ */
+final class ChunkGenWorkspace
+{
+	// Largest SmoothRadius/CHCSmoothRadius allowed in biome configs.
+	static final int MAX_SMOOTH_RADIUS = 32;
+	private static final int NOISE_CACHE_SIZE = 128;
+
+	final int noiseColumnSize;
+	final int noiseSizeZ;
+
+	// populateNoise
+
+	final int[] waterLevel = new int[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
+	// Two x slices of (noiseSizeZ + 1) noise columns, flattened.
+	final double[] noiseData;
+	final StructureInfluenceGrid structureGrid;
+
+	// Biome ids for all smoothing windows of the last chunk passed to populateNoise,
+	// (noise columns + 2 * max smooth radius)^2, stored at [x * biomeIdsSize + z].
+	final int[] biomeIds;
+	int biomeIdsStartX;
+	int biomeIdsStartZ;
+	int biomeIdsSize = 0;
+
+	// generateNoiseColumn
+
+	final double[] chc;
+	// Biome ids for a single smoothing window, for columns outside of the chunk area.
+	final int[] columnBiomeIds = new int[(MAX_SMOOTH_RADIUS * 2 + 1) * (MAX_SMOOTH_RADIUS * 2 + 1)];
+	// Summed CHC smoothing weight per biome id, and the ids with a non-zero weight.
+	final double[] chcWeights;
+	final int[] chcBiomes;
+	final double[] interpolation;
+	final double[] lower;
+	final double[] upper;
+	final double[] scaledY;
+	final double[] yOffset;
+	final boolean[] useLower;
+	final boolean[] useUpper;
+
+	// Noise column cache, direct-mapped, keyed by packed noise x/z.
+
+	private final long[] noiseCacheKeys;
+	private final double[] noiseCacheValues;
+	private final int noiseCacheMask;
+
+	// doSurfaceAndGroundControl
+
+	final double[] biomeBlocksNoise = new double[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
+	final GeneratingChunk generatingChunk;
+
+	ChunkGenWorkspace(int noiseSizeX, int noiseSizeY, int noiseSizeZ, int biomeCount)
+	{
+		this.noiseColumnSize = noiseSizeY + 1;
+		this.noiseSizeZ = noiseSizeZ;
+
+		this.noiseData = new double[2 * (noiseSizeZ + 1) * this.noiseColumnSize];
+		this.structureGrid = new StructureInfluenceGrid(noiseSizeX, noiseSizeZ);
+		int biomeIdsMaxSize = Math.max(noiseSizeX, noiseSizeZ) + 1 + MAX_SMOOTH_RADIUS * 2;
+		this.biomeIds = new int[biomeIdsMaxSize * biomeIdsMaxSize];
+
+		this.chc = new double[this.noiseColumnSize];
+		this.interpolation = new double[this.noiseColumnSize];
+		this.lower = new double[this.noiseColumnSize];
+		this.upper = new double[this.noiseColumnSize];
+		this.scaledY = new double[this.noiseColumnSize];
+		this.yOffset = new double[this.noiseColumnSize];
+		this.useLower = new boolean[this.noiseColumnSize];
+		this.useUpper = new boolean[this.noiseColumnSize];
+		this.chcWeights = new double[biomeCount];
+		this.chcBiomes = new int[biomeCount];
+
+		int cacheSize = MathHelper.smallestEncompassingPowerOfTwo(NOISE_CACHE_SIZE);
+		this.noiseCacheMask = cacheSize - 1;
+		this.noiseCacheKeys = new long[cacheSize];
+		Arrays.fill(this.noiseCacheKeys, Long.MIN_VALUE);
+		this.noiseCacheValues = new double[cacheSize * this.noiseColumnSize];
+
+		this.generatingChunk = new GeneratingChunk(null, this.waterLevel, this.biomeBlocksNoise, 0);
+	}
+
+	/**
+	 * Checks whether biomeIds covers the square area of noise coords with the given start and size.
+	 */
+	boolean biomeIdsContains(int noiseStartX, int noiseStartZ, int size)
+	{
+		return noiseStartX >= this.biomeIdsStartX && noiseStartZ >= this.biomeIdsStartZ &&
+			noiseStartX + size <= this.biomeIdsStartX + this.biomeIdsSize &&
+			noiseStartZ + size <= this.biomeIdsStartZ + this.biomeIdsSize;
+	}
+
+	/**
+	 * Gets the offset in noiseData of the noise column at the given x slice (0 or 1) and noise z.
+	 */
+	int noiseDataOffset(int slice, int noiseZ)
+	{
+		return (slice * (this.noiseSizeZ + 1) + noiseZ) * this.noiseColumnSize;
+	}
+
+	/**
+	 * Copies the cached noise column for the given noise coords into the buffer.
+	 *
+	 * @return False if the column isn't cached.
+	 */
+	boolean getCachedNoiseColumn(double[] buffer, int bufferOffset, int noiseX, int noiseZ)
+	{
+		long key = MathHelper.toLong(noiseX, noiseZ);
+		int idx = noiseCacheIndex(key);
+		// if the entry here has a key that matches ours, we have a cache hit
+		if (this.noiseCacheKeys[idx] == key)
+		{
+			System.arraycopy(this.noiseCacheValues, idx * this.noiseColumnSize, buffer, bufferOffset, this.noiseColumnSize);
+			return true;
+		}
+		return false;
+	}
+
+	void cacheNoiseColumn(double[] buffer, int bufferOffset, int noiseX, int noiseZ)
+	{
+		long key = MathHelper.toLong(noiseX, noiseZ);
+		int idx = noiseCacheIndex(key);
+		System.arraycopy(buffer, bufferOffset, this.noiseCacheValues, idx * this.noiseColumnSize, this.noiseColumnSize);
+		this.noiseCacheKeys[idx] = key;
+	}
+
+	private int noiseCacheIndex(long key)
+	{
+		return (int) HashCommon.mix(key) & this.noiseCacheMask;
+	}
+}
@@ -46,7 +46,6 @@ public class OTGChunkDecorator implements IChunkDecorator
 	private int decorating = 0;
 	private boolean saving;
 	private boolean saveRequired;
-	private Object asynChunkDecorationLock = new Object();
 
 	public OTGChunkDecorator()
 	{
@@ -68,14 +67,22 @@ public class OTGChunkDecorator implements IChunkDecorator
 	@Override
 	public void beginSave()
 	{
-		this.saving = true;
+		synchronized(this.lockingObject)
+		{
+			this.saving = true;
+		}
 	}
 
 	@Override
 	public void endSave()
 	{
-		this.saveRequired = false;
-		this.saving = false;
+		synchronized(this.lockingObject)
+		{
+			this.saveRequired = false;
+			this.saving = false;
+			// Wake up any threads waiting to decorate.
+			this.lockingObject.notifyAll();
+		}
 	}
 
 	@Override
@@ -89,24 +96,27 @@ public class OTGChunkDecorator implements IChunkDecorator
 		ILogger logger = OTG.getEngine().getLogger();
 		
 		// Wait for another thread running SaveToDisk, then place a lock.
-		boolean firstLog = false;
-		while(true)
+		// SaveToDisk only blocks while it's taking a snapshot of the 
+		// structure data, files are written in the background.
+		synchronized(this.lockingObject)
 		{
-			synchronized(this.lockingObject)
+			boolean interrupted = false;
+			while(this.saving)
 			{
-				if(!this.saving)
+				try {
+					this.lockingObject.wait();
+				}
+				catch (InterruptedException e)
 				{
-					this.decorating++;
-					this.saveRequired = true;
-					break;
-				} else {
-					if(firstLog)
-					{
-						logger.log(LogLevel.WARN, LogCategory.MAIN, "Decorate waiting on SaveToDisk. Although other mods could be causing this and there may not be any problem, this can potentially cause an endless loop!");
-						firstLog = false;
-					}
+					interrupted = true;
 				}
 			}
+			if(interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+			this.decorating++;
+			this.saveRequired = true;
 		}
 
 		Path otgRootFolder = OTG.getEngine().getOTGRootFolder();
@@ -115,12 +125,18 @@ public class OTGChunkDecorator implements IChunkDecorator
 		CustomObjectResourcesManager customObjectResourcesManager = OTG.getEngine().getCustomObjectResourcesManager();
 		IModLoadedChecker modLoadedChecker = OTG.getEngine().getModLoadedChecker();
 
-		doDecorate(chunkCoord, worldGenRegion, biomeConfig, logger, materialReader, otgRootFolder, structureCache, customObjectManager, customObjectResourcesManager, modLoadedChecker);			
-		
-		// Release the lock
-		synchronized(this.lockingObject)
-		{
-			this.decorating--;
+		try {
+			doDecorate(chunkCoord, worldGenRegion, biomeConfig, logger, materialReader, otgRootFolder, structureCache, customObjectManager, customObjectResourcesManager, modLoadedChecker);
+		} finally {
+			// Release the lock, wake up SaveToDisk if it's waiting.
+			synchronized(this.lockingObject)
+			{
+				this.decorating--;
+				if(this.decorating == 0)
+				{
+					this.lockingObject.notifyAll();
+				}
+			}
 		}
 	}
 
@@ -155,13 +171,9 @@ public class OTGChunkDecorator implements IChunkDecorator
 		// Use BO4 logic for BO4 worlds
 		if(worldGenRegion.getWorldConfig().getCustomStructureType() == CustomStructureType.BO4)
 		{
-			// BO4 Plotting cannot currently be done in a thread-safe/non-blocking way,
-			// Paper may try to do async chunkgen, so lock here. This will ofcourse 
-			// slow down any multithreaded chunk decoration implementation.
-			synchronized(asynChunkDecorationLock)
-			{
-				plotAndSpawnBO4s(structureCache, worldGenRegion, ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX(), chunkCoord.getChunkZ()), chunkCoord, otgRootFolder, logger, customObjectManager, materialReader, customObjectResourcesManager, modLoadedChecker);
-			}
+			// The plotter locks the area around the chunk itself, so chunks in
+			// different parts of the world can be plotted and spawned in parallel.
+			plotAndSpawnBO4s(structureCache, worldGenRegion, ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX(), chunkCoord.getChunkZ()), chunkCoord, otgRootFolder, logger, customObjectManager, materialReader, customObjectResourcesManager, modLoadedChecker);
 		}
 
 		if(
@@ -1,5 +1,12 @@
 package com.pg85.otg.gen;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Random;
@@ -8,6 +15,7 @@ import java.util.stream.IntStream;
 
 import com.pg85.otg.OTG;
 import com.pg85.otg.constants.Constants;
+import com.pg85.otg.constants.SettingsEnums.BiomeMode;
 import com.pg85.otg.gen.biome.CachedBiomeProvider;
 import com.pg85.otg.gen.carver.Carver;
 import com.pg85.otg.gen.carver.CaveCarver;
@@ -30,9 +38,7 @@ import com.pg85.otg.util.gen.JigsawStructureData;
 import com.pg85.otg.util.helpers.MathHelper;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
-import it.unimi.dsi.fastutil.HashCommon;
 import it.unimi.dsi.fastutil.objects.ObjectList;
-import it.unimi.dsi.fastutil.objects.ObjectListIterator;
 
 /**
  * Generates the base terrain, sets stone/ground/surface blocks and does SurfaceAndGroundControl, generates caves and canyons.
@@ -82,19 +88,19 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 	private final Preset preset;
 	private final long seed;
 	private final CachedBiomeProvider cachedBiomeProvider;
+	private final BiomeNoiseParams biomeNoiseParams;
 
 	private final int noiseSizeX = 4;
 	private final int noiseSizeY;
 	private final int noiseSizeZ = 4;
 
-	private final ThreadLocal<NoiseCache> noiseCache;
+	private final ThreadLocal<ChunkGenWorkspace> workspace;
 	private final NoiseGeneratorPerlinMesaBlocks biomeBlocksNoiseGen;
 	// Carvers
 	private final Carver caves;
 	private final Carver ravines;
 	// Biome blocks noise
 	// TODO: Use new noise?
-	private ThreadLocal<double[]> biomeBlocksNoise = ThreadLocal.withInitial(() -> new double[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE]);
 	private ThreadLocal<Integer> lastX = ThreadLocal.withInitial(() -> Integer.MAX_VALUE);
 	private ThreadLocal<Integer> lastZ = ThreadLocal.withInitial(() -> Integer.MAX_VALUE);
 	private ThreadLocal<Double> lastNoise = ThreadLocal.withInitial(() -> 0d);
@@ -103,19 +109,20 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 	{
 		this.preset = preset;
 		this.seed = seed;
-		this.cachedBiomeProvider = new CachedBiomeProvider(this.seed, biomeProvider, biomesById, logger);
+		this.cachedBiomeProvider = new CachedBiomeProvider(this.seed, biomeProvider, biomesById, preset.getWorldConfig().getBiomeCacheSize(), logger);
 
 		// Setup noises
 		Random random = new Random(seed);
 
 		this.noiseSizeY = preset.getWorldConfig().getWorldHeightCap() / 8;
+		this.biomeNoiseParams = new BiomeNoiseParams(biomesById, this.noiseSizeY + 1);
 
 		this.interpolationNoise = new OctavePerlinNoiseSampler(random, IntStream.rangeClosed(-7, 0));
 		this.lowerInterpolatedNoise = new OctavePerlinNoiseSampler(random, IntStream.rangeClosed(-15, 0));
 		this.upperInterpolatedNoise = new OctavePerlinNoiseSampler(random, IntStream.rangeClosed(-15, 0));
 		this.depthNoise = new OctavePerlinNoiseSampler(random, IntStream.rangeClosed(-15, 0));
 
-		this.noiseCache = ThreadLocal.withInitial(() -> new NoiseCache(128, this.noiseSizeY + 1));
+		this.workspace = ThreadLocal.withInitial(() -> new ChunkGenWorkspace(this.noiseSizeX, this.noiseSizeY, this.noiseSizeZ, biomesById.length));
 
 		this.biomeBlocksNoiseGen = new NoiseGeneratorPerlinMesaBlocks(random, 4);
 
@@ -128,13 +135,54 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 		return this.cachedBiomeProvider;
 	}
 
+	/**
+	 * Enables the on-disk biome cache if the preset has it enabled,
+	 * call this once the world's save folder is known. Dimensions that
+	 * share a save folder each get their own cache folder.
+	 */
+	public void enablePersistentBiomeCache(Path worldSaveFolder, String dimensionName)
+	{
+		if(this.preset.getWorldConfig().getPersistentBiomeCacheEnabled())
+		{
+			this.cachedBiomeProvider.enablePersistentCache(
+				new File(worldSaveFolder + File.separator + Constants.MOD_ID + File.separator + this.preset.getFolderName() + File.separator + Constants.BiomeCacheFolderName + File.separator + dimensionName),
+				MathHelper.mixSeed(this.preset.getConfigHash(), getBiomeImageHash())
+			);
+		}
+	}
+
+	public void disablePersistentBiomeCache()
+	{
+		this.cachedBiomeProvider.disablePersistentCache();
+	}
+
+	// FromImage biomes are read from the image, so the persistent biome cache has to change with it.
+	private long getBiomeImageHash()
+	{
+		if(this.preset.getWorldConfig().getBiomeMode() != BiomeMode.FromImage)
+		{
+			return 0;
+		}
+		File imageFile = new File(this.preset.getPresetFolder().toFile(), this.preset.getWorldConfig().getImageFile());
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(Files.readAllBytes(imageFile.toPath()));
+			return ByteBuffer.wrap(digest.digest()).getLong();
+		}
+		catch (IOException | NoSuchAlgorithmException e)
+		{
+			OTG.getEngine().getLogger().log(LogLevel.ERROR, LogCategory.CONFIGS, "Could not hash biome image " + imageFile.getAbsolutePath() + ": " + e.getMessage());
+			return 0;
+		}
+	}
+
 	private static <T> T make(T object, Consumer<T> consumer)
 	{
 		consumer.accept(object);
 		return object;
 	}
 
-	private static double getNoiseWeight(int x, int y, int z)
+	static double getNoiseWeight(int x, int y, int z)
 	{
 		int arrayX = x + 12;
 		int arrayZ = y + 12;
@@ -173,74 +221,137 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 		return yOffset * density;
 	}
 
-	private double sampleNoise(int x, int y, int z, double horizontalScale, double verticalScale, double horizontalStretch, double verticalStretch, double volatility1, double volatility2, double volatilityWeight1, double volatilityWeight2)
+	// The algorithm for noise generation varies slightly here as it calculates the interpolation first and then the interpolated noise to avoid sampling noise that will never be used.
+	// The end result is ~2x faster terrain generation.
+	// Samples are done for a whole column at once, so per-octave x/z scaling and lookups only happen once per column
+	// instead of once per y. Results are identical to sampling each point separately, since every sample is still
+	// calculated using the same math, in the same order.
+	private void sampleNoiseColumn(double[] noiseColumn, int noiseColumnOffset, ChunkGenWorkspace workspace, int x, int z, int count, double horizontalScale, double verticalScale, double horizontalStretch, double verticalStretch, double volatility1, double volatility2, double volatilityWeight1, double volatilityWeight2)
 	{
-		// The algorithm for noise generation varies slightly here as it calculates the interpolation first and then the interpolated noise to avoid sampling noise that will never be used.
-		// The end result is ~2x faster terrain generation.
+		double[] delta = workspace.interpolation;
+		boolean[] useLower = workspace.useLower;
+		boolean[] useUpper = workspace.useUpper;
 
-		double delta = getInterpolationNoise(x, y, z, horizontalStretch, verticalStretch);
+		getInterpolationNoiseColumn(delta, workspace, x, z, count, horizontalStretch, verticalStretch);
 
-		if (delta < volatilityWeight1)
+		boolean anyLower = false;
+		boolean anyUpper = false;
+		for (int y = 0; y < count; y++)
 		{
-			return getInterpolatedNoise(this.lowerInterpolatedNoise, x, y, z, horizontalScale, verticalScale) / 512.0D * volatility1;
+			useLower[y] = !(delta[y] > volatilityWeight2) || delta[y] < volatilityWeight1;
+			useUpper[y] = !(delta[y] < volatilityWeight1);
+			anyLower |= useLower[y];
+			anyUpper |= useUpper[y];
 		}
-		else if (delta > volatilityWeight2)
+
+		getInterpolatedNoiseColumns(anyLower ? workspace.lower : null, anyUpper ? workspace.upper : null, workspace, x, z, count, horizontalScale, verticalScale);
+
+		double[] lower = workspace.lower;
+		double[] upper = workspace.upper;
+		for (int y = 0; y < count; y++)
 		{
-			return getInterpolatedNoise(this.upperInterpolatedNoise, x, y, z, horizontalScale, verticalScale) / 512.0D * volatility2;
-		} else {
-			// TODO: should probably use clamping here to prevent weird artifacts
-			return MathHelper.lerp(
-				delta,
-				getInterpolatedNoise(this.lowerInterpolatedNoise, x, y, z, horizontalScale, verticalScale) / 512.0D * volatility1,
-				getInterpolatedNoise(this.upperInterpolatedNoise, x, y, z, horizontalScale, verticalScale) / 512.0D * volatility2);
+			if (delta[y] < volatilityWeight1)
+			{
+				noiseColumn[noiseColumnOffset + y] = lower[y] / 512.0D * volatility1;
+			}
+			else if (delta[y] > volatilityWeight2)
+			{
+				noiseColumn[noiseColumnOffset + y] = upper[y] / 512.0D * volatility2;
+			} else {
+				// TODO: should probably use clamping here to prevent weird artifacts
+				noiseColumn[noiseColumnOffset + y] = MathHelper.lerp(
+					delta[y],
+					lower[y] / 512.0D * volatility1,
+					upper[y] / 512.0D * volatility2);
+			}
 		}
 	}
 
-	private double getInterpolationNoise(int x, int y, int z, double horizontalStretch, double verticalStretch)
+	private void getInterpolationNoiseColumn(double[] interpolation, ChunkGenWorkspace workspace, int x, int z, int count, double horizontalStretch, double verticalStretch)
 	{
-		double interpolation = 0.0D;
-		double amplitude = 1.0D;		
+		double[] scaledY = workspace.scaledY;
+		double[] yOffset = workspace.yOffset;
+		Arrays.fill(interpolation, 0, count, 0.0D);
+
+		double amplitude = 1.0D;
 		PerlinNoiseSampler interpolationSampler;
 		for (int i = 0; i < 8; i++)
 		{
 			interpolationSampler = this.interpolationNoise.getOctave(i);
 			if (interpolationSampler != null)
 			{
-				interpolation += interpolationSampler.sample(OctavePerlinNoiseSampler.maintainPrecision((double) x * horizontalStretch * amplitude), OctavePerlinNoiseSampler.maintainPrecision((double) y * verticalStretch * amplitude), OctavePerlinNoiseSampler.maintainPrecision((double) z * horizontalStretch * amplitude), verticalStretch * amplitude, (double) y * verticalStretch * amplitude) / amplitude;
+				for (int y = 0; y < count; y++)
+				{
+					yOffset[y] = (double) y * verticalStretch * amplitude;
+					scaledY[y] = OctavePerlinNoiseSampler.maintainPrecision(yOffset[y]);
+				}
+				interpolationSampler.sampleColumn(
+					OctavePerlinNoiseSampler.maintainPrecision((double) x * horizontalStretch * amplitude),
+					OctavePerlinNoiseSampler.maintainPrecision((double) z * horizontalStretch * amplitude),
+					scaledY, verticalStretch * amplitude, yOffset, amplitude, interpolation, null, count
+				);
 			}
 
 			amplitude /= 2.0D;
 		}
 
-		return (interpolation / 10.0D + 1.0D) / 2.0D;
+		for (int y = 0; y < count; y++)
+		{
+			interpolation[y] = (interpolation[y] / 10.0D + 1.0D) / 2.0D;
+		}
 	}
 
-	private double getInterpolatedNoise(OctavePerlinNoiseSampler sampler, int x, int y, int z, double horizontalScale, double verticalScale)
+	// Lower and upper noise use the same scaling, so they're sampled together. Pass null to skip either one.
+	private void getInterpolatedNoiseColumns(double[] lower, double[] upper, ChunkGenWorkspace workspace, int x, int z, int count, double horizontalScale, double verticalScale)
 	{
-		double noise = 0.0D;
+		if (lower == null && upper == null)
+		{
+			return;
+		}
+
+		double[] scaledY = workspace.scaledY;
+		double[] yOffset = workspace.yOffset;
+		if (lower != null)
+		{
+			Arrays.fill(lower, 0, count, 0.0D);
+		}
+		if (upper != null)
+		{
+			Arrays.fill(upper, 0, count, 0.0D);
+		}
+
 		double amplitude = 1.0D;
 		double scaledX;
-		double scaledY;
 		double scaledZ;
 		double scaledVerticalScale;
-		PerlinNoiseSampler perlinNoiseSampler;
+		PerlinNoiseSampler lowerSampler;
+		PerlinNoiseSampler upperSampler;
 		for (int i = 0; i < Constants.CHUNK_SIZE; ++i)
 		{
-			scaledX = OctavePerlinNoiseSampler.maintainPrecision((double) x * horizontalScale * amplitude);
-			scaledY = OctavePerlinNoiseSampler.maintainPrecision((double) y * verticalScale * amplitude);
-			scaledZ = OctavePerlinNoiseSampler.maintainPrecision((double) z * horizontalScale * amplitude);
-			scaledVerticalScale = verticalScale * amplitude;
-			
-			perlinNoiseSampler = sampler.getOctave(i);
-			if (perlinNoiseSampler != null)
+			lowerSampler = lower != null ? this.lowerInterpolatedNoise.getOctave(i) : null;
+			upperSampler = upper != null ? this.upperInterpolatedNoise.getOctave(i) : null;
+			if (lowerSampler != null || upperSampler != null)
 			{
-				noise += perlinNoiseSampler.sample(scaledX, scaledY, scaledZ, scaledVerticalScale, (double) y * scaledVerticalScale) / amplitude;
+				scaledX = OctavePerlinNoiseSampler.maintainPrecision((double) x * horizontalScale * amplitude);
+				scaledZ = OctavePerlinNoiseSampler.maintainPrecision((double) z * horizontalScale * amplitude);
+				scaledVerticalScale = verticalScale * amplitude;
+				for (int y = 0; y < count; y++)
+				{
+					scaledY[y] = OctavePerlinNoiseSampler.maintainPrecision((double) y * verticalScale * amplitude);
+					yOffset[y] = (double) y * scaledVerticalScale;
+				}
+				if (lowerSampler != null)
+				{
+					lowerSampler.sampleColumn(scaledX, scaledZ, scaledY, scaledVerticalScale, yOffset, amplitude, lower, workspace.useLower, count);
+				}
+				if (upperSampler != null)
+				{
+					upperSampler.sampleColumn(scaledX, scaledZ, scaledY, scaledVerticalScale, yOffset, amplitude, upper, workspace.useUpper, count);
+				}
 			}
 
 			amplitude /= 2.0D;
 		}
-
-		return noise;
 	}
 
 	private double getExtraHeightAt(int x, int z, double maxAverageDepth, double maxAverageHeight)
@@ -277,14 +388,23 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 	
 	public void getNoiseColumn(double[] buffer, int x, int z)
 	{
-		// TODO: check only for edges
-		this.noiseCache.get().get(buffer, x, z);
+		getNoiseColumn(buffer, 0, x, z, this.workspace.get());
 	}
 
-	private void generateNoiseColumn(double[] noiseColumn, int noiseX, int noiseZ)
+	private void getNoiseColumn(double[] buffer, int bufferOffset, int noiseX, int noiseZ, ChunkGenWorkspace workspace)
 	{
-		IBiomeConfig center = this.cachedBiomeProvider.getNoiseBiomeConfig(noiseX, noiseZ, true);
+		// TODO: check only for edges
+		if (!workspace.getCachedNoiseColumn(buffer, bufferOffset, noiseX, noiseZ))
+		{
+			// cache miss: sample the noise column and put the result into our cache entry
+			generateNoiseColumn(buffer, bufferOffset, workspace, noiseX, noiseZ);
+			workspace.cacheNoiseColumn(buffer, bufferOffset, noiseX, noiseZ);
+		}
+	}
 
+	private void generateNoiseColumn(double[] noiseColumn, int noiseColumnOffset, ChunkGenWorkspace workspace, int noiseX, int noiseZ)
+	{
+		BiomeNoiseParams params = this.biomeNoiseParams;
 		final int usedYSections = this.preset.getWorldConfig().getWorldHeightScale() / 8 + 1;
 		float height = 0; // depth
 		float volatility = 0; // scale
@@ -296,25 +416,51 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 		double volatilityWeight2 = 0;
 		double maxAverageDepth = 0;
 		double maxAverageHeight = 0;
-		double[] chc = new double[this.noiseSizeY + 1];
+		double[] chc = workspace.chc;
+		Arrays.fill(chc, 0.0D);
 		float weight = 0;
-		
-		int radius = Math.max(center.getSmoothRadius(), center.getCHCSmoothRadius());
-		int areaSize = radius * 2 + 1;
-		IBiomeConfig biomes[] = this.cachedBiomeProvider.getNoiseBiomeConfigsForRegion(noiseX - radius, noiseZ - radius, areaSize);
-		IBiomeConfig biome;
+
+		// Use the biome ids fetched for the current chunk if they cover this column's
+		// smoothing window, otherwise fetch the window on its own.
+		int[] biomeIds;
+		int areaSize;
+		int areaX;
+		int areaZ;
+		int center;
+		if (workspace.biomeIdsContains(noiseX, noiseZ, 1))
+		{
+			center = workspace.biomeIds[(noiseX - workspace.biomeIdsStartX) * workspace.biomeIdsSize + noiseZ - workspace.biomeIdsStartZ];
+		} else {
+			center = this.cachedBiomeProvider.getNoiseBiomeId(noiseX, noiseZ);
+		}
+		int smoothRadius = params.smoothRadius[center];
+		int chcSmoothRadius = params.chcSmoothRadius[center];
+		int radius = Math.max(smoothRadius, chcSmoothRadius);
+		if (workspace.biomeIdsContains(noiseX - radius, noiseZ - radius, radius * 2 + 1))
+		{
+			biomeIds = workspace.biomeIds;
+			areaSize = workspace.biomeIdsSize;
+			areaX = noiseX - workspace.biomeIdsStartX;
+			areaZ = noiseZ - workspace.biomeIdsStartZ;
+		} else {
+			areaSize = radius * 2 + 1;
+			biomeIds = this.cachedBiomeProvider.getNoiseBiomeIdsForRegion(noiseX - radius, noiseZ - radius, areaSize, workspace.columnBiomeIds);
+			areaX = radius;
+			areaZ = radius;
+		}
+
+		int biome;
+		int offset;
 		float heightAt;
 		float weightAt;
 		int cacheX;
-		int cacheZ;
-		for (int x1 = -center.getSmoothRadius(); x1 <= center.getSmoothRadius(); ++x1)
+		for (int x1 = -smoothRadius; x1 <= smoothRadius; ++x1)
 		{
-			cacheX = x1 + radius;
-			for (int z1 = -center.getSmoothRadius(); z1 <= center.getSmoothRadius(); ++z1)
+			cacheX = (areaX + x1) * areaSize + areaZ;
+			for (int z1 = -smoothRadius; z1 <= smoothRadius; ++z1)
 			{
-				cacheZ = z1 + radius;
-				biome = biomes[cacheX * areaSize + cacheZ];
-				heightAt = biome.getBiomeHeight();
+				biome = biomeIds[cacheX + z1];
+				heightAt = params.height[biome];
 				// TODO: vanilla reduces the weight by half when the depth here is greater than the center depth, but OTG doesn't do that?
 				weightAt = BIOME_WEIGHT_TABLE[x1 + 32 + (z1 + 32) * 65] / (heightAt + 2.0F);
 				weightAt = Math.abs(weightAt); // This is required to prevent seams when height goes below -2
@@ -322,40 +468,62 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 				weight += weightAt;
 
 				height += heightAt * weightAt;
-				volatility += biome.getBiomeVolatility() * weightAt;
-				volatility1 += biome.getVolatility1() * weightAt;
-				volatility2 += biome.getVolatility2() * weightAt;
-				horizontalFracture += biome.getFractureHorizontal() * weightAt;
-				verticalFracture += biome.getFractureVertical() * weightAt;
-				volatilityWeight1 += biome.getVolatilityWeight1() * weightAt;
-				volatilityWeight2 += biome.getVolatilityWeight2() * weightAt;
-				maxAverageDepth += biome.getMaxAverageDepth() * weightAt;
-				maxAverageHeight += biome.getMaxAverageHeight() * weightAt;
+				volatility += params.volatility[biome] * weightAt;
+				offset = biome * BiomeNoiseParams.STRIDE;
+				volatility1 += params.params[offset + BiomeNoiseParams.VOLATILITY_1] * weightAt;
+				volatility2 += params.params[offset + BiomeNoiseParams.VOLATILITY_2] * weightAt;
+				horizontalFracture += params.params[offset + BiomeNoiseParams.FRACTURE_HORIZONTAL] * weightAt;
+				verticalFracture += params.params[offset + BiomeNoiseParams.FRACTURE_VERTICAL] * weightAt;
+				volatilityWeight1 += params.params[offset + BiomeNoiseParams.VOLATILITY_WEIGHT_1] * weightAt;
+				volatilityWeight2 += params.params[offset + BiomeNoiseParams.VOLATILITY_WEIGHT_2] * weightAt;
+				maxAverageDepth += params.params[offset + BiomeNoiseParams.MAX_AVERAGE_DEPTH] * weightAt;
+				maxAverageHeight += params.params[offset + BiomeNoiseParams.MAX_AVERAGE_HEIGHT] * weightAt;
 			}
 		}
 
 		// CHC Smoothing
+		// The window usually contains only a handful of distinct biomes, so sum the
+		// weights per biome first and only then loop over y once for each biome.
+		// Biomes without CHC data only count towards the total weight.
 		double chcWeight = 0;
-		for (int x1 = -center.getCHCSmoothRadius(); x1 <= center.getCHCSmoothRadius(); ++x1)
+		double[] chcWeights = workspace.chcWeights;
+		int[] chcBiomes = workspace.chcBiomes;
+		int chcBiomeCount = 0;
+		for (int x1 = -chcSmoothRadius; x1 <= chcSmoothRadius; ++x1)
 		{
-			cacheX = x1 + radius;
-			for (int z1 = -center.getCHCSmoothRadius(); z1 <= center.getCHCSmoothRadius(); ++z1)
+			cacheX = (areaX + x1) * areaSize + areaZ;
+			for (int z1 = -chcSmoothRadius; z1 <= chcSmoothRadius; ++z1)
 			{
-				cacheZ = z1 + radius;
-				biome = biomes[cacheX * areaSize + cacheZ];
+				biome = biomeIds[cacheX + z1];
 
-				heightAt = biome.getBiomeHeight();
+				heightAt = params.height[biome];
 				weightAt = BIOME_WEIGHT_TABLE[x1 + 32 + (z1 + 32) * 65] / (heightAt + 2.0F);
 				weightAt = Math.abs(weightAt);
 
 				chcWeight += weightAt;
 
-				for (int y = 0; y < this.noiseSizeY + 1; y++)
+				if (params.hasCHC[biome])
 				{
-					chc[y] += biome.getCHCData(y) * weightAt;
+					if (chcWeights[biome] == 0.0D)
+					{
+						chcBiomes[chcBiomeCount++] = biome;
+					}
+					chcWeights[biome] += weightAt;
 				}
 			}
 		}
+		double biomeWeight;
+		for (int i = 0; i < chcBiomeCount; i++)
+		{
+			biome = chcBiomes[i];
+			biomeWeight = chcWeights[biome];
+			chcWeights[biome] = 0.0D;
+			offset = biome * params.chcStride;
+			for (int y = 0; y < this.noiseSizeY + 1; y++)
+			{
+				chc[y] += params.chc[offset + y] * biomeWeight;
+			}
+		}
 
 		// Normalize biome data
 		height /= weight;
@@ -385,9 +553,11 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 		// Factor in y sections
 		height = usedYSections * (2.0f + height + extraHeight) / 4.0f;
 		
+		double horizontalScale = WORLD_GEN_CONSTANT * horizontalFracture;
+		double verticalScale = WORLD_GEN_CONSTANT * verticalFracture;
+		sampleNoiseColumn(noiseColumn, noiseColumnOffset, workspace, noiseX, noiseZ, this.noiseSizeY + 1, horizontalScale, verticalScale, horizontalScale / 80, verticalScale / 160, volatility1, volatility2, volatilityWeight1, volatilityWeight2);
+
 		double falloff;
-		double horizontalScale;
-		double verticalScale;
 		double noise;
 		for (int y = 0; y <= this.noiseSizeY; ++y)
 		{
@@ -398,11 +568,9 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 				falloff *= 4.0;
 			}
 
-			horizontalScale = WORLD_GEN_CONSTANT * horizontalFracture;
-			verticalScale = WORLD_GEN_CONSTANT * verticalFracture;
-			noise = sampleNoise(noiseX, y, noiseZ, horizontalScale, verticalScale, horizontalScale / 80, verticalScale / 160, volatility1, volatility2, volatilityWeight1, volatilityWeight2);
+			noise = noiseColumn[noiseColumnOffset + y];
 
-			if (!center.disableBiomeHeight())
+			if (!params.disableBiomeHeight[center])
 			{
 				// Add the falloff at this height
 				noise += falloff;
@@ -418,7 +586,7 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 			noise += chc[y];
 
 			// Store value
-			noiseColumn[y] = noise;
+			noiseColumn[noiseColumnOffset + y] = noise;
 		}
 	}
 
@@ -428,13 +596,12 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 	{
 		ILogger logger = OTG.getEngine().getLogger();
 
-		ObjectListIterator<JigsawStructureData> structureIterator = structures.iterator();
-		ObjectListIterator<JigsawStructureData> junctionsIterator = junctions.iterator();
-
 		long startTime = System.currentTimeMillis();
+
+		ChunkGenWorkspace workspace = this.workspace.get();
 		
 		// Fill waterLevel array, used when placing stone/ground/surface blocks.
-		int[] waterLevel = new int[256];
+		int[] waterLevel = workspace.waterLevel;
 
 		int blockX = chunkCoord.getBlockX();
 		int blockZ = chunkCoord.getBlockZ();
@@ -449,20 +616,35 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 			}
 		}
 
-		// TODO: this double[][][] is probably really bad for performance
-		double[][][] noiseData = new double[2][this.noiseSizeZ + 1][this.noiseSizeY + 1];
+		// Bucket structures and junctions per noise cell, so each block only looks at the ones in range.
+		StructureInfluenceGrid structureGrid = workspace.structureGrid;
+		structureGrid.update(structures, junctions, blockX, blockZ);
+
+		// Two x slices of noise columns, flattened, see ChunkGenWorkspace.noiseDataOffset.
+		double[] noiseData = workspace.noiseData;
+
+		// Fetch biome ids for the smoothing windows of all noise columns in this chunk at once.
 		// Max smoothing radius is 32, so area covered is 32+5+32=69 (noise/biome coords, so *4)
+		int maxSmoothRadius = Math.min(this.preset.getWorldConfig().getMaxSmoothRadius(), ChunkGenWorkspace.MAX_SMOOTH_RADIUS);
+		workspace.biomeIdsStartX = chunkCoord.getChunkX() * this.noiseSizeX - maxSmoothRadius;
+		workspace.biomeIdsStartZ = chunkCoord.getChunkZ() * this.noiseSizeZ - maxSmoothRadius;
+		workspace.biomeIdsSize = Math.max(this.noiseSizeX, this.noiseSizeZ) + 1 + maxSmoothRadius * 2;
+		this.cachedBiomeProvider.getNoiseBiomeIdsForRegion(workspace.biomeIdsStartX, workspace.biomeIdsStartZ, workspace.biomeIdsSize, workspace.biomeIds);
+
+		// Noise data for the x0 and x1 slices, swapped after each x so the x1 slice can be reused as x0.
+		int x0Slice = 0;
+		int x1Slice = 1;
 	
 		// Initialize noise data on the x0 column.
 		for (int noiseZ = 0; noiseZ < this.noiseSizeZ + 1; ++noiseZ)
 		{
-			noiseData[0][noiseZ] = new double[this.noiseSizeY + 1];
 			this.getNoiseColumn(
-				noiseData[0][noiseZ], 
+				noiseData,
+				workspace.noiseDataOffset(x0Slice, noiseZ),
 				chunkCoord.getChunkX() * this.noiseSizeX, 
-				chunkCoord.getChunkZ() * this.noiseSizeZ + noiseZ 
+				chunkCoord.getChunkZ() * this.noiseSizeZ + noiseZ,
+				workspace
 			);
-			noiseData[1][noiseZ] = new double[this.noiseSizeY + 1];
 		}
 
 		IBiomeConfig biomeConfig;
@@ -492,43 +674,45 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 		double zLerp;
 		double rawNoise;
 		double density;
-		int structureX;
-		int structureY;
-		int structureZ;
-		JigsawStructureData structure;
-		JigsawStructureData junction;
-		int sourceX;
-		int sourceY;
-		int sourceZ;
-		double[][] xColumn;
+		int x0z0Offset;
+		int x0z1Offset;
+		int x1z0Offset;
+		int x1z1Offset;
+		int swapSlice;
 		for (int noiseX = 0; noiseX < this.noiseSizeX; ++noiseX)
 		{
 			// Initialize noise data on the x1 column
 			for (noiseZ = 0; noiseZ < this.noiseSizeZ + 1; ++noiseZ)
 			{
 				this.getNoiseColumn(
-					noiseData[1][noiseZ], 
+					noiseData,
+					workspace.noiseDataOffset(x1Slice, noiseZ),
 					chunkCoord.getChunkX() * this.noiseSizeX + noiseX + 1, 
-					chunkCoord.getChunkZ() * this.noiseSizeZ + noiseZ 
+					chunkCoord.getChunkZ() * this.noiseSizeZ + noiseZ,
+					workspace
 				);
 			}
 
 			// [0, 4] -> z noise chunks
 			for (noiseZ = 0; noiseZ < this.noiseSizeZ; ++noiseZ)
 			{
+				x0z0Offset = workspace.noiseDataOffset(x0Slice, noiseZ);
+				x0z1Offset = workspace.noiseDataOffset(x0Slice, noiseZ + 1);
+				x1z0Offset = workspace.noiseDataOffset(x1Slice, noiseZ);
+				x1z1Offset = workspace.noiseDataOffset(x1Slice, noiseZ + 1);
 				// [0, 32] -> y noise chunks
 				for (int noiseY = this.noiseSizeY - 1; noiseY >= 0; --noiseY)
 				{
 					// Lower samples
-					x0z0y0 = noiseData[0][noiseZ][noiseY];
-					x0z1y0 = noiseData[0][noiseZ + 1][noiseY];
-					x1z0y0 = noiseData[1][noiseZ][noiseY];
-					x1z1y0 = noiseData[1][noiseZ + 1][noiseY];
+					x0z0y0 = noiseData[x0z0Offset + noiseY];
+					x0z1y0 = noiseData[x0z1Offset + noiseY];
+					x1z0y0 = noiseData[x1z0Offset + noiseY];
+					x1z1y0 = noiseData[x1z1Offset + noiseY];
 					// Upper samples
-					x0z0y1 = noiseData[0][noiseZ][noiseY + 1];
-					x0z1y1 = noiseData[0][noiseZ + 1][noiseY + 1];
-					x1z0y1 = noiseData[1][noiseZ][noiseY + 1];
-					x1z1y1 = noiseData[1][noiseZ + 1][noiseY + 1];
+					x0z0y1 = noiseData[x0z0Offset + noiseY + 1];
+					x0z1y1 = noiseData[x0z1Offset + noiseY + 1];
+					x1z0y1 = noiseData[x1z0Offset + noiseY + 1];
+					x1z1y1 = noiseData[x1z1Offset + noiseY + 1];
 
 					// [0, 8] -> y noise pieces
 					for (int pieceY = 8 - 1; pieceY >= 0; --pieceY)
@@ -568,29 +752,9 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 								biomeConfig = biomes[localX * 16 + localZ].getBiomeConfig();
 
 								// TODO: make this bigger and look better
-								// Iterate through structures to add density
-								structureX = 0;
-								structureY = 0;
-								structureZ = 0;
-								for(density = density / 2.0D - density * density * density / 24.0D; structureIterator.hasNext(); density += getNoiseWeight(structureX, structureY, structureZ) * 0.8D)
-								{
-									structure = structureIterator.next();
-									structureX = Math.max(0, Math.max(structure.minX - realX, realX - structure.maxX));
-									structureY = realY - (structure.minY + (structure.useDelta ? structure.delta : 0));
-									structureZ = Math.max(0, Math.max(structure.minZ - realZ, realZ - structure.maxZ));
-								}
-								structureIterator.back(structures.size());
-
-								// Iterate through jigsawws to add density
-								while(junctionsIterator.hasNext())
-								{
-									junction = junctionsIterator.next();
-									sourceX = realX - junction.sourceX;
-									sourceY = realY - junction.groundY;
-									sourceZ = realZ - junction.sourceZ;
-									density += getNoiseWeight(sourceX, sourceY, sourceZ) * 0.4D;
-								}
-								junctionsIterator.back(junctions.size());
+								// Add density for structures and jigsaw junctions
+								density = density / 2.0D - density * density * density / 24.0D;
+								density = structureGrid.addDensity(noiseX, noiseZ, realX, realY, realZ, density);
 
 								if (density > 0.0)
 								{
@@ -609,12 +773,12 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 			}
 
 			// Reuse noise data from the previous column for speed
-			xColumn = noiseData[0];
-			noiseData[0] = noiseData[1];
-			noiseData[1] = xColumn;
+			swapSlice = x0Slice;
+			x0Slice = x1Slice;
+			x1Slice = swapSlice;
 		}
 
-		doSurfaceAndGroundControl(biomes, random, worldHeightCap, this.seed, buffer, waterLevel);
+		doSurfaceAndGroundControl(biomes, random, worldHeightCap, this.seed, buffer, workspace);
 		
 		if(logger.getLogCategoryEnabled(LogCategory.PERFORMANCE) && (System.currentTimeMillis() - startTime) > 50)
 		{
@@ -624,7 +788,8 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 
 	public void carve(ChunkBuffer chunk, long seed, int chunkX, int chunkZ, BitSet carvingMask)
 	{
-		// TODO: it should be possible to cache these carver graphs to make larger carvers more efficient and easier to use
+		// Carvers cache their paths per start chunk, so each start chunk is only simulated
+		// once and then replayed for every chunk in its 17x17 neighbourhood.
 
 		Random random = new Random();
 		for (int localChunkX = chunkX - 8; localChunkX <= chunkX + 8; ++localChunkX)
@@ -663,13 +828,16 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 		return noiseSizeY;
 	}
 
-	private void doSurfaceAndGroundControl(IBiome[] biomes, Random random, int heightCap, long worldSeed, ChunkBuffer chunkBuffer, int[] waterLevel)
+	// Expects workspace.waterLevel to have been filled in for this chunk.
+	private void doSurfaceAndGroundControl(IBiome[] biomes, Random random, int heightCap, long worldSeed, ChunkBuffer chunkBuffer, ChunkGenWorkspace workspace)
 	{
 		// Process surface and ground blocks for each column in the chunk
 		ChunkCoordinate chunkCoord = chunkBuffer.getChunkCoordinate();		
 		double d1 = 0.03125D;
-		this.biomeBlocksNoise.set(this.biomeBlocksNoiseGen.getRegion(this.biomeBlocksNoise.get(), chunkCoord.getBlockX(), chunkCoord.getBlockZ(), Constants.CHUNK_SIZE, Constants.CHUNK_SIZE, d1 * 2.0D, d1 * 2.0D, 1.0D));
-		GeneratingChunk generatingChunk = new GeneratingChunk(random, waterLevel, this.biomeBlocksNoise.get(), heightCap);
+		// getRegion fills in and returns the given array, since it's large enough.
+		this.biomeBlocksNoiseGen.getRegion(workspace.biomeBlocksNoise, chunkCoord.getBlockX(), chunkCoord.getBlockZ(), Constants.CHUNK_SIZE, Constants.CHUNK_SIZE, d1 * 2.0D, d1 * 2.0D, 1.0D);
+		GeneratingChunk generatingChunk = workspace.generatingChunk;
+		generatingChunk.reset(random, heightCap);
 		IBiome biome;
 		for (int x = 0; x < Constants.CHUNK_SIZE; x++)
 		{
@@ -696,56 +864,4 @@ public class OTGChunkGenerator implements ISurfaceGeneratorNoiseProvider
 		}
 		return noise;
 	}
-
-	private class NoiseCache
-	{
-		private final long[] keys;
-		private final double[] values;
-		private final int mask;
-
-		private NoiseCache(int size, int noiseSize)
-		{
-			size = MathHelper.smallestEncompassingPowerOfTwo(size);
-			this.mask = size - 1;
-
-			this.keys = new long[size];
-			Arrays.fill(this.keys, Long.MIN_VALUE);
-			this.values = new double[size * noiseSize];
-		}
-
-		public double[] get(double[] buffer, int noiseX, int noiseZ)
-		{
-			long key = key(noiseX, noiseZ);
-			int idx = hash(key) & this.mask;
-
-			// if the entry here has a key that matches ours, we have a cache hit
-			if (this.keys[idx] == key)
-			{
-				// Copy values into buffer
-				System.arraycopy(this.values, idx * buffer.length, buffer, 0, buffer.length);
-			} else {
-				// cache miss: sample and put the result into our cache entry
-
-				// Sample the noise column to store the new values
-				generateNoiseColumn(buffer, noiseX, noiseZ);
-
-				// Create copy of the array
-				System.arraycopy(buffer, 0, this.values, idx * buffer.length, buffer.length);
-
-				this.keys[idx] = key;
-			}
-
-			return buffer;
-		}
-
-		private int hash(long key)
-		{
-			return (int) HashCommon.mix(key);
-		}
-
-		private long key(int x, int z)
-		{
-			return MathHelper.toLong(x, z);
-		}
-	}
 }
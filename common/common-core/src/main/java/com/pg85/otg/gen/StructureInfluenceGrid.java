@@ -0,0 +1,196 @@
+package com.pg85.otg.gen;
+
+import java.util.Arrays;
+
+import com.pg85.otg.util.gen.JigsawStructureData;
+
+import it.unimi.dsi.fastutil.objects.ObjectList;
+
+/**
+ * Buckets the jigsaw structures and junctions around a chunk per 4x4 column
+ * noise cell, so populateNoise only has to look at the ones that are within
+ * NOISE_WEIGHT_TABLE range (12 blocks) of the block being generated.
+ *
+ * Structures and junctions are kept in list order within each cell, so
+ * densities add up exactly like they did when every block went over the
+ * full lists. Owned by a ChunkGenWorkspace, reused for every chunk.
+ */
+final class StructureInfluenceGrid
+{
+	// Blocks within [-RANGE, RANGE - 1] of a structure/junction on each axis get a non-zero noise weight.
+	private static final int RANGE = 12;
+	private static final int CELL_SIZE = 4;
+
+	private final int cellsX;
+	private final int cellsZ;
+
+	// Packed structure/junction data, indexed by position in the chunk's lists.
+	private int[] structureMinX = new int[0];
+	private int[] structureMaxX = new int[0];
+	private int[] structureMinZ = new int[0];
+	private int[] structureMaxZ = new int[0];
+	private int[] structureBaseY = new int[0];
+	private int[] junctionX = new int[0];
+	private int[] junctionY = new int[0];
+	private int[] junctionZ = new int[0];
+
+	// Per cell, the indices of the structures/junctions in range and the y range they affect.
+	private final int[][] cellStructures;
+	private final int[] cellStructureCount;
+	private final int[][] cellJunctions;
+	private final int[] cellJunctionCount;
+	private final int[] cellMinY;
+	private final int[] cellMaxY;
+
+	StructureInfluenceGrid(int cellsX, int cellsZ)
+	{
+		this.cellsX = cellsX;
+		this.cellsZ = cellsZ;
+		int cellCount = cellsX * cellsZ;
+		this.cellStructures = new int[cellCount][0];
+		this.cellStructureCount = new int[cellCount];
+		this.cellJunctions = new int[cellCount][0];
+		this.cellJunctionCount = new int[cellCount];
+		this.cellMinY = new int[cellCount];
+		this.cellMaxY = new int[cellCount];
+	}
+
+	/**
+	 * Rebuilds the grid for the chunk starting at the given block coords.
+	 */
+	void update(ObjectList<JigsawStructureData> structures, ObjectList<JigsawStructureData> junctions, int blockX, int blockZ)
+	{
+		Arrays.fill(this.cellStructureCount, 0);
+		Arrays.fill(this.cellJunctionCount, 0);
+		Arrays.fill(this.cellMinY, Integer.MAX_VALUE);
+		Arrays.fill(this.cellMaxY, Integer.MIN_VALUE);
+		if (structures.isEmpty() && junctions.isEmpty())
+		{
+			return;
+		}
+
+		if (this.structureMinX.length < structures.size())
+		{
+			this.structureMinX = new int[structures.size()];
+			this.structureMaxX = new int[structures.size()];
+			this.structureMinZ = new int[structures.size()];
+			this.structureMaxZ = new int[structures.size()];
+			this.structureBaseY = new int[structures.size()];
+		}
+		if (this.junctionX.length < junctions.size())
+		{
+			this.junctionX = new int[junctions.size()];
+			this.junctionY = new int[junctions.size()];
+			this.junctionZ = new int[junctions.size()];
+		}
+
+		JigsawStructureData structure;
+		int cell;
+		for (int i = 0; i < structures.size(); i++)
+		{
+			structure = structures.get(i);
+			this.structureMinX[i] = structure.minX;
+			this.structureMaxX[i] = structure.maxX;
+			this.structureMinZ[i] = structure.minZ;
+			this.structureMaxZ[i] = structure.maxZ;
+			this.structureBaseY[i] = structure.minY + (structure.useDelta ? structure.delta : 0);
+			for (int cellX = 0; cellX < this.cellsX; cellX++)
+			{
+				// Distance outside the bounding box must be at most RANGE - 1 for some block in the cell.
+				if (!overlaps(blockX + cellX * CELL_SIZE, structure.minX - (RANGE - 1), structure.maxX + (RANGE - 1)))
+				{
+					continue;
+				}
+				for (int cellZ = 0; cellZ < this.cellsZ; cellZ++)
+				{
+					if (overlaps(blockZ + cellZ * CELL_SIZE, structure.minZ - (RANGE - 1), structure.maxZ + (RANGE - 1)))
+					{
+						cell = cellX * this.cellsZ + cellZ;
+						this.cellStructures[cell] = add(this.cellStructures[cell], this.cellStructureCount[cell]++, i);
+						includeY(cell, this.structureBaseY[i]);
+					}
+				}
+			}
+		}
+
+		for (int i = 0; i < junctions.size(); i++)
+		{
+			structure = junctions.get(i);
+			this.junctionX[i] = structure.sourceX;
+			this.junctionY[i] = structure.groundY;
+			this.junctionZ[i] = structure.sourceZ;
+			for (int cellX = 0; cellX < this.cellsX; cellX++)
+			{
+				if (!overlaps(blockX + cellX * CELL_SIZE, structure.sourceX - RANGE, structure.sourceX + (RANGE - 1)))
+				{
+					continue;
+				}
+				for (int cellZ = 0; cellZ < this.cellsZ; cellZ++)
+				{
+					if (overlaps(blockZ + cellZ * CELL_SIZE, structure.sourceZ - RANGE, structure.sourceZ + (RANGE - 1)))
+					{
+						cell = cellX * this.cellsZ + cellZ;
+						this.cellJunctions[cell] = add(this.cellJunctions[cell], this.cellJunctionCount[cell]++, i);
+						includeY(cell, structure.groundY);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the density contributed by the structures and junctions around the
+	 * given block, which must be in the given noise cell, to the given density.
+	 */
+	double addDensity(int cellX, int cellZ, int realX, int realY, int realZ, double density)
+	{
+		int cell = cellX * this.cellsZ + cellZ;
+		// Skip blocks that are out of range of everything in this cell
+		if (realY < this.cellMinY[cell] - RANGE || realY > this.cellMaxY[cell] + (RANGE - 1))
+		{
+			return density;
+		}
+
+		int[] indices = this.cellStructures[cell];
+		int i;
+		for (int j = 0; j < this.cellStructureCount[cell]; j++)
+		{
+			i = indices[j];
+			density += OTGChunkGenerator.getNoiseWeight(
+				Math.max(0, Math.max(this.structureMinX[i] - realX, realX - this.structureMaxX[i])),
+				realY - this.structureBaseY[i],
+				Math.max(0, Math.max(this.structureMinZ[i] - realZ, realZ - this.structureMaxZ[i]))
+			) * 0.8D;
+		}
+
+		indices = this.cellJunctions[cell];
+		for (int j = 0; j < this.cellJunctionCount[cell]; j++)
+		{
+			i = indices[j];
+			density += OTGChunkGenerator.getNoiseWeight(realX - this.junctionX[i], realY - this.junctionY[i], realZ - this.junctionZ[i]) * 0.4D;
+		}
+		return density;
+	}
+
+	private void includeY(int cell, int y)
+	{
+		this.cellMinY[cell] = Math.min(this.cellMinY[cell], y);
+		this.cellMaxY[cell] = Math.max(this.cellMaxY[cell], y);
+	}
+
+	// Whether the CELL_SIZE blocks starting at cellStart overlap [min, max].
+	private static boolean overlaps(int cellStart, int min, int max)
+	{
+		return cellStart + CELL_SIZE - 1 >= min && cellStart <= max;
+	}
+
+	private static int[] add(int[] array, int index, int value)
+	{
+		if (index == array.length)
+		{
+			array = Arrays.copyOf(array, Math.max(8, array.length * 2));
+		}
+		array[index] = value;
+		return array;
+	}
+}
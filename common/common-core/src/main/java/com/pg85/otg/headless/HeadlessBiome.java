@@ -0,0 +1,31 @@
+package com.pg85.otg.headless;
+
+import com.pg85.otg.interfaces.IBiome;
+import com.pg85.otg.interfaces.IBiomeConfig;
+
+/**
+ * Biome without a Minecraft biome behind it.
+ */
+class HeadlessBiome implements IBiome
+{
+	private final IBiomeConfig biomeConfig;
+
+	HeadlessBiome(IBiomeConfig biomeConfig)
+	{
+		this.biomeConfig = biomeConfig;
+	}
+
+	@Override
+	public IBiomeConfig getBiomeConfig()
+	{
+		return this.biomeConfig;
+	}
+
+	@Override
+	public float getTemperatureAt(int x, int y, int z)
+	{
+		// Same height falloff as Minecraft, without the temperature noise.
+		float temperature = this.biomeConfig.getBiomeTemperature();
+		return y > 64 ? temperature - (y - 64) * 0.05F / 30.0F : temperature;
+	}
+}
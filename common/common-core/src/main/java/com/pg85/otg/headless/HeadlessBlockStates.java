@@ -0,0 +1,76 @@
+package com.pg85.otg.headless;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Global table of the block states used by the headless engine. Each
+ * state gets a short id when it's first read, chunk buffers store the
+ * ids. Shared by all presets, like LocalMaterials.
+ *
+ * Lookups by id don't lock, states are only ever added.
+ */
+public class HeadlessBlockStates
+{
+	public static final String AIR_NAME = "minecraft:air";
+	public static final String BLANK_NAME = "blank";
+
+	private static final Object lock = new Object();
+	private static final Map<String, HeadlessMaterialData> statesByName = new HashMap<String, HeadlessMaterialData>();
+	private static volatile HeadlessMaterialData[] statesById = new HeadlessMaterialData[256];
+	private static volatile int stateCount = 0;
+
+	// Air is registered first, so it always has id 0 and new sections can be left empty.
+	public static final HeadlessMaterialData AIR = getOrCreate(AIR_NAME);
+	public static final HeadlessMaterialData BLANK = getOrCreate(BLANK_NAME);
+
+	private HeadlessBlockStates() { }
+
+	/**
+	 * Returns the state for the given name (minecraft:name[properties]),
+	 * registering it if it doesn't exist yet.
+	 */
+	static HeadlessMaterialData getOrCreate(String name)
+	{
+		synchronized(lock)
+		{
+			HeadlessMaterialData state = statesByName.get(name);
+			if(state == null)
+			{
+				if(stateCount > Short.MAX_VALUE)
+				{
+					throw new IllegalStateException("Too many block states, the headless engine supports up to " + (Short.MAX_VALUE + 1) + ".");
+				}
+				int propertiesStart = name.indexOf('[');
+				state = new HeadlessMaterialData(
+					(short)stateCount,
+					name,
+					propertiesStart == -1 ? name : name.substring(0, propertiesStart),
+					name.equals(BLANK_NAME)
+				);
+				HeadlessMaterialData[] states = statesById;
+				if(stateCount == states.length)
+				{
+					states = Arrays.copyOf(states, states.length * 2);
+				}
+				states[stateCount] = state;
+				// Publish the array before the count, so readers never see a missing state.
+				statesById = states;
+				stateCount++;
+				statesByName.put(name, state);
+			}
+			return state;
+		}
+	}
+
+	public static HeadlessMaterialData getState(short id)
+	{
+		return statesById[id];
+	}
+
+	public static int getStateCount()
+	{
+		return stateCount;
+	}
+}
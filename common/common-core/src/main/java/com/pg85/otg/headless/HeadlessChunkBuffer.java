@@ -0,0 +1,350 @@
+package com.pg85.otg.headless;
+
+import java.util.Arrays;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.gen.ChunkBuffer;
+import com.pg85.otg.util.materials.LocalMaterialData;
+
+/**
+ * In-memory chunk for the headless engine. Blocks are stored per 16x16x16
+ * section as HeadlessBlockStates ids, palette-compressed: each section has
+ * a short[] palette of the state ids it contains and a byte index into the
+ * palette per block. Sections with more than MAX_PALETTE_SIZE states store
+ * the state ids themselves, sections that contain a single state (usually
+ * air or stone) only store that state. Accepts world or chunk-internal x/z
+ * coordinates, like the platform chunk buffers.
+ *
+ * Not thread safe, use one buffer per thread.
+ */
+public class HeadlessChunkBuffer extends ChunkBuffer
+{
+	public static final int SECTION_COUNT = Constants.WORLD_HEIGHT >> 4;
+	public static final int SECTION_VOLUME = 16 * 16 * 16;
+	// Palette indices are stored as bytes.
+	public static final int MAX_PALETTE_SIZE = 256;
+	private static final int INITIAL_PALETTE_SIZE = 8;
+
+	private ChunkCoordinate chunkCoord;
+	// Each section is either uniform (no palette and no state ids, the whole
+	// section is uniformStates[section]), paletted or stores its state ids.
+	private final short[][] palettes = new short[SECTION_COUNT][];
+	private final int[] paletteSizes = new int[SECTION_COUNT];
+	// Palette indices at [y << 8 | z << 4 | x], only for paletted sections.
+	private final byte[][] paletteIndices = new byte[SECTION_COUNT][];
+	// State ids at [y << 8 | z << 4 | x], only for sections with too many states for a palette.
+	private final short[][] stateIds = new short[SECTION_COUNT][];
+	private final short[] uniformStates = new short[SECTION_COUNT];
+
+	public HeadlessChunkBuffer(ChunkCoordinate chunkCoord)
+	{
+		reset(chunkCoord);
+	}
+
+	/**
+	 * Fills the chunk with air and moves it to the given coords, so
+	 * the buffer can be reused.
+	 */
+	public void reset(ChunkCoordinate chunkCoord)
+	{
+		this.chunkCoord = chunkCoord;
+		Arrays.fill(this.palettes, null);
+		Arrays.fill(this.paletteIndices, null);
+		Arrays.fill(this.stateIds, null);
+		Arrays.fill(this.uniformStates, HeadlessBlockStates.AIR.getStateId());
+		clearHighestBlocks();
+	}
+
+	/**
+	 * Copies the blocks of the given chunk, section arrays are copied
+	 * so the chunks can be modified independently.
+	 */
+	public void copyFrom(HeadlessChunkBuffer other)
+	{
+		this.chunkCoord = other.chunkCoord;
+		for (int i = 0; i < SECTION_COUNT; i++)
+		{
+			this.uniformStates[i] = other.uniformStates[i];
+			this.paletteSizes[i] = other.paletteSizes[i];
+			this.palettes[i] = other.palettes[i] == null ? null : other.palettes[i].clone();
+			this.paletteIndices[i] = copySection(other.paletteIndices[i], this.paletteIndices[i]);
+			this.stateIds[i] = copySection(other.stateIds[i], this.stateIds[i]);
+		}
+		clearHighestBlocks();
+		for (int x = 0; x < Constants.CHUNK_SIZE; x++)
+		{
+			for (int z = 0; z < Constants.CHUNK_SIZE; z++)
+			{
+				setHighestBlockForColumn(x, z, other.getHighestBlockForColumn(x, z));
+			}
+		}
+	}
+
+	// Reuses the existing array if there is one, so copying chunks doesn't allocate.
+	private static byte[] copySection(byte[] source, byte[] target)
+	{
+		if (source == null)
+		{
+			return null;
+		}
+		if (target == null)
+		{
+			return source.clone();
+		}
+		System.arraycopy(source, 0, target, 0, SECTION_VOLUME);
+		return target;
+	}
+
+	private static short[] copySection(short[] source, short[] target)
+	{
+		if (source == null)
+		{
+			return null;
+		}
+		if (target == null)
+		{
+			return source.clone();
+		}
+		System.arraycopy(source, 0, target, 0, SECTION_VOLUME);
+		return target;
+	}
+
+	@Override
+	public ChunkCoordinate getChunkCoordinate()
+	{
+		return this.chunkCoord;
+	}
+
+	@Override
+	public void setBlock(int blockX, int blockY, int blockZ, LocalMaterialData material)
+	{
+		setStateId(blockX, blockY, blockZ, ((HeadlessMaterialData)material).getStateId());
+	}
+
+	@Override
+	public LocalMaterialData getBlock(int blockX, int blockY, int blockZ)
+	{
+		return HeadlessBlockStates.getState(getStateId(blockX, blockY, blockZ));
+	}
+
+	public void setStateId(int blockX, int blockY, int blockZ, short stateId)
+	{
+		if (blockY < Constants.WORLD_DEPTH || blockY >= Constants.WORLD_HEIGHT)
+		{
+			return;
+		}
+		int sectionIndex = blockY >> 4;
+		int index = getIndex(blockX, blockY, blockZ);
+		short[] sectionStateIds = this.stateIds[sectionIndex];
+		if (sectionStateIds != null)
+		{
+			sectionStateIds[index] = stateId;
+			return;
+		}
+		if (this.palettes[sectionIndex] == null)
+		{
+			if (this.uniformStates[sectionIndex] == stateId)
+			{
+				return;
+			}
+			// New index arrays are all 0, so every block is the uniform state.
+			this.palettes[sectionIndex] = new short[INITIAL_PALETTE_SIZE];
+			this.palettes[sectionIndex][0] = this.uniformStates[sectionIndex];
+			this.paletteSizes[sectionIndex] = 1;
+			this.paletteIndices[sectionIndex] = new byte[SECTION_VOLUME];
+		}
+		int paletteIndex = getPaletteIndex(sectionIndex, stateId);
+		if (paletteIndex == -1)
+		{
+			// The palette is full and the section now stores its state ids.
+			this.stateIds[sectionIndex][index] = stateId;
+		} else {
+			this.paletteIndices[sectionIndex][index] = (byte)paletteIndex;
+		}
+	}
+
+	public short getStateId(int blockX, int blockY, int blockZ)
+	{
+		if (blockY < Constants.WORLD_DEPTH || blockY >= Constants.WORLD_HEIGHT)
+		{
+			return HeadlessBlockStates.AIR.getStateId();
+		}
+		int sectionIndex = blockY >> 4;
+		short[] sectionStateIds = this.stateIds[sectionIndex];
+		if (sectionStateIds != null)
+		{
+			return sectionStateIds[getIndex(blockX, blockY, blockZ)];
+		}
+		short[] palette = this.palettes[sectionIndex];
+		return palette == null ? this.uniformStates[sectionIndex] : palette[this.paletteIndices[sectionIndex][getIndex(blockX, blockY, blockZ)] & 0xFF];
+	}
+
+	// Returns the index of the state in the section's palette, adding it if needed.
+	// If the palette is full, converts the section to state ids and returns -1.
+	private int getPaletteIndex(int sectionIndex, short stateId)
+	{
+		short[] palette = this.palettes[sectionIndex];
+		int paletteSize = this.paletteSizes[sectionIndex];
+		for (int i = 0; i < paletteSize; i++)
+		{
+			if (palette[i] == stateId)
+			{
+				return i;
+			}
+		}
+		if (paletteSize == MAX_PALETTE_SIZE)
+		{
+			short[] sectionStateIds = new short[SECTION_VOLUME];
+			byte[] indices = this.paletteIndices[sectionIndex];
+			for (int i = 0; i < SECTION_VOLUME; i++)
+			{
+				sectionStateIds[i] = palette[indices[i] & 0xFF];
+			}
+			this.stateIds[sectionIndex] = sectionStateIds;
+			this.palettes[sectionIndex] = null;
+			this.paletteIndices[sectionIndex] = null;
+			return -1;
+		}
+		if (paletteSize == palette.length)
+		{
+			palette = Arrays.copyOf(palette, Math.min(MAX_PALETTE_SIZE, palette.length * 2));
+			this.palettes[sectionIndex] = palette;
+		}
+		palette[paletteSize] = stateId;
+		this.paletteSizes[sectionIndex] = paletteSize + 1;
+		return paletteSize;
+	}
+
+	/**
+	 * Returns true if the whole section is getUniformStateId(sectionIndex).
+	 */
+	public boolean isUniform(int sectionIndex)
+	{
+		return this.palettes[sectionIndex] == null && this.stateIds[sectionIndex] == null;
+	}
+
+	public short getUniformStateId(int sectionIndex)
+	{
+		return this.uniformStates[sectionIndex];
+	}
+
+	/**
+	 * Returns the state ids in the given section's palette, only the first
+	 * getPaletteSize(sectionIndex) entries are used. Null if the section
+	 * isn't paletted.
+	 */
+	public short[] getPalette(int sectionIndex)
+	{
+		return this.palettes[sectionIndex];
+	}
+
+	public int getPaletteSize(int sectionIndex)
+	{
+		return this.palettes[sectionIndex] == null ? 0 : this.paletteSizes[sectionIndex];
+	}
+
+	/**
+	 * Returns the palette index of each block in the given section, at
+	 * [y << 8 | z << 4 | x]. Null if the section isn't paletted.
+	 */
+	public byte[] getPaletteIndices(int sectionIndex)
+	{
+		return this.paletteIndices[sectionIndex];
+	}
+
+	/**
+	 * Returns the state id of each block in the given section, at
+	 * [y << 8 | z << 4 | x]. Only used for sections with more than
+	 * MAX_PALETTE_SIZE states, null for other sections.
+	 */
+	public short[] getStateIds(int sectionIndex)
+	{
+		return this.stateIds[sectionIndex];
+	}
+
+	/**
+	 * Replaces sections that only contain one state with that state and
+	 * removes unused palette entries, call once the chunk has been
+	 * generated to save memory.
+	 */
+	public void compact()
+	{
+		for (int i = 0; i < SECTION_COUNT; i++)
+		{
+			if (this.palettes[i] != null)
+			{
+				compactPalette(i);
+			}
+			else if (this.stateIds[i] != null)
+			{
+				short[] section = this.stateIds[i];
+				short stateId = section[0];
+				boolean uniform = true;
+				for (int j = 1; j < SECTION_VOLUME; j++)
+				{
+					if (section[j] != stateId)
+					{
+						uniform = false;
+						break;
+					}
+				}
+				if (uniform)
+				{
+					this.stateIds[i] = null;
+					this.uniformStates[i] = stateId;
+				}
+			}
+		}
+	}
+
+	private void compactPalette(int sectionIndex)
+	{
+		short[] palette = this.palettes[sectionIndex];
+		byte[] indices = this.paletteIndices[sectionIndex];
+		int paletteSize = this.paletteSizes[sectionIndex];
+		boolean[] used = new boolean[paletteSize];
+		int usedCount = 0;
+		for (int i = 0; i < SECTION_VOLUME && usedCount < paletteSize; i++)
+		{
+			if (!used[indices[i] & 0xFF])
+			{
+				used[indices[i] & 0xFF] = true;
+				usedCount++;
+			}
+		}
+		if (usedCount == paletteSize)
+		{
+			return;
+		}
+		if (usedCount == 1)
+		{
+			this.uniformStates[sectionIndex] = palette[indices[0] & 0xFF];
+			this.palettes[sectionIndex] = null;
+			this.paletteIndices[sectionIndex] = null;
+			return;
+		}
+		byte[] remap = new byte[paletteSize];
+		short[] newPalette = new short[usedCount];
+		int newSize = 0;
+		for (int i = 0; i < paletteSize; i++)
+		{
+			if (used[i])
+			{
+				remap[i] = (byte)newSize;
+				newPalette[newSize++] = palette[i];
+			}
+		}
+		for (int i = 0; i < SECTION_VOLUME; i++)
+		{
+			indices[i] = remap[indices[i] & 0xFF];
+		}
+		this.palettes[sectionIndex] = newPalette;
+		this.paletteSizes[sectionIndex] = newSize;
+	}
+
+	private static int getIndex(int blockX, int blockY, int blockZ)
+	{
+		return (blockY & 0xF) << 8 | (blockZ & 0xF) << 4 | (blockX & 0xF);
+	}
+}
@@ -0,0 +1,49 @@
+package com.pg85.otg.headless;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import com.pg85.otg.OTGEngine;
+import com.pg85.otg.gen.OTGChunkGenerator;
+
+/**
+ * Engine for running OTG without Minecraft, used for pregeneration
+ * and benchmarks. There's no jar to unpack presets from, they have
+ * to be in the root folder's Presets folder.
+ */
+public class HeadlessEngine extends OTGEngine
+{
+	public HeadlessEngine(Path otgRootFolder)
+	{
+		super(new HeadlessLogger(), otgRootFolder, mod -> false, new HeadlessPresetLoader(otgRootFolder));
+		// LocalMaterials have to be set before any configs are read.
+		HeadlessMaterials.init();
+	}
+
+	@Override
+	public File getJarFile()
+	{
+		return null;
+	}
+
+	public HeadlessPresetLoader getHeadlessPresetLoader()
+	{
+		return (HeadlessPresetLoader)this.presetLoader;
+	}
+
+	/**
+	 * Creates a chunk generator for the given preset, call registerBiomes
+	 * on the preset loader after starting the engine first.
+	 */
+	public OTGChunkGenerator createChunkGenerator(String presetFolderName, long seed)
+	{
+		HeadlessPresetLoader presetLoader = getHeadlessPresetLoader();
+		return new OTGChunkGenerator(
+			presetLoader.getPresetByFolderName(presetFolderName),
+			seed,
+			new HeadlessLayerSource(seed, presetLoader.getPresetGenerationData(presetFolderName), this.logger),
+			presetLoader.getGlobalIdMapping(presetFolderName),
+			this.logger
+		);
+	}
+}
@@ -0,0 +1,27 @@
+package com.pg85.otg.headless;
+
+import com.pg85.otg.gen.biome.layers.BiomeLayerData;
+import com.pg85.otg.gen.biome.layers.BiomeLayers;
+import com.pg85.otg.gen.biome.layers.util.CachingLayerSampler;
+import com.pg85.otg.interfaces.ILayerSource;
+import com.pg85.otg.interfaces.ILogger;
+
+/**
+ * Layer source without a Minecraft biome provider, creates
+ * a layer stack per thread like the platform biome providers.
+ */
+class HeadlessLayerSource implements ILayerSource
+{
+	private final ThreadLocal<CachingLayerSampler> layer;
+
+	HeadlessLayerSource(long seed, BiomeLayerData data, ILogger logger)
+	{
+		this.layer = ThreadLocal.withInitial(() -> BiomeLayers.create(seed, new BiomeLayerData(data), logger));
+	}
+
+	@Override
+	public CachingLayerSampler getSampler()
+	{
+		return this.layer.get();
+	}
+}
@@ -0,0 +1,23 @@
+package com.pg85.otg.headless;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
+import com.pg85.otg.util.logging.Logger;
+
+/**
+ * Logs to stdout.
+ */
+public class HeadlessLogger extends Logger
+{
+	@Override
+	public void log(LogLevel level, LogCategory category, String message)
+	{
+		if (this.minimumLevel.compareTo(level) < 0)
+		{
+			// Only log messages that we want to see...
+			return;
+		}
+		System.out.println("[" + Constants.MOD_ID_SHORT + "] [" + level + "] " + category.getLogTag() + " " + message);
+	}
+}
@@ -0,0 +1,167 @@
+package com.pg85.otg.headless;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.pg85.otg.util.materials.LocalMaterialData;
+import com.pg85.otg.util.materials.LocalMaterialTag;
+import com.pg85.otg.util.materials.MaterialProperty;
+
+/**
+ * Block state of the headless engine, identified by its name and id in
+ * HeadlessBlockStates. Block behaviour (solid, liquid, air) is approximated
+ * from a few lists of block names, since Minecraft's block data isn't
+ * available. There's one instance per state, so they can be compared by
+ * reference like the platform materials.
+ */
+public class HeadlessMaterialData extends LocalMaterialData
+{
+	private static final Set<String> AIR_BLOCKS = new HashSet<String>(Arrays.asList(
+		"minecraft:air", "minecraft:cave_air", "minecraft:void_air"
+	));
+	private static final Set<String> LIQUID_BLOCKS = new HashSet<String>(Arrays.asList(
+		"minecraft:water", "minecraft:lava"
+	));
+	private static final Set<String> FALLING_BLOCKS = new HashSet<String>(Arrays.asList(
+		"minecraft:sand", "minecraft:red_sand", "minecraft:gravel"
+	));
+	private static final Set<String> NON_SOLID_BLOCKS = new HashSet<String>(Arrays.asList(
+		"minecraft:structure_void", "minecraft:grass", "minecraft:tall_grass", "minecraft:fern", "minecraft:large_fern",
+		"minecraft:dead_bush", "minecraft:vine", "minecraft:snow", "minecraft:torch", "minecraft:poppy", "minecraft:dandelion",
+		"minecraft:blue_orchid", "minecraft:allium", "minecraft:azure_bluet", "minecraft:red_tulip", "minecraft:orange_tulip",
+		"minecraft:white_tulip", "minecraft:pink_tulip", "minecraft:oxeye_daisy", "minecraft:lilac", "minecraft:peony",
+		"minecraft:rose_bush", "minecraft:sunflower", "minecraft:red_mushroom", "minecraft:brown_mushroom", "minecraft:sugar_cane",
+		"minecraft:lily_pad", "minecraft:seagrass", "minecraft:tall_seagrass", "minecraft:kelp", "minecraft:kelp_plant",
+		"minecraft:sea_pickle", "minecraft:bamboo_sapling", "minecraft:acacia_sapling", "minecraft:birch_sapling",
+		"minecraft:dark_oak_sapling", "minecraft:jungle_sapling", "minecraft:oak_sapling", "minecraft:spruce_sapling"
+	));
+
+	private final short id;
+	private final String name;
+	private final String registryName;
+	private final boolean isAir;
+	private final boolean isLiquid;
+	private final boolean isSolid;
+
+	HeadlessMaterialData(short id, String name, String registryName, boolean isBlank)
+	{
+		this.id = id;
+		this.name = name;
+		this.registryName = registryName;
+		this.rawEntry = name;
+		this.isBlank = isBlank;
+		this.isAir = AIR_BLOCKS.contains(registryName);
+		this.isLiquid = LIQUID_BLOCKS.contains(registryName);
+		this.isSolid = !isBlank && !this.isAir && !this.isLiquid && !NON_SOLID_BLOCKS.contains(registryName);
+	}
+
+	public short getStateId()
+	{
+		return this.id;
+	}
+
+	@Override
+	public <T extends Comparable<T>> LocalMaterialData withProperty(MaterialProperty<T> state, T value)
+	{
+		return this;
+	}
+
+	@Override
+	public String getName()
+	{
+		return this.name;
+	}
+
+	@Override
+	public String getRegistryName()
+	{
+		return this.registryName;
+	}
+
+	@Override
+	public boolean canSnowFallOn()
+	{
+		return this.isSolid;
+	}
+
+	@Override
+	public boolean canFall()
+	{
+		return FALLING_BLOCKS.contains(this.registryName);
+	}
+
+	@Override
+	public boolean isMaterial(LocalMaterialData material)
+	{
+		return material != null && this.registryName.equals(material.getRegistryName());
+	}
+
+	// Block tags aren't available without Minecraft.
+	@Override
+	public boolean isBlockTag(LocalMaterialTag tag)
+	{
+		return false;
+	}
+
+	@Override
+	public boolean isLiquid()
+	{
+		return this.isLiquid;
+	}
+
+	@Override
+	public boolean isSolid()
+	{
+		return this.isSolid;
+	}
+
+	@Override
+	public boolean isEmptyOrAir()
+	{
+		return this.isBlank || this.isAir;
+	}
+
+	@Override
+	public boolean isNonCaveAir()
+	{
+		return this.isAir && !this.registryName.equals("minecraft:cave_air");
+	}
+
+	@Override
+	public boolean isAir()
+	{
+		return this.isAir;
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return this.isBlank;
+	}
+
+	@Override
+	public LocalMaterialData rotate(int rotateTimes)
+	{
+		return this;
+	}
+
+	@Override
+	public LocalMaterialData legalOrPersistentLeaves(boolean leaveIllegalLeaves)
+	{
+		return this;
+	}
+
+	// States are unique per name.
+	@Override
+	public boolean equals(Object other)
+	{
+		return this == other;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return this.id;
+	}
+}
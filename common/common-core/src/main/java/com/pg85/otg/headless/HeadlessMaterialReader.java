@@ -0,0 +1,107 @@
+package com.pg85.otg.headless;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.exceptions.InvalidConfigException;
+import com.pg85.otg.interfaces.IMaterialReader;
+import com.pg85.otg.util.materials.LocalMaterialData;
+import com.pg85.otg.util.materials.LocalMaterialTag;
+import com.pg85.otg.util.minecraft.BlockNames;
+
+/**
+ * Reads any block name as a headless block state, without validating
+ * it, since Minecraft's block registry isn't available.
+ */
+public class HeadlessMaterialReader implements IMaterialReader
+{
+	private static final String MINECRAFT_DOMAIN = "minecraft:";
+	// Config entries read before, the same entries are read for every biome.
+	private final Map<String, LocalMaterialData> materials = new HashMap<String, LocalMaterialData>();
+	private final Map<String, LocalMaterialTag> tags = new HashMap<String, LocalMaterialTag>();
+
+	@Override
+	public LocalMaterialData readMaterial(String material) throws InvalidConfigException
+	{
+		if (material == null || material.trim().isEmpty())
+		{
+			return null;
+		}
+
+		// Used in BO4's as placeholder/detector block.
+		if (material.equalsIgnoreCase(HeadlessBlockStates.BLANK_NAME))
+		{
+			return HeadlessBlockStates.BLANK;
+		}
+
+		synchronized(this.materials)
+		{
+			LocalMaterialData localMaterial = this.materials.get(material);
+			if (localMaterial == null)
+			{
+				localMaterial = HeadlessBlockStates.getOrCreate(getName(material));
+				this.materials.put(material, localMaterial);
+			}
+			return localMaterial;
+		}
+	}
+
+	@Override
+	public LocalMaterialTag readTag(String tag) throws InvalidConfigException
+	{
+		if (tag == null)
+		{
+			return null;
+		}
+		synchronized(this.tags)
+		{
+			LocalMaterialTag localTag = this.tags.get(tag);
+			if (localTag == null)
+			{
+				String name = tag.trim().toLowerCase();
+				localTag = new HeadlessMaterialTag(name.contains(":") ? name : Constants.MOD_ID_SHORT + ":" + name);
+				this.tags.put(tag, localTag);
+			}
+			return localTag;
+		}
+	}
+
+	// Converts legacy names (STONE, STONE:1, 1) and names without
+	// a domain (stone[...]) to minecraft:name[properties].
+	static String getName(String material)
+	{
+		String name = material.trim().toLowerCase();
+		String properties = "";
+		int propertiesStart = name.indexOf('[');
+		if (propertiesStart != -1)
+		{
+			properties = name.substring(propertiesStart);
+			name = name.substring(0, propertiesStart);
+		}
+		if (name.startsWith(MINECRAFT_DOMAIN))
+		{
+			name = name.substring(MINECRAFT_DOMAIN.length());
+		}
+		// Legacy block data, fe SAND:1
+		int dataStart = name.indexOf(':');
+		if (dataStart != -1)
+		{
+			try {
+				Integer.parseInt(name.substring(dataStart + 1));
+				name = name.substring(0, dataStart);
+			}
+			catch (NumberFormatException ignored) { }
+		}
+		// Legacy block id
+		try {
+			String legacyName = BlockNames.blockNameFromLegacyBlockId(Integer.parseInt(name.endsWith(".0") ? name.substring(0, name.length() - 2) : name));
+			if (legacyName != null)
+			{
+				name = legacyName.toLowerCase();
+			}
+		}
+		catch (NumberFormatException ignored) { }
+		return (name.contains(":") ? name : MINECRAFT_DOMAIN + name) + properties;
+	}
+}
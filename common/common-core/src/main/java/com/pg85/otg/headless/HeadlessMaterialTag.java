@@ -0,0 +1,23 @@
+package com.pg85.otg.headless;
+
+import com.pg85.otg.util.materials.LocalMaterialTag;
+
+/**
+ * Material tag of the headless engine, block tags aren't available without
+ * Minecraft so it doesn't match any materials.
+ */
+public class HeadlessMaterialTag extends LocalMaterialTag
+{
+	private final String name;
+
+	HeadlessMaterialTag(String name)
+	{
+		this.name = name;
+	}
+
+	@Override
+	public String toString()
+	{
+		return this.name;
+	}
+}
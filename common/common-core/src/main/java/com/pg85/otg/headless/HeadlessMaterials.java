@@ -0,0 +1,77 @@
+package com.pg85.otg.headless;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.pg85.otg.util.materials.LocalMaterialData;
+import com.pg85.otg.util.materials.LocalMaterials;
+
+/**
+ * Fills in the LocalMaterials constants with headless block
+ * states, the platforms do this when they're loaded.
+ */
+public class HeadlessMaterials
+{
+	// Constants that aren't named after their block.
+	private static final Map<String, String> blockNames = new HashMap<String, String>();
+	static
+	{
+		blockNames.put("GRASS", "grass_block");
+		blockNames.put("LONG_GRASS", "grass");
+		blockNames.put("YELLOW_FLOWER", "dandelion");
+		blockNames.put("SILVER_TERRACOTTA", "light_gray_terracotta");
+		blockNames.put("MAGMA", "magma_block");
+		blockNames.put("MELON_BLOCK", "melon");
+		blockNames.put("WATER_LILY", "lily_pad");
+		blockNames.put("SUGAR_CANE_BLOCK", "sugar_cane");
+		blockNames.put("QUARTZ_ORE", "nether_quartz_ore");
+		blockNames.put("BAMBOO_SMALL", "bamboo[leaves=small]");
+		blockNames.put("BAMBOO_LARGE", "bamboo[leaves=large]");
+		blockNames.put("BAMBOO_LARGE_GROWING", "bamboo[leaves=large,stage=1]");
+		blockNames.put("TALL_SEAGRASS_LOWER", "tall_seagrass[half=lower]");
+		blockNames.put("TALL_SEAGRASS_UPPER", "tall_seagrass[half=upper]");
+		blockNames.put("VINE_NORTH", "vine[north=true]");
+		blockNames.put("VINE_SOUTH", "vine[south=true]");
+		blockNames.put("VINE_EAST", "vine[east=true]");
+		blockNames.put("VINE_WEST", "vine[west=true]");
+		blockNames.put("DOUBLE_TALL_GRASS_LOWER", "tall_grass[half=lower]");
+		blockNames.put("DOUBLE_TALL_GRASS_UPPER", "tall_grass[half=upper]");
+		blockNames.put("LARGE_FERN_LOWER", "large_fern[half=lower]");
+		blockNames.put("LARGE_FERN_UPPER", "large_fern[half=upper]");
+		blockNames.put("LILAC_LOWER", "lilac[half=lower]");
+		blockNames.put("LILAC_UPPER", "lilac[half=upper]");
+		blockNames.put("PEONY_LOWER", "peony[half=lower]");
+		blockNames.put("PEONY_UPPER", "peony[half=upper]");
+		blockNames.put("ROSE_BUSH_LOWER", "rose_bush[half=lower]");
+		blockNames.put("ROSE_BUSH_UPPER", "rose_bush[half=upper]");
+		blockNames.put("SUNFLOWER_LOWER", "sunflower[half=lower]");
+		blockNames.put("SUNFLOWER_UPPER", "sunflower[half=upper]");
+	}
+
+	private static boolean initialized = false;
+
+	public static synchronized void init()
+	{
+		if (initialized)
+		{
+			return;
+		}
+		try {
+			for (Field field : LocalMaterials.class.getFields())
+			{
+				if (Modifier.isStatic(field.getModifiers()) && field.getType() == LocalMaterialData.class)
+				{
+					String blockName = blockNames.get(field.getName());
+					field.set(null, HeadlessBlockStates.getOrCreate(HeadlessMaterialReader.getName(blockName != null ? blockName : field.getName().toLowerCase())));
+				}
+			}
+		}
+		catch (IllegalAccessException e)
+		{
+			throw new RuntimeException("Could not initialise LocalMaterials", e);
+		}
+		initialized = true;
+	}
+}
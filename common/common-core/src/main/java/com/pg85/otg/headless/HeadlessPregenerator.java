@@ -0,0 +1,295 @@
+package com.pg85.otg.headless;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.file.Paths;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.pg85.otg.OTG;
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.gen.OTGChunkGenerator;
+import com.pg85.otg.interfaces.IBiome;
+import com.pg85.otg.interfaces.ILogger;
+import com.pg85.otg.presets.Preset;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.gen.JigsawStructureData;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
+
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ObjectList;
+
+/**
+ * Generates base terrain (noise, surface blocks and carvers) for an area
+ * without Minecraft, on a fork-join pool. The area is split into tiles of
+ * TILE_SIZE x TILE_SIZE chunks, each tile is generated by a single task.
+ * Decoration, structures and lighting need a platform, so they're skipped.
+ *
+ * Usage: HeadlessPregenerator otgRootFolder presetFolderName seed radius
+ *   [-threads count] [-stats file] [-raw outputFolder]
+ * Radius is in chunks around chunk 0,0. Statistics are written to stdout
+ * unless a file is given, -raw writes the generated sections to files
+ * (see SectionFileWriter).
+ */
+public class HeadlessPregenerator
+{
+	static final int TILE_SIZE = 8;
+	// Progress is logged every this many chunks.
+	private static final int PROGRESS_INTERVAL = 1024;
+
+	private final OTGChunkGenerator chunkGenerator;
+	private final Preset preset;
+	private final long seed;
+	private final ILogger logger;
+
+	public HeadlessPregenerator(OTGChunkGenerator chunkGenerator, Preset preset, long seed, ILogger logger)
+	{
+		this.chunkGenerator = chunkGenerator;
+		this.preset = preset;
+		this.seed = seed;
+		this.logger = logger;
+	}
+
+	/**
+	 * Generates the chunks from min to max (inclusive) and returns their
+	 * statistics. Writes the sections to sectionFileWriter if it's not null.
+	 */
+	public PregenerationStatistics pregenerate(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ, int threads, SectionFileWriter sectionFileWriter)
+	{
+		PregenerationStatistics statistics = new PregenerationStatistics();
+		int totalChunks = (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(
+				new GenerateTilesTask(
+					new Area(minChunkX, minChunkZ, maxChunkX, maxChunkZ),
+					Math.floorDiv(minChunkX, TILE_SIZE),
+					Math.floorDiv(minChunkZ, TILE_SIZE),
+					Math.floorDiv(maxChunkX, TILE_SIZE),
+					Math.floorDiv(maxChunkZ, TILE_SIZE),
+					statistics,
+					sectionFileWriter,
+					new AtomicInteger(),
+					totalChunks
+				)
+			);
+		} finally {
+			pool.shutdown();
+		}
+		return statistics;
+	}
+
+	private static class Area
+	{
+		private final int minChunkX;
+		private final int minChunkZ;
+		private final int maxChunkX;
+		private final int maxChunkZ;
+
+		private Area(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ)
+		{
+			this.minChunkX = minChunkX;
+			this.minChunkZ = minChunkZ;
+			this.maxChunkX = maxChunkX;
+			this.maxChunkZ = maxChunkZ;
+		}
+	}
+
+	// Splits the tiles from min to max (inclusive) in half until there's one tile left.
+	private class GenerateTilesTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Area area;
+		private final int minTileX;
+		private final int minTileZ;
+		private final int maxTileX;
+		private final int maxTileZ;
+		private final PregenerationStatistics statistics;
+		private final SectionFileWriter sectionFileWriter;
+		private final AtomicInteger chunksDone;
+		private final int totalChunks;
+
+		private GenerateTilesTask(Area area, int minTileX, int minTileZ, int maxTileX, int maxTileZ, PregenerationStatistics statistics, SectionFileWriter sectionFileWriter, AtomicInteger chunksDone, int totalChunks)
+		{
+			this.area = area;
+			this.minTileX = minTileX;
+			this.minTileZ = minTileZ;
+			this.maxTileX = maxTileX;
+			this.maxTileZ = maxTileZ;
+			this.statistics = statistics;
+			this.sectionFileWriter = sectionFileWriter;
+			this.chunksDone = chunksDone;
+			this.totalChunks = totalChunks;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (this.maxTileX > this.minTileX || this.maxTileZ > this.minTileZ)
+			{
+				// Split along the longest side
+				if (this.maxTileX - this.minTileX >= this.maxTileZ - this.minTileZ)
+				{
+					int splitX = this.minTileX + (this.maxTileX - this.minTileX) / 2;
+					invokeAll(
+						new GenerateTilesTask(this.area, this.minTileX, this.minTileZ, splitX, this.maxTileZ, this.statistics, this.sectionFileWriter, this.chunksDone, this.totalChunks),
+						new GenerateTilesTask(this.area, splitX + 1, this.minTileZ, this.maxTileX, this.maxTileZ, this.statistics, this.sectionFileWriter, this.chunksDone, this.totalChunks)
+					);
+				} else {
+					int splitZ = this.minTileZ + (this.maxTileZ - this.minTileZ) / 2;
+					invokeAll(
+						new GenerateTilesTask(this.area, this.minTileX, this.minTileZ, this.maxTileX, splitZ, this.statistics, this.sectionFileWriter, this.chunksDone, this.totalChunks),
+						new GenerateTilesTask(this.area, this.minTileX, splitZ + 1, this.maxTileX, this.maxTileZ, this.statistics, this.sectionFileWriter, this.chunksDone, this.totalChunks)
+					);
+				}
+				return;
+			}
+			try {
+				generateTile(this.minTileX, this.minTileZ);
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException("Could not write sections for tile " + this.minTileX + ", " + this.minTileZ, e);
+			}
+		}
+
+		private void generateTile(int tileX, int tileZ) throws IOException
+		{
+			int minChunkX = Math.max(this.area.minChunkX, tileX * TILE_SIZE);
+			int minChunkZ = Math.max(this.area.minChunkZ, tileZ * TILE_SIZE);
+			int maxChunkX = Math.min(this.area.maxChunkX, tileX * TILE_SIZE + TILE_SIZE - 1);
+			int maxChunkZ = Math.min(this.area.maxChunkZ, tileZ * TILE_SIZE + TILE_SIZE - 1);
+
+			PregenerationStatistics tileStatistics = new PregenerationStatistics();
+			SectionFileWriter.TileWriter tileWriter = this.sectionFileWriter == null ? null : this.sectionFileWriter.createTileWriter(tileX, tileZ, (maxChunkX - minChunkX + 1) * (maxChunkZ - minChunkZ + 1));
+			try {
+				HeadlessChunkBuffer buffer = new HeadlessChunkBuffer(ChunkCoordinate.fromChunkCoords(minChunkX, minChunkZ));
+				BitSet carvingMask = new BitSet(Constants.CHUNK_SIZE * Constants.CHUNK_SIZE * Constants.WORLD_HEIGHT);
+				Random random = new Random();
+				ObjectList<JigsawStructureData> structures = new ObjectArrayList<JigsawStructureData>();
+				ObjectList<JigsawStructureData> junctions = new ObjectArrayList<JigsawStructureData>();
+				for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++)
+				{
+					for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++)
+					{
+						long startTime = System.nanoTime();
+						ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunkX, chunkZ);
+						buffer.reset(chunkCoord);
+						carvingMask.clear();
+						random.setSeed(HeadlessPregenerator.this.seed ^ (chunkX * 341873128712L + chunkZ * 132897987541L));
+						HeadlessPregenerator.this.chunkGenerator.populateNoise(HeadlessPregenerator.this.preset.getWorldConfig().getWorldHeightCap(), random, buffer, chunkCoord, structures, junctions);
+						HeadlessPregenerator.this.chunkGenerator.carve(buffer, HeadlessPregenerator.this.seed, chunkX, chunkZ, carvingMask);
+						buffer.compact();
+						long generationTime = System.nanoTime() - startTime;
+
+						IBiome[] biomes = HeadlessPregenerator.this.chunkGenerator.getCachedBiomeProvider().getBiomesForChunk(chunkCoord);
+						tileStatistics.addChunk(buffer, biomes, generationTime);
+						if (tileWriter != null)
+						{
+							tileWriter.addChunk(buffer);
+						}
+						logProgress(this.chunksDone.incrementAndGet(), this.totalChunks);
+					}
+				}
+			} finally {
+				if (tileWriter != null)
+				{
+					tileWriter.close();
+				}
+			}
+			this.statistics.merge(tileStatistics);
+		}
+	}
+
+	private void logProgress(int chunksDone, int totalChunks)
+	{
+		if (chunksDone % PROGRESS_INTERVAL == 0 || chunksDone == totalChunks)
+		{
+			this.logger.log(LogLevel.INFO, LogCategory.MAIN, "Pregenerated " + chunksDone + " / " + totalChunks + " chunks (" + (chunksDone * 100 / totalChunks) + "%).");
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 4)
+		{
+			System.out.println("Usage: HeadlessPregenerator otgRootFolder presetFolderName seed radius [-threads count] [-stats file] [-raw outputFolder]");
+			System.exit(1);
+		}
+
+		String otgRootFolder = args[0];
+		String presetFolderName = args[1];
+		long seed = Long.parseLong(args[2]);
+		int radius = Integer.parseInt(args[3]);
+		int threads = Runtime.getRuntime().availableProcessors();
+		File statsFile = null;
+		File rawOutputFolder = null;
+		for (int i = 4; i + 1 < args.length; i += 2)
+		{
+			if (args[i].equalsIgnoreCase("-threads"))
+			{
+				threads = Integer.parseInt(args[i + 1]);
+			}
+			else if (args[i].equalsIgnoreCase("-stats"))
+			{
+				statsFile = new File(args[i + 1]);
+			}
+			else if (args[i].equalsIgnoreCase("-raw"))
+			{
+				rawOutputFolder = new File(args[i + 1]);
+			} else {
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+
+		HeadlessEngine engine = new HeadlessEngine(Paths.get(otgRootFolder));
+		OTG.startEngine(engine);
+		try {
+			engine.getPresetLoader().registerBiomes();
+			Preset preset = engine.getPresetLoader().getPresetByFolderName(presetFolderName);
+			if (preset == null)
+			{
+				throw new IllegalArgumentException("Could not find preset " + presetFolderName + " in " + engine.getPresetsDirectory());
+			}
+
+			OTGChunkGenerator chunkGenerator = engine.createChunkGenerator(presetFolderName, seed);
+			HeadlessPregenerator pregenerator = new HeadlessPregenerator(chunkGenerator, preset, seed, engine.getLogger());
+			SectionFileWriter sectionFileWriter = rawOutputFolder == null ? null : new SectionFileWriter(rawOutputFolder);
+
+			engine.getLogger().log(LogLevel.INFO, LogCategory.MAIN, "Pregenerating " + ((radius * 2 + 1) * (radius * 2 + 1)) + " chunks for preset " + presetFolderName + " on " + threads + " threads.");
+			long startTime = System.currentTimeMillis();
+			PregenerationStatistics statistics = pregenerator.pregenerate(-radius, -radius, radius, radius, threads, sectionFileWriter);
+			long wallTime = System.currentTimeMillis() - startTime;
+			if (sectionFileWriter != null)
+			{
+				sectionFileWriter.writeStates();
+			}
+			writeStatistics(statistics, statsFile, engine.getHeadlessPresetLoader().getGlobalIdMapping(presetFolderName), wallTime);
+		} finally {
+			OTG.stopEngine();
+		}
+	}
+
+	private static void writeStatistics(PregenerationStatistics statistics, File statsFile, IBiome[] biomesById, long wallTime) throws FileNotFoundException, UnsupportedEncodingException
+	{
+		if (statsFile == null)
+		{
+			statistics.write(System.out, biomesById, wallTime);
+			return;
+		}
+		PrintStream out = new PrintStream(statsFile, "UTF-8");
+		try {
+			statistics.write(out, biomesById, wallTime);
+		} finally {
+			out.close();
+		}
+	}
+}
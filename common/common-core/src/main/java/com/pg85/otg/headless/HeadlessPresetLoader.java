@@ -0,0 +1,252 @@
+package com.pg85.otg.headless;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.pg85.otg.config.biome.BiomeConfigFinder.BiomeConfigStub;
+import com.pg85.otg.config.biome.BiomeGroup;
+import com.pg85.otg.config.world.WorldConfig;
+import com.pg85.otg.constants.SettingsEnums.BiomeMode;
+import com.pg85.otg.gen.biome.BiomeData;
+import com.pg85.otg.gen.biome.layers.BiomeLayerData;
+import com.pg85.otg.gen.biome.layers.NewBiomeGroup;
+import com.pg85.otg.interfaces.IBiome;
+import com.pg85.otg.interfaces.IBiomeConfig;
+import com.pg85.otg.interfaces.IMaterialReader;
+import com.pg85.otg.interfaces.IWorldConfig;
+import com.pg85.otg.presets.LocalPresetLoader;
+import com.pg85.otg.presets.Preset;
+import com.pg85.otg.util.biome.OTGBiomeResourceLocation;
+
+/**
+ * Preset loader without a Minecraft biome registry. Assigns OTG
+ * biome ids and creates the biome layer data the same way the
+ * platform preset loaders do.
+ */
+public class HeadlessPresetLoader extends LocalPresetLoader
+{
+	private final Map<String, IBiome[]> globalIdMapping = new HashMap<>();
+	private final Map<String, BiomeLayerData> presetGenerationData = new HashMap<>();
+
+	HeadlessPresetLoader(Path otgRootFolder)
+	{
+		super(otgRootFolder);
+	}
+
+	@Override
+	protected IMaterialReader createMaterialReader()
+	{
+		return new HeadlessMaterialReader();
+	}
+
+	@Override
+	public void registerBiomes()
+	{
+		for(Preset preset : this.presets.values())
+		{
+			registerBiomesForPreset(preset);
+		}
+	}
+
+	// Mob spawns aren't used without a platform.
+	@Override
+	protected void mergeVanillaBiomeMobSpawnSettings(BiomeConfigStub biomeConfigStub, String inheritMobsBiomeName) { }
+
+	public IBiome[] getGlobalIdMapping(String presetFolderName)
+	{
+		return this.globalIdMapping.get(presetFolderName);
+	}
+
+	public BiomeLayerData getPresetGenerationData(String presetFolderName)
+	{
+		BiomeLayerData data = this.presetGenerationData.get(presetFolderName);
+		return data == null ? null : new BiomeLayerData(data);
+	}
+
+	private void registerBiomesForPreset(Preset preset)
+	{
+		// Index BiomeColors for FromImageMode
+		HashMap<Integer, Integer> biomeColorMap = new HashMap<Integer, Integer>();
+
+		// Start at 1, 0 is the fallback for the biome generator (the world's ocean biome).
+		int currentId = 1;
+
+		IWorldConfig worldConfig = preset.getWorldConfig();
+		IBiomeConfig oceanBiomeConfig = null;
+		int[] oceanTemperatures = new int[]{0, 0, 0, 0};
+
+		Map<Integer, List<BiomeData>> isleBiomesAtDepth = new HashMap<>();
+		Map<Integer, List<BiomeData>> borderBiomesAtDepth = new HashMap<>();
+		Map<String, List<Integer>> worldBiomes = new HashMap<>();
+		Map<String, IBiomeConfig> biomeConfigsByName = new LinkedHashMap<>();
+
+		for(IBiomeConfig biomeConfig : preset.getAllBiomeConfigs())
+		{
+			// Template biomes need the platform's biome registry.
+			if(!biomeConfig.getIsTemplateForBiome())
+			{
+				biomeConfig.setRegistryKey(new OTGBiomeResourceLocation(preset.getPresetFolder(), preset.getShortPresetName(), preset.getMajorVersion(), biomeConfig.getName()));
+				biomeConfigsByName.put(biomeConfig.getName(), biomeConfig);
+			}
+		}
+
+		IBiome[] presetIdMapping = new IBiome[biomeConfigsByName.size()];
+		for(IBiomeConfig biomeConfig : biomeConfigsByName.values())
+		{
+			// Biome id 0 is reserved for ocean, used when a land column has
+			// no biome assigned, which can happen due to biome group rarity.
+			boolean isOceanBiome = biomeConfig.getName().equals(worldConfig.getDefaultOceanBiome());
+			if(isOceanBiome)
+			{
+				oceanBiomeConfig = biomeConfig;
+			}
+			int otgBiomeId = isOceanBiome ? 0 : currentId;
+			biomeConfig.setOTGBiomeId(otgBiomeId);
+
+			if (biomeConfig.getName().equals(worldConfig.getDefaultWarmOceanBiome()))
+			{
+				oceanTemperatures[0] = otgBiomeId;
+			}
+			if (biomeConfig.getName().equals(worldConfig.getDefaultLukewarmOceanBiome()))
+			{
+				oceanTemperatures[1] = otgBiomeId;
+			}
+			if (biomeConfig.getName().equals(worldConfig.getDefaultColdOceanBiome()))
+			{
+				oceanTemperatures[2] = otgBiomeId;
+			}
+			if (biomeConfig.getName().equals(worldConfig.getDefaultFrozenOceanBiome()))
+			{
+				oceanTemperatures[3] = otgBiomeId;
+			}
+
+			if(otgBiomeId >= presetIdMapping.length)
+			{
+				throw new RuntimeException("Fatal error while registering OTG biome id's for preset " + preset.getFolderName() + ", most likely you've assigned a DefaultOceanBiome that doesn't exist.");
+			}
+			presetIdMapping[otgBiomeId] = new HeadlessBiome(biomeConfig);
+
+			List<Integer> idsForBiome = worldBiomes.get(biomeConfig.getName());
+			if(idsForBiome == null)
+			{
+				idsForBiome = new ArrayList<Integer>();
+				worldBiomes.put(biomeConfig.getName(), idsForBiome);
+			}
+			idsForBiome.add(otgBiomeId);
+
+			// Make a list of isle and border biomes per generation depth
+			if(biomeConfig.isIsleBiome())
+			{
+				int depth = worldConfig.getBiomeMode() == BiomeMode.NoGroups ? biomeConfig.getBiomeSize() : biomeConfig.getBiomeSizeWhenIsle();
+				List<BiomeData> biomesAtDepth = isleBiomesAtDepth.getOrDefault(depth, new ArrayList<>());
+				biomesAtDepth.add(
+					new BiomeData(
+						otgBiomeId,
+						worldConfig.getBiomeMode() == BiomeMode.NoGroups ? biomeConfig.getBiomeRarity() : biomeConfig.getBiomeRarityWhenIsle(),
+						depth,
+						biomeConfig.getBiomeTemperature(),
+						biomeConfig.getIsleInBiomes(),
+						biomeConfig.getBorderInBiomes(),
+						biomeConfig.getOnlyBorderNearBiomes(),
+						biomeConfig.getNotBorderNearBiomes()
+					)
+				);
+				isleBiomesAtDepth.put(depth, biomesAtDepth);
+			}
+
+			if(biomeConfig.isBorderBiome())
+			{
+				int depth = worldConfig.getBiomeMode() == BiomeMode.NoGroups ? biomeConfig.getBiomeSize() : biomeConfig.getBiomeSizeWhenBorder();
+				List<BiomeData> biomesAtDepth = borderBiomesAtDepth.getOrDefault(depth, new ArrayList<>());
+				biomesAtDepth.add(
+					new BiomeData(
+						otgBiomeId,
+						biomeConfig.getBiomeRarity(),
+						depth,
+						biomeConfig.getBiomeTemperature(),
+						biomeConfig.getIsleInBiomes(),
+						biomeConfig.getBorderInBiomes(),
+						biomeConfig.getOnlyBorderNearBiomes(),
+						biomeConfig.getNotBorderNearBiomes()
+					)
+				);
+				borderBiomesAtDepth.put(depth, biomesAtDepth);
+			}
+
+			biomeColorMap.put(biomeConfig.getBiomeColor(), otgBiomeId);
+
+			currentId += isOceanBiome ? 0 : 1;
+		}
+
+		// If the ocean config is null, shift the array downwards to fill id 0
+		if (oceanBiomeConfig == null)
+		{
+			System.arraycopy(presetIdMapping, 1, presetIdMapping, 0, presetIdMapping.length - 1);
+		}
+		this.globalIdMapping.put(preset.getFolderName(), presetIdMapping);
+
+		BiomeLayerData data = new BiomeLayerData(preset.getPresetFolder(), worldConfig, oceanBiomeConfig, oceanTemperatures);
+		Set<Integer> biomeDepths = new HashSet<>();
+		Map<Integer, List<NewBiomeGroup>> groupDepths = new HashMap<>();
+		int genDepth = worldConfig.getGenerationDepth();
+		for (BiomeGroup group : ((WorldConfig)worldConfig).getBiomeGroupManager().getGroups())
+		{
+			NewBiomeGroup bg = new NewBiomeGroup();
+			bg.id = group.getGroupId();
+			bg.rarity = group.getGroupRarity();
+			bg.totalDepthRarity = new int[genDepth + 1];
+			bg.maxRarityPerDepth = new int[genDepth + 1];
+
+			float totalTemp = 0;
+			for (String biomeEntry : group.getBiomes())
+			{
+				IBiomeConfig config = biomeConfigsByName.get(biomeEntry);
+				if(config == null)
+				{
+					continue;
+				}
+				bg.biomes.add(
+					new BiomeData(
+						config.getOTGBiomeId(),
+						config.getBiomeRarity(),
+						config.getBiomeSize(),
+						config.getBiomeTemperature(),
+						config.getIsleInBiomes(),
+						config.getBorderInBiomes(),
+						config.getOnlyBorderNearBiomes(),
+						config.getNotBorderNearBiomes()
+					)
+				);
+				biomeDepths.add(config.getBiomeSize());
+				totalTemp += config.getBiomeTemperature();
+				bg.totalGroupRarity += config.getBiomeRarity();
+				bg.totalDepthRarity[config.getBiomeSize()] += config.getBiomeRarity();
+			}
+
+			// maxRarityPerDepth is the sum of totalDepthRarity for this and subsequent depths
+			for (int depth = 0; depth < bg.totalDepthRarity.length; depth++)
+			{
+				for (int j = depth; j < bg.totalDepthRarity.length; j++)
+				{
+					bg.maxRarityPerDepth[depth] += bg.totalDepthRarity[j];
+				}
+			}
+			bg.avgTemp = totalTemp / group.getBiomes().size();
+
+			List<NewBiomeGroup> groupsAtDepth = groupDepths.getOrDefault(group.getGenerationDepth(), new ArrayList<>());
+			groupsAtDepth.add(bg);
+			groupDepths.put(group.getGenerationDepth(), groupsAtDepth);
+			data.groupRegistry.put(bg.id, bg);
+		}
+
+		data.init(biomeDepths, groupDepths, isleBiomesAtDepth, borderBiomesAtDepth, worldBiomes, biomeColorMap, presetIdMapping);
+		this.presetGenerationData.put(preset.getFolderName(), data);
+	}
+}
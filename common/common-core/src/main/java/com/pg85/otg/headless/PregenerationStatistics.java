@@ -0,0 +1,179 @@
+package com.pg85.otg.headless;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.interfaces.IBiome;
+
+/**
+ * Column height, biome and block state counts for pregenerated chunks.
+ * Each pregeneration task fills its own instance, which is merged into
+ * the totals once the task is done.
+ */
+public class PregenerationStatistics
+{
+	private long chunks = 0;
+	private long generationTimeNanos = 0;
+	// Columns per highest non-air block y + 1, 0 for columns with only air.
+	private final long[] heights = new long[Constants.WORLD_HEIGHT + 1];
+	// Columns per OTG biome id.
+	private long[] biomes = new long[0];
+	// Blocks per HeadlessBlockStates id.
+	private long[] states = new long[0];
+	// Sections that store a single state instead of per-block ids.
+	private long uniformSections = 0;
+
+	void addChunk(HeadlessChunkBuffer buffer, IBiome[] chunkBiomes, long generationTimeNanos)
+	{
+		this.chunks++;
+		this.generationTimeNanos += generationTimeNanos;
+
+		IBiome biome;
+		for (int i = 0; i < chunkBiomes.length; i++)
+		{
+			biome = chunkBiomes[i];
+			if (biome != null)
+			{
+				int biomeId = biome.getBiomeConfig().getOTGBiomeId();
+				if (biomeId >= this.biomes.length)
+				{
+					this.biomes = Arrays.copyOf(this.biomes, biomeId + 1);
+				}
+				this.biomes[biomeId]++;
+			}
+		}
+
+		if (HeadlessBlockStates.getStateCount() > this.states.length)
+		{
+			this.states = Arrays.copyOf(this.states, HeadlessBlockStates.getStateCount());
+		}
+		int[] paletteCounts = new int[HeadlessChunkBuffer.MAX_PALETTE_SIZE];
+		for (int sectionIndex = 0; sectionIndex < HeadlessChunkBuffer.SECTION_COUNT; sectionIndex++)
+		{
+			if (buffer.isUniform(sectionIndex))
+			{
+				this.uniformSections++;
+				this.states[buffer.getUniformStateId(sectionIndex)] += HeadlessChunkBuffer.SECTION_VOLUME;
+			}
+			else if (buffer.getPalette(sectionIndex) != null)
+			{
+				// Count per palette entry, then add the counts to their states.
+				byte[] indices = buffer.getPaletteIndices(sectionIndex);
+				short[] palette = buffer.getPalette(sectionIndex);
+				int paletteSize = buffer.getPaletteSize(sectionIndex);
+				Arrays.fill(paletteCounts, 0, paletteSize, 0);
+				for (int i = 0; i < HeadlessChunkBuffer.SECTION_VOLUME; i++)
+				{
+					paletteCounts[indices[i] & 0xFF]++;
+				}
+				for (int i = 0; i < paletteSize; i++)
+				{
+					this.states[palette[i]] += paletteCounts[i];
+				}
+			} else {
+				short[] stateIds = buffer.getStateIds(sectionIndex);
+				for (int i = 0; i < HeadlessChunkBuffer.SECTION_VOLUME; i++)
+				{
+					this.states[stateIds[i]]++;
+				}
+			}
+		}
+
+		short airId = HeadlessBlockStates.AIR.getStateId();
+		for (int x = 0; x < Constants.CHUNK_SIZE; x++)
+		{
+			for (int z = 0; z < Constants.CHUNK_SIZE; z++)
+			{
+				int y = Constants.WORLD_HEIGHT - 1;
+				while (y >= 0 && buffer.getStateId(x, y, z) == airId)
+				{
+					y--;
+				}
+				this.heights[y + 1]++;
+			}
+		}
+	}
+
+	synchronized void merge(PregenerationStatistics other)
+	{
+		this.chunks += other.chunks;
+		this.generationTimeNanos += other.generationTimeNanos;
+		this.uniformSections += other.uniformSections;
+		for (int i = 0; i < this.heights.length; i++)
+		{
+			this.heights[i] += other.heights[i];
+		}
+		if (other.biomes.length > this.biomes.length)
+		{
+			this.biomes = Arrays.copyOf(this.biomes, other.biomes.length);
+		}
+		for (int i = 0; i < other.biomes.length; i++)
+		{
+			this.biomes[i] += other.biomes[i];
+		}
+		if (other.states.length > this.states.length)
+		{
+			this.states = Arrays.copyOf(this.states, other.states.length);
+		}
+		for (int i = 0; i < other.states.length; i++)
+		{
+			this.states[i] += other.states[i];
+		}
+	}
+
+	public synchronized long getChunks()
+	{
+		return this.chunks;
+	}
+
+	/**
+	 * Writes the statistics as text, biomes are listed by OTG biome id
+	 * with the name of the biome in the given id mapping.
+	 */
+	public synchronized void write(PrintStream out, IBiome[] biomesById, long wallTimeMillis)
+	{
+		long columns = this.chunks * Constants.CHUNK_SIZE * Constants.CHUNK_SIZE;
+		out.println("# Chunks");
+		out.println("Chunks: " + this.chunks);
+		out.println("WallTimeMs: " + wallTimeMillis);
+		out.println("ChunksPerSecond: " + (wallTimeMillis == 0 ? 0 : this.chunks * 1000 / wallTimeMillis));
+		out.println("AverageChunkTimeMs: " + (this.chunks == 0 ? 0 : String.format("%.3f", this.generationTimeNanos / 1000000d / this.chunks)));
+		out.println("UniformSections: " + this.uniformSections + " / " + (this.chunks * HeadlessChunkBuffer.SECTION_COUNT));
+
+		out.println();
+		out.println("# Heights (highest non-air block y: columns)");
+		long heightSum = 0;
+		for (int i = 0; i < this.heights.length; i++)
+		{
+			heightSum += this.heights[i] * (i - 1);
+			if (this.heights[i] > 0)
+			{
+				out.println((i - 1) + ": " + this.heights[i]);
+			}
+		}
+		out.println("AverageHeight: " + (columns == 0 ? 0 : String.format("%.2f", heightSum / (double)columns)));
+
+		out.println();
+		out.println("# Biomes (id, name: columns, percentage)");
+		for (int i = 0; i < this.biomes.length; i++)
+		{
+			if (this.biomes[i] > 0)
+			{
+				String name = i < biomesById.length && biomesById[i] != null ? biomesById[i].getBiomeConfig().getName() : "?";
+				out.println(i + ", " + name + ": " + this.biomes[i] + ", " + String.format("%.2f", this.biomes[i] * 100d / columns) + "%");
+			}
+		}
+
+		out.println();
+		out.println("# Block states (name: blocks)");
+		for (int i = 0; i < this.states.length; i++)
+		{
+			if (this.states[i] > 0)
+			{
+				out.println(HeadlessBlockStates.getState((short)i).getName() + ": " + this.states[i]);
+			}
+		}
+		out.flush();
+	}
+}
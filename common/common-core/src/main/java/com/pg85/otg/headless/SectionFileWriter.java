@@ -0,0 +1,126 @@
+package com.pg85.otg.headless;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Writes the sections of pregenerated chunks to files, one file per
+ * pregeneration tile. The ids in the files are HeadlessBlockStates ids,
+ * the names of the states are written to states.txt by writeStates.
+ *
+ * File layout: magic, version, chunk count, then per chunk its x and z,
+ * a bitmask of the sections that follow (all-air sections are left out)
+ * and per section either 1 and a single state id, 2, the palette size, the
+ * palette's state ids and 4096 byte palette indices, or 0 and 4096 state
+ * ids. Indices and ids are stored at [y << 8 | z << 4 | x].
+ */
+public class SectionFileWriter
+{
+	private static final int MAGIC = 0x4F544753; // "OTGS"
+	private static final int VERSION = 2;
+	static final String FILE_EXTENSION = ".sections";
+	static final String STATES_FILE = "states.txt";
+
+	private final File outputDir;
+
+	public SectionFileWriter(File outputDir)
+	{
+		this.outputDir = outputDir;
+		outputDir.mkdirs();
+	}
+
+	/**
+	 * Writes the chunks of one tile to its file as they're generated.
+	 * Used by a single thread, close it once all chunks are added.
+	 */
+	class TileWriter
+	{
+		private final DataOutputStream out;
+
+		private TileWriter(int tileX, int tileZ, int chunkCount) throws IOException
+		{
+			File file = new File(SectionFileWriter.this.outputDir, tileX + "." + tileZ + FILE_EXTENSION);
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			this.out.writeInt(MAGIC);
+			this.out.writeInt(VERSION);
+			this.out.writeInt(chunkCount);
+		}
+
+		void addChunk(HeadlessChunkBuffer buffer) throws IOException
+		{
+			short airId = HeadlessBlockStates.AIR.getStateId();
+			int sectionMask = 0;
+			for (int i = 0; i < HeadlessChunkBuffer.SECTION_COUNT; i++)
+			{
+				if (!buffer.isUniform(i) || buffer.getUniformStateId(i) != airId)
+				{
+					sectionMask |= 1 << i;
+				}
+			}
+			this.out.writeInt(buffer.getChunkCoordinate().getChunkX());
+			this.out.writeInt(buffer.getChunkCoordinate().getChunkZ());
+			this.out.writeShort(sectionMask);
+			for (int i = 0; i < HeadlessChunkBuffer.SECTION_COUNT; i++)
+			{
+				if ((sectionMask & (1 << i)) == 0)
+				{
+					continue;
+				}
+				if (buffer.isUniform(i))
+				{
+					this.out.writeByte(1);
+					this.out.writeShort(buffer.getUniformStateId(i));
+				}
+				else if (buffer.getPalette(i) != null)
+				{
+					short[] palette = buffer.getPalette(i);
+					int paletteSize = buffer.getPaletteSize(i);
+					this.out.writeByte(2);
+					this.out.writeShort(paletteSize);
+					for (int j = 0; j < paletteSize; j++)
+					{
+						this.out.writeShort(palette[j]);
+					}
+					this.out.write(buffer.getPaletteIndices(i));
+				} else {
+					short[] stateIds = buffer.getStateIds(i);
+					this.out.writeByte(0);
+					for (int j = 0; j < HeadlessChunkBuffer.SECTION_VOLUME; j++)
+					{
+						this.out.writeShort(stateIds[j]);
+					}
+				}
+			}
+		}
+
+		void close() throws IOException
+		{
+			this.out.close();
+		}
+	}
+
+	TileWriter createTileWriter(int tileX, int tileZ, int chunkCount) throws IOException
+	{
+		return new TileWriter(tileX, tileZ, chunkCount);
+	}
+
+	/**
+	 * Writes the names of all block states by id, call once all tiles have been written.
+	 */
+	public void writeStates() throws IOException
+	{
+		PrintStream out = new PrintStream(new File(this.outputDir, STATES_FILE), "UTF-8");
+		try {
+			for (int i = 0; i < HeadlessBlockStates.getStateCount(); i++)
+			{
+				out.println(i + "=" + HeadlessBlockStates.getState((short)i).getName());
+			}
+		} finally {
+			out.close();
+		}
+	}
+}
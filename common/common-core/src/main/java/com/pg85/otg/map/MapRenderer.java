@@ -0,0 +1,420 @@
+package com.pg85.otg.map;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.interfaces.IBiomeConfig;
+import com.pg85.otg.interfaces.ICachedBiomeProvider;
+import com.pg85.otg.interfaces.ILogger;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.gen.PackedChunkBuffer;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
+import com.pg85.otg.util.materials.LocalMaterialData;
+
+/**
+ * Renders a biome or terrain map of an area as a pyramid of PNG tiles,
+ * so maps of any size can be rendered without keeping them in memory.
+ *
+ * Level 0 holds the full resolution tiles, each level above it halves the
+ * resolution, the top level is a single tile showing the whole map. Tiles
+ * are stored as <level>/<tileX>_<tileZ>.png in the output folder. Each tile
+ * is rendered by one thread into its own raster, and only moved into place
+ * once it's been written completely. Tiles that already exist are skipped,
+ * so an interrupted render can be resumed by rendering the same map again.
+ * Tiles are only built once all tiles below them exist, so tiles that
+ * failed to render don't leave holes in the levels above them.
+ *
+ * Biome maps use 1 pixel per 4x4 blocks (biome noise resolution), terrain
+ * maps use 1 pixel per block.
+ */
+public class MapRenderer
+{
+	public static final int TILE_SIZE = 512;
+	private static final String INFO_FILE_NAME = "map.txt";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	/**
+	 * Provides shadowgenned chunks and block colours for terrain maps.
+	 * Must be thread-safe.
+	 */
+	public interface TerrainSource
+	{
+		PackedChunkBuffer getChunk(ChunkCoordinate chunkCoord);
+
+		int getMapColor(LocalMaterialData material);
+	}
+
+	private final ICachedBiomeProvider biomeProvider;
+	private final TerrainSource terrainSource;
+	private final Path outputFolder;
+	private final boolean mapBiomes;
+	// Pixel coords of the top left corner of the map
+	private final int startX;
+	private final int startZ;
+	private final int width;
+	private final int height;
+	private final int levels;
+	private final ILogger logger;
+
+	/**
+	 * @param terrainSource Only used for terrain maps, may be null for biome maps.
+	 * @param startX The x coord of the top left corner of the map in blocks, aligned to chunks for terrain maps.
+	 * @param startZ The z coord of the top left corner of the map in blocks, aligned to chunks for terrain maps.
+	 * @param width Width in pixels.
+	 * @param height Height in pixels.
+	 */
+	public MapRenderer(ICachedBiomeProvider biomeProvider, TerrainSource terrainSource, Path outputFolder, boolean mapBiomes, int startX, int startZ, int width, int height, ILogger logger)
+	{
+		this.biomeProvider = biomeProvider;
+		this.terrainSource = terrainSource;
+		this.outputFolder = outputFolder;
+		this.mapBiomes = mapBiomes;
+		if(mapBiomes)
+		{
+			this.startX = startX >> 2;
+			this.startZ = startZ >> 2;
+		} else {
+			this.startX = startX & ~(Constants.CHUNK_SIZE - 1);
+			this.startZ = startZ & ~(Constants.CHUNK_SIZE - 1);
+		}
+		this.width = width;
+		this.height = height;
+		int levels = 1;
+		while(getTileCount(width, levels - 1) > 1 || getTileCount(height, levels - 1) > 1)
+		{
+			levels++;
+		}
+		this.levels = levels;
+		this.logger = logger;
+	}
+
+	public Path getOutputFolder()
+	{
+		return this.outputFolder;
+	}
+
+	public int getLevels()
+	{
+		return this.levels;
+	}
+
+	/**
+	 * Renders all tiles that don't exist yet, blocks until done.
+	 * Progress messages are passed to the given consumer, which
+	 * may be called from any thread.
+	 *
+	 * @return False if the output folder contains a different map.
+	 */
+	public boolean render(int threads, Consumer<String> progress) throws InterruptedException
+	{
+		if(!writeInfo(progress))
+		{
+			return false;
+		}
+
+		final AtomicInteger failedTiles = new AtomicInteger();
+		final AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "OTG Map Renderer " + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for(int level = 0; level < this.levels; level++)
+			{
+				// Each level is built from the tiles of the level below it.
+				renderLevel(executor, level, failedTiles, progress);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		if(failedTiles.get() > 0)
+		{
+			progress.accept(failedTiles.get() + " map tiles could not be rendered, render the map again to retry them.");
+		}
+		return true;
+	}
+
+	private void renderLevel(ExecutorService executor, final int level, final AtomicInteger failedTiles, final Consumer<String> progress) throws InterruptedException
+	{
+		int tilesX = getTileCount(this.width, level);
+		int tilesZ = getTileCount(this.height, level);
+		final int totalTiles = tilesX * tilesZ;
+		final int progressUpdate = Math.max(1, totalTiles / 20);
+		final AtomicInteger tilesDone = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<Future<?>>(totalTiles);
+		for(int tileX = 0; tileX < tilesX; tileX++)
+		{
+			for(int tileZ = 0; tileZ < tilesZ; tileZ++)
+			{
+				final int finalTileX = tileX;
+				final int finalTileZ = tileZ;
+				futures.add(executor.submit(new Runnable()
+				{
+					@Override
+					public void run()
+					{
+						if(!renderTile(level, finalTileX, finalTileZ))
+						{
+							failedTiles.incrementAndGet();
+						}
+						int done = tilesDone.incrementAndGet();
+						if(done % progressUpdate == 0 || done == totalTiles)
+						{
+							progress.accept("Level " + level + ": " + (done * 100 / totalTiles) + "% done mapping");
+						}
+					}
+				}));
+			}
+		}
+		for(Future<?> future : futures)
+		{
+			try {
+				future.get();
+			}
+			catch (ExecutionException e)
+			{
+				this.logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error rendering a map tile, exception:");
+				e.getCause().printStackTrace();
+				failedTiles.incrementAndGet();
+			}
+		}
+	}
+
+	// Returns false if the tile couldn't be rendered.
+	private boolean renderTile(int level, int tileX, int tileZ)
+	{
+		File file = getTileFile(level, tileX, tileZ);
+		if(file.exists())
+		{
+			return true;
+		}
+
+		int tileWidth = Math.min(TILE_SIZE, getSize(this.width, level) - tileX * TILE_SIZE);
+		int tileHeight = Math.min(TILE_SIZE, getSize(this.height, level) - tileZ * TILE_SIZE);
+		int[] raster = new int[tileWidth * tileHeight];
+		if(level > 0)
+		{
+			// Don't write tiles with missing parts, they'd be skipped when resuming.
+			if(!downscaleTiles(raster, tileWidth, tileHeight, level, tileX, tileZ))
+			{
+				return false;
+			}
+		}
+		else if(this.mapBiomes)
+		{
+			renderBiomes(raster, tileWidth, tileHeight, tileX, tileZ);
+		} else {
+			renderTerrain(raster, tileWidth, tileHeight, tileX, tileZ);
+		}
+
+		BufferedImage image = new BufferedImage(tileWidth, tileHeight, BufferedImage.TYPE_INT_RGB);
+		image.setRGB(0, 0, tileWidth, tileHeight, raster, 0, tileWidth);
+		return writeTile(image, file);
+	}
+
+	private void renderBiomes(int[] raster, int tileWidth, int tileHeight, int tileX, int tileZ)
+	{
+		// Biome configs are returned for a square region, stored at [x * TILE_SIZE + z].
+		IBiomeConfig[] biomeConfigs = this.biomeProvider.getNoiseBiomeConfigsForRegion(this.startX + tileX * TILE_SIZE, this.startZ + tileZ * TILE_SIZE, TILE_SIZE);
+		for(int x = 0; x < tileWidth; x++)
+		{
+			for(int z = 0; z < tileHeight; z++)
+			{
+				raster[z * tileWidth + x] = biomeConfigs[x * TILE_SIZE + z].getBiomeColor();
+			}
+		}
+	}
+
+	private void renderTerrain(int[] raster, int tileWidth, int tileHeight, int tileX, int tileZ)
+	{
+		int blockX = this.startX + tileX * TILE_SIZE;
+		int blockZ = this.startZ + tileZ * TILE_SIZE;
+		PackedChunkBuffer chunk;
+		int y;
+		for(int chunkX = 0; chunkX * Constants.CHUNK_SIZE < tileWidth; chunkX++)
+		{
+			for(int chunkZ = 0; chunkZ * Constants.CHUNK_SIZE < tileHeight; chunkZ++)
+			{
+				chunk = this.terrainSource.getChunk(ChunkCoordinate.fromBlockCoords(blockX + chunkX * Constants.CHUNK_SIZE, blockZ + chunkZ * Constants.CHUNK_SIZE));
+				for(int internalX = 0; internalX < Constants.CHUNK_SIZE && chunkX * Constants.CHUNK_SIZE + internalX < tileWidth; internalX++)
+				{
+					for(int internalZ = 0; internalZ < Constants.CHUNK_SIZE && chunkZ * Constants.CHUNK_SIZE + internalZ < tileHeight; internalZ++)
+					{
+						y = chunk.getHighestNonAirBlock(internalX, internalZ);
+						if(y >= 0)
+						{
+							// Shade relative to 0-255
+							raster[(chunkZ * Constants.CHUNK_SIZE + internalZ) * tileWidth + chunkX * Constants.CHUNK_SIZE + internalX] = shadeColor(
+								this.terrainSource.getMapColor(chunk.getBlock(internalX, y, internalZ)),
+								(int)Math.floor(y / 255f * 2 * 100)
+							);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// Builds a tile from the (up to) 4 tiles it covers on the level below.
+	// Returns false if any of those tiles is missing or can't be read.
+	private boolean downscaleTiles(int[] raster, int tileWidth, int tileHeight, int level, int tileX, int tileZ)
+	{
+		int half = TILE_SIZE / 2;
+		for(int childX = 0; childX < 2; childX++)
+		{
+			for(int childZ = 0; childZ < 2; childZ++)
+			{
+				if(childX * half >= tileWidth || childZ * half >= tileHeight)
+				{
+					continue;
+				}
+				File childFile = getTileFile(level - 1, tileX * 2 + childX, tileZ * 2 + childZ);
+				BufferedImage child;
+				try {
+					child = ImageIO.read(childFile);
+				}
+				catch (IOException e)
+				{
+					child = null;
+				}
+				if(child == null)
+				{
+					this.logger.log(LogLevel.ERROR, LogCategory.MAIN, "Could not read map tile " + childFile.getAbsolutePath() + ", skipping " + getTileFile(level, tileX, tileZ).getAbsolutePath() + ".");
+					return false;
+				}
+				for(int x = 0; x < half && childX * half + x < tileWidth; x++)
+				{
+					for(int z = 0; z < half && childZ * half + z < tileHeight; z++)
+					{
+						if(x * 2 < child.getWidth() && z * 2 < child.getHeight())
+						{
+							raster[(childZ * half + z) * tileWidth + childX * half + x] = child.getRGB(x * 2, z * 2) & 0xFFFFFF;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	// Returns false if the tile couldn't be written.
+	private boolean writeTile(BufferedImage image, File file)
+	{
+		File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+		try {
+			file.getParentFile().mkdirs();
+			if(!ImageIO.write(image, "png", tempFile))
+			{
+				throw new IOException("No PNG writer available.");
+			}
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		}
+		catch (IOException e)
+		{
+			this.logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error writing " + file.getAbsolutePath() + ", skipping. Exception:");
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	// Writes the map settings to the output folder, or checks them
+	// against the existing ones when resuming.
+	private boolean writeInfo(Consumer<String> progress)
+	{
+		String info =
+			"type: " + (this.mapBiomes ? "biomes" : "terrain") + "\n" +
+			"startX: " + this.startX + "\n" +
+			"startZ: " + this.startZ + "\n" +
+			"width: " + this.width + "\n" +
+			"height: " + this.height + "\n" +
+			"tileSize: " + TILE_SIZE + "\n" +
+			"levels: " + this.levels + "\n"
+		;
+		File infoFile = this.outputFolder.resolve(INFO_FILE_NAME).toFile();
+		try {
+			if(infoFile.exists())
+			{
+				if(!new String(Files.readAllBytes(infoFile.toPath()), StandardCharsets.UTF_8).equals(info))
+				{
+					progress.accept("The folder " + this.outputFolder.toAbsolutePath() + " already contains a different map, please remove it or use a different name.");
+					return false;
+				}
+				progress.accept("Resuming map in " + this.outputFolder.toAbsolutePath());
+			} else {
+				infoFile.getParentFile().mkdirs();
+				Files.write(infoFile.toPath(), info.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		catch (IOException e)
+		{
+			this.logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error writing " + infoFile.getAbsolutePath() + ". Exception:");
+			e.printStackTrace();
+			return false;
+		}
+		return true;
+	}
+
+	private File getTileFile(int level, int tileX, int tileZ)
+	{
+		return this.outputFolder.resolve(level + File.separator + tileX + "_" + tileZ + ".png").toFile();
+	}
+
+	// Size in pixels of the map at the given level.
+	private static int getSize(int size, int level)
+	{
+		return (int)(((long)size + (1L << level) - 1) >> level);
+	}
+
+	private static int getTileCount(int size, int level)
+	{
+		return (getSize(size, level) + TILE_SIZE - 1) / TILE_SIZE;
+	}
+
+	private static int shadeColor(int rgbColor, int percent)
+	{
+		int red = (rgbColor >> 16) & 0xFF;
+		int green = (rgbColor >> 8) & 0xFF;
+		int blue = rgbColor & 0xFF;
+
+		red = red * percent / 100;
+		red = red > 255 ? 255 : red;
+		green = green * percent / 100;
+		green = green > 255 ? 255 : green;
+		blue = blue * percent / 100;
+		blue = blue > 255 ? 255 : blue;
+
+		return 65536 * red + 256 * green + blue;
+	}
+}
@@ -1,12 +1,21 @@
 package com.pg85.otg.presets;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+import com.pg85.otg.OTG;
 import com.pg85.otg.config.biome.BiomeConfig;
 import com.pg85.otg.config.biome.BiomeConfigFinder;
 import com.pg85.otg.config.biome.BiomeConfigFinder.BiomeConfigStub;
@@ -20,6 +29,7 @@ import com.pg85.otg.constants.Constants;
 import com.pg85.otg.interfaces.ILogger;
 import com.pg85.otg.interfaces.IMaterialReader;
 import com.pg85.otg.interfaces.IWorldConfig;
+import com.pg85.otg.util.helpers.ConcurrencyHelper;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.minecraft.BiomeRegistryNames;
@@ -101,6 +111,7 @@ public abstract class LocalPresetLoader
 	{
 		if(this.presetsDir.exists() && this.presetsDir.isDirectory())
 		{
+			List<Path> presetDirs = new ArrayList<Path>();
 			for(File presetDir : this.presetsDir.listFiles())
 			{
 				if(presetDir.isDirectory())
@@ -109,19 +120,59 @@ public abstract class LocalPresetLoader
 					{
 						if(file.getName().equals(Constants.WORLD_CONFIG_FILE))
 						{
-							Preset preset = loadPreset(presetDir.toPath(), biomeResourcesManager, logger);
-							this.presets.put(preset.getFolderName(), preset);
-							this.aliasMap.put(preset.getShortPresetName(), preset.getFolderName());
+							presetDirs.add(presetDir.toPath());
 							break;
 						}
 					}
 				}
 			}
+
+			// Presets are loaded in parallel, each preset reads and writes its biome configs
+			// on a second pool. Preset tasks wait for their biome tasks, so the two can't share
+			// a pool without risking all threads waiting on tasks that can't run.
+			long startTime = System.currentTimeMillis();
+			int threads = Runtime.getRuntime().availableProcessors();
+			ExecutorService presetExecutor = ConcurrencyHelper.createFixedPool(Math.min(threads, presetDirs.size()), "OTG Preset Loader");
+			ExecutorService configExecutor = ConcurrencyHelper.createFixedPool(threads, "OTG Config Loader");
+			List<Preset> loadedPresets;
+			try {
+				List<Callable<Preset>> tasks = new ArrayList<Callable<Preset>>(presetDirs.size());
+				for(Path presetDir : presetDirs)
+				{
+					tasks.add(() -> loadPreset(presetDir, biomeResourcesManager, logger, configExecutor));
+				}
+				loadedPresets = ConcurrencyHelper.invokeAll(presetExecutor, tasks);
+			} finally {
+				presetExecutor.shutdown();
+				configExecutor.shutdown();
+			}
+
+			// Register in the order the presets were found, as before.
+			for(Preset preset : loadedPresets)
+			{
+				this.presets.put(preset.getFolderName(), preset);
+				this.aliasMap.put(preset.getShortPresetName(), preset.getFolderName());
+			}
+			logger.log(LogLevel.INFO, LogCategory.CONFIGS, MessageFormat.format("Loaded {0} presets in {1}ms", loadedPresets.size(), System.currentTimeMillis() - startTime));
 		}
 	}
-	
+
 	protected Preset loadPreset(Path presetDir, IConfigFunctionProvider biomeResourcesManager, ILogger logger)
 	{
+		ExecutorService configExecutor = ConcurrencyHelper.createFixedPool(Runtime.getRuntime().availableProcessors(), "OTG Config Loader");
+		try {
+			return loadPreset(presetDir, biomeResourcesManager, logger, configExecutor);
+		} finally {
+			configExecutor.shutdown();
+		}
+	}
+
+	/**
+	 * Loads a preset, biome configs are read and written on configExecutor.
+	 */
+	private Preset loadPreset(Path presetDir, IConfigFunctionProvider biomeResourcesManager, ILogger logger, ExecutorService configExecutor)
+	{
+		long startTime = System.currentTimeMillis();
 		File worldConfigFile = new File(presetDir.toString(), Constants.WORLD_CONFIG_FILE);
 		File biomesDirectory = new File(presetDir.toString(), Constants.WORLD_BIOMES_FOLDER);
 		if(!biomesDirectory.exists())
@@ -129,15 +180,113 @@ public abstract class LocalPresetLoader
 			biomesDirectory = new File(presetDir.toString(), Constants.LEGACY_WORLD_BIOMES_FOLDER);
 		}
 		String presetFolderName = presetDir.toFile().getName();
-		
-		SettingsMap worldConfigSettings = FileSettingsReader.read(presetFolderName, worldConfigFile, logger);
-		WorldConfig worldConfig = new WorldConfig(presetDir, worldConfigSettings, addBiomesFromDirRecursive(biomesDirectory), biomeResourcesManager, logger, getMaterialReader(presetFolderName));
-		FileSettingsWriter.writeToFile(worldConfig.getSettingsAsMap(), worldConfigFile, worldConfig.getSettingsMode(), logger);
+		IMaterialReader materialReader = getMaterialReader(presetFolderName);
+
+		// If none of the configs have changed since the last load, use the settings from
+		// the preset cache so the configs don't have to be parsed or written again.
+		File cacheFile = PresetCache.getCacheFile(this.presetsDir.getParentFile(), presetFolderName);
+		long buildStamp = getBuildStamp();
+		PresetCache cache = PresetCache.load(cacheFile, presetDir, worldConfigFile, biomesDirectory, buildStamp, logger);
+
+		SettingsMap worldConfigSettings = cache != null ? cache.getWorldConfigSettings() : FileSettingsReader.read(presetFolderName, worldConfigFile, logger);
+		WorldConfig worldConfig = new WorldConfig(presetDir, worldConfigSettings, addBiomesFromDirRecursive(biomesDirectory), biomeResourcesManager, logger, materialReader);
+		if(cache == null)
+		{
+			FileSettingsWriter.writeToFile(worldConfig.getSettingsAsMap(), worldConfigFile, worldConfig.getSettingsMode(), logger);
+		}
+
+		// Load all biome files
+		Map<String, BiomeConfigStub> biomeConfigStubs;
+		if(cache != null)
+		{
+			biomeConfigStubs = cache.createBiomeConfigStubs(logger, materialReader);
+		} else {
+			List<Path> biomeDirs = new ArrayList<Path>(2);
+			biomeDirs.add(biomesDirectory.toPath());
+			biomeConfigStubs = new BiomeConfigFinder().findBiomes(worldConfig.getWorldBiomes(), worldConfig.getWorldHeightScale(), biomeDirs, configExecutor, logger, materialReader);
+		}
 
 		// use shortPresetName to register the biomes, instead of presetName
-		ArrayList<BiomeConfig> biomeConfigs = loadBiomeConfigs(worldConfig.getShortPresetName(), worldConfig.getMajorVersion(), presetDir, biomesDirectory.toPath(), worldConfig, biomeResourcesManager, logger, getMaterialReader(presetFolderName));
+		ArrayList<BiomeConfig> biomeConfigs = loadBiomeConfigs(worldConfig.getShortPresetName(), worldConfig.getMajorVersion(), presetDir, biomeConfigStubs, cache == null, worldConfig, configExecutor, biomeResourcesManager, logger, materialReader);
+
+		long configHash;
+		if(cache != null)
+		{
+			configHash = cache.getConfigHash();
+		} else {
+			// Hash the configs after they've been written, so the hash doesn't change on the next load.
+			configHash = getConfigHash(worldConfigFile, biomesDirectory, logger);
+			PresetCache.save(cacheFile, presetDir, worldConfigFile, biomesDirectory, buildStamp, configHash, biomeConfigStubs.values(), logger);
+		}
+
+		logger.log(
+			LogLevel.INFO,
+			LogCategory.CONFIGS,
+			MessageFormat.format(
+				"Loaded preset {0} in {1}ms{2}",
+				presetFolderName,
+				System.currentTimeMillis() - startTime,
+				cache != null ? " (from preset cache)" : ""
+			)
+		);
+		return new Preset(presetDir, worldConfig.getShortPresetName(), worldConfig, biomeConfigs, configHash);
+	}
+
+	/**
+	 * Changes whenever OTG is updated, so presets are loaded from their config
+	 * files (and rewritten with any new settings) after an update.
+	 */
+	private static long getBuildStamp()
+	{
+		File jarFile = OTG.getEngine() != null ? OTG.getEngine().getJarFile() : null;
+		return jarFile == null ? 0 : jarFile.lastModified() * 31 + jarFile.length();
+	}
 
-		return new Preset(presetDir, worldConfig.getShortPresetName(), worldConfig, biomeConfigs);
+	/**
+	 * Hashes the contents of the world config and all biome configs, used to
+	 * invalidate data cached from them. Returns 0 if the files can't be read.
+	 */
+	private static long getConfigHash(File worldConfigFile, File biomesDirectory, ILogger logger)
+	{
+		List<File> files = new ArrayList<File>();
+		files.add(worldConfigFile);
+		addConfigFilesRecursive(biomesDirectory, files);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for(File file : files)
+			{
+				digest.update(file.getName().getBytes(StandardCharsets.UTF_8));
+				digest.update(Files.readAllBytes(file.toPath()));
+			}
+			return ByteBuffer.wrap(digest.digest()).getLong();
+		}
+		catch (IOException | NoSuchAlgorithmException e)
+		{
+			logger.log(LogLevel.ERROR, LogCategory.CONFIGS, "Could not hash the configs for preset " + worldConfigFile.getParentFile().getName() + ": " + e.getMessage());
+			return 0;
+		}
+	}
+
+	// Adds all biome config files in the given directory, sorted by name so the hash is stable.
+	private static void addConfigFilesRecursive(File directory, List<File> files)
+	{
+		File[] children = directory.listFiles();
+		if(children == null)
+		{
+			return;
+		}
+		Arrays.sort(children);
+		for(File child : children)
+		{
+			if(child.isFile() && child.getName().endsWith(Constants.BiomeConfigFileExtension))
+			{
+				files.add(child);
+			}
+			else if(child.isDirectory())
+			{
+				addConfigFilesRecursive(child, files);
+			}
+		}
 	}
 	
 	private ArrayList<String> addBiomesFromDirRecursive(File biomesDirectory)
@@ -160,18 +309,10 @@ public abstract class LocalPresetLoader
 		return biomes;
 	}
 
-	private ArrayList<BiomeConfig> loadBiomeConfigs(String presetShortName, int presetMajorVersion, Path presetDir, Path presetBiomesDir, IWorldConfig worldConfig, IConfigFunctionProvider biomeResourcesManager, ILogger logger, IMaterialReader materialReader)
+	private ArrayList<BiomeConfig> loadBiomeConfigs(String presetShortName, int presetMajorVersion, Path presetDir, Map<String, BiomeConfigStub> biomeConfigStubs, boolean write, IWorldConfig worldConfig, ExecutorService configExecutor, IConfigFunctionProvider biomeResourcesManager, ILogger logger, IMaterialReader materialReader)
 	{
-		// Establish folders
-		List<Path> biomeDirs = new ArrayList<Path>(2);
-		biomeDirs.add(presetBiomesDir);
-		
-		// Load all files
-		BiomeConfigFinder biomeConfigFinder = new BiomeConfigFinder();
-		Map<String, BiomeConfigStub> biomeConfigStubs = biomeConfigFinder.findBiomes(worldConfig.getWorldBiomes(), worldConfig.getWorldHeightScale(), biomeDirs, logger, materialReader);
-
 		// Read all settings
-		ArrayList<BiomeConfig> biomeConfigs = readAndWriteSettings(worldConfig, biomeConfigStubs, presetDir, presetShortName, presetMajorVersion, true, biomeResourcesManager, logger, materialReader);
+		ArrayList<BiomeConfig> biomeConfigs = readAndWriteSettings(worldConfig, biomeConfigStubs, presetDir, presetShortName, presetMajorVersion, write, configExecutor, biomeResourcesManager, logger, materialReader);
 
 		// Update settings dynamically, these changes don't get written back to the file
 		processSettings(worldConfig, biomeConfigs);
@@ -198,28 +339,33 @@ public abstract class LocalPresetLoader
 		return biomeConfigs;
 	}
 
-	private ArrayList<BiomeConfig> readAndWriteSettings(IWorldConfig worldConfig, Map<String, BiomeConfigStub> biomeConfigStubs, Path presetDir, String presetShortName, int presetMajorVersion, boolean write, IConfigFunctionProvider biomeResourcesManager, ILogger logger, IMaterialReader materialReader)
+	private ArrayList<BiomeConfig> readAndWriteSettings(IWorldConfig worldConfig, Map<String, BiomeConfigStub> biomeConfigStubs, Path presetDir, String presetShortName, int presetMajorVersion, boolean write, ExecutorService configExecutor, IConfigFunctionProvider biomeResourcesManager, ILogger logger, IMaterialReader materialReader)
 	{
-		ArrayList<BiomeConfig> biomeConfigs = new ArrayList<BiomeConfig>();
-
+		// Inheritance, merges stubs into each other so has to be done for all stubs first.
 		for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
 		{
-			// Inheritance
 			processMobInheritance(biomeConfigStubs, biomeConfigStub, 0, logger);
+		}
 
-			// Settings reading
-			BiomeConfig biomeConfig = new BiomeConfig(biomeConfigStub.getBiomeName(), biomeConfigStub, presetDir, biomeConfigStub.getSettings(), worldConfig, presetShortName, presetMajorVersion, biomeResourcesManager, logger, materialReader);
-			biomeConfigs.add(biomeConfig);
+		List<Callable<BiomeConfig>> tasks = new ArrayList<Callable<BiomeConfig>>(biomeConfigStubs.size());
+		for (BiomeConfigStub biomeConfigStub : biomeConfigStubs.values())
+		{
+			tasks.add(() -> {
+				// Settings reading
+				BiomeConfig biomeConfig = new BiomeConfig(biomeConfigStub.getBiomeName(), biomeConfigStub, presetDir, biomeConfigStub.getSettings(), worldConfig, presetShortName, presetMajorVersion, biomeResourcesManager, logger, materialReader);
 
-			// Settings writing
-			if(write)
-			{
-				Path writeFile = biomeConfigStub.getPath();
-				FileSettingsWriter.writeToFile(biomeConfig.getSettingsAsMap(), writeFile.toFile(), worldConfig.getSettingsMode(), logger);
-			}
+				// Settings writing
+				if(write)
+				{
+					Path writeFile = biomeConfigStub.getPath();
+					FileSettingsWriter.writeToFile(biomeConfig.getSettingsAsMap(), writeFile.toFile(), worldConfig.getSettingsMode(), logger);
+				}
+				return biomeConfig;
+			});
 		}
 
-		return biomeConfigs;
+		// Results are in the order of the stubs, so biome order doesn't change.
+		return new ArrayList<BiomeConfig>(ConcurrencyHelper.invokeAll(configExecutor, tasks));
 	}
 
 	private void processSettings(IWorldConfig worldConfig, ArrayList<BiomeConfig> biomeConfigs)
@@ -26,8 +26,10 @@ public class Preset
 	private int majorVersion;
 	private String author;
 	private String description;
+	// Hash of the world and biome config files, changes whenever they're edited.
+	private long configHash;
 	
-	public Preset(Path presetFolder, String shortPresetName, WorldConfig worldConfig, ArrayList<BiomeConfig> biomeConfigs)
+	public Preset(Path presetFolder, String shortPresetName, WorldConfig worldConfig, ArrayList<BiomeConfig> biomeConfigs, long configHash)
 	{
 		this.presetFolder = presetFolder;
 		this.presetFolderName = presetFolder.toFile().getName();
@@ -36,6 +38,7 @@ public class Preset
 		this.author = worldConfig.getAuthor();
 		this.description = worldConfig.getDescription();
 		this.majorVersion = worldConfig.getMajorVersion();
+		this.configHash = configHash;
 
 		for(BiomeConfig biomeConfig : biomeConfigs)
 		{
@@ -50,6 +53,7 @@ public class Preset
 		this.author = preset.author;
 		this.description = preset.description; 
 		this.majorVersion = preset.majorVersion;
+		this.configHash = preset.configHash;
 	}
 
 	public Path getPresetFolder()
@@ -102,4 +106,9 @@ public class Preset
 	{
 		return this.description;
 	}
+
+	public long getConfigHash()
+	{
+		return this.configHash;
+	}
 }
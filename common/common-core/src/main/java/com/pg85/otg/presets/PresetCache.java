@@ -0,0 +1,224 @@
+package com.pg85.otg.presets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pg85.otg.config.biome.BiomeConfigFinder;
+import com.pg85.otg.config.biome.BiomeConfigFinder.BiomeConfigStub;
+import com.pg85.otg.config.io.BinarySettings;
+import com.pg85.otg.config.io.FileSettingsReader;
+import com.pg85.otg.config.io.SettingsMap;
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.interfaces.ILogger;
+import com.pg85.otg.interfaces.IMaterialReader;
+import com.pg85.otg.util.CompressionUtils;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
+
+/**
+ * Binary snapshot of the settings read from a preset's WorldConfig.ini and
+ * biome configs, saved after the configs have been loaded and written back.
+ * If none of the config files have changed since (compared by size and last
+ * modified time), the preset is loaded from the snapshot instead, so the
+ * configs don't have to be parsed or rewritten.
+ *
+ * The snapshot holds the raw settings, not the parsed configs: resources
+ * reference materials and custom objects that are resolved per platform,
+ * so the configs are still created from the settings on every load.
+ */
+class PresetCache
+{
+	// Layout: magic, version, build stamp, config hash, the tracked files with their
+	// size and last modified time, the world config settings, then the biome configs.
+	private static final int MAGIC = 0x4F544743; // "OTGC"
+	private static final int VERSION = 1;
+	private static final String FILE_EXTENSION = ".dat";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private final long configHash;
+	private final SettingsMap worldConfigSettings;
+	private final List<String> biomeNames = new ArrayList<String>();
+	private final List<Path> biomeFiles = new ArrayList<Path>();
+	private final List<SettingsMap> biomeSettings = new ArrayList<SettingsMap>();
+
+	private PresetCache(long configHash, SettingsMap worldConfigSettings)
+	{
+		this.configHash = configHash;
+		this.worldConfigSettings = worldConfigSettings;
+	}
+
+	long getConfigHash()
+	{
+		return this.configHash;
+	}
+
+	SettingsMap getWorldConfigSettings()
+	{
+		return this.worldConfigSettings;
+	}
+
+	/**
+	 * Creates the biome config stubs, in the same order the biome configs
+	 * were found when the cache was saved.
+	 */
+	Map<String, BiomeConfigStub> createBiomeConfigStubs(ILogger logger, IMaterialReader materialReader)
+	{
+		BiomeConfigFinder biomeConfigFinder = new BiomeConfigFinder();
+		Map<String, BiomeConfigStub> biomeConfigStubs = new HashMap<String, BiomeConfigStub>();
+		for(int i = 0; i < this.biomeNames.size(); i++)
+		{
+			biomeConfigStubs.put(this.biomeNames.get(i), biomeConfigFinder.createBiomeConfigStub(this.biomeSettings.get(i), this.biomeFiles.get(i), this.biomeNames.get(i), logger, materialReader));
+		}
+		return biomeConfigStubs;
+	}
+
+	static File getCacheFile(File otgRootFolder, String presetFolderName)
+	{
+		return new File(otgRootFolder, Constants.PRESET_CACHE_FOLDER + File.separator + presetFolderName + FILE_EXTENSION);
+	}
+
+	/**
+	 * Loads the cache for a preset, returns null if there is no cache or
+	 * any of the config files have changed since it was saved.
+	 */
+	static PresetCache load(File cacheFile, Path presetDir, File worldConfigFile, File biomesDirectory, long buildStamp, ILogger logger)
+	{
+		if(!cacheFile.exists())
+		{
+			return null;
+		}
+		try {
+			DataInputStream stream = new DataInputStream(new ByteArrayInputStream(CompressionUtils.decompress(Files.readAllBytes(cacheFile.toPath()))));
+			if(stream.readInt() != MAGIC || stream.readInt() != VERSION || stream.readLong() != buildStamp)
+			{
+				return null;
+			}
+			long configHash = stream.readLong();
+
+			List<File> files = getTrackedFiles(worldConfigFile, biomesDirectory);
+			if(stream.readInt() != files.size())
+			{
+				return null;
+			}
+			for(File file : files)
+			{
+				if(
+					!BinarySettings.readString(stream).equals(presetDir.relativize(file.toPath()).toString()) ||
+					stream.readLong() != file.length() ||
+					stream.readLong() != file.lastModified()
+				)
+				{
+					return null;
+				}
+			}
+
+			PresetCache cache = new PresetCache(configHash, BinarySettings.read(presetDir.toFile().getName(), stream));
+			int biomeCount = stream.readInt();
+			for(int i = 0; i < biomeCount; i++)
+			{
+				String biomeName = BinarySettings.readString(stream);
+				cache.biomeNames.add(biomeName);
+				cache.biomeFiles.add(presetDir.resolve(BinarySettings.readString(stream)));
+				cache.biomeSettings.add(BinarySettings.read(biomeName, stream));
+			}
+			return cache;
+		}
+		catch (Exception e)
+		{
+			logger.log(LogLevel.WARN, LogCategory.CONFIGS, "Could not read preset cache " + cacheFile.getAbsolutePath() + ", loading the preset from its config files.");
+			return null;
+		}
+	}
+
+	/**
+	 * Saves the cache for a preset. Call this after the configs have been
+	 * written, the settings are read back from the written files.
+	 */
+	static void save(File cacheFile, Path presetDir, File worldConfigFile, File biomesDirectory, long buildStamp, long configHash, Collection<BiomeConfigStub> biomeConfigStubs, ILogger logger)
+	{
+		File tempFile = new File(cacheFile.getPath() + TEMP_FILE_SUFFIX);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream stream = new DataOutputStream(bytes);
+			stream.writeInt(MAGIC);
+			stream.writeInt(VERSION);
+			stream.writeLong(buildStamp);
+			stream.writeLong(configHash);
+
+			List<File> files = getTrackedFiles(worldConfigFile, biomesDirectory);
+			stream.writeInt(files.size());
+			for(File file : files)
+			{
+				BinarySettings.writeString(presetDir.relativize(file.toPath()).toString(), stream);
+				stream.writeLong(file.length());
+				stream.writeLong(file.lastModified());
+			}
+
+			BinarySettings.write(FileSettingsReader.read(presetDir.toFile().getName(), worldConfigFile, logger), stream);
+			stream.writeInt(biomeConfigStubs.size());
+			for(BiomeConfigStub biomeConfigStub : biomeConfigStubs)
+			{
+				BinarySettings.writeString(biomeConfigStub.getBiomeName(), stream);
+				BinarySettings.writeString(presetDir.relativize(biomeConfigStub.getPath()).toString(), stream);
+				BinarySettings.write(FileSettingsReader.read(biomeConfigStub.getBiomeName(), biomeConfigStub.getPath().toFile(), logger), stream);
+			}
+			stream.close();
+
+			cacheFile.getParentFile().mkdirs();
+			Files.write(tempFile.toPath(), CompressionUtils.compress(bytes.toByteArray(), logger));
+			try {
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+		catch (IOException e)
+		{
+			logger.log(LogLevel.WARN, LogCategory.CONFIGS, "Could not write preset cache " + cacheFile.getAbsolutePath() + ": " + e.getMessage());
+		}
+	}
+
+	// The world config and all files in the biomes directory, sorted by path.
+	private static List<File> getTrackedFiles(File worldConfigFile, File biomesDirectory)
+	{
+		List<File> files = new ArrayList<File>();
+		files.add(worldConfigFile);
+		addFilesRecursive(biomesDirectory, files);
+		return files;
+	}
+
+	private static void addFilesRecursive(File directory, List<File> files)
+	{
+		File[] children = directory.listFiles();
+		if(children == null)
+		{
+			return;
+		}
+		Arrays.sort(children);
+		for(File child : children)
+		{
+			if(child.isDirectory())
+			{
+				addFilesRecursive(child, files);
+			} else {
+				files.add(child);
+			}
+		}
+	}
+}
@@ -24,6 +24,7 @@ import com.pg85.otg.customobject.structures.StructuredCustomObject;
 import com.pg85.otg.customobject.structures.bo3.BO3CustomStructure;
 import com.pg85.otg.customobject.structures.bo3.BO3CustomStructureCoordinate;
 import com.pg85.otg.customobject.util.BoundingBox;
+import com.pg85.otg.customobject.util.BO3Enums.ExtrudeMode;
 import com.pg85.otg.customobject.util.BO3Enums.OutsideSourceBlock;
 import com.pg85.otg.customobject.util.BO3Enums.SpawnHeightEnum;
 import com.pg85.otg.exceptions.InvalidConfigException;
@@ -33,7 +34,9 @@ import com.pg85.otg.interfaces.IModLoadedChecker;
 import com.pg85.otg.interfaces.IWorldGenRegion;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.biome.ReplaceBlockMatrix;
+import com.pg85.otg.util.bo3.NamedBinaryTag;
 import com.pg85.otg.util.bo3.Rotation;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.gen.DecorationArea;
 import com.pg85.otg.util.helpers.MathHelper;
 import com.pg85.otg.util.helpers.RandomHelper;
@@ -343,35 +346,58 @@ public class BO3 implements StructuredCustomObject
 			}
 		}
 
-		BO3BlockFunction[] blocks = this.settings.getBlocks(rotation.getRotationId());
-		HashSet<ChunkCoordinate> loadedChunks = new HashSet<ChunkCoordinate>();
-		ChunkCoordinate chunkCoord;
-		for (BO3BlockFunction block : blocks)
+		// Spawn straight from the config's arrays, so no objects are created per block.
+		int rotationId = rotation.getRotationId();
+		byte[] blocksX = this.settings.blocksX[rotationId];
+		short[] blocksY = this.settings.blocksY[rotationId];
+		byte[] blocksZ = this.settings.blocksZ[rotationId];
+		int blockCount = blocksX.length;
+
+		int minChunkX = 0;
+		int minChunkZ = 0;
+		int chunksX = 0;
+		int chunksZ = 0;
+		if (blockCount > 0)
 		{
-			if (y + block.y < Constants.WORLD_DEPTH || y + block.y >= Constants.WORLD_HEIGHT)
+			if (
+				y + this.settings.blocksMinY[rotationId] < Constants.WORLD_DEPTH || 
+				y + this.settings.blocksMaxY[rotationId] >= Constants.WORLD_HEIGHT
+			)
 			{
 				return false;
 			}
 
-			chunkCoord = ChunkCoordinate.fromBlockCoords(x + block.x, z + block.z);
-			if(!loadedChunks.contains(chunkCoord))
+			// The decoration area is a rectangle, so if all corners of the
+			// area covered by the blocks are in it, all blocks are.
+			int minX = x + this.settings.blocksMinX[rotationId];
+			int maxX = x + this.settings.blocksMaxX[rotationId];
+			int minZ = z + this.settings.blocksMinZ[rotationId];
+			int maxZ = z + this.settings.blocksMaxZ[rotationId];
+			DecorationArea decorationArea = worldGenRegion.getDecorationArea();
+			if (
+				!decorationArea.isInAreaBeingDecorated(minX, minZ) || 
+				!decorationArea.isInAreaBeingDecorated(minX, maxZ) || 
+				!decorationArea.isInAreaBeingDecorated(maxX, minZ) || 
+				!decorationArea.isInAreaBeingDecorated(maxX, maxZ)
+			)
 			{
-				if(!worldGenRegion.getDecorationArea().isInAreaBeingDecorated(x + block.x, z + block.z))
-				{
-					// Cannot spawn BO3, part of world is not loaded
-					return false;
-				}
-				loadedChunks.add(chunkCoord);
+				// Cannot spawn BO3, part of world is not loaded
+				return false;
 			}
+
+			minChunkX = minX >> 4;
+			minChunkZ = minZ >> 4;
+			chunksX = (maxX >> 4) - minChunkX + 1;
+			chunksZ = (maxZ >> 4) - minChunkZ + 1;
 		}
 
-		ArrayList<BO3BlockFunction> blocksToSpawn = new ArrayList<BO3BlockFunction>();
-		ObjectExtrusionHelper oeh = new ObjectExtrusionHelper(this.settings.extrudeMode, this.settings.extrudeThroughBlocks);
-		HashSet<ChunkCoordinate> chunks = new HashSet<ChunkCoordinate>();
+		ChunkCursor cursor = worldGenRegion.createChunkCursor();
 
+		// Only created if dontPlace actually skips a block.
+		boolean[] skipBlocks = null;
 		int blocksOutsideSourceBlock = 0;
-		int maxBlocksOutsideSourceBlock = (int) Math.ceil(blocks.length * (this.settings.maxPercentageOutsideSourceBlock / 100.0));
-		for (BO3BlockFunction block : blocks)
+		int maxBlocksOutsideSourceBlock = (int) Math.ceil(blockCount * (this.settings.maxPercentageOutsideSourceBlock / 100.0));
+		for (int i = 0; i < blockCount; i++)
 		{
 			if (
 				(
@@ -381,7 +407,7 @@ public class BO3 implements StructuredCustomObject
 					) || 
 					this.settings.outsideSourceBlock == OutsideSourceBlock.dontPlace
 				) && 
-				!this.settings.sourceBlocks.contains(worldGenRegion.getMaterial(x + block.x, y + block.y, z + block.z))
+				!this.settings.sourceBlocks.contains(cursor.getMaterial(x + blocksX[i], y + blocksY[i], z + blocksZ[i]))
 			)
 			{
 				blocksOutsideSourceBlock++;
@@ -391,18 +417,14 @@ public class BO3 implements StructuredCustomObject
 					return false;
 				}
 
-				if (this.settings.outsideSourceBlock == OutsideSourceBlock.placeAnyway)
+				if (this.settings.outsideSourceBlock != OutsideSourceBlock.placeAnyway)
 				{
-					chunks.add(ChunkCoordinate.fromBlockCoords(x + block.x, z + block.z));
-					blocksToSpawn.add(block);
+					if (skipBlocks == null)
+					{
+						skipBlocks = new boolean[blockCount];
+					}
+					skipBlocks[i] = true;
 				}
-			} else {
-				chunks.add(ChunkCoordinate.fromBlockCoords(x + block.x, z + block.z));
-				blocksToSpawn.add(block);
-			}
-			if (block instanceof BO3BlockFunction)
-			{
-				oeh.addBlock((BO3BlockFunction) block);
 			}
 		}
 
@@ -413,25 +435,68 @@ public class BO3 implements StructuredCustomObject
 			//return false;
 		}
 
+		LocalMaterialData[] blocksMaterial = this.settings.blocksMaterial[rotationId];
+		NamedBinaryTag[] blocksMetaDataTag = this.settings.blocksMetaDataTag;
+		LocalMaterialData[][] randomBlocksBlocks = this.settings.randomBlocksBlocks[rotationId];
+		boolean doReplaceBlocks = doReplaceBlocks();
+		// Chunks blocks were spawned in, relative to the chunk at the lowest x/z of the blocks.
+		boolean[] spawnedInChunk = new boolean[chunksX * chunksZ];
 		ReplaceBlockMatrix replaceBlocks = null;
 		int lastX = Integer.MIN_VALUE;
-		int lastZ = Integer.MIN_VALUE;		
-		for (BO3BlockFunction block : blocksToSpawn)
+		int lastZ = Integer.MIN_VALUE;
+		int blockX;
+		int blockZ;
+		for (int i = 0; i < blockCount; i++)
 		{
-			if(doReplaceBlocks())
+			if (skipBlocks != null && skipBlocks[i])
 			{
-				if(lastX != x + block.x || lastZ != z + block.z)
+				continue;
+			}
+
+			blockX = x + blocksX[i];
+			blockZ = z + blocksZ[i];
+			spawnedInChunk[((blockX >> 4) - minChunkX) * chunksZ + (blockZ >> 4) - minChunkZ] = true;
+			if (doReplaceBlocks && (lastX != blockX || lastZ != blockZ))
+			{
+				replaceBlocks = worldGenRegion.getBiomeConfigForDecoration(blockX, blockZ).getReplaceBlocks();
+				lastX = blockX;
+				lastZ = blockZ;
+			}
+
+			if (randomBlocksBlocks[i] != null)
+			{
+				// Same as BO3RandomBlockFunction.spawn
+				for (int j = 0; j < this.settings.randomBlocksBlockCount[i]; j++)
 				{
-					replaceBlocks = worldGenRegion.getBiomeConfigForDecoration(x + block.x, z + block.z).getReplaceBlocks();
-					lastX = x + block.x;
-					lastZ = z + z + block.z;					
-				}				
-				block.spawn(worldGenRegion, random, x + block.x, y + block.y, z + block.z, replaceBlocks);
+					if (random.nextInt(100) < this.settings.randomBlocksBlockChances[i][j])
+					{
+						cursor.setBlock(blockX, y + blocksY[i], blockZ, randomBlocksBlocks[i][j], this.settings.randomBlocksMetaDataTags[i][j], replaceBlocks);
+						break;
+					}
+				}
 			} else {
-				block.spawn(worldGenRegion, random, x + block.x, y + block.y, z + block.z);
+				cursor.setBlock(blockX, y + blocksY[i], blockZ, blocksMaterial[i], blocksMetaDataTag[i], replaceBlocks);
+			}
+		}
+
+		if (this.settings.extrudeMode != ExtrudeMode.None)
+		{
+			ObjectExtrusionHelper oeh = new ObjectExtrusionHelper(this.settings.extrudeMode, this.settings.extrudeThroughBlocks);
+			for (BO3BlockFunction block : this.settings.getBlocks(rotationId))
+			{
+				oeh.addBlock(block);
+			}
+			oeh.extrude(worldGenRegion, random, x, y, z, doReplaceBlocks, false);
+		}
+
+		HashSet<ChunkCoordinate> chunks = new HashSet<ChunkCoordinate>();
+		for (int i = 0; i < spawnedInChunk.length; i++)
+		{
+			if (spawnedInChunk[i])
+			{
+				chunks.add(ChunkCoordinate.fromChunkCoords(minChunkX + i / chunksZ, minChunkZ + i % chunksZ));
 			}
 		}
-		oeh.extrude(worldGenRegion, random, x, y, z, doReplaceBlocks(), false);
 		handleBO3Functions(structure, structureCache, worldGenRegion, random, rotation, x, y, z, chunks);
 
 		return true;
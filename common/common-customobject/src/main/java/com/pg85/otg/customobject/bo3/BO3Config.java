@@ -76,18 +76,28 @@ public class BO3Config extends CustomObjectConfigFile
 	// since that gives way too much overhead memory wise.
 	// We may have tens of millions of blocks, java doesn't handle lots of small
 	// classes well.
-	private byte[][] blocksX;
-	private short[][] blocksY;
-	private byte[][] blocksZ;
-	private LocalMaterialData[][] blocksMaterial;
+	// Indexed by rotation id, BO3.trySpawnAt spawns straight from these.
+	byte[][] blocksX;
+	short[][] blocksY;
+	byte[][] blocksZ;
+	LocalMaterialData[][] blocksMaterial;
 	private String[] blocksMetaDataName;
-	private NamedBinaryTag[] blocksMetaDataTag;
+	NamedBinaryTag[] blocksMetaDataTag;
 
-	private LocalMaterialData[][][] randomBlocksBlocks;
-	private byte[][] randomBlocksBlockChances;
+	LocalMaterialData[][][] randomBlocksBlocks;
+	byte[][] randomBlocksBlockChances;
 	private String[][] randomBlocksMetaDataNames;
-	private NamedBinaryTag[][] randomBlocksMetaDataTags;
-	private byte[] randomBlocksBlockCount;
+	NamedBinaryTag[][] randomBlocksMetaDataTags;
+	byte[] randomBlocksBlockCount;
+
+	// The area the blocks cover for each rotation, relative to the spawn
+	// position. Only valid if the BO3 has blocks.
+	int[] blocksMinX = new int[4];
+	int[] blocksMaxX = new int[4];
+	int[] blocksMinY = new int[4];
+	int[] blocksMaxY = new int[4];
+	int[] blocksMinZ = new int[4];
+	int[] blocksMaxZ = new int[4];
 	//
 
 	BO3Check[][] bo3Checks = new BO3Check[4][];
@@ -693,6 +703,36 @@ public class BO3Config extends CustomObjectConfigFile
 				this.entityFunctions[i][j] = this.entityFunctions[i - 1][j].rotate();
 			}
 		}
+
+		for (int i = 0; i < 4; i++)
+		{
+			calculateBlockBounds(i);
+		}
+	}
+
+	private void calculateBlockBounds(int rotation)
+	{
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		int minZ = Integer.MAX_VALUE;
+		int maxZ = Integer.MIN_VALUE;
+		for (int i = 0; i < this.blocksX[rotation].length; i++)
+		{
+			minX = Math.min(minX, this.blocksX[rotation][i]);
+			maxX = Math.max(maxX, this.blocksX[rotation][i]);
+			minY = Math.min(minY, this.blocksY[rotation][i]);
+			maxY = Math.max(maxY, this.blocksY[rotation][i]);
+			minZ = Math.min(minZ, this.blocksZ[rotation][i]);
+			maxZ = Math.max(maxZ, this.blocksZ[rotation][i]);
+		}
+		this.blocksMinX[rotation] = minX;
+		this.blocksMaxX[rotation] = maxX;
+		this.blocksMinY[rotation] = minY;
+		this.blocksMaxY[rotation] = maxY;
+		this.blocksMinZ[rotation] = minZ;
+		this.blocksMaxZ[rotation] = maxZ;
 	}
 
 	boolean parseModChecks(IModLoadedChecker modLoadedChecker)
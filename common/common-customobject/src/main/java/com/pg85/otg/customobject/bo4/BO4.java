@@ -2,14 +2,11 @@ package com.pg85.otg.customobject.bo4;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.util.ArrayList;
 import java.util.Random;
 
 import com.pg85.otg.constants.Constants;
 import com.pg85.otg.constants.SettingsEnums.ConfigMode;
 import com.pg85.otg.customobject.CustomObjectManager;
-import com.pg85.otg.customobject.bo4.bo4function.BO4BlockFunction;
-import com.pg85.otg.customobject.bo4.bo4function.BO4RandomBlockFunction;
 import com.pg85.otg.customobject.config.CustomObjectResourcesManager;
 import com.pg85.otg.customobject.config.io.FileSettingsReaderBO4;
 import com.pg85.otg.customobject.config.io.FileSettingsWriterBO4;
@@ -28,6 +25,7 @@ import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.biome.ReplaceBlockMatrix;
 import com.pg85.otg.util.bo3.NamedBinaryTag;
 import com.pg85.otg.util.bo3.Rotation;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.materials.LocalMaterialData;
@@ -187,68 +185,24 @@ public class BO4 implements StructuredCustomObject
 	}
 
 	// BO4's should always spawn within decoration bounds, so there is no SpawnForced, only TrySpawnAt
-	public boolean trySpawnAt(String presetFolderName, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker, IWorldGenRegion worldGenRegion, Random random, Rotation rotation, ChunkCoordinate chunkCoord, int x, int y, int z, String replaceAbove, String replaceBelow, boolean replaceWithBiomeBlocks, String replaceWithSurfaceBlock, String replaceWithGroundBlock, String replaceWithStoneBlock, boolean spawnUnderWater, int waterLevel, boolean isStructureAtSpawn, boolean doReplaceAboveBelowOnly, boolean doBiomeConfigReplaceBlocks)
+	public boolean trySpawnAt(String presetFolderName, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker, IWorldGenRegion worldGenRegion, Random random, Rotation rotation, ChunkCoordinate chunkCoord, int x, int y, int z, LocalMaterialData replaceAboveMaterial, LocalMaterialData replaceBelowMaterial, boolean replaceWithBiomeBlocks, LocalMaterialData bo3SurfaceBlock, LocalMaterialData bo3GroundBlock, LocalMaterialData bo3StoneBlock, boolean spawnUnderWater, int waterLevel, boolean isStructureAtSpawn, boolean doReplaceAboveBelowOnly, boolean doBiomeConfigReplaceBlocks)
 	{
 		//OTG.log(LogMarker.INFO, "Spawning " + this.getName() + " in Chunk X" + chunkCoord.getChunkX() + "Z" + chunkCoord.getChunkZ() + " at pos " + x + " " + y + " " + z);
 
-		LocalMaterialData replaceBelowMaterial = null;
-		LocalMaterialData replaceAboveMaterial = null;
-
-		LocalMaterialData bo3SurfaceBlock = null;
-		LocalMaterialData bo3GroundBlock = null;
-		LocalMaterialData bo3StoneBlock = null;	
-
 		if(config == null)
 		{
 			logger.log(LogLevel.FATAL, LogCategory.CUSTOM_OBJECTS, "Settings was null for BO4 " + this.getName() + ". This should not be happening, please contact team OTG about this crash.");
 			throw new RuntimeException("Settings was null for BO4 " + this.getName() + ". This should not be happening, please contact team OTG about this crash.");
 		}
 
-		try {
-			bo3SurfaceBlock = replaceWithSurfaceBlock != null && replaceWithSurfaceBlock.length() > 0 ? materialReader.readMaterial(replaceWithSurfaceBlock) : LocalMaterials.GRASS;
-		} catch (InvalidConfigException e1) {
-			bo3SurfaceBlock = LocalMaterials.GRASS;
-			if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-			{
-				logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Value " + replaceWithSurfaceBlock + " for replaceWithSurfaceBlock in BO4 " + this.getName() + " was not recognised. Using GRASS instead.");
-			}
-		}
-		try {
-			bo3GroundBlock = replaceWithGroundBlock != null && replaceWithGroundBlock.length() > 0 ? materialReader.readMaterial(replaceWithGroundBlock) : LocalMaterials.DIRT;
-		} catch (InvalidConfigException e1) {
-			bo3GroundBlock = LocalMaterials.DIRT;
-			if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-			{
-				logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Value " + replaceWithGroundBlock + " for replaceWithGroundBlock in BO4 " + this.getName() + " was not recognised. Using DIRT instead.");
-			}
-		}
-		try {
-			bo3StoneBlock = replaceWithStoneBlock != null && replaceWithStoneBlock.length() > 0 ? materialReader.readMaterial(replaceWithStoneBlock) : LocalMaterials.STONE;
-		} catch (InvalidConfigException e1) {
-			bo3StoneBlock = LocalMaterials.STONE;
-			if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-			{
-				logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Value " + replaceWithStoneBlock + " for replaceWithStoneBlock in BO4 " + this.getName() + " was not recognised. Using STONE instead.");
-			}
-		}
-		
-		try {
-			replaceBelowMaterial = config.replaceBelow != null && config.replaceBelow.toLowerCase().equals("none") ? null : replaceBelow != null && replaceBelow.length() > 0 ? materialReader.readMaterial(replaceBelow) : null;
-		} catch (InvalidConfigException e1) {
-			replaceBelowMaterial = LocalMaterials.DIRT;
-			if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-			{
-				logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Value " + config.replaceBelow + " for replaceBelow in BO4 " + this.getName() + " was not recognised. Using DIRT instead.");
-			}
+		// ReplaceAbove/ReplaceBelow: none disables them for this BO4, even when they're inherited from the start BO4.
+		if(BO4Config.isNone(config.replaceBelow))
+		{
+			replaceBelowMaterial = null;
 		}
-		try {
-			replaceAboveMaterial = config.replaceAbove != null && config.replaceAbove.toLowerCase().equals("none") ? null : replaceAbove != null && replaceAbove.length() > 0 ? materialReader.readMaterial(replaceAbove) : null;
-		} catch (InvalidConfigException e1) {
-			replaceAboveMaterial = LocalMaterials.AIR;
-			if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-			{
-				logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Value " + config.replaceAbove + " for replaceAbove in BO4 " + this.getName() + " was not recognised. Using AIR instead.");
-			}
+		if(BO4Config.isNone(config.replaceAbove))
+		{
+			replaceAboveMaterial = null;
 		}
 
 		boolean isOnBiomeBorder = false;
@@ -271,401 +225,127 @@ public class BO4 implements StructuredCustomObject
 			}
 		}
 
-		// Get the right coordinates based on rotation
-
-		ArrayList<Object[]> coordsAboveDone = new ArrayList<Object[]>();
-		ArrayList<Object[]> coordsBelowDone = new ArrayList<Object[]>();
-
-		BO4BlockFunction blockToQueueForSpawn = new BO4BlockFunction();
 		LocalMaterialData sourceBlockMaterial;
 
 		boolean outOfBounds = false;
-		ChunkCoordinate destChunk;
 		LocalMaterialData blockAbove;
-		BO4RandomBlockFunction randomBlockFunction;		
-		BO4BlockFunction newBlock;
-		int rotations;
-		boolean bFound;
 		int blockY;
 		int highestBlockToReplace;
+
+		int columnEnd;
+		boolean inChunk;
+		boolean aboveDone;
+		boolean belowDone;
+		int randomBlockOption;
+		LocalMaterialData material;
+		NamedBinaryTag metaDataTag;
+		int blockX;
+		int blockZ;
+		int spawnY;
+		LocalMaterialData spawnMaterial;
 		
 		// Spawn
 		long startTime = System.currentTimeMillis();
-		BO4BlockFunction[] blocks = config.getBlocks(presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+		// Blocks are stored pre-rotated, and random blocks are picked without modifying the shared arrays.
+		BO4SpawnBlocks blocks = config.getSpawnBlocks(rotation, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
 		if(blocks != null)
 		{
-			for (BO4BlockFunction block : config.getBlocks(presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker))
+			ChunkCursor cursor = worldGenRegion.createChunkCursor();
+
+			// The blocks of a column are stored next to each other, so the
+			// biome lookup and ReplaceAbove/ReplaceBelow are done once per column.
+			for (int column = 0; column < blocks.columnCount; column++)
 			{
-				if(block instanceof BO4RandomBlockFunction)
-				{
-					randomBlockFunction = ((BO4RandomBlockFunction)block);
-					for (int i = 0; i < randomBlockFunction.blockCount; i++)
-					{
-						if (random.nextInt(100) < randomBlockFunction.blockChances[i])
-						{
-							block.nbtName = randomBlockFunction.metaDataNames[i];
-							block.nbt = randomBlockFunction.metaDataTags[i];
-							block.material = randomBlockFunction.blocks[i];
-							break;
-						}
-					}
-				}
-	
-				if(block.material == null)
+				columnEnd = blocks.columnStarts[column + 1];
+				blockX = x + blocks.blocksX[blocks.columnStarts[column]];
+				blockZ = z + blocks.blocksZ[blocks.columnStarts[column]];
+				inChunk = isInChunk(chunkCoord, blockX, blockZ);
+				aboveDone = false;
+				belowDone = false;
+
+				if(isOnBiomeBorder)
 				{
-					continue;
+					biomeConfig = worldGenRegion.getBiomeConfigForDecoration(blockX, blockZ);
 				}
-	
-				if(rotation != Rotation.NORTH)
+
+				for (int i = blocks.columnStarts[column]; i < columnEnd; i++)
 				{
-					newBlock = new BO4BlockFunction();
-					rotations = 0;
-					// How many counter-clockwise rotations have to be applied?
-					if(rotation == Rotation.WEST)
-					{
-						rotations = 1;
-					}
-					else if(rotation == Rotation.SOUTH)
+					randomBlockOption = getRandomBlockOption(blocks, i, random);
+					if(randomBlockOption == -1)
 					{
-						rotations = 2;
+						material = blocks.materials[blocks.blocksMaterialId[i]];
+						metaDataTag = blocks.blocksMetaDataTagId[i] != -1 ? blocks.metaDataTags[blocks.blocksMetaDataTagId[i]] : null;
+					} else {
+						material = blocks.materials[blocks.randomBlocksMaterialIds[blocks.randomBlockId[i]][randomBlockOption]];
+						metaDataTag = blocks.randomBlocksMetaDataTagIds[blocks.randomBlockId[i]][randomBlockOption] != -1 ? blocks.metaDataTags[blocks.randomBlocksMetaDataTagIds[blocks.randomBlockId[i]][randomBlockOption]] : null;
 					}
-					else if(rotation == Rotation.EAST)
-					{
-						rotations = 3;
-					}
-	
-					// Apply rotation
-					if(rotations == 0)
-					{
-						newBlock.x = block.x;
-						newBlock.z = block.z;
-					}
-					if(rotations == 1)
-					{
-						newBlock.x = block.z;
-						newBlock.z = -block.x + 15;
-						newBlock.material = block.material.rotate();
-					}
-					if(rotations == 2)
-					{
-						newBlock.x = -block.x + 15;
-						newBlock.z = -block.z + 15;
-						newBlock.material = block.material.rotate();
-						newBlock.material = newBlock.material.rotate();
-					}
-					if(rotations == 3)
-					{
-						newBlock.x = -block.z + 15;
-						newBlock.z = block.x;
-						newBlock.material = block.material.rotate();
-						newBlock.material = newBlock.material.rotate();
-						newBlock.material = newBlock.material.rotate();
-					}
-					newBlock.y = block.y;
-	
-					newBlock.nbtName = block.nbtName;
-					newBlock.nbt = block.nbt;
-	
-					if(isOnBiomeBorder)
+					if(material == null)
 					{
-						biomeConfig = worldGenRegion.getBiomeConfigForDecoration(x + newBlock.x, z + newBlock.z);
+						continue;
 					}
-					
+					spawnY = y + blocks.blocksY[i];
+
 					// TODO: See BlockFunction.Spawn for what should be done with metadata
-	
-					if(replaceAboveMaterial != null && doReplaceAboveBelowOnly)
+
+					if(doReplaceAboveBelowOnly)
 					{
-						bFound = false;
-						for(Object[] coords : coordsAboveDone)
+						if(replaceAboveMaterial != null && !aboveDone)
 						{
-							if((Integer)coords[0] == x + newBlock.x && (Integer)coords[1] == z + newBlock.z)
-							{
-								bFound = true;
-								break;
-							}
-						}
+							aboveDone = true;
+							blockY = spawnY + 1; // TODO: This is wrong, should be the lowest block in the BO4 at these x-z coordinates. ReplaceAbove should be done before any blocks in this column are placed
+							highestBlockToReplace = worldGenRegion.getHighestBlockYAt(blockX, blockZ, true, true, false, false, true);
 
-						if(!bFound)
-						{
-							coordsAboveDone.add(new Object[] { x + newBlock.x, z + newBlock.z });
-							blockY = y + newBlock.y + 1; // TODO: This is wrong, should be the lowest block in the BO4 at these x-z coordinates. ReplaceAbove should be done before any blocks in this column are placed
-							highestBlockToReplace = worldGenRegion.getHighestBlockYAt(x + newBlock.x, z + newBlock.z, true, true, false, false, true);
-	
-							while(blockY <= highestBlockToReplace && blockY > y + newBlock.y)
+							while(blockY <= highestBlockToReplace && blockY > spawnY)
 							{
-								blockToQueueForSpawn = new BO4BlockFunction();
-	
 								// TODO: Make override leaves and air configurable
 								// TODO: Make replaceAbove height configurable
-								blockToQueueForSpawn.x = x + newBlock.x;
-								blockToQueueForSpawn.y = (short) blockY;
-								blockToQueueForSpawn.z = z + newBlock.z;
-	
-								blockToQueueForSpawn.nbtName = newBlock.nbtName;
-								blockToQueueForSpawn.nbt = newBlock.nbt;
-	
-								destChunk = ChunkCoordinate.fromBlockCoords(blockToQueueForSpawn.x, blockToQueueForSpawn.z);
-								if(chunkCoord.equals(destChunk))
+								if(inChunk)
 								{
 									if(spawnUnderWater && blockY >= waterLevel)
 									{
-										blockToQueueForSpawn.material = LocalMaterials.AIR;
+										spawnMaterial = LocalMaterials.AIR;
 									} else {
 										// ReplaceAbove is not affected by sagc
-										blockToQueueForSpawn.material = replaceAboveMaterial;								
+										spawnMaterial = replaceAboveMaterial;
 									}
-									setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
-								} else {
-									outOfBounds = true;
-								}
-	
-								blockY += 1;
-							}
-						}
-					}
-								
-					if(replaceBelowMaterial != null && newBlock.y == 0 && !newBlock.material.isEmptyOrAir() && doReplaceAboveBelowOnly)
-					{
-						bFound = false;
-						for(Object[] coords : coordsBelowDone)
-						{
-							if((Integer)coords[0] == x + newBlock.x && (Integer)coords[1] == z + newBlock.z)
-							{
-								bFound = true;
-								break;
-							}
-						}
-	
-						if(!bFound)
-						{
-							coordsBelowDone.add(new Object[] { x + newBlock.x, z + newBlock.z });
-							blockY = y + newBlock.y - 1;
-	
-							// TODO: Make override leaves and air configurable
-							// TODO: Make replaceBelow height configurable
-							while(blockY > Constants.WORLD_DEPTH)
-							{
-								if(blockY < Constants.WORLD_HEIGHT)
-								{
-									sourceBlockMaterial = worldGenRegion.getMaterial(x + newBlock.x, blockY, z + newBlock.z);
-									
-									if(sourceBlockMaterial != null)
-									{								
-										blockToQueueForSpawn = new BO4BlockFunction();
-										blockToQueueForSpawn.x = x + newBlock.x;
-										blockToQueueForSpawn.y = (short) blockY;
-										blockToQueueForSpawn.z = z + newBlock.z;
-										blockToQueueForSpawn.material = replaceBelowMaterial;										
-										blockToQueueForSpawn.nbtName = newBlock.nbtName;
-										blockToQueueForSpawn.nbt = newBlock.nbt;
-										
-										destChunk = ChunkCoordinate.fromBlockCoords(blockToQueueForSpawn.x, blockToQueueForSpawn.z);
-										if(chunkCoord.equals(destChunk))
-										{
-											// Apply sagc'd biome blocks
-											if(replaceWithBiomeBlocks)
-											{
-												blockToQueueForSpawn.material = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);												
-											} else {
-												blockToQueueForSpawn.material = doBiomeConfigReplaceBlocks ? replaceBelowMaterial.parseWithBiomeAndHeight(biomeConfig.biomeConfigsHaveReplacement(), biomeConfig.getReplaceBlocks(), blockToQueueForSpawn.y) : replaceBelowMaterial;
-												if(blockToQueueForSpawn.material == null)
-												{
-													blockToQueueForSpawn.material = LocalMaterials.DIRT;
-												}
-											}
-											setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
-										} else {
-											outOfBounds = true;
-										}
-										if(sourceBlockMaterial.isSolid())
-										{
-											break;
-										}
-									}
-								}
-								
-								blockY -= 1;
-							}
-						}
-					}				
-					
-					if(y + newBlock.y > 0 && y + newBlock.y < 256 && !doReplaceAboveBelowOnly)
-					{
-						blockToQueueForSpawn = new BO4BlockFunction();
-						blockToQueueForSpawn.x = x + newBlock.x;
-						blockToQueueForSpawn.y = (short) (y + newBlock.y);
-						blockToQueueForSpawn.z = z + newBlock.z;
-						blockToQueueForSpawn.material = newBlock.material;
-	
-						blockToQueueForSpawn.nbtName = newBlock.nbtName;
-						blockToQueueForSpawn.nbt = newBlock.nbt;
-	
-						destChunk = ChunkCoordinate.fromBlockCoords(blockToQueueForSpawn.x, blockToQueueForSpawn.z);
-						if(chunkCoord.equals(destChunk))
-						{							
-							if(replaceWithBiomeBlocks)
-							{
-								if(blockToQueueForSpawn.material.equals(bo3GroundBlock))
-								{
-									blockToQueueForSpawn.material = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);
-									setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
-									continue;
-								}
-								else if(blockToQueueForSpawn.material.equals(bo3StoneBlock))
-								{
-									blockToQueueForSpawn.material = biomeConfig.getStoneBlockReplaced(blockToQueueForSpawn.y);
-									setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
-									continue;
-								}
-								else if(blockToQueueForSpawn.material.equals(bo3SurfaceBlock))
-								{
-									blockAbove = worldGenRegion.getMaterial(blockToQueueForSpawn.x, blockToQueueForSpawn.y + 1, blockToQueueForSpawn.z);
-									if(blockAbove != null && (blockAbove.isSolid() || blockAbove.isLiquid()))
-									{
-										blockToQueueForSpawn.material = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);																	
-									} else {
-										blockToQueueForSpawn.material = biomeConfig.getSurfaceBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);
-									}
-	
-									if(blockToQueueForSpawn.material.isAir())
-									{
-										if(blockToQueueForSpawn.y < biomeConfig.getWaterLevelMax())
-										{
-											blockToQueueForSpawn.material = LocalMaterials.WATER;
-										} else {
-											blockToQueueForSpawn.material = doBiomeConfigReplaceBlocks ? newBlock.material.parseWithBiomeAndHeight(biomeConfig.biomeConfigsHaveReplacement(), biomeConfig.getReplaceBlocks(), blockToQueueForSpawn.y) : newBlock.material;
-										}
-									}
-									setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
-									continue;
-								}
-							}
-							
-							// Don't spawn torches underwater
-							if(
-								spawnUnderWater && 
-								blockToQueueForSpawn.material.isMaterial(LocalMaterials.TORCH) && 
-								worldGenRegion.getMaterial(blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z).isLiquid()
-							)
-							{
-								continue;
-							}
-							if(doBiomeConfigReplaceBlocks)
-							{
-								setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn, biomeConfig.getReplaceBlocks());
-							} else {
-								setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
-							}
-						} else {
-							outOfBounds = true;
-						}
-					}
-				} else {
-	
-					if(isOnBiomeBorder)
-					{
-						biomeConfig = worldGenRegion.getBiomeConfigForDecoration(x + block.x, z + block.z);
-					}
-					
-					if(replaceAboveMaterial != null && doReplaceAboveBelowOnly)
-					{
-						bFound = false;
-						for(Object[] coords : coordsAboveDone)
-						{
-							if((Integer)coords[0] == x + block.x && (Integer)coords[1] == z + block.z)
-							{
-								bFound = true;
-								break;
-							}
-						}
-	
-						if(!bFound)
-						{
-							coordsAboveDone.add(new Object[] { x + block.x, z + block.z });
-							blockY = (y + block.y + 1); // TODO: This is wrong, should be the lowest block in the BO3 at these x-z coordinates. replaceAbove should be done before any blocks in this column are placed
-							highestBlockToReplace = worldGenRegion.getHighestBlockYAt(x + block.x, z + block.z, true, true, false, false, true);
-	
-							while(blockY <= highestBlockToReplace && blockY > y + block.y)
-							{
-								blockToQueueForSpawn = new BO4BlockFunction();
-	
-								if(spawnUnderWater && blockY >= waterLevel)// && replaceAboveMaterial.isLiquid())
-								{
-									blockToQueueForSpawn.material = LocalMaterials.AIR;
-								} else {
-									// ReplaceAbove is not affected by sagc
-									blockToQueueForSpawn.material = replaceAboveMaterial;
-								}
-	
-								blockToQueueForSpawn.x = x + block.x;
-								blockToQueueForSpawn.y = (short)blockY;
-								blockToQueueForSpawn.z = z + block.z;
-	
-								blockToQueueForSpawn.nbtName = block.nbtName;
-								blockToQueueForSpawn.nbt = block.nbt;
-	
-								destChunk = ChunkCoordinate.fromBlockCoords(blockToQueueForSpawn.x, blockToQueueForSpawn.z);
-								if(chunkCoord.equals(destChunk))
-								{
-										setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
+									setBlock(cursor, blockX, blockY, blockZ, spawnMaterial, metaDataTag, isStructureAtSpawn);
 								} else {
 									outOfBounds = true;
 								}
+
 								blockY += 1;
 							}
 						}
-					}				
-					
-					if(replaceBelowMaterial != null && block.y == 0 && !block.material.isEmptyOrAir() && doReplaceAboveBelowOnly)
-					{
-						bFound = false;
-						for(Object[] coords : coordsBelowDone)
-						{
-							if((Integer)coords[0] == x + block.x && (Integer)coords[1] == z + block.z)
-							{
-								bFound = true;
-								break;
-							}
-						}
-	
-						if(!bFound)
+
+						if(replaceBelowMaterial != null && !belowDone && blocks.blocksY[i] == 0 && !material.isEmptyOrAir())
 						{
-							coordsBelowDone.add(new Object[] { x + block.x, z + block.z });
-							blockY = y + block.y - 1;
-	
+							belowDone = true;
+							blockY = spawnY - 1;
+
 							// TODO: Make override leaves and air configurable
 							// TODO: Make replaceBelow height configurable
 							while(blockY > Constants.WORLD_DEPTH)
 							{
 								if(blockY < Constants.WORLD_HEIGHT)
 								{
-									sourceBlockMaterial = worldGenRegion.getMaterial(x + block.x, blockY, z + block.z);
-									
+									sourceBlockMaterial = cursor.getMaterial(blockX, blockY, blockZ);
+
 									if(sourceBlockMaterial != null)
 									{
-										blockToQueueForSpawn = new BO4BlockFunction();
-										blockToQueueForSpawn.x = x + block.x;
-										blockToQueueForSpawn.y = (short) blockY;
-										blockToQueueForSpawn.z = z + block.z;
-										blockToQueueForSpawn.material = replaceBelowMaterial;										
-										blockToQueueForSpawn.nbtName = block.nbtName;
-										blockToQueueForSpawn.nbt = block.nbt;
-										
-										destChunk = ChunkCoordinate.fromBlockCoords(blockToQueueForSpawn.x, blockToQueueForSpawn.z);
-										if(chunkCoord.equals(destChunk))
+										if(inChunk)
 										{
 											// Apply sagc'd biome blocks
 											if(replaceWithBiomeBlocks)
 											{
-												blockToQueueForSpawn.material = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);											
+												spawnMaterial = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockX, blockY, blockZ);
 											} else {
-												blockToQueueForSpawn.material = doBiomeConfigReplaceBlocks ? replaceBelowMaterial.parseWithBiomeAndHeight(biomeConfig.biomeConfigsHaveReplacement(), biomeConfig.getReplaceBlocks(), blockToQueueForSpawn.y) : replaceBelowMaterial;
-												if(blockToQueueForSpawn.material == null)
+												spawnMaterial = doBiomeConfigReplaceBlocks ? replaceBelowMaterial.parseWithBiomeAndHeight(biomeConfig.biomeConfigsHaveReplacement(), biomeConfig.getReplaceBlocks(), blockY) : replaceBelowMaterial;
+												if(spawnMaterial == null)
 												{
-													blockToQueueForSpawn.material = LocalMaterials.DIRT;
+													spawnMaterial = LocalMaterials.DIRT;
 												}
 											}
-											setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
+											setBlock(cursor, blockX, blockY, blockZ, spawnMaterial, metaDataTag, isStructureAtSpawn);
 										} else {
 											outOfBounds = true;
 										}
@@ -675,78 +355,67 @@ public class BO4 implements StructuredCustomObject
 										}
 									}
 								}
-	
+
 								blockY -= 1;
 							}
-						}					
+						}
+						continue;
 					}
-					
-					if(y + block.y > 0 && y + block.y < 256 && !doReplaceAboveBelowOnly)
+
+					if(spawnY > 0 && spawnY < 256)
 					{
-						blockToQueueForSpawn = new BO4BlockFunction();
-						blockToQueueForSpawn.x = x + block.x;
-						blockToQueueForSpawn.y = (short) (y + block.y);
-						blockToQueueForSpawn.z = z + block.z;
-						blockToQueueForSpawn.material = block.material;
-	
-						blockToQueueForSpawn.nbtName = block.nbtName;
-						blockToQueueForSpawn.nbt = block.nbt;
-	
-						destChunk = ChunkCoordinate.fromBlockCoords(blockToQueueForSpawn.x, blockToQueueForSpawn.z);
-						if(chunkCoord.equals(destChunk))
+						if(inChunk)
 						{
 							if(replaceWithBiomeBlocks)
-							{								
-								if(blockToQueueForSpawn.material.equals(bo3GroundBlock))
+							{
+								if(material.equals(bo3GroundBlock))
 								{
-									blockToQueueForSpawn.material = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);
-									setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
+									setBlock(cursor, blockX, spawnY, blockZ, biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockX, spawnY, blockZ), metaDataTag, isStructureAtSpawn);
 									continue;
 								}
-								else if(blockToQueueForSpawn.material.equals(bo3StoneBlock))
+								else if(material.equals(bo3StoneBlock))
 								{
-									blockToQueueForSpawn.material = biomeConfig.getStoneBlockReplaced(blockToQueueForSpawn.y);
-									setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
+									setBlock(cursor, blockX, spawnY, blockZ, biomeConfig.getStoneBlockReplaced(spawnY), metaDataTag, isStructureAtSpawn);
 									continue;
 								}
-								else if(blockToQueueForSpawn.material.equals(bo3SurfaceBlock))
+								else if(material.equals(bo3SurfaceBlock))
 								{
-									blockAbove = worldGenRegion.getMaterial(blockToQueueForSpawn.x, blockToQueueForSpawn.y + 1, blockToQueueForSpawn.z);
+									blockAbove = cursor.getMaterial(blockX, spawnY + 1, blockZ);
 									if(blockAbove != null && (blockAbove.isSolid() || blockAbove.isLiquid()))
 									{
-										blockToQueueForSpawn.material = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);																	
+										spawnMaterial = biomeConfig.getGroundBlockAtHeight(worldGenRegion, blockX, spawnY, blockZ);
 									} else {
-										blockToQueueForSpawn.material = biomeConfig.getSurfaceBlockAtHeight(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z);
+										spawnMaterial = biomeConfig.getSurfaceBlockAtHeight(worldGenRegion, blockX, spawnY, blockZ);
 									}
-	
-									if(blockToQueueForSpawn.material.isAir())
+
+									if(spawnMaterial.isAir())
 									{
-										if(blockToQueueForSpawn.y < biomeConfig.getWaterLevelMax())
+										if(spawnY < biomeConfig.getWaterLevelMax())
 										{
-											blockToQueueForSpawn.material = LocalMaterials.WATER;
+											spawnMaterial = LocalMaterials.WATER;
 										} else {
-											blockToQueueForSpawn.material = doBiomeConfigReplaceBlocks ? block.material.parseWithBiomeAndHeight(biomeConfig.biomeConfigsHaveReplacement(), biomeConfig.getReplaceBlocks(), blockToQueueForSpawn.y) : block.material;
+											spawnMaterial = doBiomeConfigReplaceBlocks ? material.parseWithBiomeAndHeight(biomeConfig.biomeConfigsHaveReplacement(), biomeConfig.getReplaceBlocks(), spawnY) : material;
 										}
 									}
-									setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
+									setBlock(cursor, blockX, spawnY, blockZ, spawnMaterial, metaDataTag, isStructureAtSpawn);
 									continue;
 								}
 							}
-							
+
 							// Don't spawn torches underwater
 							if(
 								spawnUnderWater && 
-								blockToQueueForSpawn.material.isMaterial(LocalMaterials.TORCH) && 
-								worldGenRegion.getMaterial(blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z).isLiquid()
+								material.isMaterial(LocalMaterials.TORCH) && 
+								cursor.getMaterial(blockX, spawnY, blockZ).isLiquid()
 							)
 							{
 								continue;
 							}
 							if(doBiomeConfigReplaceBlocks)
 							{
-								setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn, biomeConfig.getReplaceBlocks());
+								setBlock(cursor, blockX, spawnY, blockZ, material, metaDataTag, isStructureAtSpawn, biomeConfig.getReplaceBlocks());
 							} else {
-								setBlock(worldGenRegion, blockToQueueForSpawn.x, blockToQueueForSpawn.y, blockToQueueForSpawn.z, blockToQueueForSpawn.material, blockToQueueForSpawn.nbt, isStructureAtSpawn);
+								setBlock(cursor, blockX, spawnY, blockZ, material, metaDataTag, isStructureAtSpawn);
 							}
 						} else {
 							outOfBounds = true;
@@ -771,16 +440,42 @@ public class BO4 implements StructuredCustomObject
 		return true;
 	}
 	
-	private void setBlock(IWorldGenRegion worldGenRegion, int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag, boolean isStructureAtSpawn)
+	/**
+	 * Picks one of the materials of a random block, using the same random
+	 * calls as BO4RandomBlockFunction. Returns the index of the picked
+	 * option, or -1 if the block isn't a random block or no option was picked.
+	 */
+	private static int getRandomBlockOption(BO4SpawnBlocks blocks, int i, Random random)
 	{
-		setBlock(worldGenRegion, x, y, z, material, metaDataTag, isStructureAtSpawn, null);
+		int randomBlockId = blocks.randomBlockId[i];
+		if(randomBlockId != -1)
+		{
+			for (int j = 0; j < blocks.randomBlocksBlockCount[randomBlockId]; j++)
+			{
+				if (random.nextInt(100) < blocks.randomBlocksBlockChances[randomBlockId][j])
+				{
+					return j;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isInChunk(ChunkCoordinate chunkCoord, int blockX, int blockZ)
+	{
+		return chunkCoord.getChunkX() == blockX >> 4 && chunkCoord.getChunkZ() == blockZ >> 4;
+	}
+
+	private void setBlock(ChunkCursor cursor, int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag, boolean isStructureAtSpawn)
+	{
+		setBlock(cursor, x, y, z, material, metaDataTag, isStructureAtSpawn, null);
 	}
 	
-	private void setBlock(IWorldGenRegion worldGenRegion, int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag, boolean isStructureAtSpawn, ReplaceBlockMatrix replaceBlocks)
+	private void setBlock(ChunkCursor cursor, int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag, boolean isStructureAtSpawn, ReplaceBlockMatrix replaceBlocks)
 	{
-		if(worldGenRegion.getPluginConfig().getDeveloperModeEnabled())
+		if(cursor.getWorldGenRegion().getPluginConfig().getDeveloperModeEnabled())
 		{
-			LocalMaterialData worldMaterial = worldGenRegion.getMaterial(x, y, z);
+			LocalMaterialData worldMaterial = cursor.getMaterial(x, y, z);
 			if(
 				worldMaterial.isMaterial(LocalMaterials.GOLD_BLOCK) ||
 				worldMaterial.isMaterial(LocalMaterials.IRON_BLOCK) ||
@@ -803,17 +498,12 @@ public class BO4 implements StructuredCustomObject
 					material.isMaterial(LocalMaterials.EMERALD_BLOCK)
 				)
 				{
-					worldGenRegion.setBlock(x, y, z, LocalMaterials.GLOWSTONE);
+					cursor.setBlock(x, y, z, LocalMaterials.GLOWSTONE);
 					return;
 				}
 			}
 		}
-		if(replaceBlocks != null)
-		{
-			worldGenRegion.setBlock(x, y, z, material, metaDataTag, replaceBlocks);
-		} else {
-			worldGenRegion.setBlock(x, y, z, material, metaDataTag);
-		}
+		cursor.setBlock(x, y, z, material, metaDataTag, replaceBlocks);
 	}
 
 	@Override
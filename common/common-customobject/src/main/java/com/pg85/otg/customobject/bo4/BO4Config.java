@@ -32,6 +32,7 @@ import com.pg85.otg.util.helpers.StreamHelper;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.materials.LocalMaterialData;
+import com.pg85.otg.util.materials.LocalMaterials;
 import com.pg85.otg.util.minecraft.DefaultStructurePart;
 
 import java.io.DataOutput;
@@ -46,6 +47,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.DataFormatException;
 
 public class BO4Config extends CustomObjectConfigFile
@@ -79,7 +81,8 @@ public class BO4Config extends CustomObjectConfigFile
 	public int minimumSizeLeft = -1;
 	public int minimumSizeRight = -1;
 
-	public int timesSpawned = 0;
+	// Incremented by the structure plotter, which may plot on several threads.
+	public final AtomicInteger timesSpawned = new AtomicInteger();
 	
 	public int branchFrequency;
 	// Define groups that this BO3 belongs to with a range in chunks that members of each group should have to each other
@@ -118,6 +121,12 @@ public class BO4Config extends CustomObjectConfigFile
 	public String replaceWithSurfaceBlock;
 	// Replaces all the blocks of the given material in the BO3 with the StoneBlock configured for the biome it spawns in
 	public String replaceWithStoneBlock;
+	// Materials for the replace settings above, resolved when the config is loaded so they don't have to be parsed for every spawn.
+	private LocalMaterialData replaceAboveMaterial;
+	private LocalMaterialData replaceBelowMaterial;
+	private LocalMaterialData replaceWithGroundBlockMaterial;
+	private LocalMaterialData replaceWithSurfaceBlockMaterial;
+	private LocalMaterialData replaceWithStoneBlockMaterial;
 	// Define a group that this BO3 belongs to and a range in chunks that members of this group should have to each other
 	private String bo3Group;
 	public HashMap<String, Integer> bo4Groups;
@@ -172,6 +181,8 @@ public class BO4Config extends CustomObjectConfigFile
 	private String[][] randomBlocksMetaDataNames;
 	private NamedBinaryTag[][] randomBlocksMetaDataTags;
 	private byte[] randomBlocksBlockCount;	
+	// Built from the arrays above when first spawned, indexed by rotation id.
+	private volatile BO4SpawnBlocks[] spawnBlocks;
 	//
 	
 	private BO4BranchFunction[] branchesBO4;
@@ -229,6 +240,8 @@ public class BO4Config extends CustomObjectConfigFile
 			//OTG.log(LogMarker.INFO, ".BO4Data loaded in: " + timeTaken + " " + this.getName()  + ".BO4Data");
 		}
 
+		resolveReplaceMaterials(logger, materialReader);
+
 		// When writing, we'll need to read some raw data from the file,
 		// so can't flush the cache yet. Flush after writing.
 		if(this.settingsMode == ConfigMode.WriteDisable)
@@ -237,6 +250,37 @@ public class BO4Config extends CustomObjectConfigFile
 		}
 	}
 
+	private void resolveReplaceMaterials(ILogger logger, IMaterialReader materialReader)
+	{
+		this.replaceWithSurfaceBlockMaterial = readReplaceMaterial(this.replaceWithSurfaceBlock, "replaceWithSurfaceBlock", LocalMaterials.GRASS, LocalMaterials.GRASS, "GRASS", logger, materialReader);
+		this.replaceWithGroundBlockMaterial = readReplaceMaterial(this.replaceWithGroundBlock, "replaceWithGroundBlock", LocalMaterials.DIRT, LocalMaterials.DIRT, "DIRT", logger, materialReader);
+		this.replaceWithStoneBlockMaterial = readReplaceMaterial(this.replaceWithStoneBlock, "replaceWithStoneBlock", LocalMaterials.STONE, LocalMaterials.STONE, "STONE", logger, materialReader);
+		this.replaceBelowMaterial = isNone(this.replaceBelow) ? null : readReplaceMaterial(this.replaceBelow, "replaceBelow", null, LocalMaterials.DIRT, "DIRT", logger, materialReader);
+		this.replaceAboveMaterial = isNone(this.replaceAbove) ? null : readReplaceMaterial(this.replaceAbove, "replaceAbove", null, LocalMaterials.AIR, "AIR", logger, materialReader);
+	}
+
+	private LocalMaterialData readReplaceMaterial(String value, String settingName, LocalMaterialData defaultMaterial, LocalMaterialData invalidMaterial, String invalidMaterialName, ILogger logger, IMaterialReader materialReader)
+	{
+		if(value == null || value.length() == 0)
+		{
+			return defaultMaterial;
+		}
+		try {
+			return materialReader.readMaterial(value);
+		} catch (InvalidConfigException e) {
+			if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
+			{
+				logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Value " + value + " for " + settingName + " in BO4 " + this.getName() + " was not recognised. Using " + invalidMaterialName + " instead.");
+			}
+			return invalidMaterial;
+		}
+	}
+
+	static boolean isNone(String value)
+	{
+		return value != null && value.toLowerCase().equals("none");
+	}
+
 	public int getXOffset()
 	{
 		return minX < -8 ? -minX : maxX > 7 ? -minX : 8;
@@ -247,6 +291,31 @@ public class BO4Config extends CustomObjectConfigFile
 		return minZ < -7 ? -minZ : maxZ > 8 ? -minZ : 7;
 	}
 
+	public LocalMaterialData getReplaceAboveMaterial()
+	{
+		return this.replaceAboveMaterial;
+	}
+
+	public LocalMaterialData getReplaceBelowMaterial()
+	{
+		return this.replaceBelowMaterial;
+	}
+
+	public LocalMaterialData getReplaceWithGroundBlockMaterial()
+	{
+		return this.replaceWithGroundBlockMaterial;
+	}
+
+	public LocalMaterialData getReplaceWithSurfaceBlockMaterial()
+	{
+		return this.replaceWithSurfaceBlockMaterial;
+	}
+
+	public LocalMaterialData getReplaceWithStoneBlockMaterial()
+	{
+		return this.replaceWithStoneBlockMaterial;
+	}
+
 	public int getminX()
 	{
 		return minX + this.getXOffset(); // + xOffset makes sure that the value returned is never negative which is necessary for the collision detection code for CustomStructures in OTG (it assumes the furthest top and left blocks are at => 0 x or >= 0 z in the BO3)
@@ -283,128 +352,105 @@ public class BO4Config extends CustomObjectConfigFile
 	}
 
 	public BO4BlockFunction[][] getSmoothingHeightMap(BO4 start, String presetFolderName, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
-	{
-		return getSmoothingHeightMap(start, true, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-	}
-	
-	private BO4BlockFunction[][] getSmoothingHeightMap(BO4 start, boolean fromFile, String presetFolderName, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
 	{
 		// TODO: Caching the heightmap will mean this BO4 can only be used with 1 master BO4,
 		// it won't pick up smoothing area settings if it is also used in another structure.
 		if(this.heightMap == null)
 		{
-			if(this.isBO4Data && fromFile)
+			if(this.isBO4Data)
 			{
-				BO4Config bo4Config = null;
-				try
-				{
-					bo4Config = new BO4Config(this.reader, false, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-				}
-				catch (InvalidConfigException e)
-				{
-					if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-					{
-						logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Error fetching smoothing heightmap for BO4 " + start.getName() + ": " + e.getMessage());
-					}
-				}
-				if(bo4Config != null)
-				{
-					try {
-						bo4Config.readFromBO4DataFile(true, logger, materialReader);
-					} catch (InvalidConfigException e) {
-						if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-						{
-							logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Error fetching smoothing heightmap for BO4Data " + start.getName() + ": " + e.getMessage());
-						}
-						this.heightMap = new BO4BlockFunction[16][16];
-						return this.heightMap;
-					}
-					this.heightMap = bo4Config.getSmoothingHeightMap(start, false, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-					return this.heightMap;
-				}
+				BO4Config bo4Config = getBO4DataBlocks(presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+				// The config may be cached and shared, so don't store the heightmap in it.
+				this.heightMap = bo4Config != null ? bo4Config.createSmoothingHeightMap(start) : new BO4BlockFunction[16][16];
+				return this.heightMap;
 			}
-			
-			this.heightMap = new BO4BlockFunction[16][16];
-
-			// make heightmap containing the highest or lowest blocks in this chunk
-			int blockIndex = 0;
-			LocalMaterialData material;
-			boolean isSmoothAreaAnchor;
-			boolean isRandomBlock;
-			int y;
-			for(int x = 0; x < xSize; x++)
+			this.heightMap = createSmoothingHeightMap(start);
+		}
+		return this.heightMap;
+	}
+
+	private BO4BlockFunction[][] createSmoothingHeightMap(BO4 start)
+	{
+		BO4BlockFunction[][] heightMap = new BO4BlockFunction[16][16];
+
+		// make heightmap containing the highest or lowest blocks in this chunk
+		int blockIndex = 0;
+		LocalMaterialData material;
+		boolean isSmoothAreaAnchor;
+		boolean isRandomBlock;
+		int y;
+		for(int x = 0; x < xSize; x++)
+		{
+			for(int z = 0; z < zSize; z++)
 			{
-				for(int z = 0; z < zSize; z++)
+				if(blocks[x][z] != null)
 				{
-					if(blocks[x][z] != null)
+					for(int i = 0; i < blocks[x][z].length; i++)
 					{
-						for(int i = 0; i < blocks[x][z].length; i++)
+						isSmoothAreaAnchor = false;
+						isRandomBlock = this.randomBlocksBlocks[blockIndex] != null;
+						y = blocks[x][z][i];
+						
+						if(isRandomBlock)
 						{
-							isSmoothAreaAnchor = false;
-							isRandomBlock = this.randomBlocksBlocks[blockIndex] != null;
-							y = blocks[x][z][i];
-							
-							if(isRandomBlock)
+							for(LocalMaterialData randomMaterial : this.randomBlocksBlocks[blockIndex])
 							{
-								for(LocalMaterialData randomMaterial : this.randomBlocksBlocks[blockIndex])
+								// TODO: Material should never be null, fix the code in RandomBlockFunction.load() that causes this.
+								if(randomMaterial == null)
 								{
-									// TODO: Material should never be null, fix the code in RandomBlockFunction.load() that causes this.
-									if(randomMaterial == null)
-									{
-										continue;
-									}
-									if(randomMaterial.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater))
-									{
-										isSmoothAreaAnchor = true;
-										break;
-									}
+									continue;
+								}
+								if(randomMaterial.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater))
+								{
+									isSmoothAreaAnchor = true;
+									break;
 								}
 							}
+						}
 
-							material = this.blocksMaterial[blockIndex];
+						material = this.blocksMaterial[blockIndex];
+						if(
+							isSmoothAreaAnchor ||
+							(
+								!isRandomBlock &&
+								material.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater)
+							)
+						)
+						{
 							if(
-								isSmoothAreaAnchor ||
-								(
-									!isRandomBlock &&
-									material.isSmoothAreaAnchor(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartWood : this.smoothStartWood, start.getConfig().spawnUnderWater)
-								)
+								(!(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && y == getminY()) ||
+								((start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && (heightMap[x][z] == null || y > heightMap[x][z].y))
 							)
 							{
-								if(
-									(!(start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && y == getminY()) ||
-									((start.getConfig().overrideChildSettings && this.overrideChildSettings ? start.getConfig().smoothStartTop : this.smoothStartTop) && (this.heightMap[x][z] == null || y > this.heightMap[x][z].y))
-								)
+								BO4BlockFunction blockFunction = null;
+								if(isRandomBlock)
 								{
-									BO4BlockFunction blockFunction = null;
-									if(isRandomBlock)
-									{
-										blockFunction = new BO4RandomBlockFunction();
-										((BO4RandomBlockFunction)blockFunction).blocks = this.randomBlocksBlocks[blockIndex];
-										((BO4RandomBlockFunction)blockFunction).blockChances = this.randomBlocksBlockChances[blockIndex];
-										((BO4RandomBlockFunction)blockFunction).metaDataNames = this.randomBlocksMetaDataNames[blockIndex];
-										((BO4RandomBlockFunction)blockFunction).metaDataTags = this.randomBlocksMetaDataTags[blockIndex];
-										((BO4RandomBlockFunction)blockFunction).blockCount = this.randomBlocksBlockCount[blockIndex];
-									} else {
-										blockFunction = new BO4BlockFunction();
-									}
-									blockFunction.material = material;
-									blockFunction.x = x;
-									blockFunction.y = (short) y;
-									blockFunction.z = z;										
-									blockFunction.nbtName = this.blocksMetaDataName[blockIndex];
-									blockFunction.nbt = this.blocksMetaDataTag[blockIndex];
-									
-									this.heightMap[x][z] = blockFunction;
+									blockFunction = new BO4RandomBlockFunction();
+									((BO4RandomBlockFunction)blockFunction).blocks = this.randomBlocksBlocks[blockIndex];
+									((BO4RandomBlockFunction)blockFunction).blockChances = this.randomBlocksBlockChances[blockIndex];
+									((BO4RandomBlockFunction)blockFunction).metaDataNames = this.randomBlocksMetaDataNames[blockIndex];
+									((BO4RandomBlockFunction)blockFunction).metaDataTags = this.randomBlocksMetaDataTags[blockIndex];
+									((BO4RandomBlockFunction)blockFunction).blockCount = this.randomBlocksBlockCount[blockIndex];
+								} else {
+									blockFunction = new BO4BlockFunction();
 								}
+								blockFunction.material = material;
+								blockFunction.x = x;
+								blockFunction.y = (short) y;
+								blockFunction.z = z;										
+								blockFunction.nbtName = this.blocksMetaDataName[blockIndex];
+								blockFunction.nbt = this.blocksMetaDataTag[blockIndex];
+								
+								heightMap[x][z] = blockFunction;
 							}
-							
-							blockIndex++;
 						}
+						
+						blockIndex++;
 					}
 				}
 			}
 		}
-		return this.heightMap;
+		return heightMap;
 	}
 
 	BO4BlockFunction[] getBlocks(String presetFolderName, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
@@ -416,31 +462,8 @@ public class BO4Config extends CustomObjectConfigFile
 	{
 		if(fromFile && this.isBO4Data)
 		{
-			BO4Config bo4Config = null;
-			try
-			{
-				bo4Config = new BO4Config(this.reader, false, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-			}
-			catch (InvalidConfigException e)
-			{
-				if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-				{
-					logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, " Error fetching blocks for BO4 " + this.getName() + ": " + e.getMessage());
-				}
-			}
-			if(bo4Config != null)
-			{
-				try {
-					bo4Config.readFromBO4DataFile(true, logger, materialReader);
-				} catch (InvalidConfigException e) {
-					if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
-					{
-						logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, " Error fetching blocks for BO4Data " + this.getName() + ": " + e.getMessage());
-					}
-					return null;
-				}
-				return bo4Config.getBlocks(false, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-			}
+			BO4Config bo4Config = getBO4DataBlocks(presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+			return bo4Config != null ? bo4Config.getBlocks(false, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker) : null;
 		}
 		
 		BO4BlockFunction[] blocksOTGPlus = new BO4BlockFunction[this.blocksMaterial.length];
@@ -484,6 +507,72 @@ public class BO4Config extends CustomObjectConfigFile
 		return blocksOTGPlus;
 	}
 
+	/**
+	 * Returns the blocks to spawn for the given rotation, or null if the
+	 * blocks of a BO4Data file can't be read.
+	 */
+	BO4SpawnBlocks getSpawnBlocks(Rotation rotation, String presetFolderName, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
+	{
+		if(this.isBO4Data)
+		{
+			BO4Config bo4Config = getBO4DataBlocks(presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+			return bo4Config != null ? bo4Config.getSpawnBlocks(rotation) : null;
+		}
+		return getSpawnBlocks(rotation);
+	}
+
+	private BO4SpawnBlocks getSpawnBlocks(Rotation rotation)
+	{
+		// Threads that get here at the same time may both build the arrays, that's fine.
+		BO4SpawnBlocks[] spawnBlocks = this.spawnBlocks;
+		if(spawnBlocks == null)
+		{
+			spawnBlocks = BO4SpawnBlocks.create(this.blocks, this.blocksMaterial, this.blocksMetaDataTag, this.randomBlocksBlocks, this.randomBlocksBlockChances, this.randomBlocksMetaDataTags, this.randomBlocksBlockCount);
+			this.spawnBlocks = spawnBlocks;
+		}
+		return spawnBlocks[rotation.getRotationId()];
+	}
+
+	/**
+	 * Returns a config with the blocks of this BO4Data file loaded, from the
+	 * BO4Data cache if possible. The config may be shared with other threads,
+	 * so it must not be modified. Returns null if the file can't be read.
+	 */
+	private BO4Config getBO4DataBlocks(String presetFolderName, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
+	{
+		BO4DataCache cache = customObjectManager != null ? customObjectManager.getBO4DataCache() : null;
+		String filePath = this.reader.getFile().getAbsolutePath();
+		BO4Config bo4Config = cache != null ? cache.get(filePath) : null;
+		if(bo4Config != null)
+		{
+			return bo4Config;
+		}
+
+		// Threads that miss on the same file at the same time both read it, the last one is cached.
+		try
+		{
+			bo4Config = new BO4Config(this.reader, false, presetFolderName, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+			bo4Config.readFromBO4DataFile(true, logger, materialReader);
+		}
+		catch (InvalidConfigException e)
+		{
+			if(logger.getLogCategoryEnabled(LogCategory.CUSTOM_OBJECTS))
+			{
+				logger.log(LogLevel.ERROR, LogCategory.CUSTOM_OBJECTS, "Error fetching blocks for BO4Data " + this.getName() + ": " + e.getMessage());
+			}
+			return null;
+		}
+		if(cache != null)
+		{
+			cache.put(filePath, bo4Config, bo4Config.blocksMaterial.length);
+			if(cache.getMisses() % BO4DataCache.STATISTICS_LOG_INTERVAL == 0 && logger.getLogCategoryEnabled(LogCategory.PERFORMANCE))
+			{
+				logger.log(LogLevel.INFO, LogCategory.PERFORMANCE, cache.getStatistics());
+			}
+		}
+		return bo4Config;
+	}
+
 	public BO4BranchFunction[] getbranches()
 	{
 		return this.branchesBO4;
@@ -525,6 +614,7 @@ public class BO4Config extends CustomObjectConfigFile
 				this.removeAir = ((BO4)parentBO3).getConfig().removeAir;
 				this.replaceAbove = this.replaceAbove == null || this.replaceAbove.length() == 0 ? ((BO4)parentBO3).getConfig().replaceAbove : this.replaceAbove;
 				this.replaceBelow = this.replaceBelow == null || this.replaceBelow.length() == 0 ? ((BO4)parentBO3).getConfig().replaceBelow : this.replaceBelow;
+				resolveReplaceMaterials(logger, materialReader);
 
 				BO4CustomStructureCoordinate rotatedParentMaxCoords = BO4CustomStructureCoordinate.getRotatedBO3Coords(((BO4)parentBO3).getConfig().maxX, ((BO4)parentBO3).getConfig().maxY, ((BO4)parentBO3).getConfig().maxZ, this.inheritBO3Rotation);
 				BO4CustomStructureCoordinate rotatedParentMinCoords = BO4CustomStructureCoordinate.getRotatedBO3Coords(((BO4)parentBO3).getConfig().minX, ((BO4)parentBO3).getConfig().minY, ((BO4)parentBO3).getConfig().minZ, this.inheritBO3Rotation);
@@ -2103,6 +2193,7 @@ public class BO4Config extends CustomObjectConfigFile
 			}
 			columnBlockIndex[block.x][block.z]++;
 		}
+		this.spawnBlocks = null;
 	}
 	
 	private int getColumnBlockIndex(short[][] columnSizes, int columnX, int columnZ)
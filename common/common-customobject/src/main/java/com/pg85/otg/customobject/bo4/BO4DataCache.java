@@ -0,0 +1,158 @@
+package com.pg85.otg.customobject.bo4;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A least recently used cache of BO4Data files with their blocks loaded,
+ * so each BO4Data file only has to be read and decompressed once while
+ * it's being spawned. Entries are weighted by their block count, the
+ * cache holds at most maxBlocks blocks.
+ *
+ * Cached configs are shared between threads and are only read once
+ * they've been put into the cache.
+ */
+public class BO4DataCache
+{
+	// The statistics are logged every this many misses.
+	static final int STATISTICS_LOG_INTERVAL = 1000;
+
+	private final long maxBlocks;
+	// Access ordered, so the eldest entry is the least recently used one.
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private long blocks;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxBlocks The maximum amount of blocks to cache, 0 disables the cache.
+	 */
+	public BO4DataCache(long maxBlocks)
+	{
+		this.maxBlocks = maxBlocks;
+	}
+
+	/**
+	 * Returns the cached config for the given BO4Data file, or null.
+	 */
+	BO4Config get(String filePath)
+	{
+		Entry entry;
+		synchronized(this.entries)
+		{
+			entry = this.entries.get(filePath);
+		}
+		if(entry == null)
+		{
+			this.misses.increment();
+			return null;
+		}
+		this.hits.increment();
+		return entry.config;
+	}
+
+	/**
+	 * Caches a config with its blocks loaded, evicting the least recently
+	 * used configs if the cache is full. Configs with more blocks than the
+	 * cache can hold aren't cached.
+	 */
+	void put(String filePath, BO4Config config, int blockCount)
+	{
+		if(blockCount > this.maxBlocks)
+		{
+			return;
+		}
+		synchronized(this.entries)
+		{
+			Entry previous = this.entries.put(filePath, new Entry(config, blockCount));
+			if(previous != null)
+			{
+				this.blocks -= previous.blockCount;
+			}
+			this.blocks += blockCount;
+
+			Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+			while(this.blocks > this.maxBlocks && iterator.hasNext())
+			{
+				this.blocks -= iterator.next().getValue().blockCount;
+				iterator.remove();
+				this.evictions.increment();
+			}
+		}
+	}
+
+	public void clear()
+	{
+		synchronized(this.entries)
+		{
+			this.entries.clear();
+			this.blocks = 0;
+		}
+	}
+
+	public int size()
+	{
+		synchronized(this.entries)
+		{
+			return this.entries.size();
+		}
+	}
+
+	/**
+	 * The total block count of all cached configs.
+	 */
+	public long getBlockCount()
+	{
+		synchronized(this.entries)
+		{
+			return this.blocks;
+		}
+	}
+
+	public long getMaxBlocks()
+	{
+		return this.maxBlocks;
+	}
+
+	public long getHits()
+	{
+		return this.hits.sum();
+	}
+
+	public long getMisses()
+	{
+		return this.misses.sum();
+	}
+
+	public long getEvictions()
+	{
+		return this.evictions.sum();
+	}
+
+	/**
+	 * Describes the cache usage, for logging.
+	 */
+	public String getStatistics()
+	{
+		long hits = getHits();
+		long misses = getMisses();
+		long requests = hits + misses;
+		return "BO4Data cache: " + size() + " files, " + getBlockCount() + "/" + this.maxBlocks + " blocks, " + hits + " hits, " + misses + " misses (" + (requests == 0 ? 0 : hits * 100 / requests) + "% hit rate), " + getEvictions() + " evictions.";
+	}
+
+	private static class Entry
+	{
+		private final BO4Config config;
+		private final int blockCount;
+
+		private Entry(BO4Config config, int blockCount)
+		{
+			this.config = config;
+			this.blockCount = blockCount;
+		}
+	}
+}
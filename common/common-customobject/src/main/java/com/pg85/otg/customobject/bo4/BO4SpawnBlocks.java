@@ -0,0 +1,211 @@
+package com.pg85.otg.customobject.bo4;
+
+import java.util.IdentityHashMap;
+
+import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.materials.LocalMaterialData;
+
+/**
+ * The blocks of a BO4 for one rotation, stored as arrays so they can be
+ * spawned without creating objects. Materials and nbt tags are stored as
+ * indices into a palette. Only the coordinates and the material palette
+ * differ per rotation, the other arrays are shared between rotations.
+ * The blocks of each x/z column are stored next to each other, so
+ * columns can be processed in one pass.
+ *
+ * Instances are shared between threads and must not be modified.
+ */
+final class BO4SpawnBlocks
+{
+	final int size;
+	final byte[] blocksX;
+	final short[] blocksY;
+	final byte[] blocksZ;
+	// Materials for this rotation, indexed by the material ids below. May contain null.
+	final LocalMaterialData[] materials;
+	final int[] blocksMaterialId;
+	final NamedBinaryTag[] metaDataTags;
+	// Index into metaDataTags, or -1 for blocks without nbt.
+	final int[] blocksMetaDataTagId;
+
+	// Index into the random block arrays, or -1 for blocks that aren't random blocks.
+	final int[] randomBlockId;
+	final int[][] randomBlocksMaterialIds;
+	final byte[][] randomBlocksBlockChances;
+	final int[][] randomBlocksMetaDataTagIds;
+	final byte[] randomBlocksBlockCount;
+
+	final int columnCount;
+	// Column i holds the blocks from columnStarts[i] up to columnStarts[i + 1].
+	final int[] columnStarts;
+
+	private BO4SpawnBlocks(BO4SpawnBlocks source, byte[] blocksX, byte[] blocksZ, LocalMaterialData[] materials)
+	{
+		this.size = source.size;
+		this.blocksX = blocksX;
+		this.blocksY = source.blocksY;
+		this.blocksZ = blocksZ;
+		this.materials = materials;
+		this.blocksMaterialId = source.blocksMaterialId;
+		this.metaDataTags = source.metaDataTags;
+		this.blocksMetaDataTagId = source.blocksMetaDataTagId;
+		this.randomBlockId = source.randomBlockId;
+		this.randomBlocksMaterialIds = source.randomBlocksMaterialIds;
+		this.randomBlocksBlockChances = source.randomBlocksBlockChances;
+		this.randomBlocksMetaDataTagIds = source.randomBlocksMetaDataTagIds;
+		this.randomBlocksBlockCount = source.randomBlocksBlockCount;
+		this.columnCount = source.columnCount;
+		this.columnStarts = source.columnStarts;
+	}
+
+	private BO4SpawnBlocks(short[][][] blocks, LocalMaterialData[] blocksMaterial, NamedBinaryTag[] blocksMetaDataTag, LocalMaterialData[][] randomBlocksBlocks, byte[][] randomBlocksBlockChances, NamedBinaryTag[][] randomBlocksMetaDataTags, byte[] randomBlocksBlockCount)
+	{
+		this.size = blocksMaterial.length;
+		this.blocksX = new byte[this.size];
+		this.blocksY = new short[this.size];
+		this.blocksZ = new byte[this.size];
+		this.blocksMaterialId = new int[this.size];
+		this.blocksMetaDataTagId = new int[this.size];
+		this.randomBlockId = new int[this.size];
+
+		int randomBlockCount = 0;
+		for(int i = 0; i < this.size; i++)
+		{
+			if(randomBlocksBlocks[i] != null)
+			{
+				randomBlockCount++;
+			}
+		}
+		this.randomBlocksMaterialIds = new int[randomBlockCount][];
+		this.randomBlocksBlockChances = new byte[randomBlockCount][];
+		this.randomBlocksMetaDataTagIds = new int[randomBlockCount][];
+		this.randomBlocksBlockCount = new byte[randomBlockCount];
+
+		// Materials are mostly shared instances from the material reader, so compare by identity.
+		IdentityHashMap<LocalMaterialData, Integer> materialIds = new IdentityHashMap<LocalMaterialData, Integer>();
+		IdentityHashMap<NamedBinaryTag, Integer> metaDataTagIds = new IdentityHashMap<NamedBinaryTag, Integer>();
+
+		int columnCount = 0;
+		for(int x = 0; x < blocks.length; x++)
+		{
+			for(int z = 0; z < blocks[x].length; z++)
+			{
+				if(blocks[x][z] != null && blocks[x][z].length > 0)
+				{
+					columnCount++;
+				}
+			}
+		}
+		this.columnCount = columnCount;
+		this.columnStarts = new int[columnCount + 1];
+
+		// Same order as BO4Config.getBlocks
+		int blockIndex = 0;
+		int randomBlockIndex = 0;
+		int columnIndex = 0;
+		for(int x = 0; x < blocks.length; x++)
+		{
+			for(int z = 0; z < blocks[x].length; z++)
+			{
+				if(blocks[x][z] != null && blocks[x][z].length > 0)
+				{
+					this.columnStarts[columnIndex++] = blockIndex;
+					for(int i = 0; i < blocks[x][z].length; i++)
+					{
+						this.blocksX[blockIndex] = (byte)x;
+						this.blocksY[blockIndex] = blocks[x][z][i];
+						this.blocksZ[blockIndex] = (byte)z;
+						this.blocksMaterialId[blockIndex] = getId(materialIds, blocksMaterial[blockIndex]);
+						this.blocksMetaDataTagId[blockIndex] = blocksMetaDataTag[blockIndex] == null ? -1 : getId(metaDataTagIds, blocksMetaDataTag[blockIndex]);
+
+						if(randomBlocksBlocks[blockIndex] != null)
+						{
+							int count = randomBlocksBlockCount[blockIndex];
+							this.randomBlocksMaterialIds[randomBlockIndex] = new int[count];
+							this.randomBlocksMetaDataTagIds[randomBlockIndex] = new int[count];
+							for(int j = 0; j < count; j++)
+							{
+								this.randomBlocksMaterialIds[randomBlockIndex][j] = getId(materialIds, randomBlocksBlocks[blockIndex][j]);
+								NamedBinaryTag metaDataTag = randomBlocksMetaDataTags[blockIndex] == null ? null : randomBlocksMetaDataTags[blockIndex][j];
+								this.randomBlocksMetaDataTagIds[randomBlockIndex][j] = metaDataTag == null ? -1 : getId(metaDataTagIds, metaDataTag);
+							}
+							this.randomBlocksBlockChances[randomBlockIndex] = randomBlocksBlockChances[blockIndex];
+							this.randomBlocksBlockCount[randomBlockIndex] = (byte)count;
+							this.randomBlockId[blockIndex] = randomBlockIndex;
+							randomBlockIndex++;
+						} else {
+							this.randomBlockId[blockIndex] = -1;
+						}
+						blockIndex++;
+					}
+				}
+			}
+		}
+
+		this.columnStarts[columnCount] = blockIndex;
+
+		this.materials = new LocalMaterialData[materialIds.size()];
+		for(IdentityHashMap.Entry<LocalMaterialData, Integer> entry : materialIds.entrySet())
+		{
+			this.materials[entry.getValue()] = entry.getKey();
+		}
+		this.metaDataTags = new NamedBinaryTag[metaDataTagIds.size()];
+		for(IdentityHashMap.Entry<NamedBinaryTag, Integer> entry : metaDataTagIds.entrySet())
+		{
+			this.metaDataTags[entry.getValue()] = entry.getKey();
+		}
+	}
+
+	/**
+	 * Creates the blocks for all 4 rotations from BO4Config's block arrays,
+	 * indexed by rotation id. Rotations are applied the same way BO4 used to
+	 * apply them while spawning.
+	 */
+	static BO4SpawnBlocks[] create(short[][][] blocks, LocalMaterialData[] blocksMaterial, NamedBinaryTag[] blocksMetaDataTag, LocalMaterialData[][] randomBlocksBlocks, byte[][] randomBlocksBlockChances, NamedBinaryTag[][] randomBlocksMetaDataTags, byte[] randomBlocksBlockCount)
+	{
+		BO4SpawnBlocks[] rotations = new BO4SpawnBlocks[4];
+		rotations[0] = new BO4SpawnBlocks(blocks, blocksMaterial, blocksMetaDataTag, randomBlocksBlocks, randomBlocksBlockChances, randomBlocksMetaDataTags, randomBlocksBlockCount);
+		for(int rotation = 1; rotation < 4; rotation++)
+		{
+			BO4SpawnBlocks previous = rotations[rotation - 1];
+			BO4SpawnBlocks north = rotations[0];
+			byte[] blocksX = new byte[north.size];
+			byte[] blocksZ = new byte[north.size];
+			for(int i = 0; i < north.size; i++)
+			{
+				// Counter-clockwise rotations, 1 for west, 2 for south, 3 for east.
+				if(rotation == 1)
+				{
+					blocksX[i] = north.blocksZ[i];
+					blocksZ[i] = (byte)(-north.blocksX[i] + 15);
+				}
+				else if(rotation == 2)
+				{
+					blocksX[i] = (byte)(-north.blocksX[i] + 15);
+					blocksZ[i] = (byte)(-north.blocksZ[i] + 15);
+				} else {
+					blocksX[i] = (byte)(-north.blocksZ[i] + 15);
+					blocksZ[i] = north.blocksX[i];
+				}
+			}
+			LocalMaterialData[] materials = new LocalMaterialData[previous.materials.length];
+			for(int i = 0; i < materials.length; i++)
+			{
+				materials[i] = previous.materials[i] == null ? null : previous.materials[i].rotate();
+			}
+			rotations[rotation] = new BO4SpawnBlocks(north, blocksX, blocksZ, materials);
+		}
+		return rotations;
+	}
+
+	private static <T> int getId(IdentityHashMap<T, Integer> ids, T value)
+	{
+		Integer id = ids.get(value);
+		if(id == null)
+		{
+			id = ids.size();
+			ids.put(value, id);
+		}
+		return id;
+	}
+}
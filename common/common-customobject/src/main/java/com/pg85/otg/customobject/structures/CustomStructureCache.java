@@ -24,12 +24,18 @@ import com.pg85.otg.util.helpers.RandomHelper;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 
+import java.io.File;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 // TODO: spawners/particles/moddata for customobjects also use this, so not just structures. refactor?
 /**
@@ -56,35 +62,211 @@ public class CustomStructureCache
 	// Used for /otg structure and spawners/particles/moddata for BO structures and objects.
 	// For BO4's this is also used used to avoid resources like lakes spawning on structures.
 	// WorldInfoChunks is persisted to disk, the bo4 plotter's structurecache (of plotted but
-	// not yet decorated branches) is assembled from WorldInfoChunks when loaded from disk.
-	// WorldInfoChunks is used as little as possible, due to its size and slowness.
-	private Map<ChunkCoordinate, StructureDataRegion> worldInfoChunks;
+	// not yet decorated branches) is assembled from the regions with unspawned parts when 
+	// loaded from disk. Other regions are loaded on demand, and only the most recently used 
+	// regions are kept in memory. Modified regions are kept until they've been saved.
+	private static final int MAX_RESIDENT_REGIONS = 64;
+	private final LinkedHashMap<ChunkCoordinate, StructureDataRegion> worldInfoChunks;
+	// Regions being loaded from disk, threads that need them wait on the latch. Guarded by worldInfoChunks.
+	private final HashMap<ChunkCoordinate, CountDownLatch> loadingRegions = new HashMap<ChunkCoordinate, CountDownLatch>();
+	private StructureDataIndex structureDataIndex;
+
+	// Used for loading regions on demand
+	private final Path otgRootFolder;
+	private final ILogger logger;
+	private final CustomObjectManager customObjectManager;
+	private final IMaterialReader materialReader;
+	private final CustomObjectResourcesManager manager;
+	private final IModLoadedChecker modLoadedChecker;
 	
 	public CustomStructureCache(String presetFolderName, Path worldSaveDir, long worldSeed, boolean isBO4Enabled, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
 	{
-		this.worldInfoChunks = new HashMap<ChunkCoordinate, StructureDataRegion>();
-		this.plotter = new CustomStructurePlotter();
+		// Access-ordered, so the least recently used regions are unloaded first.
+		this.worldInfoChunks = new LinkedHashMap<ChunkCoordinate, StructureDataRegion>(16, 0.75f, true);
+		this.plotter = new CustomStructurePlotter(worldSaveDir, presetFolderName, logger);
 		this.bo3StructureCache = new FifoMap<ChunkCoordinate, BO3CustomStructure>(400);
 		this.worldSaveDir = worldSaveDir;
 		this.isBO4Enabled = isBO4Enabled;
 		this.presetFolderName = presetFolderName;
 		this.worldSeed = worldSeed;
-		loadStructureCache(otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+		this.otgRootFolder = otgRootFolder;
+		this.logger = logger;
+		this.customObjectManager = customObjectManager;
+		this.materialReader = materialReader;
+		this.manager = manager;
+		this.modLoadedChecker = modLoadedChecker;
+		// Make sure any files still being saved for this world are written before loading them.
+		StructureDataSaver.flush(logger);
+		loadStructureCache();
 	}
 	
 	// WorldInfoChunks
+
+	// Returns the region, loading it from disk if it isn't in memory. If the region
+	// doesn't exist, creates it if create is true, otherwise returns null.
+	private StructureDataRegion getStructureDataRegion(ChunkCoordinate regionCoord, boolean create)
+	{
+		File regionFile = null;
+		while(true)
+		{
+			CountDownLatch loading;
+			boolean loadRegion = false;
+			synchronized(this.worldInfoChunks)
+			{
+				StructureDataRegion region = this.worldInfoChunks.get(regionCoord);
+				if(region != null)
+				{
+					return region;
+				}
+				loading = this.loadingRegions.get(regionCoord);
+				if(loading == null)
+				{
+					if(!this.structureDataIndex.containsRegion(regionCoord))
+					{
+						if(!create)
+						{
+							return null;
+						}
+						region = new StructureDataRegion();
+						this.worldInfoChunks.put(regionCoord, region);
+						unloadStructureDataRegions();
+						return region;
+					}
+					if(regionFile == null)
+					{
+						regionFile = CustomStructureFileManager.getStructureDataFile(this.worldSaveDir, this.presetFolderName, regionCoord, false);
+					}
+					// The region may have been saved and unloaded and still be waiting to be
+					// written, if so wait for that file below, without blocking other threads.
+					if(!StructureDataSaver.isWritePending(regionFile))
+					{
+						// Other threads wait for this thread to load the region.
+						loading = new CountDownLatch(1);
+						this.loadingRegions.put(regionCoord, loading);
+						loadRegion = true;
+					}
+				}
+			}
+			if(loadRegion)
+			{
+				// Read the file outside the lock, so other threads can use loaded regions meanwhile.
+				StructureDataRegion region = null;
+				boolean loaded = false;
+				try {
+					region = loadStructureDataRegion(regionCoord);
+					loaded = true;
+				} finally {
+					synchronized(this.worldInfoChunks)
+					{
+						this.loadingRegions.remove(regionCoord);
+						// If loading failed, waiting threads try again themselves.
+						if(loaded)
+						{
+							if(region == null && create)
+							{
+								region = new StructureDataRegion();
+							}
+							if(region != null)
+							{
+								this.worldInfoChunks.put(regionCoord, region);
+								unloadStructureDataRegions();
+							}
+						}
+					}
+					loading.countDown();
+				}
+				return region;
+			}
+			else if(loading != null)
+			{
+				awaitLatch(loading);
+			} else {
+				StructureDataSaver.waitForPendingWrite(regionFile);
+			}
+		}
+	}
+
+	private static void awaitLatch(CountDownLatch latch)
+	{
+		boolean interrupted = false;
+		while(true)
+		{
+			try {
+				latch.await();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private StructureDataRegion loadStructureDataRegion(ChunkCoordinate regionCoord)
+	{
+		HashMap<CustomStructure, ArrayList<ChunkCoordinate>> loadedStructures = CustomStructureFileManager.loadStructureDataRegion(regionCoord, this.presetFolderName, this.worldSaveDir, this.worldSeed, this.isBO4Enabled, this.otgRootFolder, this.logger, this.customObjectManager, this.materialReader, this.manager, this.modLoadedChecker);
+		if(loadedStructures == null)
+		{
+			return null;
+		}
+
+		StructureDataRegion region = new StructureDataRegion();
+		for(Entry<CustomStructure, ArrayList<ChunkCoordinate>> loadedStructure : loadedStructures.entrySet())
+		{
+			CustomStructure structure = loadedStructure.getKey();
+			if(this.isBO4Enabled)
+			{
+				// Structures with unspawned parts are already in memory in the plotter, use 
+				// those so any parts spawned since the region was unloaded are saved correctly.
+				for(ChunkCoordinate chunkCoord : loadedStructure.getValue())
+				{
+					BO4CustomStructure unspawnedStructure = this.plotter.getUnspawnedStructure(chunkCoord);
+					if(unspawnedStructure != null && unspawnedStructure.equals(structure))
+					{
+						structure = unspawnedStructure;
+						break;
+					}
+				}
+			}
+			for(ChunkCoordinate chunkCoord : loadedStructure.getValue())
+			{
+				region.setStructure(chunkCoord.getRegionInternalX(), chunkCoord.getRegionInternalZ(), structure, false);
+			}
+		}
+		return region;
+	}
+
+	// Unloads the least recently used regions that don't need saving. Modified regions
+	// stay loaded until saveToDisk, which serializes them while decoration is paused,
+	// since decorating threads may be modifying the structures they hold.
+	private void unloadStructureDataRegions()
+	{
+		if(this.worldInfoChunks.size() <= MAX_RESIDENT_REGIONS)
+		{
+			return;
+		}
+		Iterator<Entry<ChunkCoordinate, StructureDataRegion>> iterator = this.worldInfoChunks.entrySet().iterator();
+		while(this.worldInfoChunks.size() > MAX_RESIDENT_REGIONS && iterator.hasNext())
+		{
+			if(!iterator.next().getValue().requiresSave())
+			{
+				iterator.remove();
+			}
+		}
+	}
 	
 	private boolean worldInfoChunksContainsKey(ChunkCoordinate chunkCoordinate)
 	{
-		ChunkCoordinate regionCoord = chunkCoordinate.toRegionCoord();		
-		StructureDataRegion chunkRegion = worldInfoChunks.get(regionCoord);
-		return chunkRegion != null && chunkRegion.getStructure(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ()) != null;
+		return getFromWorldInfoChunks(chunkCoordinate) != null;
 	}
 	
 	private CustomStructure getFromWorldInfoChunks(ChunkCoordinate chunkCoordinate)
 	{
-		ChunkCoordinate regionCoord = chunkCoordinate.toRegionCoord();
-		StructureDataRegion chunkRegion = this.worldInfoChunks.get(regionCoord);
+		StructureDataRegion chunkRegion = getStructureDataRegion(chunkCoordinate.toRegionCoord(), false);
 		if(chunkRegion != null)
 		{
 			return chunkRegion.getStructure(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ());
@@ -95,21 +277,39 @@ public class CustomStructureCache
 	private void addToWorldInfoChunks(CustomStructure structure, ChunkCoordinate chunkCoordinate, boolean requiresSave)
 	{
 		ChunkCoordinate regionCoord = chunkCoordinate.toRegionCoord();
-		StructureDataRegion chunkRegion = this.worldInfoChunks.get(regionCoord);
-		if(chunkRegion == null)
+		while(true)
 		{
-			chunkRegion = new StructureDataRegion();
-			this.worldInfoChunks.put(regionCoord, chunkRegion);
+			StructureDataRegion chunkRegion = getStructureDataRegion(regionCoord, true);
+			synchronized(this.worldInfoChunks)
+			{
+				// Another thread may have unloaded the region since it was fetched,
+				// only modify it while it's still loaded, or the change is lost.
+				if(this.worldInfoChunks.get(regionCoord) == chunkRegion)
+				{
+					chunkRegion.setStructure(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ(), structure, requiresSave);
+					return;
+				}
+			}
 		}
-		chunkRegion.setStructure(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ(), structure, requiresSave);
 	}
 
 	public void markRegionForSaving(ChunkCoordinate regionCoordinate)
 	{
-		StructureDataRegion region = this.worldInfoChunks.get(regionCoordinate);
-		if(region != null)
+		while(true)
 		{
-			region.markSaveRequired();
+			StructureDataRegion region = getStructureDataRegion(regionCoordinate, false);
+			if(region == null)
+			{
+				return;
+			}
+			synchronized(this.worldInfoChunks)
+			{
+				if(this.worldInfoChunks.get(regionCoordinate) == region)
+				{
+					region.markSaveRequired();
+					return;
+				}
+			}
 		}
 	}
 	
@@ -234,7 +434,7 @@ public class CustomStructureCache
 	{
 		if(this.isBO4Enabled)
 		{
-			return this.worldInfoChunks.containsKey(chunkCoord);
+			return worldInfoChunksContainsKey(chunkCoord);
 		}
 		return false;
 	}
@@ -262,79 +462,110 @@ public class CustomStructureCache
 	public void saveToDisk(ILogger logger, IChunkDecorator chunkPopulator)
 	{
 		logger.log(LogLevel.INFO, LogCategory.MAIN, "Saving structure and pregenerator data.");
-		boolean firstLog = false;
 		long starTime = System.currentTimeMillis();
-		while(true)
+		int interval = 300;
+		Object lockingObject = chunkPopulator.getLockingObject();
+		boolean interrupted = false;
+		synchronized(lockingObject)
 		{
-			// TODO: Make this prettier
-			synchronized(chunkPopulator.getLockingObject())
+			// Decorate notifies the locking object when the last decorating thread is done.
+			while(chunkPopulator.isDecorating())
 			{
-				if(!chunkPopulator.isDecorating())
+				if(System.currentTimeMillis() - starTime > (interval * 1000))
 				{
-					chunkPopulator.beginSave();
-					break;
+					logger.log(LogLevel.FATAL, LogCategory.MAIN, "SaveToDisk waited on decorate longer than " + interval + " seconds, something went wrong!");
+					throw new RuntimeException("SaveToDisk waited on decorate longer than " + interval + " seconds, something went wrong!");
+				}
+				try {
+					lockingObject.wait(1000);
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
 				}
 			}
-			if(firstLog)
-			{
-				logger.log(LogLevel.WARN, LogCategory.MAIN, "SaveToDisk waiting on Populate. Although other mods could be causing this and there may not be any problem, this can potentially cause an endless loop!");
-				firstLog = false;
-			}
-			int interval = 300;
-			if(System.currentTimeMillis() - starTime > (interval * 1000))
-			{
-				logger.log(LogLevel.FATAL, LogCategory.MAIN, "SaveToDisk waited on decorate longer than " + interval + " seconds, something went wrong!");
-				throw new RuntimeException("SaveToDisk waited on decorate longer than " + interval + " seconds, something went wrong!");
-			}
+			chunkPopulator.beginSave();
 		}
-
-		saveStructureCache(logger);
-
-		synchronized(chunkPopulator.getLockingObject())
+		if(interrupted)
 		{
-			chunkPopulator.endSave();
+			Thread.currentThread().interrupt();
 		}
-		logger.log(LogLevel.INFO, LogCategory.MAIN, "Structure and pregenerator data saved.");
+
+		// Decoration is paused only while the dirty regions are serialized,
+		// the files are written by the StructureDataSaver in the background.
+		List<StructureDataFile> files = new ArrayList<StructureDataFile>();
+		try {
+			saveStructureCache(files, logger);
+		} finally {
+			synchronized(lockingObject)
+			{
+				chunkPopulator.endSave();
+			}
+		}
+		StructureDataSaver.save(files, logger);
+		logger.log(LogLevel.INFO, LogCategory.MAIN, "Structure and pregenerator data queued for saving.");
 	}
 
-	private void saveStructureCache(ILogger logger)
+	private void saveStructureCache(List<StructureDataFile> files, ILogger logger)
 	{
-		CustomStructureFileManager.saveStructureData(this.worldInfoChunks, this.presetFolderName, this.worldSaveDir, logger);
+		synchronized(this.worldInfoChunks)
+		{
+			CustomStructureFileManager.saveStructureData(this.worldInfoChunks, this.structureDataIndex, this.presetFolderName, this.worldSaveDir, files, logger);
+			this.structureDataIndex.saveIndex(this.worldSaveDir, this.presetFolderName, files);
+			// The saved regions can be unloaded now.
+			unloadStructureDataRegions();
+		}
 		
 		if(this.isBO4Enabled)
 		{
-			plotter.saveStructureCache(this.worldSaveDir, this.presetFolderName, this.isBO4Enabled, logger);
+			plotter.saveStructureCache(this.worldSaveDir, this.presetFolderName, this.isBO4Enabled, files, logger);
 		}
 	}
 
-	private void loadStructureCache(Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
+	private void loadStructureCache()
 	{		
-		logger.log(LogLevel.INFO, LogCategory.MAIN, "Loading structure data");
+		this.logger.log(LogLevel.INFO, LogCategory.MAIN, "Loading structure data");
 
-		this.worldInfoChunks = new HashMap<ChunkCoordinate, StructureDataRegion>();
-		
-		Map<CustomStructure, ArrayList<ChunkCoordinate>> loadedStructures = CustomStructureFileManager.loadStructureData(this.presetFolderName, this.worldSaveDir, this.worldSeed, this.isBO4Enabled, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-		if(loadedStructures != null)
+		this.worldInfoChunks.clear();
+		this.structureDataIndex = StructureDataIndex.loadIndex(this.worldSaveDir, this.presetFolderName, this.logger);
+
+		// Only regions with unspawned BO4 parts are needed for plotting, other regions are loaded on demand.
+		if(this.isBO4Enabled)
 		{
-			if(this.isBO4Enabled)
+			Set<ChunkCoordinate> regionsToLoad = this.structureDataIndex.getRegionsWithUnspawnedParts();
+			Map<CustomStructure, ArrayList<ChunkCoordinate>> loadedStructures = CustomStructureFileManager.loadStructureData(regionsToLoad, this.structureDataIndex, this.presetFolderName, this.worldSaveDir, this.worldSeed, this.isBO4Enabled, this.otgRootFolder, this.logger, this.customObjectManager, this.materialReader, this.manager, this.modLoadedChecker);
+			if(loadedStructures != null)
 			{
-				this.plotter.loadStructureCache(this.worldSaveDir, this.presetFolderName, this.isBO4Enabled, loadedStructures, logger);
-			}
+				this.plotter.loadStructureCache(this.worldSaveDir, this.presetFolderName, this.isBO4Enabled, loadedStructures, this.logger);
 
-			for(Entry<CustomStructure, ArrayList<ChunkCoordinate>> loadedStructure : loadedStructures.entrySet())
-			{
-				if(loadedStructure == null)
+				// The loaded regions are complete, so they don't need to be loaded from disk again.
+				// Only unload regions once all structures have been added, or they'd be loaded again.
+				synchronized(this.worldInfoChunks)
 				{
-					throw new RuntimeException("This shouldn't happen, please ask for help on the OTG Discord and/or file an issue on the OTG github.");
-				}
-
-				for(ChunkCoordinate chunkCoord : loadedStructure.getValue())
-				{
-					addToWorldInfoChunks(loadedStructure.getKey(), chunkCoord, false);
+					for(Entry<CustomStructure, ArrayList<ChunkCoordinate>> loadedStructure : loadedStructures.entrySet())
+					{
+						if(loadedStructure == null)
+						{
+							throw new RuntimeException("This shouldn't happen, please ask for help on the OTG Discord and/or file an issue on the OTG github.");
+						}
+	
+						for(ChunkCoordinate chunkCoord : loadedStructure.getValue())
+						{
+							ChunkCoordinate regionCoord = chunkCoord.toRegionCoord();
+							StructureDataRegion region = this.worldInfoChunks.get(regionCoord);
+							if(region == null)
+							{
+								region = new StructureDataRegion();
+								this.worldInfoChunks.put(regionCoord, region);
+							}
+							region.setStructure(chunkCoord.getRegionInternalX(), chunkCoord.getRegionInternalZ(), loadedStructure.getKey(), false);
+						}
+					}
+					unloadStructureDataRegions();
 				}
 			}
 		}
 
-		logger.log(LogLevel.INFO, LogCategory.MAIN, "Loading done");
+		this.logger.log(LogLevel.INFO, LogCategory.MAIN, "Loading done");
 	}
 }
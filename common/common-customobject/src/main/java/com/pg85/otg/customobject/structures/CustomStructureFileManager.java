@@ -4,19 +4,20 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.Map.Entry;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
 
 import com.pg85.otg.constants.Constants;
 import com.pg85.otg.customobject.CustomObjectManager;
@@ -40,8 +41,15 @@ import com.pg85.otg.util.logging.LogLevel;
 public class CustomStructureFileManager
 {
 	// Plotted chunks
-	
-	public static void savePlottedChunksData(Path worldSaveDir, String presetFolderName, Map<ChunkCoordinate, PlottedChunksRegion> decoratedChunks, ILogger logger)
+
+	// Plotted chunks region files are stored uncompressed so they can be memory-mapped and read
+	// without copying. Layout: magic, version, region size, CRC32 of the bits, the bits as longs.
+	// Version 1 files were deflate-compressed with one byte per chunk, those can still be read.
+	private static final int PLOTTED_CHUNKS_MAGIC = 0x4F544750; // "OTGP"
+	private static final int PLOTTED_CHUNKS_VERSION = 2;
+	private static final int PLOTTED_CHUNKS_HEADER_SIZE = 4 + 4 + 4 + 8;
+
+	public static void savePlottedChunksData(Path worldSaveDir, String presetFolderName, Map<ChunkCoordinate, PlottedChunksRegion> decoratedChunks, List<StructureDataFile> files, ILogger logger)
 	{
 		int regionsSaved = 0;
 		if(decoratedChunks.size() > 0)
@@ -55,312 +63,195 @@ public class CustomStructureFileManager
 				chunkPerRegionEntry.getValue().markSaved();
 				regionsSaved++;
 				
-				File occupiedChunksFile = new File(
-					worldSaveDir + File.separator + 
-					Constants.MOD_ID + File.separator + 
-					presetFolderName + File.separator +
-					Constants.PlottedChunksDataFolderName + File.separator +
-					chunkPerRegionEntry.getKey().getChunkX() + "_" +
-					chunkPerRegionEntry.getKey().getChunkZ() +
-					Constants.StructureDataFileExtension
-				);
-				File occupiedChunksBackupFile = new File(
-					worldSaveDir + File.separator + 
-					Constants.MOD_ID + File.separator + 
-					presetFolderName + File.separator +
-					Constants.PlottedChunksDataFolderName + File.separator +
-					chunkPerRegionEntry.getKey().getChunkX() + "_" +
-					chunkPerRegionEntry.getKey().getChunkZ() +					
-					Constants.StructureDataBackupFileExtension
-				);
-				
-				ByteArrayOutputStream bos = new ByteArrayOutputStream();
-				DataOutputStream dos = new DataOutputStream(bos);
-				
-				boolean[][] entriesByStructureName = chunkPerRegionEntry.getValue().getArray();
-				try
-				{
-					int version = 1;
-					dos.writeInt(version);
-					dos.writeInt(Constants.REGION_SIZE);
-
-					for(int x = 0; x < Constants.REGION_SIZE; x++)
-					{
-						boolean[] structureArr = entriesByStructureName[x];
-						for(int z = 0; z < Constants.REGION_SIZE; z++)
-						{
-							dos.writeBoolean(structureArr[z]);
-						}
-					}
-				} catch (IOException e1) {
-					e1.printStackTrace();
-					return;
-				}
-
-				DataOutputStream dos2 = null;
-				FileOutputStream fos = null;
-				try {
-					if(!occupiedChunksFile.exists())
-					{
-						occupiedChunksFile.getParentFile().mkdirs();
-					} else {
-						Files.move(occupiedChunksFile.toPath(), occupiedChunksBackupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-					}
-					byte[] compressedBytes = com.pg85.otg.util.CompressionUtils.compress(bos.toByteArray(), logger);
-					dos.close();
-					fos = new FileOutputStream(occupiedChunksFile);
-					dos2 = new DataOutputStream(fos);
-					dos2.write(compressedBytes, 0, compressedBytes.length);
-				}
-				catch (IOException e)
-				{
-					e.printStackTrace();
-					logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error writing " + occupiedChunksFile.getAbsolutePath() + ", skipping.");
-				} finally {
-					try {
-						if(dos != null)
-						{
-							dos.close();
-						}
-					} catch (Exception e) { }
-					try {
-						if(dos2 != null)
-						{
-							dos2.close();
-						}
-					} catch (Exception e) { }
-					try {
-						if(fos != null)
-						{
-							fos.close();
-						}
-					} catch (Exception e) { }
-				}
+				File occupiedChunksFile = getPlottedChunksFile(worldSaveDir, presetFolderName, chunkPerRegionEntry.getKey(), false);
+				File occupiedChunksBackupFile = getPlottedChunksFile(worldSaveDir, presetFolderName, chunkPerRegionEntry.getKey(), true);
+
+				long[] bits = chunkPerRegionEntry.getValue().getBits();
+				ByteBuffer buffer = ByteBuffer.allocate(PLOTTED_CHUNKS_HEADER_SIZE + bits.length * 8);
+				buffer.position(PLOTTED_CHUNKS_HEADER_SIZE);
+				buffer.asLongBuffer().put(bits);
+				CRC32 checksum = new CRC32();
+				checksum.update(buffer);
+				buffer.clear();
+				buffer.putInt(PLOTTED_CHUNKS_MAGIC);
+				buffer.putInt(PLOTTED_CHUNKS_VERSION);
+				buffer.putInt(Constants.REGION_SIZE);
+				buffer.putLong(checksum.getValue());
+				files.add(new StructureDataFile(occupiedChunksFile, occupiedChunksBackupFile, buffer.array(), false));
 			}
 		}
 		
 		if(logger.getLogCategoryEnabled(LogCategory.STRUCTURE_PLOTTING))
 		{
-			logger.log(LogLevel.INFO, LogCategory.STRUCTURE_PLOTTING, regionsSaved + " plotted chunk regions saved.");
+			logger.log(LogLevel.INFO, LogCategory.STRUCTURE_PLOTTING, regionsSaved + " plotted chunk regions queued for saving.");
 		}
 	}
-	
-	public static Map<ChunkCoordinate, PlottedChunksRegion> loadPlottedChunksData(Path worldSaveDir, String presetFolderName, ILogger logger)
+
+	/**
+	 * Loads the plotted chunks for a single region, falling back to the backup file if the
+	 * region file is corrupted. Regions are loaded on demand by the plotter, rather than
+	 * loading all regions of the world up front.
+	 * 
+	 * @return The region, or null if no file exists for it.
+	 */
+	public static PlottedChunksRegion loadPlottedChunksRegion(Path worldSaveDir, String presetFolderName, ChunkCoordinate regionCoord, ILogger logger)
 	{
-		HashMap<ChunkCoordinate, PlottedChunksRegion> output = new HashMap<ChunkCoordinate, PlottedChunksRegion>();
-		
-		File occupiedChunksFolder = new File(
-			worldSaveDir + File.separator + 
-			Constants.MOD_ID + File.separator + 
-			presetFolderName + File.separator +
-			Constants.PlottedChunksDataFolderName + File.separator
-		);
+		File occupiedChunksFile = getPlottedChunksFile(worldSaveDir, presetFolderName, regionCoord, false);
+		File occupiedChunksBackupFile = getPlottedChunksFile(worldSaveDir, presetFolderName, regionCoord, true);
+		if(!occupiedChunksFile.exists() && !occupiedChunksBackupFile.exists())
+		{
+			return null;
+		}
 
-		HashMap<File, File> saveFiles = new HashMap<File, File>();
-		ArrayList<File> mainFiles = new ArrayList<File>();
-		ArrayList<File> backupFiles = new ArrayList<File>();
-		if(occupiedChunksFolder.exists())
+		PlottedChunksRegion result = null;
+		if(occupiedChunksFile.exists())
 		{
-			for(File file : occupiedChunksFolder.listFiles())
+			try {
+				result = readPlottedChunksFile(occupiedChunksFile, logger);
+			}
+			catch (Exception ex)
 			{
-				if(
-					file.getPath().endsWith(Constants.StructureDataFileExtension) && 
-					file.getName().replace(Constants.StructureDataFileExtension, "").split("_").length == 2 &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.StructureDataFileExtension, "").split("_")[0]) &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.StructureDataFileExtension, "").split("_")[1])
-				) {
-					mainFiles.add(file);
-				}
-				else if(
-					file.getPath().endsWith(Constants.StructureDataBackupFileExtension) &&
-					file.getName().replace(Constants.BackupFileSuffix, "").split("_").length == 2 &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.BackupFileSuffix, "").split("_")[0]) &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.BackupFileSuffix, "").split("_")[1])
-				)
-				{
-					backupFiles.add(file);
-				}
+				ex.printStackTrace();
+				logger.log(LogLevel.WARN, LogCategory.MAIN, "Failed to load " + occupiedChunksFile.getAbsolutePath() + ", trying to load backup.");
 			}
+		}
 
-			for(File file : mainFiles)
+		if(result == null && occupiedChunksBackupFile.exists())
+		{
+			try {
+				result = readPlottedChunksFile(occupiedChunksBackupFile, logger);
+			}
+			catch (Exception ex)
 			{
-				boolean bFound = false;
-				for(File backupFile : backupFiles)
-				{
-					if(file.getPath().replace(Constants.StructureDataFileExtension, "").equals(backupFile.getPath().replace(Constants.StructureDataBackupFileExtension, "")))
-					{
-						saveFiles.put(file, backupFile);
-						bFound = true;
-						break;
-					}
-				}
-				if(!bFound)
-				{
-					saveFiles.put(file, null);
-				}
+				ex.printStackTrace();
 			}
 		}
-				
-		for(Entry<File, File> saveFile : saveFiles.entrySet())
+
+		if(result == null)
 		{
-			boolean bSuccess = false;
-			File occupiedChunksFile = saveFile.getKey();
-			File occupiedChunksBackupFile = saveFile.getValue();
-				
-			if(
-				(occupiedChunksFile == null || !occupiedChunksFile.exists()) &&
-				(occupiedChunksBackupFile == null || !occupiedChunksBackupFile.exists())
-			)
+			logger.log(LogLevel.ERROR, LogCategory.MAIN,
+				"OTG encountered an error loading " + occupiedChunksFile.getAbsolutePath() + " and could not load a backup, substituting a default filled region. "
+				+ "This may result in areas with missing BO4's, smoothing areas, /otg structure info and spawners/particles/moddata."
+			);
+			return PlottedChunksRegion.getFilledRegion();
+		}
+		return result;
+	}
+
+	private static File getPlottedChunksFile(Path worldSaveDir, String presetFolderName, ChunkCoordinate regionCoord, boolean backup)
+	{
+		return new File(
+			worldSaveDir + File.separator + 
+			Constants.MOD_ID + File.separator + 
+			presetFolderName + File.separator +
+			Constants.PlottedChunksDataFolderName + File.separator +
+			regionCoord.getChunkX() + "_" +
+			regionCoord.getChunkZ() +
+			(backup ? Constants.StructureDataBackupFileExtension : Constants.StructureDataFileExtension)
+		);
+	}
+
+	private static PlottedChunksRegion readPlottedChunksFile(File file, ILogger logger) throws IOException, DataFormatException
+	{
+		FileInputStream fis = null;
+		try {
+			fis = new FileInputStream(file);
+			ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());
+			if(buffer.remaining() >= PLOTTED_CHUNKS_HEADER_SIZE && buffer.getInt(0) == PLOTTED_CHUNKS_MAGIC)
 			{
-				continue;
+				return parsePlottedChunksFile(buffer, file, logger);
 			}
 
-			ChunkCoordinate regionCoord = null;
-			
-			if(occupiedChunksFile != null && occupiedChunksFile.exists())
-			{			
-				FileInputStream fis = null;
-				PlottedChunksRegion result = null;
-				try {
-					String[] chunkCoords = occupiedChunksFile.getName().replace(Constants.StructureDataFileExtension, "").split("_");
-					int regionX = Integer.parseInt(chunkCoords[0]);
-					int regionZ = Integer.parseInt(chunkCoords[1]);
-					regionCoord = ChunkCoordinate.fromChunkCoords(regionX, regionZ);
-					
-					fis = new FileInputStream(occupiedChunksFile);			
-					ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());				
-					
-					byte[] compressedBytes = new byte[(int) fis.getChannel().size()];
-					buffer.get(compressedBytes);
-					byte[] decompressedBytes = com.pg85.otg.util.CompressionUtils.decompress(compressedBytes);
-					buffer = ByteBuffer.wrap(decompressedBytes);
-					result = parsePlottedChunksFileFromStream(buffer, logger);
-				}
-				catch (Exception ex)
-				{
-					ex.printStackTrace();
-					logger.log(LogLevel.WARN, LogCategory.MAIN, "Failed to load " + occupiedChunksFile.getAbsolutePath() + ", trying to load backup.");
-				} finally {
-					if(fis != null)
-					{
-						try {
-							fis.getChannel().close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-						try {
-							fis.close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-					}
-				}
-				if(result != null)
-				{
-					bSuccess = true;
-					output.put(regionCoord, result);
-				}
-			}
-			
-			if(!bSuccess && occupiedChunksBackupFile != null && occupiedChunksBackupFile.exists())
-			{			
-				FileInputStream fis = null;
-				PlottedChunksRegion result = null;
-				try {
-					String[] chunkCoords = occupiedChunksFile.getName().replace(Constants.StructureDataBackupFileExtension, "").split("_");
-					int regionX = Integer.parseInt(chunkCoords[0]);
-					int regionZ = Integer.parseInt(chunkCoords[1]);
-					regionCoord = ChunkCoordinate.fromChunkCoords(regionX, regionZ);
-					
-					fis = new FileInputStream(occupiedChunksBackupFile);			
-					ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());				
-					
-					byte[] compressedBytes = new byte[(int) fis.getChannel().size()];
-					buffer.get(compressedBytes);
-					byte[] decompressedBytes = com.pg85.otg.util.CompressionUtils.decompress(compressedBytes);
-					buffer = ByteBuffer.wrap(decompressedBytes);
-					result = parsePlottedChunksFileFromStream(buffer, logger);
-				}
-				catch (Exception ex)
-				{
-					ex.printStackTrace();
-				} finally {
-					if(fis != null)
-					{
-						try {
-							fis.getChannel().close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-						try {
-							fis.close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-					}
-				}
-				if(result != null)
-				{
-					bSuccess = true;
-					output.put(regionCoord, result);
-				}				
-			}
-			
-			if(!bSuccess)
+			// Version 1 file
+			byte[] compressedBytes = new byte[buffer.remaining()];
+			buffer.get(compressedBytes);
+			byte[] decompressedBytes = com.pg85.otg.util.CompressionUtils.decompress(compressedBytes);
+			return parseLegacyPlottedChunksFile(ByteBuffer.wrap(decompressedBytes), logger);
+		} finally {
+			if(fis != null)
 			{
-				if(regionCoord != null)
-				{
-					output.put(regionCoord, PlottedChunksRegion.getFilledRegion());
-					logger.log(LogLevel.ERROR, LogCategory.MAIN,
-						"OTG encountered an error loading " + occupiedChunksFile.getAbsolutePath() + " and could not load a backup, substituting a default filled region. "
-						+ "This may result in areas with missing BO4's, smoothing areas, /otg structure info and spawners/particles/moddata."
-					);
-				} else {
-					logger.log(LogLevel.FATAL, LogCategory.MAIN,
-						"OTG encountered a critical error loading " + occupiedChunksFile.getAbsolutePath() + " and could not load a backup, exiting. "
-						+ "OTG automatically backs up files before writing and will try to use the backup when loading. "					
-						+ "If your dimension's structure data files and backups have been corrupted, you can delete them,"
-						+ "at the risk of losing data for unspawned structure parts."
-					);					
-					throw new RuntimeException(
-						"OTG encountered a critical error loading " + occupiedChunksFile.getAbsolutePath() + " and could not load a backup, exiting. "
-						+ "OTG automatically backs up files before writing and will try to use the backup when loading. "					
-						+ "If your dimension's structure data files and backups have been corrupted, you can delete them,"
-						+ "at the risk of losing data for unspawned structure parts."
-					);
+				try {
+					fis.close();
+				} catch (IOException e) {
+					e.printStackTrace();
 				}
 			}
 		}
-		
-		return output.size() > 0 ? output : null;
 	}
-	
-	private static PlottedChunksRegion parsePlottedChunksFileFromStream(ByteBuffer buffer, ILogger logger) throws IOException
+
+	private static PlottedChunksRegion parsePlottedChunksFile(ByteBuffer buffer, File file, ILogger logger) throws IOException
+	{
+		buffer.getInt(); // Magic
+		int version = buffer.getInt();
+		int regionSize = buffer.getInt();
+		long checksum = buffer.getLong();
+		if(version != PLOTTED_CHUNKS_VERSION || regionSize != Constants.REGION_SIZE)
+		{
+			logger.log(LogLevel.ERROR, LogCategory.MAIN, "PlottedChunks region files were corrupted or exported with an incompatible version of OTG, ignoring.");
+			return PlottedChunksRegion.getFilledRegion();
+		}
+		if(buffer.remaining() != PlottedChunksRegion.BITS_LENGTH * 8)
+		{
+			throw new IOException("Unexpected size for " + file.getAbsolutePath());
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		if(crc.getValue() != checksum)
+		{
+			throw new IOException("Checksum mismatch for " + file.getAbsolutePath());
+		}
+		long[] bits = new long[PlottedChunksRegion.BITS_LENGTH];
+		buffer.asLongBuffer().get(bits);
+		return new PlottedChunksRegion(bits);
+	}
+
+	private static PlottedChunksRegion parseLegacyPlottedChunksFile(ByteBuffer buffer, ILogger logger) throws IOException
 	{
 		buffer.getInt(); // Version, not used atm.		
 		int regionSize = buffer.getInt();
-		boolean[][] chunksMatrix = new boolean[Constants.REGION_SIZE][Constants.REGION_SIZE];
 		if(regionSize == Constants.REGION_SIZE)
-		{		
+		{
+			PlottedChunksRegion region = new PlottedChunksRegion();
 			for(int x = 0; x < regionSize; x++)
 			{
 				for(int z = 0; z < regionSize; z++)
 				{
-					chunksMatrix[x][z] = buffer.get() != 0;
+					if(buffer.get() != 0)
+					{
+						region.setChunk(x, z);
+					}
 				}
 			}
+			// setChunk marks the region for saving, so it'll be converted to the current format.
+			return region;
 		} else {
 			logger.log(LogLevel.ERROR, LogCategory.MAIN, "PlottedChunks region files were corrupted or exported with an incompatible version of OTG, ignoring.");
 			return PlottedChunksRegion.getFilledRegion();
 		}
-		return new PlottedChunksRegion(chunksMatrix);
 	}
 	
 	// Structure cache
 
 	// TODO: Since we're using regions, use short/byte for (internal) coords?
-	static void saveStructureData(Map<ChunkCoordinate, StructureDataRegion> worldInfoChunks, String presetFolderName, Path worldSaveDir, ILogger logger)
-	{		
+	static void saveStructureData(Map<ChunkCoordinate, StructureDataRegion> worldInfoChunks, StructureDataIndex structureDataIndex, String presetFolderName, Path worldSaveDir, List<StructureDataFile> files, ILogger logger)
+	{
+		int regionsSaved = 0;
+		for (Entry<ChunkCoordinate, StructureDataRegion> cachedRegion : worldInfoChunks.entrySet())
+		{
+			if(cachedRegion.getValue().requiresSave())
+			{
+				regionsSaved++;
+				saveStructureDataRegion(cachedRegion.getKey(), cachedRegion.getValue(), structureDataIndex, presetFolderName, worldSaveDir, files, logger);
+			}
+		}
+		if(logger.getLogCategoryEnabled(LogCategory.STRUCTURE_PLOTTING))
+		{
+			logger.log(LogLevel.INFO, LogCategory.STRUCTURE_PLOTTING, regionsSaved + " structure data regions queued for saving.");
+		}
+	}
+
+	static void saveStructureDataRegion(ChunkCoordinate regionCoord, StructureDataRegion region, StructureDataIndex structureDataIndex, String presetFolderName, Path worldSaveDir, List<StructureDataFile> files, ILogger logger)
+	{
 		// Collect all structure start points (and chunks that have bo3's with spawners/moddata/particles in them)
 		// and group them by BO name (or "NULL" for bo3's with spawners/moddata/particles).
 		// Structure starts are saved per region, if a BO4 structure has chunk data in multiple regions, each region gets 
@@ -371,84 +262,59 @@ public class CustomStructureFileManager
 		// to disk inside their structure start/placeholder, but are only cached/kept in memory in worldInfoChunks.
 		// (BO4CustomStructures only cache data for unspawned structure parts and spawners/moddata/particles, worldInfoChunks 
 		// caches data about fully spawned structure chunks, plottedChunks caches/persists info about plotted chunks etc).
-		int regionsSaved = 0;
-		for (Entry<ChunkCoordinate, StructureDataRegion> cachedRegion : worldInfoChunks.entrySet())
+		region.markSaved();
+		
+		HashMap<String, HashMap<CustomStructure, ArrayList<ChunkCoordinate>>> structuresPerRegion = new HashMap<String, HashMap<CustomStructure, ArrayList<ChunkCoordinate>>>();			
+		for(int internalX = 0; internalX < Constants.REGION_SIZE; internalX++)
 		{
-			if(cachedRegion.getValue().requiresSave())
+			for(int internalZ = 0; internalZ < Constants.REGION_SIZE; internalZ++)
 			{
-				cachedRegion.getValue().markSaved();
-				regionsSaved++;
-				
-				HashMap<String, HashMap<CustomStructure, ArrayList<ChunkCoordinate>>> structuresPerRegion = new HashMap<String, HashMap<CustomStructure, ArrayList<ChunkCoordinate>>>();			
-				for(int internalX = 0; internalX < Constants.REGION_SIZE; internalX++)
+				ChunkCoordinate worldChunkCoord = ChunkCoordinate.fromChunkCoords(
+					(regionCoord.getChunkX() * Constants.REGION_SIZE) + internalX, 
+					(regionCoord.getChunkZ() * Constants.REGION_SIZE) + internalZ
+				);
+				CustomStructure structureInChunk = region.getStructure(internalX, internalZ);
+				if(structureInChunk != null)
 				{
-					for(int internalZ = 0; internalZ < Constants.REGION_SIZE; internalZ++)
+					// BO3's that add spawners/particles/moddata are saved as null structures
+					String startBoName = "NULL"; 
+					if(structureInChunk.start != null)
 					{
-						ChunkCoordinate worldChunkCoord = ChunkCoordinate.fromChunkCoords(
-							(cachedRegion.getKey().getChunkX() * Constants.REGION_SIZE) + internalX, 
-							(cachedRegion.getKey().getChunkZ() * Constants.REGION_SIZE) + internalZ
-						);
-						CustomStructure structureInChunk = cachedRegion.getValue().getStructure(internalX, internalZ);
-						if(structureInChunk != null)
-						{
-							// BO3's that add spawners/particles/moddata are saved as null structures
-							String startBoName = "NULL"; 
-							if(structureInChunk.start != null)
-							{
-								startBoName = structureInChunk.start.bo3Name;
-							}
+						startBoName = structureInChunk.start.bo3Name;
+					}
 
-							HashMap<CustomStructure, ArrayList<ChunkCoordinate>> entryByStructureName = structuresPerRegion.get(startBoName);
-							ArrayList<ChunkCoordinate> structureChunks = new ArrayList<ChunkCoordinate>();
-							if(entryByStructureName == null)
-							{
-								entryByStructureName = new HashMap<CustomStructure, ArrayList<ChunkCoordinate>>();
-								entryByStructureName.put(structureInChunk, structureChunks);
-								structuresPerRegion.put(startBoName, entryByStructureName);
-							} else {
-								structureChunks = entryByStructureName.get(structureInChunk);
-								if(structureChunks == null)
-								{
-									structureChunks = new ArrayList<ChunkCoordinate>();
-									entryByStructureName.put(structureInChunk, structureChunks);
-								}
-							}
-							structureChunks.add(worldChunkCoord);
+					HashMap<CustomStructure, ArrayList<ChunkCoordinate>> entryByStructureName = structuresPerRegion.get(startBoName);
+					ArrayList<ChunkCoordinate> structureChunks = new ArrayList<ChunkCoordinate>();
+					if(entryByStructureName == null)
+					{
+						entryByStructureName = new HashMap<CustomStructure, ArrayList<ChunkCoordinate>>();
+						entryByStructureName.put(structureInChunk, structureChunks);
+						structuresPerRegion.put(startBoName, entryByStructureName);
+					} else {
+						structureChunks = entryByStructureName.get(structureInChunk);
+						if(structureChunks == null)
+						{
+							structureChunks = new ArrayList<ChunkCoordinate>();
+							entryByStructureName.put(structureInChunk, structureChunks);
 						}
 					}
+					structureChunks.add(worldChunkCoord);
 				}
-				saveStructuresRegionFile(worldSaveDir, presetFolderName, cachedRegion.getKey(), structuresPerRegion, logger);
 			}
 		}
-		if(logger.getLogCategoryEnabled(LogCategory.STRUCTURE_PLOTTING))
-		{
-			logger.log(LogLevel.INFO, LogCategory.STRUCTURE_PLOTTING, regionsSaved + " structure data regions saved.");
-		}
+		boolean hasUnspawnedParts = saveStructuresRegionFile(worldSaveDir, presetFolderName, regionCoord, structuresPerRegion, files, logger);
+		structureDataIndex.updateRegion(regionCoord, hasUnspawnedParts);
 	}
 
-	private static void saveStructuresRegionFile(Path worldSaveDir, String presetFolderName, ChunkCoordinate regionCoord, HashMap<String, HashMap<CustomStructure, ArrayList<ChunkCoordinate>>> structuresPerRegion, ILogger logger)
+	// Returns true if the region has unspawned BO4 parts or smoothing areas.
+	private static boolean saveStructuresRegionFile(Path worldSaveDir, String presetFolderName, ChunkCoordinate regionCoord, HashMap<String, HashMap<CustomStructure, ArrayList<ChunkCoordinate>>> structuresPerRegion, List<StructureDataFile> files, ILogger logger)
 	{
-		File structuresRegionFile = new File(
-			worldSaveDir + File.separator + 
-			Constants.MOD_ID + File.separator + 
-			presetFolderName + File.separator +
-			Constants.StructureDataFolderName + File.separator +
-			regionCoord.getChunkX() + "_" +
-			regionCoord.getChunkZ() +
-			Constants.StructureDataFileExtension
-		);
-		File structuresRegionBackupFile = new File(
-			worldSaveDir + File.separator + 
-			Constants.MOD_ID + File.separator + 
-			presetFolderName + File.separator +
-			Constants.StructureDataFolderName + File.separator +
-			regionCoord.getChunkX() + "_" +
-			regionCoord.getChunkZ() +					
-			Constants.StructureDataBackupFileExtension
-		);
+		File structuresRegionFile = getStructureDataFile(worldSaveDir, presetFolderName, regionCoord, false);
+		File structuresRegionBackupFile = getStructureDataFile(worldSaveDir, presetFolderName, regionCoord, true);
 		
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		DataOutputStream dos = new DataOutputStream(bos);
+		boolean hasUnspawnedParts = false;
 		
 		try
 		{
@@ -505,6 +371,7 @@ public class CustomStructureFileManager
 						}
 						
 						dos.writeInt(size);
+						hasUnspawnedParts |= size > 0;
 						for(Entry<ChunkCoordinate, Stack<BO4CustomStructureCoordinate>> objectToSpawn : objectsInRegion.entrySet())
 						{
 							ChunkCoordinate key = objectToSpawn.getKey();
@@ -546,6 +413,7 @@ public class CustomStructureFileManager
 						}
 						
 						dos.writeInt(size);
+						hasUnspawnedParts |= size > 0;
 						for(Entry<ChunkCoordinate, ArrayList<SmoothingAreaLine>> smoothingAreaToSpawn : smoothingAreasPerRegion.entrySet())
 						{
 							ChunkCoordinate key = smoothingAreaToSpawn.getKey();
@@ -581,228 +449,175 @@ public class CustomStructureFileManager
 			}
 		} catch (IOException e1) {
 			e1.printStackTrace();
-			return;
-		}
-			
-		DataOutputStream dos2 = null;
-		FileOutputStream fos = null;
-		try {
-			if(!structuresRegionFile.exists())
-			{
-				structuresRegionFile.getParentFile().mkdirs();
-			} else {
-				Files.move(structuresRegionFile.toPath(), structuresRegionBackupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-			}
-			byte[] compressedBytes = com.pg85.otg.util.CompressionUtils.compress(bos.toByteArray(), logger);
-			dos.close();
-			fos = new FileOutputStream(structuresRegionFile);
-			dos2 = new DataOutputStream(fos);
-			dos2.write(compressedBytes, 0, compressedBytes.length);
-		}
-		catch (IOException e)
-		{
-			logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error writing " + structuresRegionFile.getAbsolutePath() + ", skipping. Exception:");
-			e.printStackTrace();			
-		} finally {
-			try {
-				if(dos != null)
-				{
-					dos.close();
-				}
-			} catch (Exception e) { }
-			try {
-				if(dos2 != null)
-				{
-					dos2.close();
-				}
-			} catch (Exception e) { }
-			try {
-				if(fos != null)
-				{
-					fos.close();
-				}
-			} catch (Exception e) { }
+			return true;
 		}
+		files.add(new StructureDataFile(structuresRegionFile, structuresRegionBackupFile, bos.toByteArray(), true));
+		return hasUnspawnedParts;
 	}
 	
-	// TODO: Load one region file at a time, on-demand, rather than loading all region files at once.
-	// Almost everything should be set up for it, auto-replacing CustomStructurePlaceHolders take care of most things?
-	static HashMap<CustomStructure, ArrayList<ChunkCoordinate>> loadStructureData(String presetFolderName, Path worldSaveDir, long worldSeed, boolean isBO4Enabled, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
+	/**
+	 * Loads the given structure data regions, merging structures that span
+	 * multiple regions, and updates their flags in the index.
+	 */
+	static HashMap<CustomStructure, ArrayList<ChunkCoordinate>> loadStructureData(Collection<ChunkCoordinate> regionCoords, StructureDataIndex structureDataIndex, String presetFolderName, Path worldSaveDir, long worldSeed, boolean isBO4Enabled, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
 	{
 		HashMap<CustomStructure, ArrayList<ChunkCoordinate>> output = new HashMap<CustomStructure, ArrayList<ChunkCoordinate>>();
-		
-		File structureDataFolder = new File(
-			worldSaveDir + File.separator + 
-			Constants.MOD_ID + File.separator + 
-			presetFolderName + File.separator +
-			Constants.StructureDataFolderName + File.separator
-		);
-		
-		HashMap<File, File> saveFiles = new HashMap<File, File>();
-		ArrayList<File> mainFiles = new ArrayList<File>();
-		ArrayList<File> backupFiles = new ArrayList<File>();
-		if(structureDataFolder.exists())
+		for(ChunkCoordinate regionCoord : regionCoords)
 		{
-			for(File file : structureDataFolder.listFiles())
+			HashMap<CustomStructure, ArrayList<ChunkCoordinate>> result = loadStructureDataRegion(regionCoord, presetFolderName, worldSaveDir, worldSeed, isBO4Enabled, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+			if(result != null)
 			{
-				if(
-					file.getPath().endsWith(Constants.StructureDataFileExtension) && 
-					file.getName().replace(Constants.StructureDataFileExtension, "").split("_").length == 2 &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.StructureDataFileExtension, "").split("_")[0]) &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.StructureDataFileExtension, "").split("_")[1])
-				) {
-					mainFiles.add(file);
-				}
-				else if(
-					file.getPath().endsWith(Constants.StructureDataBackupFileExtension) &&
-					file.getName().replace(Constants.BackupFileSuffix, "").split("_").length == 2 &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.BackupFileSuffix, "").split("_")[0]) &&
-					MathHelper.tryParseInt(file.getName().replace(Constants.BackupFileSuffix, "").split("_")[1])
-				)
-				{
-					backupFiles.add(file);
-				}
+				structureDataIndex.updateRegion(regionCoord, hasUnspawnedParts(result));
+				mergeRegionData(result, output);
+			}
+		}
+		return output.size() > 0 ? output : null;
+	}
+
+	/**
+	 * Loads a single structure data region, falling back to its backup file.
+	 * Structures that have their start in another region are loaded as 
+	 * CustomStructurePlaceHolders. Returns null if the region has no file,
+	 * or if neither the file nor the backup could be read.
+	 */
+	static HashMap<CustomStructure, ArrayList<ChunkCoordinate>> loadStructureDataRegion(ChunkCoordinate regionCoord, String presetFolderName, Path worldSaveDir, long worldSeed, boolean isBO4Enabled, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
+	{
+		File structureDataFile = getStructureDataFile(worldSaveDir, presetFolderName, regionCoord, false);
+		File structureDataBackupFile = getStructureDataFile(worldSaveDir, presetFolderName, regionCoord, true);
+		if(!structureDataFile.exists() && !structureDataBackupFile.exists())
+		{
+			return null;
+		}
+
+		HashMap<CustomStructure, ArrayList<ChunkCoordinate>> result = null;
+		if(structureDataFile.exists())
+		{
+			try {
+				result = readStructureDataFile(structureDataFile, regionCoord, presetFolderName, worldSeed, isBO4Enabled, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
 			}
-			for(File file : mainFiles)
+			catch (Exception ex)
 			{
-				boolean bFound = false;
-				for(File backupFile : backupFiles)
-				{
-					if(file.getPath().replace(Constants.StructureDataFileExtension, "").equals(backupFile.getPath().replace(Constants.StructureDataBackupFileExtension, "")))
-					{
-						saveFiles.put(file, backupFile);
-						bFound = true;
-						break;
-					}
-				}
-				if(!bFound)
-				{
-					saveFiles.put(file, null);
-				}
+				ex.printStackTrace();
+				logger.log(LogLevel.WARN, LogCategory.MAIN, "Failed to load " + structureDataFile.getAbsolutePath() + ", trying to load backup.");
 			}
 		}
-				
-		for(Entry<File, File> saveFile : saveFiles.entrySet())
+
+		if(result == null && structureDataBackupFile.exists())
 		{
-			ChunkCoordinate regionCoord = null;
-			boolean bSuccess = false;
-			File structureDataFile = saveFile.getKey();
-			File structureDataBackupFile = saveFile.getValue();
-				
-			if(
-				(structureDataFile == null || !structureDataFile.exists()) &&
-				(structureDataBackupFile == null || !structureDataBackupFile.exists())
-			)
+			try {
+				result = readStructureDataFile(structureDataBackupFile, regionCoord, presetFolderName, worldSeed, isBO4Enabled, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+			}
+			catch (Exception ex)
 			{
-				continue;
+				ex.printStackTrace();
 			}
+		}
 
-			if(structureDataFile != null && structureDataFile.exists())
-			{			
-				FileInputStream fis = null;
-				HashMap<CustomStructure, ArrayList<ChunkCoordinate>> result = null;
-				try {
-					
-					int regionX = Integer.parseInt(structureDataFile.getName().replace(Constants.StructureDataFileExtension, "").split("_")[0]);
-					int regionZ = Integer.parseInt(structureDataFile.getName().replace(Constants.StructureDataFileExtension, "").split("_")[1]);
-					regionCoord = ChunkCoordinate.fromChunkCoords(regionX, regionZ);
-					
-					fis = new FileInputStream(structureDataFile);			
-					ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());				
-					
-					byte[] compressedBytes = new byte[(int) fis.getChannel().size()];
-					buffer.get(compressedBytes);
-					byte[] decompressedBytes = com.pg85.otg.util.CompressionUtils.decompress(compressedBytes);
-					buffer = ByteBuffer.wrap(decompressedBytes);
-										
-					result = parseStructuresFileFromStream(buffer, regionCoord, presetFolderName, worldSeed, isBO4Enabled, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-				}
-				catch (Exception ex)
-				{
-					ex.printStackTrace();
-					logger.log(LogLevel.WARN, LogCategory.MAIN, "Failed to load " + structureDataFile.getAbsolutePath() + ", trying to load backup.");
-				} finally {
-					if(fis != null)
-					{
-						try {
-							fis.getChannel().close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-						try {
-							fis.close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-					}
-				}
-				if(result != null)
-				{
-					bSuccess = true;
-					mergeRegionData(result, output);
-				}
-			}
-			
-			if(!bSuccess && structureDataBackupFile != null && structureDataBackupFile.exists())
+		if(result == null)
+		{
+			logger.log(LogLevel.ERROR, LogCategory.MAIN,
+				"OTG encountered an error loading " + structureDataFile.getAbsolutePath() + " and could not load a backup, ignoring. "
+				+ "This may result in areas with missing BO4's, smoothing areas, /otg structure info and spawners/particles/moddata."
+			);
+		}
+		return result;
+	}
+
+	private static HashMap<CustomStructure, ArrayList<ChunkCoordinate>> readStructureDataFile(File file, ChunkCoordinate regionCoord, String presetFolderName, long worldSeed, boolean isBO4Enabled, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker) throws IOException, DataFormatException
+	{
+		FileInputStream fis = null;
+		try {
+			fis = new FileInputStream(file);
+			ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());
+
+			byte[] compressedBytes = new byte[(int) fis.getChannel().size()];
+			buffer.get(compressedBytes);
+			byte[] decompressedBytes = com.pg85.otg.util.CompressionUtils.decompress(compressedBytes);
+			buffer = ByteBuffer.wrap(decompressedBytes);
+
+			return parseStructuresFileFromStream(buffer, regionCoord, presetFolderName, worldSeed, isBO4Enabled, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+		} finally {
+			if(fis != null)
 			{
-				FileInputStream fis = null;
-				HashMap<CustomStructure, ArrayList<ChunkCoordinate>> result = null;
 				try {
-					int regionX = Integer.parseInt(structureDataBackupFile.getName().replace(Constants.BackupFileSuffix, "").split("_")[0]);
-					int regionZ = Integer.parseInt(structureDataBackupFile.getName().replace(Constants.BackupFileSuffix, "").split("_")[1]);				
-					regionCoord = ChunkCoordinate.fromChunkCoords(regionX, regionZ);					
-					
-					fis = new FileInputStream(structureDataBackupFile);			
-					ByteBuffer buffer = fis.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, fis.getChannel().size());				
-					
-					byte[] compressedBytes = new byte[(int) fis.getChannel().size()];
-					buffer.get(compressedBytes);
-					byte[] decompressedBytes = com.pg85.otg.util.CompressionUtils.decompress(compressedBytes);
-					buffer = ByteBuffer.wrap(decompressedBytes);
-										
-					result = parseStructuresFileFromStream(buffer, regionCoord, presetFolderName, worldSeed, isBO4Enabled, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-				}
-				catch (Exception ex)
-				{
-					ex.printStackTrace();
-				} finally {
-					if(fis != null)
-					{
-						try {
-							fis.getChannel().close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-						try {
-							fis.close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
-					}
+					fis.getChannel().close();
+				} catch (IOException e) {
+					e.printStackTrace();
 				}
-				if(result != null)
-				{
-					bSuccess = true;
-					mergeRegionData(result, output);
+				try {
+					fis.close();
+				} catch (IOException e) {
+					e.printStackTrace();
 				}
 			}
-			if(!bSuccess)
+		}
+	}
+
+	// Region files only contain the unspawned parts and smoothing areas in their own region.
+	private static boolean hasUnspawnedParts(HashMap<CustomStructure, ArrayList<ChunkCoordinate>> regionData)
+	{
+		for(CustomStructure structure : regionData.keySet())
+		{
+			if(
+				structure instanceof BO4CustomStructure &&
+				(
+					((BO4CustomStructure)structure).getObjectsToSpawn().size() > 0 ||
+					((BO4CustomStructure)structure).getSmoothingAreaManager().smoothingAreasToSpawn.size() > 0
+				)
+			)
 			{
-				logger.log(LogLevel.ERROR, LogCategory.MAIN,
-					"OTG encountered an error loading " + structureDataFile.getAbsolutePath() + " and could not load a backup, ignoring. "
-					+ "This may result in areas with missing BO4's, smoothing areas, /otg structure info and spawners/particles/moddata."
-				);
+				return true;
 			}
 		}
-		
-		return output.size() > 0 ? output : null;
+		return false;
 	}
-	
+
+	static File getStructureDataFile(Path worldSaveDir, String presetFolderName, ChunkCoordinate regionCoord, boolean backup)
+	{
+		return new File(
+			worldSaveDir + File.separator + 
+			Constants.MOD_ID + File.separator + 
+			presetFolderName + File.separator +
+			Constants.StructureDataFolderName + File.separator +
+			regionCoord.getChunkX() + "_" +
+			regionCoord.getChunkZ() +
+			(backup ? Constants.StructureDataBackupFileExtension : Constants.StructureDataFileExtension)
+		);
+	}
+
+	/**
+	 * Returns the region coordinate of a structure data region file or 
+	 * backup file, or null if the file isn't a region file.
+	 */
+	static ChunkCoordinate getStructureDataRegionCoord(File file)
+	{
+		String name;
+		if(file.getName().endsWith(Constants.StructureDataBackupFileExtension))
+		{
+			name = file.getName().substring(0, file.getName().length() - Constants.StructureDataBackupFileExtension.length());
+		}
+		else if(file.getName().endsWith(Constants.StructureDataFileExtension))
+		{
+			name = file.getName().substring(0, file.getName().length() - Constants.StructureDataFileExtension.length());
+		} else {
+			return null;
+		}
+		String[] coords = name.split("_");
+		if(
+			coords.length == 2 &&
+			MathHelper.tryParseInt(coords[0]) &&
+			MathHelper.tryParseInt(coords[1])
+		)
+		{
+			return ChunkCoordinate.fromChunkCoords(Integer.parseInt(coords[0]), Integer.parseInt(coords[1]));
+		}
+		return null;
+	}
+
 	private static void mergeRegionData(HashMap<CustomStructure, ArrayList<ChunkCoordinate>> result, HashMap<CustomStructure, ArrayList<ChunkCoordinate>> output)
 	{
 		// When parsing structures per region, merge all placeholder structures 
 		// into their real structure starts as soon as their regions are loaded.
-		// TODO: Load on-demand, not all regions at once.
 		for(Entry<CustomStructure, ArrayList<ChunkCoordinate>> entryResult : result.entrySet())
 		{
 			if(output.containsKey(entryResult.getKey()))
@@ -964,7 +779,7 @@ public class CustomStructureFileManager
 		return structuresFile;
 	}
 
-	public static void saveChunksMapFile(Path worldSaveDir, String presetFolderName, HashMap<String, ArrayList<ChunkCoordinate>> spawnedStructuresByName, HashMap<String, HashMap<ChunkCoordinate, Integer>> spawnedStructuresByGroup, ILogger logger)
+	public static void saveChunksMapFile(Path worldSaveDir, String presetFolderName, HashMap<String, ArrayList<ChunkCoordinate>> spawnedStructuresByName, HashMap<String, HashMap<ChunkCoordinate, Integer>> spawnedStructuresByGroup, List<StructureDataFile> files, ILogger logger)
 	{
 		File occupiedChunksFile = new File(worldSaveDir + File.separator + Constants.MOD_ID + File.separator + presetFolderName + File.separator + Constants.SpawnedStructuresFileName);
 		File occupiedChunksBackupFile = new File(worldSaveDir + File.separator + Constants.MOD_ID + File.separator + presetFolderName + File.separator + Constants.SpawnedStructuresBackupFileName);
@@ -1005,45 +820,8 @@ public class CustomStructureFileManager
 			} catch (IOException e1) {
 				e1.printStackTrace();
 				return;
-			}			
-			
-			DataOutputStream dos2 = null;
-			FileOutputStream fos = null;
-			try
-			{				
-				if(!occupiedChunksFile.exists())
-				{
-					occupiedChunksFile.getParentFile().mkdirs();
-				} else {
-					Files.move(occupiedChunksFile.toPath(), occupiedChunksBackupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-				}
-				byte[] compressedBytes = com.pg85.otg.util.CompressionUtils.compress(bos.toByteArray(), logger);
-				fos = new FileOutputStream(occupiedChunksFile);
-				dos2 = new DataOutputStream(fos);
-				dos2.write(compressedBytes, 0, compressedBytes.length);
-			} catch (IOException e) {
-				logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error writing " + occupiedChunksFile.getAbsolutePath() + ", skipping. Exception: ");
-				e.printStackTrace();				
-			} finally {
-				try {
-					if(dos != null)
-					{
-						dos.close();
-					}
-				} catch (Exception e) { }				
-				try {
-					if(dos2 != null)
-					{
-						dos2.close();
-					}
-				} catch (Exception e) { }
-				try {
-					if(fos != null)
-					{
-						fos.close();
-					}
-				} catch (Exception e) { }
 			}
+			files.add(new StructureDataFile(occupiedChunksFile, occupiedChunksBackupFile, bos.toByteArray(), true));
 		}
 	}
 
@@ -4,14 +4,23 @@ import java.util.Arrays;
 
 import com.pg85.otg.constants.Constants;
 
+/**
+ * Plotted flags for the chunks of a region, one bit per chunk,
+ * stored at [internalX * REGION_SIZE + internalZ].
+ */
 public class PlottedChunksRegion
 {
+	static final int BITS_LENGTH = (Constants.REGION_SIZE * Constants.REGION_SIZE + 63) >>> 6;
+
 	private boolean requiresSave = false;
-	private boolean[][] plottedChunks = new boolean[Constants.REGION_SIZE][Constants.REGION_SIZE];
+	private final long[] plottedChunks;
 
-	public PlottedChunksRegion() { }
+	public PlottedChunksRegion()
+	{
+		this.plottedChunks = new long[BITS_LENGTH];
+	}
 
-	PlottedChunksRegion(boolean[][] plottedChunks)
+	PlottedChunksRegion(long[] plottedChunks)
 	{
 		this.plottedChunks = plottedChunks;
 	}
@@ -28,26 +37,31 @@ public class PlottedChunksRegion
 
 	public boolean getChunk(int internalX, int internalZ)
 	{
-		return this.plottedChunks[internalX][internalZ];
+		int index = internalX * Constants.REGION_SIZE + internalZ;
+		return (this.plottedChunks[index >>> 6] & (1L << index)) != 0;
 	}
 
 	public void setChunk(int internalX, int internalZ)
 	{
-		this.plottedChunks[internalX][internalZ] = true;
+		int index = internalX * Constants.REGION_SIZE + internalZ;
+		this.plottedChunks[index >>> 6] |= 1L << index;
 		this.requiresSave = true;
 	}
 
-	public boolean[][] getArray()
+	long[] getBits()
 	{
 		return this.plottedChunks;
 	}
 
 	static PlottedChunksRegion getFilledRegion()
 	{
-		boolean[][] plottedChunks = new boolean[Constants.REGION_SIZE][Constants.REGION_SIZE];
-		for(int i = 0; i < Constants.REGION_SIZE; i++)
+		long[] plottedChunks = new long[BITS_LENGTH];
+		Arrays.fill(plottedChunks, -1L);
+		// Clear the unused bits in the last long, so saved regions are consistent.
+		int usedBits = (Constants.REGION_SIZE * Constants.REGION_SIZE) & 63;
+		if(usedBits != 0)
 		{
-			Arrays.fill(plottedChunks[i], true);
+			plottedChunks[BITS_LENGTH - 1] = (1L << usedBits) - 1;
 		}
 		return new PlottedChunksRegion(plottedChunks);
 	}
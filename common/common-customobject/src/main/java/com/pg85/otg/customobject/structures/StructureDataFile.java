@@ -0,0 +1,24 @@
+package com.pg85.otg.customobject.structures;
+
+import java.io.File;
+
+/**
+ * A snapshot of a structure data file's contents, taken while decoration
+ * was paused, waiting to be written to disk by the StructureDataSaver.
+ * backupFile is null for files that don't keep a backup.
+ */
+public class StructureDataFile
+{
+	final File file;
+	final File backupFile;
+	final byte[] data;
+	final boolean compress;
+
+	StructureDataFile(File file, File backupFile, byte[] data, boolean compress)
+	{
+		this.file = file;
+		this.backupFile = backupFile;
+		this.data = data;
+		this.compress = compress;
+	}
+}
@@ -0,0 +1,158 @@
+package com.pg85.otg.customobject.structures;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.interfaces.ILogger;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
+
+/**
+ * Lists the structure data region files of a world, so regions can be found
+ * and loaded on demand without parsing all of them. For each region the index
+ * also records whether it has unspawned BO4 parts or smoothing areas, only
+ * those regions have to be loaded at startup for the BO4 plotter.
+ *
+ * The index is only a cache, region files that are missing from it or were
+ * written after it are treated as having unspawned parts.
+ */
+class StructureDataIndex
+{
+	// Layout: magic, version, region count, then per region its x, z and flags.
+	private static final int MAGIC = 0x4F544749; // "OTGI"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 4;
+	private static final int ENTRY_SIZE = 4 + 4 + 1;
+	private static final byte FLAG_UNSPAWNED_PARTS = 1;
+
+	private final Set<ChunkCoordinate> regions = new HashSet<ChunkCoordinate>();
+	private final Set<ChunkCoordinate> regionsWithUnspawnedParts = new HashSet<ChunkCoordinate>();
+	private boolean requiresSave = false;
+
+	boolean containsRegion(ChunkCoordinate regionCoord)
+	{
+		return this.regions.contains(regionCoord);
+	}
+
+	Set<ChunkCoordinate> getRegionsWithUnspawnedParts()
+	{
+		return new HashSet<ChunkCoordinate>(this.regionsWithUnspawnedParts);
+	}
+
+	void updateRegion(ChunkCoordinate regionCoord, boolean hasUnspawnedParts)
+	{
+		boolean changed = this.regions.add(regionCoord);
+		if(hasUnspawnedParts)
+		{
+			changed |= this.regionsWithUnspawnedParts.add(regionCoord);
+		} else {
+			changed |= this.regionsWithUnspawnedParts.remove(regionCoord);
+		}
+		this.requiresSave |= changed;
+	}
+
+	/**
+	 * Adds the index to the given files if it has changed. Add it after the
+	 * region files, so it's written after them.
+	 */
+	void saveIndex(Path worldSaveDir, String presetFolderName, List<StructureDataFile> files)
+	{
+		if(!this.requiresSave)
+		{
+			return;
+		}
+		this.requiresSave = false;
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + this.regions.size() * ENTRY_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(this.regions.size());
+		for(ChunkCoordinate regionCoord : this.regions)
+		{
+			buffer.putInt(regionCoord.getChunkX());
+			buffer.putInt(regionCoord.getChunkZ());
+			buffer.put(this.regionsWithUnspawnedParts.contains(regionCoord) ? FLAG_UNSPAWNED_PARTS : 0);
+		}
+		files.add(new StructureDataFile(getIndexFile(worldSaveDir, presetFolderName), null, buffer.array(), false));
+	}
+
+	static StructureDataIndex loadIndex(Path worldSaveDir, String presetFolderName, ILogger logger)
+	{
+		StructureDataIndex index = new StructureDataIndex();
+
+		File indexFile = getIndexFile(worldSaveDir, presetFolderName);
+		long indexLastModified = 0;
+		if(indexFile.exists())
+		{
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(indexFile.toPath()));
+				if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+				{
+					throw new RuntimeException("Unknown structure data index format.");
+				}
+				int regionCount = buffer.getInt();
+				for(int i = 0; i < regionCount; i++)
+				{
+					ChunkCoordinate regionCoord = ChunkCoordinate.fromChunkCoords(buffer.getInt(), buffer.getInt());
+					index.regions.add(regionCoord);
+					if((buffer.get() & FLAG_UNSPAWNED_PARTS) != 0)
+					{
+						index.regionsWithUnspawnedParts.add(regionCoord);
+					}
+				}
+				indexLastModified = indexFile.lastModified();
+			}
+			catch (Exception ex)
+			{
+				ex.printStackTrace();
+				logger.log(LogLevel.WARN, LogCategory.MAIN, "Failed to load " + indexFile.getAbsolutePath() + ", rebuilding structure data index.");
+				index.regions.clear();
+				index.regionsWithUnspawnedParts.clear();
+			}
+		}
+
+		// Check the index against the region files on disk. Regions that aren't in the
+		// index, or were written after it, may have unspawned parts and have to be loaded.
+		Set<ChunkCoordinate> regionsOnDisk = new HashSet<ChunkCoordinate>();
+		File structureDataFolder = new File(
+			worldSaveDir + File.separator +
+			Constants.MOD_ID + File.separator +
+			presetFolderName + File.separator +
+			Constants.StructureDataFolderName + File.separator
+		);
+		if(structureDataFolder.exists())
+		{
+			for(File file : structureDataFolder.listFiles())
+			{
+				ChunkCoordinate regionCoord = CustomStructureFileManager.getStructureDataRegionCoord(file);
+				if(regionCoord == null)
+				{
+					continue;
+				}
+				regionsOnDisk.add(regionCoord);
+				if(!index.regions.contains(regionCoord) || file.lastModified() > indexLastModified)
+				{
+					index.updateRegion(regionCoord, true);
+				}
+			}
+		}
+		if(index.regions.retainAll(regionsOnDisk))
+		{
+			index.regionsWithUnspawnedParts.retainAll(regionsOnDisk);
+			index.requiresSave = true;
+		}
+		return index;
+	}
+
+	private static File getIndexFile(Path worldSaveDir, String presetFolderName)
+	{
+		return new File(worldSaveDir + File.separator + Constants.MOD_ID + File.separator + presetFolderName + File.separator + Constants.StructureDataIndexFileName);
+	}
+}
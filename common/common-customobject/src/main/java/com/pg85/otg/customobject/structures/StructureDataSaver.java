@@ -0,0 +1,264 @@
+package com.pg85.otg.customobject.structures;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pg85.otg.interfaces.ILogger;
+import com.pg85.otg.util.CompressionUtils;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
+
+/**
+ * Writes structure data files on a background thread, so saving only blocks
+ * decoration while the dirty regions are being snapshotted. Each file is
+ * written to a temp file and moved into place, the previous file is kept
+ * as a backup.
+ *
+ * Shared by all worlds, batches are written in the order they were queued.
+ * The thread isn't a daemon, so queued files are still written when the
+ * server shuts down.
+ */
+public class StructureDataSaver
+{
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final long IDLE_TIMEOUT_SECONDS = 5;
+
+	private static final ThreadPoolExecutor executor;
+	static
+	{
+		executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "OTG Structure Data Saver");
+				thread.setDaemon(false);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	// The latch of the last queued batch that writes each file, so readers can
+	// wait for a single file instead of the whole queue. Batches are written
+	// in order, so once the last batch is done, earlier ones are done too.
+	private static final ConcurrentHashMap<File, CountDownLatch> pendingWrites = new ConcurrentHashMap<File, CountDownLatch>();
+
+	// Metrics
+	private static final AtomicInteger queueDepth = new AtomicInteger();
+	private static final AtomicLong filesWritten = new AtomicLong();
+	private static final AtomicLong bytesWritten = new AtomicLong();
+	private static final AtomicLong batchesWritten = new AtomicLong();
+	private static final AtomicLong totalFlushLatencyMillis = new AtomicLong();
+	private static volatile long lastFlushLatencyMillis;
+
+	/**
+	 * Queues the given files for writing, returns immediately.
+	 */
+	static void save(final List<StructureDataFile> files, final ILogger logger)
+	{
+		if(files.isEmpty())
+		{
+			return;
+		}
+		final long queuedTime = System.currentTimeMillis();
+		final CountDownLatch written = new CountDownLatch(1);
+		for(StructureDataFile file : files)
+		{
+			pendingWrites.put(file.file, written);
+		}
+		queueDepth.incrementAndGet();
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				long bytes = 0;
+				long latency;
+				try {
+					for(StructureDataFile file : files)
+					{
+						bytes += writeFile(file, logger);
+					}
+				} finally {
+					for(StructureDataFile file : files)
+					{
+						pendingWrites.remove(file.file, written);
+					}
+					written.countDown();
+					queueDepth.decrementAndGet();
+					latency = System.currentTimeMillis() - queuedTime;
+					lastFlushLatencyMillis = latency;
+					totalFlushLatencyMillis.addAndGet(latency);
+					batchesWritten.incrementAndGet();
+					filesWritten.addAndGet(files.size());
+					bytesWritten.addAndGet(bytes);
+				}
+				if(logger.getLogCategoryEnabled(LogCategory.STRUCTURE_PLOTTING))
+				{
+					logger.log(LogLevel.INFO, LogCategory.STRUCTURE_PLOTTING, "Structure data saved: " + files.size() + " files, " + (bytes / 1024) + " KB in " + latency + " ms. Queued saves: " + queueDepth.get() + ", total written: " + (bytesWritten.get() / 1024) + " KB, average latency: " + getAverageFlushLatencyMillis() + " ms.");
+				}
+			}
+		});
+	}
+
+	/**
+	 * Blocks until all files queued before this call have been written.
+	 * Call this before reading structure data files that may still be
+	 * queued, for instance when a world is reloaded.
+	 */
+	static void flush(ILogger logger)
+	{
+		if(queueDepth.get() == 0)
+		{
+			return;
+		}
+		Future<?> marker = executor.submit(new Runnable()
+		{
+			@Override
+			public void run() { }
+		});
+		boolean interrupted = false;
+		while(true)
+		{
+			try {
+				marker.get();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+			catch (ExecutionException e)
+			{
+				logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error waiting for structure data to be saved.");
+				e.printStackTrace();
+				break;
+			}
+		}
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns true if the given file is queued for writing.
+	 */
+	static boolean isWritePending(File file)
+	{
+		return pendingWrites.containsKey(file);
+	}
+
+	/**
+	 * Blocks until the given file has been written, if it was queued.
+	 */
+	static void waitForPendingWrite(File file)
+	{
+		CountDownLatch written = pendingWrites.get(file);
+		if(written == null)
+		{
+			return;
+		}
+		boolean interrupted = false;
+		while(true)
+		{
+			try {
+				written.await();
+				break;
+			}
+			catch (InterruptedException e)
+			{
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static int getQueueDepth()
+	{
+		return queueDepth.get();
+	}
+
+	public static long getFilesWritten()
+	{
+		return filesWritten.get();
+	}
+
+	public static long getBytesWritten()
+	{
+		return bytesWritten.get();
+	}
+
+	public static long getLastFlushLatencyMillis()
+	{
+		return lastFlushLatencyMillis;
+	}
+
+	public static long getAverageFlushLatencyMillis()
+	{
+		long batches = batchesWritten.get();
+		return batches == 0 ? 0 : totalFlushLatencyMillis.get() / batches;
+	}
+
+	// Returns the number of bytes written.
+	private static long writeFile(StructureDataFile file, ILogger logger)
+	{
+		File tempFile = new File(file.file.getPath() + TEMP_FILE_SUFFIX);
+		FileOutputStream fos = null;
+		try {
+			byte[] data = file.compress ? CompressionUtils.compress(file.data, logger) : file.data;
+			file.file.getParentFile().mkdirs();
+			fos = new FileOutputStream(tempFile);
+			fos.write(data);
+			fos.close();
+			fos = null;
+
+			// Keep the previous file as a backup, the new file only replaces
+			// it once it's been written completely.
+			if(file.backupFile != null && file.file.exists())
+			{
+				Files.copy(file.file.toPath(), file.backupFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			try {
+				Files.move(tempFile.toPath(), file.file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tempFile.toPath(), file.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return data.length;
+		}
+		catch (IOException e)
+		{
+			logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error writing " + file.file.getAbsolutePath() + ", skipping. Exception:");
+			e.printStackTrace();
+			return 0;
+		} finally {
+			try {
+				if(fos != null)
+				{
+					fos.close();
+				}
+			} catch (Exception e) { }
+		}
+	}
+}
@@ -2250,12 +2250,12 @@ public class BO4CustomStructure extends CustomStructure
 						coordObject.x, 
 						coordObject.y, 
 						coordObject.z, 
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceAbove : objectConfig.replaceAbove, 
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceBelow : objectConfig.replaceBelow, 
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceAboveMaterial() : objectConfig.getReplaceAboveMaterial(), 
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceBelowMaterial() : objectConfig.getReplaceBelowMaterial(), 
 						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithBiomeBlocks : objectConfig.replaceWithBiomeBlocks,								
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithSurfaceBlock : objectConfig.replaceWithSurfaceBlock, 
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithGroundBlock : objectConfig.replaceWithGroundBlock,
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithStoneBlock : objectConfig.replaceWithStoneBlock,
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceWithSurfaceBlockMaterial() : objectConfig.getReplaceWithSurfaceBlockMaterial(), 
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceWithGroundBlockMaterial() : objectConfig.getReplaceWithGroundBlockMaterial(),
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceWithStoneBlockMaterial() : objectConfig.getReplaceWithStoneBlockMaterial(),
 						config.spawnUnderWater,  
 						!config.spawnUnderWater ? -1 : biomeConfig.getWaterLevelMax(), 
 						false, 
@@ -2306,12 +2306,12 @@ public class BO4CustomStructure extends CustomStructure
 						coordObject.x, 
 						coordObject.y, 
 						coordObject.z,		 				
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceAbove : objectConfig.replaceAbove, 
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceBelow : objectConfig.replaceBelow, 
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceAboveMaterial() : objectConfig.getReplaceAboveMaterial(), 
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceBelowMaterial() : objectConfig.getReplaceBelowMaterial(), 
 						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithBiomeBlocks : objectConfig.replaceWithBiomeBlocks, 
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithSurfaceBlock : objectConfig.replaceWithSurfaceBlock, 
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithGroundBlock : objectConfig.replaceWithGroundBlock,
-						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.replaceWithStoneBlock : objectConfig.replaceWithStoneBlock,
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceWithSurfaceBlockMaterial() : objectConfig.getReplaceWithSurfaceBlockMaterial(), 
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceWithGroundBlockMaterial() : objectConfig.getReplaceWithGroundBlockMaterial(),
+						config.overrideChildSettings && objectConfig.overrideChildSettings ? config.getReplaceWithStoneBlockMaterial() : objectConfig.getReplaceWithStoneBlockMaterial(),
 						config.spawnUnderWater,  
 						!config.spawnUnderWater ? -1 : biomeConfig.getWaterLevelMax(), 
 						false, 
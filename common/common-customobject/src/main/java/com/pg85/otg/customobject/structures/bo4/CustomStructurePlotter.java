@@ -2,11 +2,17 @@ package com.pg85.otg.customobject.structures.bo4;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.pg85.otg.constants.Constants;
 import com.pg85.otg.customobject.CustomObjectManager;
@@ -16,6 +22,7 @@ import com.pg85.otg.customobject.structures.CustomStructure;
 import com.pg85.otg.customobject.structures.CustomStructureCache;
 import com.pg85.otg.customobject.structures.CustomStructureFileManager;
 import com.pg85.otg.customobject.structures.PlottedChunksRegion;
+import com.pg85.otg.customobject.structures.StructureDataFile;
 import com.pg85.otg.customobject.structures.bo4.BO4CustomStructure;
 import com.pg85.otg.exceptions.InvalidConfigException;
 import com.pg85.otg.interfaces.IBiomeConfig;
@@ -35,44 +42,158 @@ import com.pg85.otg.util.logging.LogLevel;
 public class CustomStructurePlotter
 {
 	// Structurecache holds plotted structures/branches/smoothing areas in undecorated chunks.
-	private final Map<ChunkCoordinate, BO4CustomStructure[][]> bo4StructureCache; // Per region
+	private final Map<ChunkCoordinate, BO4CustomStructure[][]> bo4StructureCache; // Per region, concurrent
 	
 	// plottedChunks holds a chunkcoord for every chunk outside the 
 	// pregenerated region that has had its decorate method called.
 	// We unfortunately need this because MC can't tell use whether a chunk
 	// has been decorated, only whether is has had terraingen done, or if it
 	// is completely done being decorated and lit (its neighbours have all spawned).
-	private final Map<ChunkCoordinate, PlottedChunksRegion> plottedChunks; // Per region
+	// Regions are loaded from disk on demand.
+	private final Map<ChunkCoordinate, PlottedChunksRegion> plottedChunks; // Per region, concurrent
+	private final Path worldSaveDir;
+	private final String presetFolderName;
+	private final ILogger logger;
 
 	// Used to find distance between structures and structure groups, only stores 1 chunk per structure in the 
 	// calculated center of the structure. Does not clean itself when used with the pre-generator and will become 
 	// slower as it fills up, use as little as possible! (can't clean itself because max radius for BO4 groups cannot be known)	
 	private final HashMap<String, ArrayList<ChunkCoordinate>> spawnedStructuresByName;  // structure name -> start chunk coords. Saved to disk.
 	private final HashMap<String, HashMap<ChunkCoordinate, Integer>> spawnedStructuresByGroup; // group name -> Map<ChunkCoord, Radius>. Saved to disk.	
+	// Structures that are being plotted, checked for frequency like spawned structures so structures 
+	// plotted concurrently can't end up too close to each other. Guarded by spawnedStructuresByName.
+	private final ArrayList<PendingStructure> pendingStructures;
 
-	// Locking objects to ensure plotting code can
-	// never run multiple times asynchronously, or recursively.
-	private final Object processingLock = new Object();
-	private boolean processing = false;
-	//
-	
-	private boolean structurePlottedAtSpawn; // Used to make sure the structureatspawn is plotted first.
+	// Plotting is partitioned into areas the size of a region. Plotting or spawning a chunk locks
+	// the area containing it and the 8 areas around it, so chunks less than a region apart are never
+	// plotted/spawned concurrently, while chunks further apart can be. This assumes BO4 structures
+	// are less than a region (1600 blocks) across (see checkStructureSize), frequency is checked separately
+	// (see pendingStructures).
+	// Locks are striped and always taken in stripe order, so they can't deadlock.
+	private static final int AREA_LOCK_STRIPES = 64;
+	private final ReentrantLock[] areaLocks;
+	// Names of BO4s that were warned about being larger than an area.
+	private final Set<String> oversizedStructures = ConcurrentHashMap.newKeySet();
+
+	// Used to make sure the structureatspawn is plotted first, other threads wait until it's done.
+	private final AtomicBoolean structurePlottedAtSpawn = new AtomicBoolean();
+	private final CountDownLatch structureAtSpawnDone = new CountDownLatch(1);
 	
-	// Non-persistent caches (optimisations)
-	private final FifoMap<ChunkCoordinate, ArrayList<String>> structureNamesPerChunk;
-	private final FifoMap<ChunkCoordinate, Object> plottedChunksFastCache; // TODO: Technically we don't need a map, we need a FIFO list with unique entries.
+	// Non-persistent caches (optimisations), synchronized
+	private final Map<ChunkCoordinate, ArrayList<String>> structureNamesPerChunk;
+	private final Map<ChunkCoordinate, Object> plottedChunksFastCache; // TODO: Technically we don't need a map, we need a FIFO list with unique entries.
 	
-	public CustomStructurePlotter()
+	public CustomStructurePlotter(Path worldSaveDir, String presetFolderName, ILogger logger)
 	{
+		this.worldSaveDir = worldSaveDir;
+		this.presetFolderName = presetFolderName;
+		this.logger = logger;
+
 		// Non-persistent caches
-		this.structureNamesPerChunk = new FifoMap<ChunkCoordinate, ArrayList<String>>(2048);
-		this.plottedChunksFastCache = new FifoMap<ChunkCoordinate, Object>(2048);
+		this.structureNamesPerChunk = Collections.synchronizedMap(new FifoMap<ChunkCoordinate, ArrayList<String>>(2048));
+		this.plottedChunksFastCache = Collections.synchronizedMap(new FifoMap<ChunkCoordinate, Object>(2048));
 		
 		// Persistent caches
 		this.spawnedStructuresByName = new HashMap<String, ArrayList<ChunkCoordinate>>();
 		this.spawnedStructuresByGroup = new HashMap<String, HashMap<ChunkCoordinate, Integer>>();
-		this.bo4StructureCache = new HashMap<ChunkCoordinate, BO4CustomStructure[][]>();
-		this.plottedChunks = new HashMap<ChunkCoordinate, PlottedChunksRegion>(); 
+		this.pendingStructures = new ArrayList<PendingStructure>();
+		this.bo4StructureCache = new ConcurrentHashMap<ChunkCoordinate, BO4CustomStructure[][]>();
+		this.plottedChunks = new ConcurrentHashMap<ChunkCoordinate, PlottedChunksRegion>();
+
+		this.areaLocks = new ReentrantLock[AREA_LOCK_STRIPES];
+		for(int i = 0; i < AREA_LOCK_STRIPES; i++)
+		{
+			this.areaLocks[i] = new ReentrantLock();
+		}
+	}
+
+	// Area locks
+
+	private int[] getAreaLockStripes(ChunkCoordinate chunkCoord)
+	{
+		ChunkCoordinate regionCoord = chunkCoord.toRegionCoord();
+		boolean[] stripes = new boolean[AREA_LOCK_STRIPES];
+		int stripeCount = 0;
+		for(int areaX = regionCoord.getChunkX() - 1; areaX <= regionCoord.getChunkX() + 1; areaX++)
+		{
+			for(int areaZ = regionCoord.getChunkZ() - 1; areaZ <= regionCoord.getChunkZ() + 1; areaZ++)
+			{
+				int stripe = Math.floorMod(areaX * 31 + areaZ * 17, AREA_LOCK_STRIPES);
+				if(!stripes[stripe])
+				{
+					stripes[stripe] = true;
+					stripeCount++;
+				}
+			}
+		}
+		int[] result = new int[stripeCount];
+		int i = 0;
+		for(int stripe = 0; stripe < AREA_LOCK_STRIPES; stripe++)
+		{
+			if(stripes[stripe])
+			{
+				result[i++] = stripe;
+			}
+		}
+		return result;
+	}
+
+	private void lockArea(int[] stripes)
+	{
+		for(int stripe : stripes)
+		{
+			this.areaLocks[stripe].lock();
+		}
+	}
+
+	private boolean tryLockArea(int[] stripes)
+	{
+		for(int i = 0; i < stripes.length; i++)
+		{
+			if(!this.areaLocks[stripes[i]].tryLock())
+			{
+				for(int j = i - 1; j >= 0; j--)
+				{
+					this.areaLocks[stripes[j]].unlock();
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void unlockArea(int[] stripes)
+	{
+		for(int i = stripes.length - 1; i >= 0; i--)
+		{
+			this.areaLocks[stripes[i]].unlock();
+		}
+	}
+
+	// Warns once per BO4 if a plotted structure is larger than the areas the locks are based on,
+	// its chunks may then be spawned concurrently with chunks of structures plotted near it.
+	private void checkStructureSize(BO4CustomStructure structure, BO4 bo4, ILogger logger)
+	{
+		int minX = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int minZ = Integer.MAX_VALUE;
+		int maxZ = Integer.MIN_VALUE;
+		List<ChunkCoordinate> chunkCoords = new ArrayList<ChunkCoordinate>(structure.getObjectsToSpawn().keySet());
+		chunkCoords.addAll(structure.getSmoothingAreaManager().smoothingAreasToSpawn.keySet());
+		for(ChunkCoordinate chunkCoord : chunkCoords)
+		{
+			minX = Math.min(minX, chunkCoord.getChunkX());
+			maxX = Math.max(maxX, chunkCoord.getChunkX());
+			minZ = Math.min(minZ, chunkCoord.getChunkZ());
+			maxZ = Math.max(maxZ, chunkCoord.getChunkZ());
+		}
+		if(
+			(maxX - minX >= Constants.REGION_SIZE || maxZ - minZ >= Constants.REGION_SIZE) &&
+			this.oversizedStructures.add(bo4.getName())
+		)
+		{
+			logger.log(LogLevel.WARN, LogCategory.STRUCTURE_PLOTTING, "BO4 structure " + bo4.getName() + " is " + ((maxX - minX + 1) * 16) + "x" + ((maxZ - minZ + 1) * 16) + " blocks, structures larger than " + (Constants.REGION_SIZE * 16) + " blocks across may not spawn correctly when chunks are decorated in parallel.");
+		}
 	}
 
 	// Structure cache
@@ -88,12 +209,7 @@ public class CustomStructurePlotter
 	{
 		ChunkCoordinate regionCoord = chunkCoordinate.toRegionCoord();
 		
-		BO4CustomStructure[][] chunkRegion = this.bo4StructureCache.get(regionCoord);
-		if(chunkRegion == null)
-		{
-			chunkRegion = new BO4CustomStructure[Constants.REGION_SIZE][Constants.REGION_SIZE];
-			this.bo4StructureCache.put(regionCoord, chunkRegion);
-		}
+		BO4CustomStructure[][] chunkRegion = this.bo4StructureCache.computeIfAbsent(regionCoord, (key) -> new BO4CustomStructure[Constants.REGION_SIZE][Constants.REGION_SIZE]);
 		chunkRegion[chunkCoordinate.getRegionInternalX()][chunkCoordinate.getRegionInternalZ()] = structure;
 	}
 	
@@ -121,25 +237,32 @@ public class CustomStructurePlotter
 		return null;
 	}
 
+	// Returns the structure with unspawned parts or smoothing areas in the given chunk, if any.
+	public BO4CustomStructure getUnspawnedStructure(ChunkCoordinate chunkCoordinate)
+	{
+		return getFromStructureCache(chunkCoordinate);
+	}
+
 	// Populated chunks cache
 	
+	private PlottedChunksRegion getPlottedChunksRegion(ChunkCoordinate regionCoord)
+	{
+		// Only one thread loads a region, so no thread can add chunks to a copy that's then replaced.
+		return this.plottedChunks.computeIfAbsent(regionCoord, (key) ->
+		{
+			PlottedChunksRegion chunkRegion = CustomStructureFileManager.loadPlottedChunksRegion(this.worldSaveDir, this.presetFolderName, key, this.logger);
+			return chunkRegion != null ? chunkRegion : new PlottedChunksRegion();
+		});
+	}
+
 	private boolean plottedChunksContainsKey(ChunkCoordinate chunkCoordinate)
 	{
-		ChunkCoordinate regionCoord = chunkCoordinate.toRegionCoord();
-		PlottedChunksRegion chunkRegion = plottedChunks.get(regionCoord);
-		return chunkRegion != null && chunkRegion.getChunk(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ());
+		return getPlottedChunksRegion(chunkCoordinate.toRegionCoord()).getChunk(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ());
 	}
 	
 	private void addToPlottedChunks(ChunkCoordinate chunkCoordinate)
 	{
-		ChunkCoordinate regionCoord = chunkCoordinate.toRegionCoord();				
-		PlottedChunksRegion chunkRegion = this.plottedChunks.get(regionCoord);
-		if(chunkRegion == null)
-		{
-			chunkRegion = new PlottedChunksRegion();
-			this.plottedChunks.put(regionCoord, chunkRegion);
-		}
-		chunkRegion.setChunk(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ());
+		getPlottedChunksRegion(chunkCoordinate.toRegionCoord()).setChunk(chunkCoordinate.getRegionInternalX(), chunkCoordinate.getRegionInternalZ());
 	}	
 	
 	// Used while calculating branches
@@ -174,6 +297,17 @@ public class CustomStructurePlotter
 
 	// Only used by ChunkDecorator
 	public void spawnBO4Chunk(ChunkCoordinate chunkCoordinate, CustomStructureCache structureCache, IWorldGenRegion worldGenRegion, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
+	{
+		int[] lockStripes = getAreaLockStripes(chunkCoordinate);
+		lockArea(lockStripes);
+		try {
+			spawnBO4ChunkInArea(chunkCoordinate, structureCache, worldGenRegion, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+		} finally {
+			unlockArea(lockStripes);
+		}
+	}
+
+	private void spawnBO4ChunkInArea(ChunkCoordinate chunkCoordinate, CustomStructureCache structureCache, IWorldGenRegion worldGenRegion, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker)
 	{
 		BO4CustomStructure structureStart = getFromStructureCache(chunkCoordinate);
 		if (structureStart != null && structureStart.start != null)
@@ -220,45 +354,65 @@ public class CustomStructurePlotter
 	
 	private ChunkCoordinate plotStructures(BO4 targetStructure, ArrayList<String> targetBiomes, CustomStructureCache structureCache, IWorldGenRegion worldGenRegion, Random rand, ChunkCoordinate chunkCoord, boolean spawningStructureAtSpawn, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker, boolean force)
 	{
-		// Make sure the BO4 at spawn is plotted before anything else
-		// This isn't thread-safe so there's a race condition, shouldn't 
-		// cause problems though due to the lock later on.
-		if(!this.structurePlottedAtSpawn) 
+		// Make sure the BO4 at spawn is plotted before anything else, as when plotting
+		// was single-threaded. One thread plots it, other threads wait until it's done.
+		// Callers never hold area locks here, so waiting can't deadlock.
+		if(!spawningStructureAtSpawn)
 		{
-			this.structurePlottedAtSpawn = true;
-			plotStructures(targetStructure, targetBiomes, structureCache, worldGenRegion, rand, worldGenRegion.getSpawnChunk(), true, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker, force);
+			if(this.structurePlottedAtSpawn.compareAndSet(false, true)) 
+			{
+				try {
+					plotStructures(targetStructure, targetBiomes, structureCache, worldGenRegion, rand, worldGenRegion.getSpawnChunk(), true, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker, force);
+				} finally {
+					this.structureAtSpawnDone.countDown();
+				}
+			} else {
+				awaitStructureAtSpawn();
+			}
 		}
 		
 		// This method can be called by /otg spawn and during chunkgeneration.
-		// When called during chunkgeneration, the chunk must be filled or invalidated before returning, so never cancel.
-		// When called by /otg spawn, skip this attempt to spawn and let chunk generation complete first.
-		// This method should never be called recursively.
-		// TODO: Make sure this never gets stuck, or abort and log a warning.
-		// TODO: Can this thread be paused without issues, for how long?
-		while(true)
+		// When called during chunkgeneration, the chunk must be filled or invalidated before returning, so wait for the lock.
+		// When called by /otg spawn, skip this attempt to spawn if the area is locked and let chunk generation complete first.
+		int[] lockStripes = getAreaLockStripes(chunkCoord);
+		if(targetStructure != null)
 		{
-			synchronized(this.processingLock)
+			if(!tryLockArea(lockStripes))
 			{
-				if(!this.processing)
-				{				
-					this.processing = true;
-					break;
-				}				
-				else if(targetStructure != null)
-				{
-					return null;
-				}
-			}  		
+				return null;
+			}
+		} else {
+			lockArea(lockStripes);
+		}
+		try {
+			return plotStructuresInArea(targetStructure, targetBiomes, structureCache, worldGenRegion, rand, chunkCoord, spawningStructureAtSpawn, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker, force);
+		} finally {
+			unlockArea(lockStripes);
+		}
+	}
+
+	private void awaitStructureAtSpawn()
+	{
+		boolean interrupted = false;
+		while(true)
+		{
 			try {
-				Thread.sleep(20);
+				this.structureAtSpawnDone.await();
+				break;
 			}
 			catch (InterruptedException e)
 			{
-				e.printStackTrace();
-				throw new RuntimeException("This shouldn't happen, please ask for help on the OTG Discord or file an issue on the OTG github.");
+				interrupted = true;
 			}
 		}
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
 
+	private ChunkCoordinate plotStructuresInArea(BO4 targetStructure, ArrayList<String> targetBiomes, CustomStructureCache structureCache, IWorldGenRegion worldGenRegion, Random rand, ChunkCoordinate chunkCoord, boolean spawningStructureAtSpawn, Path otgRootFolder, ILogger logger, CustomObjectManager customObjectManager, IMaterialReader materialReader, CustomObjectResourcesManager manager, IModLoadedChecker modLoadedChecker, boolean force)
+	{
 		long startTime = System.currentTimeMillis();
 		if (!isBo4ChunkPlotted(chunkCoord))
 		{
@@ -349,7 +503,12 @@ public class CustomStructurePlotter
 							{
 								// TODO: avoid calling IsBO4AllowedToSpawnAt so much, cache and reuse any nearest group members found
 
-								if(isBO4AllowedToSpawnAtByFrequency(chunkCoord, ((BO4)bo4AndRarity.getKey())))
+								boolean allowedByFrequency;
+								synchronized(this.spawnedStructuresByName)
+								{
+									allowedByFrequency = isBO4AllowedToSpawnAtByFrequency(chunkCoord, ((BO4)bo4AndRarity.getKey()));
+								}
+								if(allowedByFrequency)
 								{
 									structuresToSpawn1.add(bo4AndRarity.getKey().getName());
 									structureCoord = new BO4CustomStructureCoordinate(worldGenRegion.getPresetFolderName(), bo4AndRarity.getKey(), null, Rotation.NORTH, chunkCoord.getBlockX(), (short)0, chunkCoord.getBlockZ(), 0, false, false, null);
@@ -362,7 +521,7 @@ public class CustomStructurePlotter
 										int i = 0;
 										for(Object[] entry : bo4sBySize)
 										{
-											if(((BO4)bo4AndRarity.getKey()).getConfig().timesSpawned < ((BO4)entry[0]).getConfig().timesSpawned || (BO3size > (Double)entry[2] && ((BO4)bo4AndRarity.getKey()).getConfig().timesSpawned == ((BO4)entry[0]).getConfig().timesSpawned))
+											if(((BO4)bo4AndRarity.getKey()).getConfig().timesSpawned.get() < ((BO4)entry[0]).getConfig().timesSpawned.get() || (BO3size > (Double)entry[2] && ((BO4)bo4AndRarity.getKey()).getConfig().timesSpawned.get() == ((BO4)entry[0]).getConfig().timesSpawned.get()))
 											{
 												insertAtIndex = i;
 												break;
@@ -922,90 +1081,55 @@ public class CustomStructurePlotter
 										int spawnCoordZ = structureBBInsideAreaZ + (rotation == Rotation.NORTH ? structureTop : rotation == Rotation.EAST ? structureLeft : rotation == Rotation.SOUTH ? structureBottom : structureRight);
 										ChunkCoordinate spawnChunk = ChunkCoordinate.fromChunkCoords(spawnCoordX, spawnCoordZ);
 
-										if(isBO4AllowedToSpawnAtByFrequency(spawnChunk, (BO4)currentStructureSpawning[0]))
-										{
-											structureCoord = new BO4CustomStructureCoordinate(worldGenRegion.getPresetFolderName(), ((BO4)currentStructureSpawning[0]), null, rotation, spawnCoordX * 16, (short)0, spawnCoordZ * 16, 0, false, false, null);
-											structureStart2 = new BO4CustomStructure(structureCache, worldGenRegion, structureCoord, spawningStructureAtSpawn, force, targetBiomes, chunkCoord, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
-
-											if(structureStart2.isSpawned())
-											{
-												structureCache.addBo4ToStructureCache(spawnChunk, structureStart2);
-
-												BO4 structureCoordConfig = ((BO4)structureCoord.getObject(otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker));
-												
-												structureCoordConfig.getConfig().timesSpawned += 1;
-												if(logger.getLogCategoryEnabled(LogCategory.STRUCTURE_PLOTTING))
-												{
-													logger.log(LogLevel.INFO, LogCategory.STRUCTURE_PLOTTING, "Plotted structure " + structureCoordConfig.getName() + " at chunk " + spawnCoordX + " " + spawnCoordZ + " ("+ (spawnCoordX * 16) + " 100 " + (spawnCoordZ * 16) + ")");// + " biome " + biome3.getName());
-												}
+										int structureCenterX = structureBBInsideAreaX + (int)Math.floor(((rotation == Rotation.NORTH || rotation == Rotation.SOUTH ? structureLeft + structureRight + 1 : structureBottom + structureTop + 1) / 2d));
+										int structureCenterZ = structureBBInsideAreaZ + (int)Math.floor(((rotation == Rotation.NORTH || rotation == Rotation.SOUTH ? structureTop + structureBottom + 1 : structureLeft + structureRight + 1) / 2d));
+										ChunkCoordinate bo4CenterSpawnCoord = ChunkCoordinate.fromChunkCoords(structureCenterX, structureCenterZ);
 
-												if(((BO4)currentStructureSpawning[0]).getConfig().frequency > 0 || ((BO4)currentStructureSpawning[0]).getConfig().bo4Groups.size() > 0)
+										// Check frequency and mark the structure as being plotted in one go, so
+										// structures plotted on other threads respect its frequency.
+										PendingStructure pendingStructure = beginPlottingStructure(spawnChunk, bo4CenterSpawnCoord, (BO4)currentStructureSpawning[0]);
+										if(pendingStructure != null)
+										{
+											try {
+												structureCoord = new BO4CustomStructureCoordinate(worldGenRegion.getPresetFolderName(), ((BO4)currentStructureSpawning[0]), null, rotation, spawnCoordX * 16, (short)0, spawnCoordZ * 16, 0, false, false, null);
+												structureStart2 = new BO4CustomStructure(structureCache, worldGenRegion, structureCoord, spawningStructureAtSpawn, force, targetBiomes, chunkCoord, otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker);
+										
+												if(structureStart2.isSpawned())
 												{
-													String bO3Name = ((BO4)currentStructureSpawning[0]).getName();
-													ChunkCoordinate bo4SpawnCoord = ChunkCoordinate.fromChunkCoords(spawnCoordX, spawnCoordZ);
-
-													ArrayList<ChunkCoordinate> chunkCoords = this.spawnedStructuresByName.get(bO3Name);
-													if(chunkCoords == null)
+													structureCache.addBo4ToStructureCache(spawnChunk, structureStart2);
+										
+													BO4 structureCoordConfig = ((BO4)structureCoord.getObject(otgRootFolder, logger, customObjectManager, materialReader, manager, modLoadedChecker));
+													
+													structureCoordConfig.getConfig().timesSpawned.incrementAndGet();
+													checkStructureSize(structureStart2, structureCoordConfig, logger);
+													if(logger.getLogCategoryEnabled(LogCategory.STRUCTURE_PLOTTING))
 													{
-														chunkCoords = new ArrayList<ChunkCoordinate>();
-														this.spawnedStructuresByName.put(bO3Name, chunkCoords);
+														logger.log(LogLevel.INFO, LogCategory.STRUCTURE_PLOTTING, "Plotted structure " + structureCoordConfig.getName() + " at chunk " + spawnCoordX + " " + spawnCoordZ + " ("+ (spawnCoordX * 16) + " 100 " + (spawnCoordZ * 16) + ")");// + " biome " + biome3.getName());
 													}
-													chunkCoords.add(bo4SpawnCoord);
-
-													if(((BO4)currentStructureSpawning[0]).getConfig().bo4Groups.size() > 0)
+										
+													addSpawnedStructure(spawnChunk, bo4CenterSpawnCoord, (BO4)currentStructureSpawning[0]);
+										
+													// Even though we made sure the structure's bounding box contained the current chunk,
+													// the structure may not have spawned a branch on the current chunk. If so, try to 
+													// spawn more structures.
+													// If we're plotting a target structure via /otg spawn, then the chunk isn't being decorated
+													// so it's okay if the structure didn't get plotted on this chunk.
+													
+													if(logger.getLogCategoryEnabled(LogCategory.PERFORMANCE) && (System.currentTimeMillis() - startTime) > 50)
 													{
-														int structureCenterX = structureBBInsideAreaX + (int)Math.floor(((rotation == Rotation.NORTH || rotation == Rotation.SOUTH ? structureLeft + structureRight + 1 : structureBottom + structureTop + 1) / 2d));
-														int structureCenterZ = structureBBInsideAreaZ + (int)Math.floor(((rotation == Rotation.NORTH || rotation == Rotation.SOUTH ? structureTop + structureBottom + 1 : structureLeft + structureRight + 1) / 2d));
-														ChunkCoordinate bo4CenterSpawnCoord = ChunkCoordinate.fromChunkCoords(structureCenterX, structureCenterZ);
-														
-														for(Entry<String, Integer> entry : ((BO4)currentStructureSpawning[0]).getConfig().bo4Groups.entrySet())
-														{
-															String bo4GroupName = entry.getKey();
-															int bo4GroupFrequency = entry.getValue().intValue();
-															if(bo4GroupFrequency > 0)
-															{
-																HashMap<ChunkCoordinate, Integer> spawnedStructures = this.spawnedStructuresByGroup.get(bo4GroupName);
-																if(spawnedStructures == null)
-																{
-																	spawnedStructures = new HashMap<ChunkCoordinate, Integer>();
-																	spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue());
-																	this.spawnedStructuresByGroup.put(bo4GroupName, spawnedStructures);
-																} else {
-																	Integer frequency = spawnedStructures.get(bo4CenterSpawnCoord);
-																	if(frequency != null)
-																	{
-																		if(frequency.intValue() < bo4GroupFrequency)
-																		{
-																			spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue().intValue());
-																		}
-																	} else {
-																		spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue().intValue());
-																	}
-																}
-															}
-														}
+														IBiomeConfig biomeConfig4 = worldGenRegion.getCachedBiomeProvider().getBiomeConfig(chunkCoord.getBlockX() + DecorationArea.BO_CHUNK_CENTER_X, chunkCoord.getBlockZ() + DecorationArea.BO_CHUNK_CENTER_Z);
+														logger.log(LogLevel.WARN, LogCategory.PERFORMANCE, "Warning: Plotting BO4's for biome " +  biomeConfig4.getName() + " at " + (chunkCoord.getBlockX() + DecorationArea.BO_CHUNK_CENTER_X) + " ~ " + (chunkCoord.getBlockZ() + DecorationArea.BO_CHUNK_CENTER_Z)  + " took " + (System.currentTimeMillis() - startTime) + " Ms.");
+														startTime = System.currentTimeMillis(); 
 													}
+													
+													if(structureCacheContainsKey(chunkCoord) || targetStructure != null)
+													{
+														return spawnChunk;
+													}
+													break;
 												}
-
-												// Even though we made sure the structure's bounding box contained the current chunk,
-												// the structure may not have spawned a branch on the current chunk. If so, try to 
-												// spawn more structures.
-												// If we're plotting a target structure via /otg spawn, then the chunk isn't being decorated
-												// so it's okay if the structure didn't get plotted on this chunk.
-												
-												if(logger.getLogCategoryEnabled(LogCategory.PERFORMANCE) && (System.currentTimeMillis() - startTime) > 50)
-												{
-													IBiomeConfig biomeConfig4 = worldGenRegion.getCachedBiomeProvider().getBiomeConfig(chunkCoord.getBlockX() + DecorationArea.BO_CHUNK_CENTER_X, chunkCoord.getBlockZ() + DecorationArea.BO_CHUNK_CENTER_Z);
-													logger.log(LogLevel.WARN, LogCategory.PERFORMANCE, "Warning: Plotting BO4's for biome " +  biomeConfig4.getName() + " at " + (chunkCoord.getBlockX() + DecorationArea.BO_CHUNK_CENTER_X) + " ~ " + (chunkCoord.getBlockZ() + DecorationArea.BO_CHUNK_CENTER_Z)  + " took " + (System.currentTimeMillis() - startTime) + " Ms.");
-													startTime = System.currentTimeMillis(); 
-												}
-												
-												if(structureCacheContainsKey(chunkCoord) || targetStructure != null)
-												{
-													this.processing = false;
-													return spawnChunk;
-												}
-												break;
+											} finally {
+												endPlottingStructure(pendingStructure);
 											}
 										}
 										// We've found an area big enough and tried to spawn the structure, so stop 
@@ -1025,8 +1149,6 @@ public class CustomStructurePlotter
 		// Let plotter know the chunk is taken (fast cache, optimisation)
 		setChunkOccupied(chunkCoord);
 		
-		this.processing = false;
-		
 		if(logger.getLogCategoryEnabled(LogCategory.PERFORMANCE) && (System.currentTimeMillis() - startTime) > 50)
 		{
 			IBiomeConfig biomeConfig4 = worldGenRegion.getCachedBiomeProvider().getBiomeConfig(chunkCoord.getBlockX() + DecorationArea.BO_CHUNK_CENTER_X, chunkCoord.getBlockZ() + DecorationArea.BO_CHUNK_CENTER_Z);
@@ -1036,6 +1158,91 @@ public class CustomStructurePlotter
 		return null;
 	}
 
+	// A structure that is being plotted, see pendingStructures.
+	private static class PendingStructure
+	{
+		private final ChunkCoordinate spawnChunk;
+		private final ChunkCoordinate centerChunk;
+		private final BO4 bo4;
+
+		private PendingStructure(ChunkCoordinate spawnChunk, ChunkCoordinate centerChunk, BO4 bo4)
+		{
+			this.spawnChunk = spawnChunk;
+			this.centerChunk = centerChunk;
+			this.bo4 = bo4;
+		}
+	}
+
+	// Returns null if the structure can't spawn here due to frequency, otherwise
+	// marks it as being plotted, call endPlottingStructure when done.
+	private PendingStructure beginPlottingStructure(ChunkCoordinate spawnChunk, ChunkCoordinate centerChunk, BO4 bo4)
+	{
+		synchronized(this.spawnedStructuresByName)
+		{
+			if(!isBO4AllowedToSpawnAtByFrequency(spawnChunk, bo4))
+			{
+				return null;
+			}
+			PendingStructure pendingStructure = new PendingStructure(spawnChunk, centerChunk, bo4);
+			this.pendingStructures.add(pendingStructure);
+			return pendingStructure;
+		}
+	}
+
+	private void endPlottingStructure(PendingStructure pendingStructure)
+	{
+		synchronized(this.spawnedStructuresByName)
+		{
+			this.pendingStructures.remove(pendingStructure);
+		}
+	}
+
+	private void addSpawnedStructure(ChunkCoordinate bo4SpawnCoord, ChunkCoordinate bo4CenterSpawnCoord, BO4 bo4)
+	{
+		if(bo4.getConfig().frequency > 0 || bo4.getConfig().bo4Groups.size() > 0)
+		{
+			synchronized(this.spawnedStructuresByName)
+			{
+				String bO3Name = bo4.getName();
+				ArrayList<ChunkCoordinate> chunkCoords = this.spawnedStructuresByName.get(bO3Name);
+				if(chunkCoords == null)
+				{
+					chunkCoords = new ArrayList<ChunkCoordinate>();
+					this.spawnedStructuresByName.put(bO3Name, chunkCoords);
+				}
+				chunkCoords.add(bo4SpawnCoord);
+
+				for(Entry<String, Integer> entry : bo4.getConfig().bo4Groups.entrySet())
+				{
+					String bo4GroupName = entry.getKey();
+					int bo4GroupFrequency = entry.getValue().intValue();
+					if(bo4GroupFrequency > 0)
+					{
+						HashMap<ChunkCoordinate, Integer> spawnedStructures = this.spawnedStructuresByGroup.get(bo4GroupName);
+						if(spawnedStructures == null)
+						{
+							spawnedStructures = new HashMap<ChunkCoordinate, Integer>();
+							spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue());
+							this.spawnedStructuresByGroup.put(bo4GroupName, spawnedStructures);
+						} else {
+							Integer frequency = spawnedStructures.get(bo4CenterSpawnCoord);
+							if(frequency != null)
+							{
+								if(frequency.intValue() < bo4GroupFrequency)
+								{
+									spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue().intValue());
+								}
+							} else {
+								spawnedStructures.put(bo4CenterSpawnCoord, entry.getValue().intValue());
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// Caller must hold the spawnedStructuresByName lock.
 	private boolean isBO4AllowedToSpawnAtByFrequency(ChunkCoordinate chunkCoord, BO4 BO3ToSpawn)
 	{
 		// Check if no other structure of the same type (filename) is within the minimum radius (BO3 frequency)
@@ -1090,38 +1297,76 @@ public class CustomStructurePlotter
 			}
 		}
 
+		// Check structures that are being plotted by other threads and haven't been added yet.
+		int pendingRadius;
+		Integer pendingGroupFrequency;
+		for(PendingStructure pendingStructure : this.pendingStructures)
+		{
+			if(pendingStructure.bo4.getName().equals(bO3Name))
+			{
+				pendingRadius = BO3ToSpawn.getConfig().frequency;
+				if(pendingRadius > 0 && getDistance(chunkCoord, pendingStructure.spawnChunk) <= pendingRadius)
+				{
+					return false;
+				}
+			}
+			for(Entry<String, Integer> entry : BO3ToSpawn.getConfig().bo4Groups.entrySet())
+			{
+				pendingGroupFrequency = pendingStructure.bo4.getConfig().bo4Groups.get(entry.getKey());
+				if(pendingGroupFrequency != null && pendingGroupFrequency.intValue() > 0)
+				{
+					pendingRadius = Math.max(entry.getValue().intValue(), pendingGroupFrequency.intValue());
+					if(getDistance(chunkCoord, pendingStructure.centerChunk) <= pendingRadius)
+					{
+						return false;
+					}
+				}
+			}
+		}
+
 		return true;
 	}
 	
+	private static int getDistance(ChunkCoordinate chunkCoord, ChunkCoordinate otherChunkCoord)
+	{
+		return (int)Math.floor(Math.sqrt(Math.pow(chunkCoord.getChunkX() - otherChunkCoord.getChunkX(), 2) + Math.pow(chunkCoord.getChunkZ() - otherChunkCoord.getChunkZ(), 2)));
+	}
+
 	// Persistence
 
-	private void savePlottedChunks(Path worldSaveDir, String presetFolderName, ILogger logger)
+	private void savePlottedChunks(Path worldSaveDir, String presetFolderName, List<StructureDataFile> files, ILogger logger)
 	{
-		CustomStructureFileManager.savePlottedChunksData(worldSaveDir, presetFolderName, this.plottedChunks, logger);
+		CustomStructureFileManager.savePlottedChunksData(worldSaveDir, presetFolderName, this.plottedChunks, files, logger);
 	}
 
-	private void loadPlottedChunks(Path worldSaveDir, String presetFolderName, ILogger logger)
+	private void loadPlottedChunks()
 	{
+		// Regions are loaded on demand, see getPlottedChunksRegion.
 		this.plottedChunks.clear();
-		this.plottedChunks.putAll(CustomStructureFileManager.loadPlottedChunksData(worldSaveDir, presetFolderName, logger));
 	}
 	
-	private void saveSpawnedStructures(Path worldSaveDir, String presetFolderName, ILogger logger)
+	private void saveSpawnedStructures(Path worldSaveDir, String presetFolderName, List<StructureDataFile> files, ILogger logger)
 	{
-		CustomStructureFileManager.saveChunksMapFile(worldSaveDir, presetFolderName, this.spawnedStructuresByName, this.spawnedStructuresByGroup, logger);
+		synchronized(this.spawnedStructuresByName)
+		{
+			CustomStructureFileManager.saveChunksMapFile(worldSaveDir, presetFolderName, this.spawnedStructuresByName, this.spawnedStructuresByGroup, files, logger);
+		}
 	}
 	
 	private void loadSpawnedStructures(Path worldSaveDir, String presetFolderName, boolean isBO4Enabled, ILogger logger)
 	{
-		CustomStructureFileManager.loadChunksMapFile(worldSaveDir, presetFolderName, isBO4Enabled, this.spawnedStructuresByName, this.spawnedStructuresByGroup, logger);		
+		synchronized(this.spawnedStructuresByName)
+		{
+			CustomStructureFileManager.loadChunksMapFile(worldSaveDir, presetFolderName, isBO4Enabled, this.spawnedStructuresByName, this.spawnedStructuresByGroup, logger);
+		}
 	}
 	
-	public void saveStructureCache(Path worldSaveDir, String presetFolderName, boolean isBO4Enabled, ILogger logger)
+	public void saveStructureCache(Path worldSaveDir, String presetFolderName, boolean isBO4Enabled, List<StructureDataFile> files, ILogger logger)
 	{
 		if(isBO4Enabled)
 		{
-			savePlottedChunks(worldSaveDir, presetFolderName, logger);
-			saveSpawnedStructures(worldSaveDir, presetFolderName, logger);
+			savePlottedChunks(worldSaveDir, presetFolderName, files, logger);
+			saveSpawnedStructures(worldSaveDir, presetFolderName, files, logger);
 		}
 	}
 
@@ -1157,7 +1402,7 @@ public class CustomStructurePlotter
 				}
 			}
 
-			loadPlottedChunks(worldSaveDir, presetFolderName, logger);
+			loadPlottedChunks();
 			loadSpawnedStructures(worldSaveDir, presetFolderName, isBO4Enabled, logger);
 
 			for(ChunkCoordinate chunkCoord : this.bo4StructureCache.keySet())
@@ -9,6 +9,7 @@ import com.pg85.otg.interfaces.IBiomeConfig;
 import com.pg85.otg.interfaces.ILogger;
 import com.pg85.otg.interfaces.IMaterialReader;
 import com.pg85.otg.interfaces.IWorldGenRegion;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.materials.LocalMaterialData;
@@ -33,7 +34,7 @@ class SmoothingAreaColumn
 		this.blocks.add(block);
 	}
 
-	void processBlocks(IWorldGenRegion worldGenRegion, BO4Config bo4Config, ILogger logger, IMaterialReader materialReader)
+	void processBlocks(IWorldGenRegion worldGenRegion, ChunkCursor cursor, BO4Config bo4Config, ILogger logger, IMaterialReader materialReader)
 	{
 		if(this.highestFillingBlock == null && this.lowestCuttingBlock == null)
 		{
@@ -65,10 +66,10 @@ class SmoothingAreaColumn
 			// TODO: When using SmoothStartTop:true, if a smoothing line is underneath a bo4 block, we can 
 			// cancel spawning the rest of the line since we know we won't need it.
 		}
-		spawn(worldGenRegion, bo4Config, logger, materialReader);
+		spawn(worldGenRegion, cursor, bo4Config, logger, materialReader);
 	}
 	
-	private void spawn(IWorldGenRegion worldGenRegion, BO4Config bo4Config, ILogger logger, IMaterialReader materialReader)
+	private void spawn(IWorldGenRegion worldGenRegion, ChunkCursor cursor, BO4Config bo4Config, ILogger logger, IMaterialReader materialReader)
 	{
 		IBiomeConfig biomeConfig = worldGenRegion.getBiomeConfigForDecoration(this.x, this.z);
 
@@ -132,7 +133,7 @@ class SmoothingAreaColumn
 				{
 					if(y > 0)
 					{
-						worldGenRegion.setBlock(this.x, y, this.z, replaceAboveMaterial);
+						cursor.setBlock(this.x, y, this.z, replaceAboveMaterial);
 					}
 				}
 				
@@ -146,7 +147,7 @@ class SmoothingAreaColumn
 					{
 						surfaceBlock = smoothingSurfaceBlock;
 					} else {
-						blockAbove = worldGenRegion.getMaterial(this.x, this.lowestCuttingBlock.y + 1, this.z);
+						blockAbove = cursor.getMaterial(this.x, this.lowestCuttingBlock.y + 1, this.z);
 						if(blockAbove != null && (blockAbove.isSolid() || blockAbove.isLiquid()))
 						{
 							surfaceBlock = biomeConfig.getGroundBlockAtHeight(worldGenRegion, this.x, this.lowestCuttingBlock.y, this.z);																	
@@ -158,7 +159,7 @@ class SmoothingAreaColumn
 						{
 							if(
 								this.lowestCuttingBlock.y < (biomeConfig.getWaterLevelMax()) &&
-								worldGenRegion.getMaterial(this.x, this.lowestCuttingBlock.y, this.z).isAir()
+								cursor.getMaterial(this.x, this.lowestCuttingBlock.y, this.z).isAir()
 							)
 							{
 								surfaceBlock = LocalMaterials.WATER;
@@ -171,9 +172,9 @@ class SmoothingAreaColumn
 					{						
 						if(needsReplaceBlocks)
 						{
-							worldGenRegion.setBlock(this.x, this.lowestCuttingBlock.y, this.z, surfaceBlock, biomeConfig.getReplaceBlocks());
+							cursor.setBlock(this.x, this.lowestCuttingBlock.y, this.z, surfaceBlock, null, biomeConfig.getReplaceBlocks());
 						} else {
-							worldGenRegion.setBlock(this.x, this.lowestCuttingBlock.y, this.z, surfaceBlock);
+							cursor.setBlock(this.x, this.lowestCuttingBlock.y, this.z, surfaceBlock);
 						}
 					}
 				}
@@ -194,7 +195,7 @@ class SmoothingAreaColumn
 				{
 					if(y > 0)
 					{
-						worldGenRegion.setBlock(this.x, y, this.z, replaceAboveMaterial);
+						cursor.setBlock(this.x, y, this.z, replaceAboveMaterial);
 					}
 				}
 			}
@@ -207,7 +208,7 @@ class SmoothingAreaColumn
 				surfaceBlock = smoothingSurfaceBlock;
 			} else {
 				
-				blockAbove = worldGenRegion.getMaterial(this.x, this.highestFillingBlock.y + 1, this.z);
+				blockAbove = cursor.getMaterial(this.x, this.highestFillingBlock.y + 1, this.z);
 				if(blockAbove != null && (blockAbove.isSolid() || blockAbove.isLiquid()))
 				{
 					surfaceBlock = biomeConfig.getGroundBlockAtHeight(worldGenRegion, this.x, this.highestFillingBlock.y, this.z);																	
@@ -220,7 +221,7 @@ class SmoothingAreaColumn
 				{
 					if(
 						this.highestFillingBlock.y < biomeConfig.getWaterLevelMax() &&
-						worldGenRegion.getMaterial(this.x, this.highestFillingBlock.y, this.z).isAir()
+						cursor.getMaterial(this.x, this.highestFillingBlock.y, this.z).isAir()
 					)
 					{
 						surfaceBlock = LocalMaterials.WATER;
@@ -235,9 +236,9 @@ class SmoothingAreaColumn
 				{
 					if(needsReplaceBlocks)
 					{
-						worldGenRegion.setBlock(this.x, this.highestFillingBlock.y, this.z, surfaceBlock, biomeConfig.getReplaceBlocks());
+						cursor.setBlock(this.x, this.highestFillingBlock.y, this.z, surfaceBlock, null, biomeConfig.getReplaceBlocks());
 					} else {
-						worldGenRegion.setBlock(this.x, this.highestFillingBlock.y, this.z, surfaceBlock);
+						cursor.setBlock(this.x, this.highestFillingBlock.y, this.z, surfaceBlock);
 					}
 				}
 			}
@@ -261,9 +262,9 @@ class SmoothingAreaColumn
 						}
 						if(needsReplaceBlocks)
 						{
-							worldGenRegion.setBlock(this.x, y, this.z, groundBlock, biomeConfig.getReplaceBlocks());
+							cursor.setBlock(this.x, y, this.z, groundBlock, null, biomeConfig.getReplaceBlocks());
 						} else {
-							worldGenRegion.setBlock(this.x, y, this.z, groundBlock);
+							cursor.setBlock(this.x, y, this.z, groundBlock);
 						}
 					}
 				}
@@ -280,7 +281,7 @@ class SmoothingAreaColumn
 								groundBlock = LocalMaterials.WATER;
 							}
 						}
-						worldGenRegion.setBlock(this.x, y, this.z, groundBlock);
+						cursor.setBlock(this.x, y, this.z, groundBlock);
 					}
 				}
 			}
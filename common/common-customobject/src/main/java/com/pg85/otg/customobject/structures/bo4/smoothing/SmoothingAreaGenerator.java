@@ -24,6 +24,7 @@ import com.pg85.otg.interfaces.IModLoadedChecker;
 import com.pg85.otg.interfaces.IWorldGenRegion;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.bo3.Rotation;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.materials.LocalMaterialData;
 
 public class SmoothingAreaGenerator
@@ -1069,9 +1070,10 @@ public class SmoothingAreaGenerator
 		// For each column, make sure there is only one cutting line (the lowest cutting block in the column)
 		// and one filling line (the highest filling block in the column).
 		// TODO: This causes problems when multiple lines on a diferent axis target the same endpoint
+		ChunkCursor cursor = worldGenRegion.createChunkCursor();
 		for(Entry<ChunkCoordinate, SmoothingAreaColumn> smoothingBlocksInColumn : smoothingBlocksPerColumn.entrySet())
 		{
-			smoothingBlocksInColumn.getValue().processBlocks(worldGenRegion, startBO4Config, logger, materialReader);
+			smoothingBlocksInColumn.getValue().processBlocks(worldGenRegion, cursor, startBO4Config, logger, materialReader);
 		}
 	}
 	
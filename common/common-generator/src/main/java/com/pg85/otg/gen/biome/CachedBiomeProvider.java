@@ -1,9 +1,7 @@
 package com.pg85.otg.gen.biome;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.pg85.otg.constants.Constants;
 import com.pg85.otg.interfaces.IBiomeConfig;
@@ -12,8 +10,10 @@ import com.pg85.otg.interfaces.ICachedBiomeProvider;
 import com.pg85.otg.interfaces.ILayerSource;
 import com.pg85.otg.interfaces.ILogger;
 import com.pg85.otg.util.ChunkCoordinate;
-import com.pg85.otg.util.FifoMap;
+import com.pg85.otg.util.ConcurrentClockCache;
 import com.pg85.otg.util.helpers.MathHelper;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
 
 /**
  * A cache used throughout an entire session, so that base
@@ -22,30 +22,71 @@ import com.pg85.otg.util.helpers.MathHelper;
  */
 public class CachedBiomeProvider implements ICachedBiomeProvider
 {
-	static int cacheHits = 0;
-	static int smallCacheHits = 0;
-	@SuppressWarnings("unused")
+	// Regions of at least this many noise cells per side bypass the region cache.
+	private static final int DIRECT_SAMPLE_SIZE = 64;
+	// The cache statistics are logged every this many cached chunks.
+	private static final int STATISTICS_LOG_INTERVAL = 4096;
+
 	private final ILogger logger;
 	
 	private final long seed;
 	private final ILayerSource biomeProvider;
 	private final IBiome[] biomesById;
 	
-	private final Object lock = new Object();
-	private boolean locked = false;
-	private boolean locked2 = false;
-	private final FifoMap<ChunkCoordinate, IBiome[]> biomesCache = new FifoMap<>(256);
-	private final FifoMap<ChunkCoordinate, IBiomeConfig[]> biomeConfigsCache = new FifoMap<>(256);
+	// Keyed by chunk coords packed via MathHelper.toLong.
+	private final ConcurrentClockCache<IBiome[]> biomesCache;
+	private final ConcurrentClockCache<IBiomeConfig[]> biomeConfigsCache;
 	
-	private final Object noiseLock = new Object();
-	private final FifoMap<ChunkCoordinate, IBiomeConfig[]> noiseBiomeConfigsCache = new FifoMap<>(1024);	
+	// Biome ids keyed by 8x8 noise region coords, each region covers 2x2 chunks.
+	private final ConcurrentClockCache<int[]> noiseBiomeIdsCache;
+	// Optional on-disk cache for noise regions, set once the world save folder is known.
+	private volatile PersistentBiomeCache persistentCache;
+	private final AtomicLong chunksCached = new AtomicLong();
 
-	public CachedBiomeProvider(long seed, ILayerSource biomeProvider, IBiome[] biomesById, ILogger logger)
+	public CachedBiomeProvider(long seed, ILayerSource biomeProvider, IBiome[] biomesById, int biomeCacheSize, ILogger logger)
 	{
 		this.seed = seed;
 		this.biomeProvider = biomeProvider;
 		this.biomesById = biomesById;
 		this.logger = logger;
+		this.biomesCache = new ConcurrentClockCache<>(biomeCacheSize);
+		this.biomeConfigsCache = new ConcurrentClockCache<>(biomeCacheSize);
+		this.noiseBiomeIdsCache = new ConcurrentClockCache<>(biomeCacheSize * 4);
+	}
+
+	/**
+	 * Stores noise resolution biome ids in the given folder, so they don't have to be
+	 * generated again after a restart. presetConfigHash should change whenever the
+	 * preset's world or biome configs or any other files biomes are generated from
+	 * change, this, the seed and the biome generator version determine which cache
+	 * is used. Only the first call has any effect.
+	 */
+	public synchronized void enablePersistentCache(File cacheFolder, long presetConfigHash)
+	{
+		if(this.persistentCache != null || this.biomesById.length > 0xFFFF)
+		{
+			return;
+		}
+		long key = presetConfigHash;
+		key = MathHelper.mixSeed(key, PersistentBiomeCache.GENERATOR_VERSION);
+		key = MathHelper.mixSeed(key, this.seed);
+		for(IBiome biome : this.biomesById)
+		{
+			key = MathHelper.mixSeed(key, biome == null ? 0 : biome.getBiomeConfig().getName().hashCode());
+		}
+		this.persistentCache = new PersistentBiomeCache(cacheFolder, key, this.biomeProvider, Math.max(16, this.noiseBiomeIdsCache.getCapacity() / 64), this.logger);
+	}
+
+	/**
+	 * Stops using the on-disk cache, call this when the world is unloaded.
+	 */
+	public synchronized void disablePersistentCache()
+	{
+		if(this.persistentCache != null)
+		{
+			this.persistentCache.close();
+			this.persistentCache = null;
+		}
 	}
 
 	// Used by any method that can preemptively request a chunk of biomeconfigs,
@@ -54,37 +95,13 @@ public class CachedBiomeProvider implements ICachedBiomeProvider
 	@Override
 	public IBiomeConfig[] getBiomeConfigsForChunk(ChunkCoordinate chunkCoord)
 	{
-		IBiomeConfig[] biomeConfigs;
-		synchronized(this.lock)
+		long key = MathHelper.toLong(chunkCoord.getChunkX(), chunkCoord.getChunkZ());
+		IBiomeConfig[] biomeConfigs = this.biomeConfigsCache.get(key);
+		if(biomeConfigs == null)
 		{
-			this.locked = true;
-			biomeConfigs = this.biomeConfigsCache.get(chunkCoord);
-			if(biomeConfigs == null)
-			{
-				IBiome[] biomes = new IBiome[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
-				biomeConfigs = new IBiomeConfig[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
-				int biomeId;
-				IBiome biome;
-				for (int x = 0; x < Constants.CHUNK_SIZE; x++)
-				{
-					for (int z = 0; z < Constants.CHUNK_SIZE; z++)
-					{
-						// TODO: Technically, we should be providing the hashed seed here. Perhaps this may work for the time being?
-						biomeId = BiomeInterpolator.getId(this.seed, x + chunkCoord.getBlockX(), 0, z + chunkCoord.getBlockZ(), this.biomeProvider);
-						biome = this.biomesById[biomeId];
-						biomes[x * Constants.CHUNK_SIZE + z] = biome;
-						biomeConfigs[x * Constants.CHUNK_SIZE + z] = biome.getBiomeConfig();
-					}
-				}
-				this.biomesCache.put(chunkCoord, biomes);
-				this.biomeConfigsCache.put(chunkCoord, biomeConfigs);
-			} else {
-				cacheHits++;
-				//logger.log(LogLevel.INFO, LogCategory.MAIN, "Cache hit " + cacheHits);
-			}
+			biomeConfigs = cacheChunk(chunkCoord, key).getBiomeConfigs();
 		}
-		this.locked = false;
-		return biomeConfigs;		
+		return biomeConfigs;
 	}
 	
 	// Used by any method that can preemptively request a chunk of biomeconfigs,
@@ -92,37 +109,44 @@ public class CachedBiomeProvider implements ICachedBiomeProvider
 	@Override
 	public IBiome[] getBiomesForChunk(ChunkCoordinate chunkCoord)
 	{
-		IBiome[] biomes;
-		synchronized(this.lock)
+		long key = MathHelper.toLong(chunkCoord.getChunkX(), chunkCoord.getChunkZ());
+		IBiome[] biomes = this.biomesCache.get(key);
+		if(biomes == null)
+		{
+			biomes = cacheChunk(chunkCoord, key).getBiomes();
+		}
+		return biomes;
+	}
+
+	// Biomes are deterministic, so when two threads miss on the same chunk at
+	// the same time they both generate it and the last put wins. That's cheaper
+	// than making every other thread wait for a lock.
+	private ChunkBiomes cacheChunk(ChunkCoordinate chunkCoord, long key)
+	{
+		IBiome[] biomes = new IBiome[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
+		IBiomeConfig[] biomeConfigs = new IBiomeConfig[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
+		int biomeId;
+		IBiome biome;
+		for (int x = 0; x < Constants.CHUNK_SIZE; x++)
 		{
-			this.locked = true;
-			biomes = this.biomesCache.get(chunkCoord);
-			if(biomes == null)
+			for (int z = 0; z < Constants.CHUNK_SIZE; z++)
 			{
-				biomes = new IBiome[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
-				IBiomeConfig[]  biomeConfigs = new IBiomeConfig[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
-				int biomeId;
-				IBiome biome;
-				for (int x = 0; x < Constants.CHUNK_SIZE; x++)
-				{
-					for (int z = 0; z < Constants.CHUNK_SIZE; z++)
-					{
-						// TODO: Technically, we should be providing the hashed seed here. Perhaps this may work for the time being?
-						biomeId = BiomeInterpolator.getId(this.seed,  x + chunkCoord.getBlockX(), 0, z + chunkCoord.getBlockZ(), this.biomeProvider);
-						biome = this.biomesById[biomeId];
-						biomes[x * Constants.CHUNK_SIZE + z] = biome;
-						biomeConfigs[x * Constants.CHUNK_SIZE + z] = biome.getBiomeConfig();
-					}
-				}
-				this.biomesCache.put(chunkCoord, biomes);
-				this.biomeConfigsCache.put(chunkCoord, biomeConfigs);
-			} else {
-				cacheHits++;
-				//logger.log(LogLevel.INFO, LogCategory.MAIN, "Cache hit " + cacheHits);
+				// TODO: Technically, we should be providing the hashed seed here. Perhaps this may work for the time being?
+				biomeId = BiomeInterpolator.getId(this.seed, x + chunkCoord.getBlockX(), 0, z + chunkCoord.getBlockZ(), this.biomeProvider);
+				biome = this.biomesById[biomeId];
+				biomes[x * Constants.CHUNK_SIZE + z] = biome;
+				biomeConfigs[x * Constants.CHUNK_SIZE + z] = biome.getBiomeConfig();
 			}
 		}
-		this.locked = false;
-		return biomes;
+		this.biomesCache.put(key, biomes);
+		this.biomeConfigsCache.put(key, biomeConfigs);
+		if(this.chunksCached.incrementAndGet() % STATISTICS_LOG_INTERVAL == 0 && this.logger.getLogCategoryEnabled(LogCategory.PERFORMANCE))
+		{
+			long hits = getCacheHits();
+			long requests = hits + getCacheMisses();
+			this.logger.log(LogLevel.INFO, LogCategory.PERFORMANCE, "Biome cache: " + hits + " hits of " + requests + " requests (" + (requests == 0 ? 0 : hits * 100 / requests) + "% hit rate), " + this.chunksCached.get() + " chunks cached.");
+		}
+		return new ChunkBiomes(biomes, biomeConfigs);
 	}
 	
 	@Override
@@ -131,25 +155,20 @@ public class CachedBiomeProvider implements ICachedBiomeProvider
 		IBiome[] biomes = new IBiome[widthHeightInBlocks * widthHeightInBlocks];
 		IBiome[] chunkBiomes;
 		int widthHeightInChunks = (int)Math.ceil(widthHeightInBlocks / 16f);
-		synchronized(this.lock)
+		for(int chunkX = 0; chunkX < widthHeightInChunks; chunkX++)
 		{
-			this.locked2 = true;
-			for(int chunkX = 0; chunkX < widthHeightInChunks; chunkX++)
+			for(int chunkZ = 0; chunkZ < widthHeightInChunks; chunkZ++)
 			{
-				for(int chunkZ = 0; chunkZ < widthHeightInChunks; chunkZ++)
+				chunkBiomes = getBiomesForChunk(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + chunkX, chunkCoord.getChunkZ() + chunkZ));
+				for(int x = 0; x < Constants.CHUNK_SIZE; x++)
 				{
-					chunkBiomes = getBiomesForChunk(ChunkCoordinate.fromChunkCoords(chunkCoord.getChunkX() + chunkX, chunkCoord.getChunkZ() + chunkZ));
-					for(int x = 0; x < Constants.CHUNK_SIZE; x++)
+					for(int z = 0; z < Constants.CHUNK_SIZE; z++)
 					{
-						for(int z = 0; z < Constants.CHUNK_SIZE; z++)
-						{
-							biomes[(chunkX * Constants.CHUNK_SIZE + x) * widthHeightInBlocks + (chunkZ * Constants.CHUNK_SIZE + z)] = chunkBiomes[x * Constants.CHUNK_SIZE + z];
-						}
+						biomes[(chunkX * Constants.CHUNK_SIZE + x) * widthHeightInBlocks + (chunkZ * Constants.CHUNK_SIZE + z)] = chunkBiomes[x * Constants.CHUNK_SIZE + z];
 					}
 				}
 			}
 		}
-		this.locked2 = false;
 		return biomes;
 	}
 	
@@ -161,33 +180,27 @@ public class CachedBiomeProvider implements ICachedBiomeProvider
 	@Override
 	public IBiomeConfig getBiomeConfig(int x, int z, boolean cacheChunk)
 	{
-		ChunkCoordinate chunkCoord = ChunkCoordinate.fromBlockCoords(x, z);
-		// TODO: Do we want/need a lock here? Overhead of the lock would be big.
-		IBiomeConfig[] biomeConfigs = null;
-		if(!this.locked && !this.locked2)
-		{
-			biomeConfigs = this.biomeConfigsCache.get(chunkCoord);
-		}
-		int internalX = x - chunkCoord.getBlockX();
-		int internalZ = z - chunkCoord.getBlockZ();
+		int chunkX = x >> 4;
+		int chunkZ = z >> 4;
+		int internalX = x & (Constants.CHUNK_SIZE - 1);
+		int internalZ = z & (Constants.CHUNK_SIZE - 1);
+		long key = MathHelper.toLong(chunkX, chunkZ);
+		IBiomeConfig[] biomeConfigs = this.biomeConfigsCache.get(key);
 		if(biomeConfigs == null)
 		{
-			if(cacheChunk && !this.locked && !this.locked2)
+			if(cacheChunk)
 			{
-				return getBiomeConfigsForChunk(chunkCoord)[internalX * Constants.CHUNK_SIZE + internalZ];
+				return cacheChunk(ChunkCoordinate.fromChunkCoords(chunkX, chunkZ), key).getBiomeConfigs()[internalX * Constants.CHUNK_SIZE + internalZ];
 			}
 			// TODO: Technically, we should be providing the hashed seed here. Perhaps this may work for the time being?
 			int biomeId = BiomeInterpolator.getId(this.seed,  x, 0, z, this.biomeProvider);
 			return this.biomesById[biomeId].getBiomeConfig();
-		} else {
-			smallCacheHits++;
-			//logger.log(LogLevel.INFO, LogCategory.MAIN, "Small cache hit " + cacheHits);
 		}
 		return biomeConfigs[internalX * Constants.CHUNK_SIZE + internalZ];
 	}
 
 	// These methods don't use the cache because the overhead
-	// of locking likely wouldn't be worth the cache hits.
+	// of the lookup likely wouldn't be worth the cache hits.
 	
 	@Override
 	public IBiomeConfig getBiomeConfig(int x, int z)
@@ -210,91 +223,105 @@ public class CachedBiomeProvider implements ICachedBiomeProvider
 	@Override
 	public IBiomeConfig[] getNoiseBiomeConfigsForRegion(int noiseStartX, int noiseStartZ, int widthHeight)
 	{
-		int regionSize = 8;
-		int regionStartX = noiseStartX >> 3;
-		int regionStartZ = noiseStartZ >> 3;
-		int cacheOffsetX = noiseStartX - (regionStartX << 3);
-		int cacheOffsetZ = noiseStartZ - (regionStartZ << 3);
-		int regionWidth = (int)Math.ceil((((regionStartX >> 3) + widthHeight) - (regionStartX >> 3)) / 8f);
-		int regionHeight = (int)Math.ceil((((regionStartZ >> 3) + widthHeight) - (regionStartZ >> 3)) / 8f);
 		IBiomeConfig[] biomeConfigs = new IBiomeConfig[widthHeight * widthHeight];
-
-		IBiome biome;
-		IBiomeConfig[] region;
-		ChunkCoordinate regionCoord;
-		List<ChunkCoordinate> regionsToHandle = new ArrayList<ChunkCoordinate>();
-		int cacheX;
-		int cacheZ;
-		synchronized(this.noiseLock)
+		if(widthHeight >= DIRECT_SAMPLE_SIZE)
+		{
+			// Large areas (/otg map tiles) are sampled as one area
+			// instead of going through (and flushing) the region cache.
+			int[] biomeIds = new int[widthHeight * widthHeight];
+			this.biomeProvider.getSampler().sampleArea(noiseStartX, noiseStartZ, widthHeight, widthHeight, biomeIds);
+			for(int i = 0; i < biomeIds.length; i++)
+			{
+				biomeConfigs[i] = this.biomesById[biomeIds[i]].getBiomeConfig();
+			}
+			return biomeConfigs;
+		}
+		int noiseEndX = noiseStartX + widthHeight;
+		int noiseEndZ = noiseStartZ + widthHeight;
+		int[] region;
+		int minX;
+		int maxX;
+		int minZ;
+		int maxZ;
+		for(int regionX = noiseStartX >> 3; regionX <= (noiseEndX - 1) >> 3; regionX++)
 		{
-			for(int regionX = regionStartX; regionX <= regionStartX + regionWidth; regionX++)
+			minX = Math.max(noiseStartX, regionX << 3);
+			maxX = Math.min(noiseEndX, (regionX + 1) << 3);
+			for(int regionZ = noiseStartZ >> 3; regionZ <= (noiseEndZ - 1) >> 3; regionZ++)
 			{
-				for(int regionZ = regionStartZ; regionZ <= regionStartZ + regionHeight; regionZ++)
+				minZ = Math.max(noiseStartZ, regionZ << 3);
+				maxZ = Math.min(noiseEndZ, (regionZ + 1) << 3);
+				region = getNoiseBiomeIdRegion(regionX, regionZ);
+				for(int x = minX; x < maxX; x++)
 				{
-					regionCoord = ChunkCoordinate.fromChunkCoords(regionX, regionZ);
-					region = this.noiseBiomeConfigsCache.get(regionCoord);
-					if(region != null)
+					for(int z = minZ; z < maxZ; z++)
 					{
-						for(int x = 0; x < regionSize; x++)
-						{
-							for(int z = 0; z < regionSize; z++)
-							{
-								cacheX = ((regionX - regionStartX) << 3) + x - cacheOffsetX;								
-								cacheZ = ((regionZ - regionStartZ) << 3) + z - cacheOffsetZ;
-								if(
-									cacheX < widthHeight && cacheX >= 0 &&
-									cacheZ < widthHeight && cacheZ >= 0
-								)
-								{
-									biomeConfigs[cacheX * widthHeight + cacheZ] = region[(x << 3) + z];
-									if(
-										cacheX == widthHeight - 1 &&
-										cacheZ == widthHeight - 1 &&
-										regionsToHandle.size() == 0 
-									)
-									{
-										return biomeConfigs;
-									}
-								}
-							}
-						}
-					} else {
-						regionsToHandle.add(regionCoord);
+						biomeConfigs[(x - noiseStartX) * widthHeight + (z - noiseStartZ)] = this.biomesById[region[((x & 7) << 3) + (z & 7)]].getBiomeConfig();
 					}
 				}
 			}
 		}
-		Map<ChunkCoordinate, IBiomeConfig[]> regionsHandled = new HashMap<ChunkCoordinate, IBiomeConfig[]>();
-		for(ChunkCoordinate regionTohandle : regionsToHandle)
+		return biomeConfigs;
+	}
+
+	/**
+	 * Same as getNoiseBiomeConfigsForRegion, but fills in biome ids instead of biome
+	 * configs, so callers can look up their own per-biome data without going through
+	 * IBiomeConfig. The array must hold at least widthHeight * widthHeight entries,
+	 * biome ids are stored at [x * widthHeight + z].
+	 */
+	public int[] getNoiseBiomeIdsForRegion(int noiseStartX, int noiseStartZ, int widthHeight, int[] biomeIds)
+	{
+		int noiseEndX = noiseStartX + widthHeight;
+		int noiseEndZ = noiseStartZ + widthHeight;
+		int[] region;
+		int minX;
+		int maxX;
+		int minZ;
+		int maxZ;
+		for(int regionX = noiseStartX >> 3; regionX <= (noiseEndX - 1) >> 3; regionX++)
 		{
-			region = new IBiomeConfig[regionSize * regionSize];
-			for(int x = 0; x < regionSize; x++)
+			minX = Math.max(noiseStartX, regionX << 3);
+			maxX = Math.min(noiseEndX, (regionX + 1) << 3);
+			for(int regionZ = noiseStartZ >> 3; regionZ <= (noiseEndZ - 1) >> 3; regionZ++)
 			{
-				for(int z = 0; z < regionSize; z++)
+				minZ = Math.max(noiseStartZ, regionZ << 3);
+				maxZ = Math.min(noiseEndZ, (regionZ + 1) << 3);
+				region = getNoiseBiomeIdRegion(regionX, regionZ);
+				for(int x = minX; x < maxX; x++)
 				{
-					// TODO: Technically, we should be providing the hashed seed here. Perhaps this may work for the time being?
-					biome = this.biomesById[this.biomeProvider.getSampler().sample((regionTohandle.getChunkX() << 3) + x, (regionTohandle.getChunkZ() << 3) + z)];
-					region[(x << 3) + z] = biome.getBiomeConfig();
-					
-					// TODO: Abort and don't cache region if requested area is smaller than 8x8?
-					cacheX = ((regionTohandle.getChunkX() - regionStartX) << 3) + x - cacheOffsetX;
-					cacheZ = ((regionTohandle.getChunkZ() - regionStartZ) << 3) + z - cacheOffsetZ;
-					if(
-						cacheX < widthHeight && cacheX >= 0 &&
-						cacheZ < widthHeight && cacheZ >= 0
-					)
-					{
-						biomeConfigs[cacheX * widthHeight + cacheZ] = biome.getBiomeConfig();
-					}
+					System.arraycopy(region, ((x & 7) << 3) + (minZ & 7), biomeIds, (x - noiseStartX) * widthHeight + (minZ - noiseStartZ), maxZ - minZ);
 				}
 			}
-			regionsHandled.put(regionTohandle, region);
 		}
-		synchronized(this.noiseLock)
+		return biomeIds;
+	}
+
+	// Biome ids for the 8x8 noise region at the given region coords, stored at [(x << 3) + z].
+	// Like cacheChunk, threads that miss on the same region at the same time both sample it.
+	private int[] getNoiseBiomeIdRegion(int regionX, int regionZ)
+	{
+		long key = MathHelper.toLong(regionX, regionZ);
+		int[] region = this.noiseBiomeIdsCache.get(key);
+		if(region == null)
 		{
-			this.noiseBiomeConfigsCache.putAll(regionsHandled);
+			region = new int[8 * 8];
+			PersistentBiomeCache persistentCache = this.persistentCache;
+			if(persistentCache != null)
+			{
+				persistentCache.getRegion(regionX, regionZ, region);
+			} else {
+				// TODO: Technically, we should be providing the hashed seed here. Perhaps this may work for the time being?
+				this.biomeProvider.getSampler().sampleArea(regionX << 3, regionZ << 3, 8, 8, region);
+			}
+			this.noiseBiomeIdsCache.put(key, region);
 		}
-		return biomeConfigs;
+		return region;
+	}
+
+	public int getNoiseBiomeId(int noiseX, int noiseZ)
+	{
+		return this.biomeProvider.getSampler().sample(noiseX, noiseZ);
 	}
 
 	@Override
@@ -311,7 +338,39 @@ public class CachedBiomeProvider implements ICachedBiomeProvider
 
 	private IBiome getNoiseBiome(int noiseX, int noiseZ, boolean cacheChunk)
 	{
-		return this.biomesById[this.biomeProvider.getSampler().sample(noiseX, noiseZ)];
+		return this.biomesById[getNoiseBiomeId(noiseX, noiseZ)];
+	}
+
+	public long getCacheHits()
+	{
+		return this.biomesCache.getHits() + this.biomeConfigsCache.getHits() + this.noiseBiomeIdsCache.getHits();
+	}
+
+	public long getCacheMisses()
+	{
+		return this.biomesCache.getMisses() + this.biomeConfigsCache.getMisses() + this.noiseBiomeIdsCache.getMisses();
+	}
+
+	private static class ChunkBiomes
+	{
+		private final IBiome[] biomes;
+		private final IBiomeConfig[] biomeConfigs;
+
+		private ChunkBiomes(IBiome[] biomes, IBiomeConfig[] biomeConfigs)
+		{
+			this.biomes = biomes;
+			this.biomeConfigs = biomeConfigs;
+		}
+
+		private IBiome[] getBiomes()
+		{
+			return this.biomes;
+		}
+
+		private IBiomeConfig[] getBiomeConfigs()
+		{
+			return this.biomeConfigs;
+		}
 	}
 
 	/**
@@ -0,0 +1,267 @@
+package com.pg85.otg.gen.biome;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.pg85.otg.interfaces.ILayerSource;
+import com.pg85.otg.interfaces.ILogger;
+import com.pg85.otg.util.CompressionUtils;
+import com.pg85.otg.util.ConcurrentClockCache;
+import com.pg85.otg.util.helpers.MathHelper;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
+
+/**
+ * Stores noise resolution (1:4) biome ids on disk as compressed tiles of
+ * 64x64 noise cells (256x256 blocks), so biomes for explored terrain don't
+ * have to be generated again after a restart.
+ *
+ * Tiles are stored in a folder named after a key made from the preset's
+ * config hash, the biome id mapping, the seed and GENERATOR_VERSION, so
+ * changing the preset or the biome generator automatically starts a new
+ * cache. Folders for other keys are deleted, unless a cache that's still
+ * open uses them.
+ *
+ * Biome ids are stored as unsigned shorts, so this can only be used for
+ * presets with at most 65536 biome ids.
+ *
+ * On a miss a tile is loaded from disk, or generated as a whole via
+ * sampleArea and written on a background thread.
+ */
+class PersistentBiomeCache
+{
+	// Increase this whenever a change to OTG changes the biomes generated for existing presets.
+	static final int GENERATOR_VERSION = 1;
+
+	private static final int TILE_SHIFT = 6;
+	private static final int TILE_SIZE = 1 << TILE_SHIFT;
+	// Layout: magic, version, then TILE_SIZE * TILE_SIZE biome ids at [x * TILE_SIZE + z].
+	private static final int MAGIC = 0x4F544742; // "OTGB"
+	private static final int VERSION = 1;
+	private static final int FILE_SIZE = 4 + 4 + TILE_SIZE * TILE_SIZE * 2;
+	private static final String FILE_EXTENSION = ".dat";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final long IDLE_TIMEOUT_SECONDS = 5;
+
+	// Shared by all worlds, writes are done in the order they were queued.
+	private static final ThreadPoolExecutor executor;
+	static
+	{
+		executor = new ThreadPoolExecutor(1, 1, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, "OTG Biome Cache Saver");
+				thread.setDaemon(false);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	// Folders of all open caches, so they aren't deleted by caches with other keys.
+	private static final Set<File> openFolders = new HashSet<File>();
+
+	private final File folder;
+	private final ILayerSource biomeProvider;
+	private final ILogger logger;
+	// Keyed by tile coords packed via MathHelper.toLong.
+	private final ConcurrentClockCache<short[]> tiles;
+
+	PersistentBiomeCache(final File cacheFolder, long key, ILayerSource biomeProvider, int tileCacheSize, ILogger logger)
+	{
+		this.folder = new File(cacheFolder, String.format("%016x", key));
+		this.biomeProvider = biomeProvider;
+		this.logger = logger;
+		this.tiles = new ConcurrentClockCache<>(tileCacheSize);
+		synchronized(openFolders)
+		{
+			openFolders.add(this.folder);
+		}
+
+		// Remove caches made with other presets or seeds.
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				File[] folders = cacheFolder.listFiles();
+				if(folders != null)
+				{
+					for(File oldFolder : folders)
+					{
+						if(oldFolder.isDirectory())
+						{
+							synchronized(openFolders)
+							{
+								if(!openFolders.contains(oldFolder))
+								{
+									deleteFolder(oldFolder);
+								}
+							}
+						}
+					}
+				}
+			}
+		});
+	}
+
+	void close()
+	{
+		synchronized(openFolders)
+		{
+			openFolders.remove(this.folder);
+		}
+	}
+
+	/**
+	 * Copies the biome ids of the 8x8 noise region at the given region
+	 * coords into region, stored at [(x << 3) + z].
+	 */
+	void getRegion(int regionX, int regionZ, int[] region)
+	{
+		short[] tile = getTile(regionX >> (TILE_SHIFT - 3), regionZ >> (TILE_SHIFT - 3));
+		int tileIndex = ((regionX << 3) & (TILE_SIZE - 1)) * TILE_SIZE + ((regionZ << 3) & (TILE_SIZE - 1));
+		for(int x = 0; x < 8; x++)
+		{
+			for(int z = 0; z < 8; z++)
+			{
+				region[(x << 3) + z] = tile[tileIndex + x * TILE_SIZE + z] & 0xFFFF;
+			}
+		}
+	}
+
+	// Like CachedBiomeProvider, threads that miss on the same tile at the same time both load or generate it.
+	private short[] getTile(int tileX, int tileZ)
+	{
+		long key = MathHelper.toLong(tileX, tileZ);
+		short[] tile = this.tiles.get(key);
+		if(tile == null)
+		{
+			File file = getTileFile(tileX, tileZ);
+			tile = readTile(file);
+			if(tile == null)
+			{
+				tile = generateTile(tileX, tileZ, file);
+			}
+			this.tiles.put(key, tile);
+		}
+		return tile;
+	}
+
+	private short[] generateTile(int tileX, int tileZ, File file)
+	{
+		int[] biomeIds = new int[TILE_SIZE * TILE_SIZE];
+		this.biomeProvider.getSampler().sampleArea(tileX << TILE_SHIFT, tileZ << TILE_SHIFT, TILE_SIZE, TILE_SIZE, biomeIds);
+
+		short[] tile = new short[TILE_SIZE * TILE_SIZE];
+		ByteBuffer buffer = ByteBuffer.allocate(FILE_SIZE);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		for(int i = 0; i < biomeIds.length; i++)
+		{
+			tile[i] = (short)biomeIds[i];
+			buffer.putShort(tile[i]);
+		}
+		writeTile(file, buffer.array());
+		return tile;
+	}
+
+	private short[] readTile(File file)
+	{
+		if(!file.exists())
+		{
+			return null;
+		}
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(CompressionUtils.decompress(Files.readAllBytes(file.toPath())));
+			if(buffer.remaining() != FILE_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+			{
+				throw new IOException("Unknown biome cache format.");
+			}
+			short[] tile = new short[TILE_SIZE * TILE_SIZE];
+			buffer.asShortBuffer().get(tile);
+			return tile;
+		}
+		catch (Exception e)
+		{
+			this.logger.log(LogLevel.WARN, LogCategory.MAIN, "Failed to load biome cache file " + file.getAbsolutePath() + ", regenerating it.");
+			return null;
+		}
+	}
+
+	private void writeTile(final File file, final byte[] data)
+	{
+		executor.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+				FileOutputStream fos = null;
+				try {
+					byte[] compressed = CompressionUtils.compress(data, PersistentBiomeCache.this.logger);
+					file.getParentFile().mkdirs();
+					fos = new FileOutputStream(tempFile);
+					fos.write(compressed);
+					fos.close();
+					fos = null;
+					try {
+						Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+					}
+					catch (AtomicMoveNotSupportedException e)
+					{
+						Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				catch (IOException e)
+				{
+					PersistentBiomeCache.this.logger.log(LogLevel.ERROR, LogCategory.MAIN, "OTG encountered an error writing " + file.getAbsolutePath() + ", skipping. Exception:");
+					e.printStackTrace();
+				} finally {
+					try {
+						if(fos != null)
+						{
+							fos.close();
+						}
+					} catch (Exception e) { }
+				}
+			}
+		});
+	}
+
+	private File getTileFile(int tileX, int tileZ)
+	{
+		return new File(this.folder, tileX + "_" + tileZ + FILE_EXTENSION);
+	}
+
+	private static void deleteFolder(File folder)
+	{
+		File[] files = folder.listFiles();
+		if(files != null)
+		{
+			for(File file : files)
+			{
+				if(file.isDirectory())
+				{
+					deleteFolder(file);
+				} else {
+					file.delete();
+				}
+			}
+		}
+		folder.delete();
+	}
+}
@@ -170,4 +170,17 @@ public class BiomeBorderLayer implements ParentedLayer
 		
 		return center;
 	}
+
+	// Borders check the 8 surrounding samples.
+	@Override
+	public int getParentMin(int min)
+	{
+		return min - 1;
+	}
+
+	@Override
+	public int getParentMax(int max)
+	{
+		return max + 1;
+	}
 }
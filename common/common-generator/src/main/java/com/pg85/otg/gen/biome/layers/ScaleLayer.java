@@ -18,6 +18,18 @@ class ScaleLayer implements ParentedLayer
 	  return y >> 1;
 	}
 
+	@Override
+	public int getParentMin(int min)
+	{
+	  return min >> 1;
+	}
+
+	@Override
+	public int getParentMax(int max)
+	{
+	  return (max + 1) >> 1;
+	}
+
 	public int sample(LayerSampleContext<?> context, ILayerSampler parent, int x, int z)
 	{
 	  // Optimized ScaleLayer implementation from zoom-layer
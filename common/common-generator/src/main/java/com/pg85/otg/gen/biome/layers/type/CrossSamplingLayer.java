@@ -19,4 +19,14 @@ public interface CrossSamplingLayer extends ParentedLayer {
 			  parent.sample(x - 1, z), // West
 			  parent.sample(x, z));	// Center
 	}
+
+	@Override
+	default int getParentMin(int min) {
+	  return min - 1;
+	}
+
+	@Override
+	default int getParentMax(int max) {
+	  return max + 1;
+	}
 }
@@ -19,4 +19,14 @@ public interface DiagonalCrossSamplingLayer extends ParentedLayer {
 			  parent.sample(x - 1, z - 1), // Northwest
 			  parent.sample(x, z));		// Center
 	}
+
+	@Override
+	default int getParentMin(int min) {
+	  return min - 1;
+	}
+
+	@Override
+	default int getParentMax(int max) {
+	  return max + 1;
+	}
 }
@@ -14,6 +14,16 @@ public interface InitLayer
 	  return () -> context.createSampler((x, z) -> {
 		 context.initSeed(x, z);
 		 return this.sample(context, x, z);
+	  }, (x, z, width, height, out) -> {
+		 int i = 0;
+		 for (int areaX = x; areaX < x + width; areaX++)
+		 {
+			for (int areaZ = z; areaZ < z + height; areaZ++)
+			{
+			   context.initSeed(areaX, areaZ);
+			   out[i++] = this.sample(context, areaX, areaZ);
+			}
+		 }
 	  });
 	}
 
@@ -1,5 +1,6 @@
 package com.pg85.otg.gen.biome.layers.type;
 
+import com.pg85.otg.gen.biome.layers.util.LayerArea;
 import com.pg85.otg.gen.biome.layers.util.LayerFactory;
 import com.pg85.otg.gen.biome.layers.util.LayerRandomnessSource;
 import com.pg85.otg.gen.biome.layers.util.LayerSampleContext;
@@ -12,9 +13,23 @@ public interface MergingLayer
 	  return () -> {
 		 R layerSampler = layer1.make();
 		 R layerSampler2 = layer2.make();
+		 LayerArea area1 = new LayerArea();
+		 LayerArea area2 = new LayerArea();
 		 return context.createSampler((x, z) -> {
 			context.initSeed(x, z);
 			return this.sample(context, layerSampler, layerSampler2, x, z);
+		 }, (x, z, width, height, out) -> {
+			area1.fill(layerSampler, x, z, width, height);
+			area2.fill(layerSampler2, x, z, width, height);
+			int i = 0;
+			for (int areaX = x; areaX < x + width; areaX++)
+			{
+			   for (int areaZ = z; areaZ < z + height; areaZ++)
+			   {
+				  context.initSeed(areaX, areaZ);
+				  out[i++] = this.sample(context, area1, area2, areaX, areaZ);
+			   }
+			}
 		 }, layerSampler, layerSampler2);
 	  };
 	}
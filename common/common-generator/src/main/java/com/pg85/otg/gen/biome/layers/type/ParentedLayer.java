@@ -1,5 +1,6 @@
 package com.pg85.otg.gen.biome.layers.type;
 
+import com.pg85.otg.gen.biome.layers.util.LayerArea;
 import com.pg85.otg.gen.biome.layers.util.LayerFactory;
 import com.pg85.otg.gen.biome.layers.util.LayerSampleContext;
 import com.pg85.otg.interfaces.ILayerSampler;
@@ -13,12 +14,45 @@ public interface ParentedLayer
 	{
 	  return () -> {
 		 R layerSampler = parent.make();
+		 LayerArea parentArea = new LayerArea();
 		 return context.createSampler((x, z) -> {
 			context.initSeed(x, z);
 			return this.sample(context, layerSampler, x, z);
+		 }, (x, z, width, height, out) -> {
+			// Sample the parent area once, including the border this layer reads
+			int parentX = this.getParentMin(x);
+			int parentZ = this.getParentMin(z);
+			parentArea.fill(layerSampler, parentX, parentZ, this.getParentMax(x + width - 1) - parentX + 1, this.getParentMax(z + height - 1) - parentZ + 1);
+			int i = 0;
+			for (int areaX = x; areaX < x + width; areaX++)
+			{
+			   for (int areaZ = z; areaZ < z + height; areaZ++)
+			   {
+				  context.initSeed(areaX, areaZ);
+				  out[i++] = this.sample(context, parentArea, areaX, areaZ);
+			   }
+			}
 		 }, layerSampler);
 	  };
 	}
 
 	int sample(LayerSampleContext<?> context, ILayerSampler parent, int x, int z);
+
+	/**
+	 * The lowest parent x or z sampled for the given x or z, used when sampling
+	 * areas. Layers that sample the parent at other coordinates than their own
+	 * must override this and getParentMax.
+	 */
+	default int getParentMin(int min)
+	{
+	  return min;
+	}
+
+	/**
+	 * The highest parent x or z sampled for the given x or z.
+	 */
+	default int getParentMax(int max)
+	{
+	  return max;
+	}
 }
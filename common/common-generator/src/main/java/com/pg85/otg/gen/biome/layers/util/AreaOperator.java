@@ -0,0 +1,6 @@
+package com.pg85.otg.gen.biome.layers.util;
+
+public interface AreaOperator
+{
+	void apply(int x, int z, int width, int height, int[] out);
+}
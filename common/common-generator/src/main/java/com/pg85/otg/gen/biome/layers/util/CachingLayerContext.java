@@ -5,6 +5,11 @@ import java.util.Random;
 import com.pg85.otg.gen.noise.PerlinNoiseSampler;
 import com.pg85.otg.util.helpers.MathHelper;
 
+/**
+ * Layer context for a single layer of a single sampler stack. initSeed and
+ * nextInt mutate localSeed, so the context must only be used by the thread
+ * that owns the stack, see CachingLayerSampler.
+ */
 public class CachingLayerContext implements LayerSampleContext<CachingLayerSampler>
 {
 	private final int cacheCapacity;
@@ -19,19 +24,19 @@ public class CachingLayerContext implements LayerSampleContext<CachingLayerSampl
 	  this.cacheCapacity = cacheCapacity;
 	}
 
-	public CachingLayerSampler createSampler(LayerOperator layerOperator)
+	public CachingLayerSampler createSampler(LayerOperator layerOperator, AreaOperator areaOperator)
 	{
-	  return new CachingLayerSampler(this.cacheCapacity, layerOperator);
+	  return new CachingLayerSampler(this.cacheCapacity, layerOperator, areaOperator);
 	}
 
-	public CachingLayerSampler createSampler(LayerOperator layerOperator, CachingLayerSampler cachingLayerSampler)
+	public CachingLayerSampler createSampler(LayerOperator layerOperator, AreaOperator areaOperator, CachingLayerSampler cachingLayerSampler)
 	{
-	  return new CachingLayerSampler(Math.min(1024, cachingLayerSampler.getCapacity() * 4), layerOperator);
+	  return new CachingLayerSampler(Math.min(1024, cachingLayerSampler.getCapacity() * 4), layerOperator, areaOperator);
 	}
 
-	public CachingLayerSampler createSampler(LayerOperator layerOperator, CachingLayerSampler cachingLayerSampler, CachingLayerSampler cachingLayerSampler2)
+	public CachingLayerSampler createSampler(LayerOperator layerOperator, AreaOperator areaOperator, CachingLayerSampler cachingLayerSampler, CachingLayerSampler cachingLayerSampler2)
 	{
-	  return new CachingLayerSampler(Math.min(1024, Math.max(cachingLayerSampler.getCapacity(), cachingLayerSampler2.getCapacity()) * 4), layerOperator);
+	  return new CachingLayerSampler(Math.min(1024, Math.max(cachingLayerSampler.getCapacity(), cachingLayerSampler2.getCapacity()) * 4), layerOperator, areaOperator);
 	}
 
 	public void initSeed(long x, long y)
@@ -7,20 +7,39 @@ import com.pg85.otg.util.helpers.MathHelper;
 
 import it.unimi.dsi.fastutil.HashCommon;
 
+/**
+ * Samples a layer through a small direct-mapped cache.
+ *
+ * A sampler stack created by BiomeLayers.create is the evaluator for a single
+ * thread: the samplers' caches and the contexts' seed state are plain fields,
+ * so sampling doesn't do any ThreadLocal lookups or allocations. Use
+ * ILayerSource.getSampler() to get the stack for the current thread, once per
+ * chunk or region rather than once per sample.
+ *
+ * sampleArea bypasses the cache, each layer samples the parent area it
+ * needs once into a flat buffer (see LayerArea) and evaluates that.
+ */
 public final class CachingLayerSampler implements ILayerSampler
 {
-	private final ThreadLocal<SamplerBiomeCache> cache;
+	private final SamplerBiomeCache cache;
+	private final AreaOperator areaOperator;
 	private final int cacheCapacity;
 
-	CachingLayerSampler(int cacheCapacity, LayerOperator operator)
+	CachingLayerSampler(int cacheCapacity, LayerOperator operator, AreaOperator areaOperator)
 	{
-		this.cache = ThreadLocal.withInitial(() -> new SamplerBiomeCache(operator, cacheCapacity));
+		this.cache = new SamplerBiomeCache(operator, cacheCapacity);
+		this.areaOperator = areaOperator;
 		this.cacheCapacity = cacheCapacity;
 	}
 
 	public int sample(int x, int z)
 	{
-		return this.cache.get().get(x, z);
+		return this.cache.get(x, z);
+	}
+
+	public void sampleArea(int x, int z, int width, int height, int[] out)
+	{
+		this.areaOperator.apply(x, z, width, height, out);
 	}
 
 	public int getCapacity()
@@ -0,0 +1,47 @@
+package com.pg85.otg.gen.biome.layers.util;
+
+import com.pg85.otg.interfaces.ILayerSampler;
+
+/**
+ * A sampled area of a parent layer, used as the parent sampler when a layer
+ * samples an area. Layers read their parent's values from the flat array
+ * instead of going through the parent's cache. The array is reused and only
+ * grows, so an area belongs to a single sampler and thread.
+ */
+public final class LayerArea implements ILayerSampler
+{
+	private int startX;
+	private int startZ;
+	private int height;
+	private int[] values = new int[0];
+
+	/**
+	 * Samples the given area of the parent layer into this area.
+	 */
+	public void fill(ILayerSampler parent, int x, int z, int width, int height)
+	{
+		this.startX = x;
+		this.startZ = z;
+		this.height = height;
+		if(this.values.length < width * height)
+		{
+			this.values = new int[width * height];
+		}
+		parent.sampleArea(x, z, width, height, this.values);
+	}
+
+	@Override
+	public int sample(int x, int z)
+	{
+		return this.values[(x - this.startX) * this.height + (z - this.startZ)];
+	}
+
+	@Override
+	public void sampleArea(int x, int z, int width, int height, int[] out)
+	{
+		for(int i = 0; i < width; i++)
+		{
+			System.arraycopy(this.values, (x + i - this.startX) * this.height + (z - this.startZ), out, i * height, height);
+		}
+	}
+}
@@ -6,16 +6,16 @@ public interface LayerSampleContext<R extends ILayerSampler> extends LayerRandom
 {
 	void initSeed(long x, long y);
 
-	R createSampler(LayerOperator operator);
+	R createSampler(LayerOperator operator, AreaOperator areaOperator);
 
-	default R createSampler(LayerOperator operator, R parent)
+	default R createSampler(LayerOperator operator, AreaOperator areaOperator, R parent)
 	{
-	  return this.createSampler(operator);
+	  return this.createSampler(operator, areaOperator);
 	}
 
-	default R createSampler(LayerOperator operator, R layerSampler, R layerSampler2)
+	default R createSampler(LayerOperator operator, AreaOperator areaOperator, R layerSampler, R layerSampler2)
 	{
-	  return this.createSampler(operator);
+	  return this.createSampler(operator, areaOperator);
 	}
 
 	default int choose(int a, int b)
@@ -8,6 +8,7 @@ import com.pg85.otg.interfaces.IBiomeConfig;
 import com.pg85.otg.interfaces.ICachedBiomeProvider;
 import com.pg85.otg.interfaces.ISurfaceGeneratorNoiseProvider;
 import com.pg85.otg.interfaces.IWorldConfig;
+import com.pg85.otg.util.ConcurrentClockCache;
 import com.pg85.otg.util.MutableBoolean;
 import com.pg85.otg.util.gen.ChunkBuffer;
 import com.pg85.otg.util.gen.DecorationArea;
@@ -17,8 +18,23 @@ import com.pg85.otg.util.materials.LocalMaterials;
 
 public abstract class Carver
 {
+	// Paths for start chunks, keyed by chunk coords packed via MathHelper.toLong.
+	// A start chunk is carved into every chunk within 8 chunks of it, so each
+	// worldgen thread uses the paths of a 17x17 chunk neighbourhood. The cache
+	// holds up to two neighbourhoods per core (at least 1024 paths), so a thread
+	// moving on to the next chunk still finds most of its paths.
+	private static final int PATH_CACHE_SIZE = Math.max(1024, Runtime.getRuntime().availableProcessors() * 17 * 17 * 2);
+	// Paths are weighed by their segment count, a segment takes about 72 bytes
+	// (ravine tables are shared by all segments of a ravine). The fixed overhead
+	// of a path, including empty ones, is counted as a few segments. The total
+	// is limited to 131072 segments, about 10MB, however many cores there are.
+	// Very long paths that don't fit in a cache segment are rebuilt each time.
+	private static final int PATH_ENTRY_WEIGHT = 4;
+	private static final int PATH_CACHE_MAX_WEIGHT = 131072;
+
 	protected final int heightLimit;
 	protected final IWorldConfig worldConfig;
+	private final ConcurrentClockCache<CarverPath> paths = new ConcurrentClockCache<>(PATH_CACHE_SIZE, Runtime.getRuntime().availableProcessors() * 2, PATH_CACHE_MAX_WEIGHT);
 
 	public Carver(int heightLimit, IWorldConfig worldConfig)
 	{
@@ -26,6 +42,41 @@ public abstract class Carver
 		this.worldConfig = worldConfig;
 	}
 
+	/**
+	 * Carves the caves/ravines starting in the given start chunk into the given main chunk.
+	 * Paths are deterministic per start chunk, so they're built once and cached, the given
+	 * random (seeded for the start chunk) is only used when the path isn't cached yet.
+	 */
+	public boolean carve(ISurfaceGeneratorNoiseProvider noiseProvider, ChunkBuffer chunk, Random random, int chunkX, int chunkZ, int mainChunkX, int mainChunkZ, BitSet carvingMask, ICachedBiomeProvider cachedBiomeProvider)
+	{
+		long key = MathHelper.toLong(chunkX, chunkZ);
+		CarverPath path = this.paths.get(key);
+		if (path == null)
+		{
+			// Paths are deterministic, so threads that miss at the same time can both build it.
+			path = new CarverPath();
+			this.buildPath(path, random, chunkX, chunkZ);
+			path.trim();
+			this.paths.put(key, path, path.size() + PATH_ENTRY_WEIGHT);
+		}
+
+		for (int i = 0; i < path.size();)
+		{
+			// Once a tunnel can no longer reach the main chunk, skip the rest of it and its branches.
+			if (
+				path.isPrunable(i) &&
+				!this.canCarveBranch(mainChunkX, mainChunkZ, path.getX(i), path.getZ(i), path.getBranchIndex(i), path.getBranchCount(i), path.getWidth(i))
+			)
+			{
+				i = path.getTunnelEnd(i);
+				continue;
+			}
+			this.carveRegion(noiseProvider, path.getCache(i), chunk, path.getSeed(i), mainChunkX, mainChunkZ, path.getX(i), path.getY(i), path.getZ(i), path.getYaw(i), path.getPitch(i), carvingMask, cachedBiomeProvider);
+			i++;
+		}
+		return true;
+	}
+
 	public int getBranchFactor()
 	{
 		return 4;
@@ -184,7 +235,11 @@ public abstract class Carver
 		return f * f + g * g - h * h <= i * i;
 	}
 
-	public abstract boolean carve(ISurfaceGeneratorNoiseProvider noiseProvider, ChunkBuffer chunk, Random random, int chunkX, int chunkZ, int mainChunkX, int mainChunkZ, BitSet carvingMask, ICachedBiomeProvider cachedBiomeProvider);
+	/**
+	 * Adds all carveRegion calls for the caves/ravines starting in the given chunk to the
+	 * path, in the order they should be made. The given random is seeded for the chunk.
+	 */
+	protected abstract void buildPath(CarverPath path, Random random, int chunkX, int chunkZ);
 
 	public abstract boolean isStartChunk(Random random, int chunkX, int chunkZ);
 
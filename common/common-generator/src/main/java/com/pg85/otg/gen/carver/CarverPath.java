@@ -0,0 +1,173 @@
+package com.pg85.otg.gen.carver;
+
+import java.util.Arrays;
+
+/**
+ * The carveRegion calls made by a carver for one start chunk, in the order
+ * they're made. Tunnels are walked once without pruning, so the same path
+ * can be replayed for every chunk the carver may reach. Pruning (see
+ * Carver.canCarveBranch) depends on the chunk being carved, so it's done
+ * when replaying the path.
+ *
+ * Immutable once built, shared between worldgen threads via the carver's
+ * path cache.
+ */
+final class CarverPath
+{
+	private static final int NOT_PRUNABLE = -1;
+
+	private int size = 0;
+	private double[] x = new double[16];
+	private double[] y = new double[16];
+	private double[] z = new double[16];
+	private double[] yaw = new double[16];
+	private double[] pitch = new double[16];
+	private long[] seed = new long[16];
+	private float[][] cache = new float[16][];
+
+	// For tunnel segments: the values canCarveBranch needs, and the index
+	// after the last segment of the tunnel and all of its branches, where
+	// replaying continues when the tunnel gets pruned.
+	private int[] branchIndex = new int[16];
+	private int[] branchCount = new int[16];
+	private float[] width = new float[16];
+	private int[] tunnelEnd = new int[16];
+
+	int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Adds a carveRegion call that is always made, like a cave room.
+	 */
+	void addRegion(float[] cache, long seed, double x, double y, double z, double yaw, double pitch)
+	{
+		add(cache, seed, x, y, z, yaw, pitch, 0, 0, 0, NOT_PRUNABLE);
+	}
+
+	/**
+	 * Adds a carveRegion call for a tunnel segment, which is only made when
+	 * the tunnel hasn't been pruned. Call endTunnel once the tunnel and its
+	 * branches have been added.
+	 */
+	void addTunnelSegment(float[] cache, long seed, double x, double y, double z, double yaw, double pitch, int branchIndex, int branchCount, float width)
+	{
+		add(cache, seed, x, y, z, yaw, pitch, branchIndex, branchCount, width, this.size);
+	}
+
+	/**
+	 * Marks the segments added since tunnelStart as a tunnel, ending
+	 * (including any branches) at the current end of the path.
+	 */
+	void endTunnel(int tunnelStart, int tunnelSegmentsEnd)
+	{
+		for (int i = tunnelStart; i < tunnelSegmentsEnd; i++)
+		{
+			this.tunnelEnd[i] = this.size;
+		}
+	}
+
+	/**
+	 * Releases unused capacity, call once the path is complete.
+	 */
+	void trim()
+	{
+		resize(this.size);
+	}
+
+	boolean isPrunable(int i)
+	{
+		return this.tunnelEnd[i] != NOT_PRUNABLE;
+	}
+
+	int getTunnelEnd(int i)
+	{
+		return this.tunnelEnd[i];
+	}
+
+	double getX(int i)
+	{
+		return this.x[i];
+	}
+
+	double getY(int i)
+	{
+		return this.y[i];
+	}
+
+	double getZ(int i)
+	{
+		return this.z[i];
+	}
+
+	double getYaw(int i)
+	{
+		return this.yaw[i];
+	}
+
+	double getPitch(int i)
+	{
+		return this.pitch[i];
+	}
+
+	long getSeed(int i)
+	{
+		return this.seed[i];
+	}
+
+	float[] getCache(int i)
+	{
+		return this.cache[i];
+	}
+
+	int getBranchIndex(int i)
+	{
+		return this.branchIndex[i];
+	}
+
+	int getBranchCount(int i)
+	{
+		return this.branchCount[i];
+	}
+
+	float getWidth(int i)
+	{
+		return this.width[i];
+	}
+
+	private void add(float[] cache, long seed, double x, double y, double z, double yaw, double pitch, int branchIndex, int branchCount, float width, int tunnelEnd)
+	{
+		if (this.size == this.x.length)
+		{
+			resize(Math.max(16, this.size * 2));
+		}
+		this.cache[this.size] = cache;
+		this.seed[this.size] = seed;
+		this.x[this.size] = x;
+		this.y[this.size] = y;
+		this.z[this.size] = z;
+		this.yaw[this.size] = yaw;
+		this.pitch[this.size] = pitch;
+		this.branchIndex[this.size] = branchIndex;
+		this.branchCount[this.size] = branchCount;
+		this.width[this.size] = width;
+		this.tunnelEnd[this.size] = tunnelEnd;
+		this.size++;
+	}
+
+	private void resize(int length)
+	{
+		this.x = Arrays.copyOf(this.x, length);
+		this.y = Arrays.copyOf(this.y, length);
+		this.z = Arrays.copyOf(this.z, length);
+		this.yaw = Arrays.copyOf(this.yaw, length);
+		this.pitch = Arrays.copyOf(this.pitch, length);
+		this.seed = Arrays.copyOf(this.seed, length);
+		this.cache = Arrays.copyOf(this.cache, length);
+		this.branchIndex = Arrays.copyOf(this.branchIndex, length);
+		this.branchCount = Arrays.copyOf(this.branchCount, length);
+		this.width = Arrays.copyOf(this.width, length);
+		this.tunnelEnd = Arrays.copyOf(this.tunnelEnd, length);
+	}
+}
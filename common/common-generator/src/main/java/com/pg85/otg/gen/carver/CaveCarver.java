@@ -1,13 +1,9 @@
 package com.pg85.otg.gen.carver;
 
-import java.util.BitSet;
 import java.util.Random;
 
 import com.pg85.otg.constants.Constants;
-import com.pg85.otg.interfaces.ICachedBiomeProvider;
-import com.pg85.otg.interfaces.ISurfaceGeneratorNoiseProvider;
 import com.pg85.otg.interfaces.IWorldConfig;
-import com.pg85.otg.util.gen.ChunkBuffer;
 import com.pg85.otg.util.helpers.MathHelper;
 import com.pg85.otg.util.helpers.RandomHelper;
 
@@ -19,7 +15,7 @@ public class CaveCarver extends Carver
 	}
 
 	@Override
-	public boolean carve(ISurfaceGeneratorNoiseProvider noiseProvider, ChunkBuffer chunk, Random random, int chunkX, int chunkZ, int mainChunkX, int mainChunkZ, BitSet carvingMask, ICachedBiomeProvider cachedBiomeProvider)
+	protected void buildPath(CarverPath path, Random random, int chunkX, int chunkZ)
 	{
 		int branchFactor = (this.getBranchFactor() * 2 - 1) * Constants.CHUNK_SIZE;
 		int caveCount = random.nextInt(random.nextInt(random.nextInt(this.getMaxCaveCount()) + 1) + 1);
@@ -40,7 +36,7 @@ public class CaveCarver extends Carver
 			if (random.nextInt(100) < this.worldConfig.getIndividualCaveRarity())
 			{
 				float size = 1.0F + random.nextFloat() * 6.0F;
-				this.carveCave(noiseProvider, chunk, random.nextLong(), mainChunkX, mainChunkZ, x, y, z, size, 0.5D, carvingMask, cachedBiomeProvider);
+				this.addCave(path, random.nextLong(), x, y, z, size, 0.5D);
 				// Vanilla Behavior: Add 0 to 3 more caves when generating a spherical cave.
 				// tunnelCount += random.nextInt(4);
 				tunnelCount += RandomHelper.numberInRange(random, this.worldConfig.getCaveSystemPocketMinSize(), this.worldConfig.getCaveSystemPocketMaxSize());
@@ -56,11 +52,9 @@ public class CaveCarver extends Carver
 				float size = (random.nextFloat() - 0.5F) / 4.0F;
 				float width = this.getTunnelSystemWidth(random);
 				int branchCount = branchFactor - random.nextInt(branchFactor / 4);
-				this.carveTunnels(noiseProvider, chunk, random.nextLong(), mainChunkX, mainChunkZ, x, y, z, width, yaw, size, 0, branchCount, this.getTunnelSystemHeightWidthRatio(), carvingMask, cachedBiomeProvider);
+				this.addTunnels(path, random.nextLong(), x, y, z, width, yaw, size, 0, branchCount, this.getTunnelSystemHeightWidthRatio());
 			}
 		}
-
-		return true;
 	}
 
 	@Override
@@ -112,17 +106,20 @@ public class CaveCarver extends Carver
 		}
 	}
 
-	protected void carveCave(ISurfaceGeneratorNoiseProvider noiseProvider, ChunkBuffer chunk, long seed, int mainChunkX, int mainChunkZ, double x, double y, double z, float yaw, double yawPitchRatio, BitSet carvingMask, ICachedBiomeProvider cachedBiomeProvider)
+	protected void addCave(CarverPath path, long seed, double x, double y, double z, float yaw, double yawPitchRatio)
 	{
 		//double scaledYaw = 1.5D + (double)(MathHelper.sin(((float)Math.PI / 2F)) * yaw);
 		double scaledYaw = 1.5D + (double) (MathHelper.sin(1.5707964F) * yaw);
 		double scaledPitch = scaledYaw * yawPitchRatio;
-		this.carveRegion(noiseProvider, null, chunk, seed, mainChunkX, mainChunkZ, x + 1.0D, y, z, scaledYaw, scaledPitch, carvingMask, cachedBiomeProvider);
+		path.addRegion(null, seed, x + 1.0D, y, z, scaledYaw, scaledPitch);
 	}
 
-	protected void carveTunnels(ISurfaceGeneratorNoiseProvider noiseProvider, ChunkBuffer chunk, long seed, int mainChunkX, int mainChunkZ, double x, double y, double z, float width, float yaw, float pitch, int branchStartIndex, int branchCount, double yawPitchRatio, BitSet carvingMask, ICachedBiomeProvider cachedBiomeProvider)
+	// Adds the tunnel's segments followed by its branches, pruning is done when the path is carved.
+	protected void addTunnels(CarverPath path, long seed, double x, double y, double z, float width, float yaw, float pitch, int branchStartIndex, int branchCount, double yawPitchRatio)
 	{
 		Random random = new Random(seed);
+		int tunnelStart = path.size();
+		int tunnelSegmentsEnd;
 		int nextBranchIndex = random.nextInt(branchCount / 2) + branchCount / 4;
 		boolean isBigger = random.nextInt(6) == 0;
 		float yawChange = 0.0F;
@@ -149,21 +146,19 @@ public class CaveCarver extends Carver
 			yawChange += (random.nextFloat() - random.nextFloat()) * random.nextFloat() * 4.0F;
 			if (branchIndex == nextBranchIndex && width > 1.0F)
 			{
-				this.carveTunnels(noiseProvider, chunk, random.nextLong(), mainChunkX, mainChunkZ, x, y, z, random.nextFloat() * 0.5F + 0.5F, yaw - 1.5707964F, pitch / 3.0F, branchIndex, branchCount, 1.0D, carvingMask, cachedBiomeProvider);
-				this.carveTunnels(noiseProvider, chunk, random.nextLong(), mainChunkX, mainChunkZ, x, y, z, random.nextFloat() * 0.5F + 0.5F, yaw + 1.5707964F, pitch / 3.0F, branchIndex, branchCount, 1.0D, carvingMask, cachedBiomeProvider);
+				tunnelSegmentsEnd = path.size();
+				this.addTunnels(path, random.nextLong(), x, y, z, random.nextFloat() * 0.5F + 0.5F, yaw - 1.5707964F, pitch / 3.0F, branchIndex, branchCount, 1.0D);
+				this.addTunnels(path, random.nextLong(), x, y, z, random.nextFloat() * 0.5F + 0.5F, yaw + 1.5707964F, pitch / 3.0F, branchIndex, branchCount, 1.0D);
+				path.endTunnel(tunnelStart, tunnelSegmentsEnd);
 				return;
 			}
 
 			if (random.nextInt(4) != 0)
 			{
-				if (!this.canCarveBranch(mainChunkX, mainChunkZ, x, z, branchIndex, branchCount, width))
-				{
-					return;
-				}
-
-				this.carveRegion(noiseProvider, null, chunk, seed, mainChunkX, mainChunkZ, x, y, z, currentYaw, currentPitch, carvingMask, cachedBiomeProvider);
+				path.addTunnelSegment(null, seed, x, y, z, currentYaw, currentPitch, branchIndex, branchCount, width);
 			}
 		}
+		path.endTunnel(tunnelStart, path.size());
 	}
 
 	@Override
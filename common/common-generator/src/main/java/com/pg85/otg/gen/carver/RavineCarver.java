@@ -1,13 +1,9 @@
 package com.pg85.otg.gen.carver;
 
-import java.util.BitSet;
 import java.util.Random;
 
 import com.pg85.otg.constants.Constants;
-import com.pg85.otg.interfaces.ICachedBiomeProvider;
-import com.pg85.otg.interfaces.ISurfaceGeneratorNoiseProvider;
 import com.pg85.otg.interfaces.IWorldConfig;
-import com.pg85.otg.util.gen.ChunkBuffer;
 import com.pg85.otg.util.helpers.MathHelper;
 import com.pg85.otg.util.helpers.RandomHelper;
 
@@ -28,7 +24,7 @@ public class RavineCarver extends Carver
 	}
 
 	@Override
-	public boolean carve(ISurfaceGeneratorNoiseProvider noiseProvider, ChunkBuffer chunk, Random random, int chunkX, int chunkZ, int mainChunkX, int mainChunkZ, BitSet bitSet, ICachedBiomeProvider cachedBiomeProvider)
+	protected void buildPath(CarverPath path, Random random, int chunkX, int chunkZ)
 	{
 		double x = chunkX * Constants.CHUNK_SIZE + random.nextInt(Constants.CHUNK_SIZE);
 		double z = chunkZ * Constants.CHUNK_SIZE + random.nextInt(Constants.CHUNK_SIZE);			
@@ -49,13 +45,13 @@ public class RavineCarver extends Carver
 		branchCount = branchCount - random.nextInt(branchCount / 4);		
 		double yawPitchRatio = worldConfig.getRavineDepth();
 
-		this.carveRavine(noiseProvider, chunk, random.nextLong(), mainChunkX, mainChunkZ, x, y, z, width, yaw, pitch, 0, branchCount, yawPitchRatio, bitSet, cachedBiomeProvider);
-		return true;
+		this.addRavine(path, random.nextLong(), x, y, z, width, yaw, pitch, 0, branchCount, yawPitchRatio);
 	}
 
-	private void carveRavine(ISurfaceGeneratorNoiseProvider noiseProvider, ChunkBuffer chunk, long seed, int mainChunkX, int mainChunkZ, double x, double y, double z, float width, float yaw, float pitch, int branchStartIndex, int branchCount, double yawPitchRatio, BitSet carvingMask, ICachedBiomeProvider cachedBiomeProvider)
+	private void addRavine(CarverPath path, long seed, double x, double y, double z, float width, float yaw, float pitch, int branchStartIndex, int branchCount, double yawPitchRatio)
 	{
 		Random random = new Random(seed);
+		int tunnelStart = path.size();
 		float stretchFactor = 1.0F;
 
 		float[] heightToHorizontalStretchFactor = new float[1024];
@@ -95,13 +91,10 @@ public class RavineCarver extends Carver
 			yawChange += (random.nextFloat() - random.nextFloat()) * random.nextFloat() * 4.0F;
 			if (random.nextInt(4) != 0)
 			{
-				if (!this.canCarveBranch(mainChunkX, mainChunkZ, x, z, branchIndex, branchCount, width))
-				{
-					return;
-				}
-				this.carveRegion(noiseProvider, heightToHorizontalStretchFactor, chunk, seed, mainChunkX, mainChunkZ, x, y, z, currentYaw, currentPitch, carvingMask, cachedBiomeProvider);
+				path.addTunnelSegment(heightToHorizontalStretchFactor, seed, x, y, z, currentYaw, currentPitch, branchIndex, branchCount, width);
 			}
 		}
+		path.endTunnel(tunnelStart, path.size());
 	}
 
 	@Override
@@ -64,7 +64,55 @@ public class PerlinNoiseSampler
 			d9 = 0.0D;
 		}
 
-		return this.sample(i, j, k, d3, d4 - d9, d5, d6, d7, d8);
+		return this.sample(this.permute(i), this.permute(i + 1), j, k, d3, d4 - d9, d5, d6, d7, d8);
+	}
+
+	/**
+	 * Samples a column of points that share the same x and z, adding
+	 * sample / amplitude to out[index] for each index in [0, count) that
+	 * isn't masked out. Gives exactly the same results as calling
+	 * sample() for each point, but only resolves x and z once.
+	 * 
+	 * @param y Y coordinate per point, same as sample()'s y.
+	 * @param yScale Same as sample()'s yScale, shared by all points.
+	 * @param yOffset Y offset per point, same as sample()'s yOffset.
+	 * @param mask Points to sample, or null to sample all points.
+	 */
+	public void sampleColumn(double x, double z, double[] y, double yScale, double[] yOffset, double amplitude, double[] out, boolean[] mask, int count)
+	{
+		double d0 = x + this.xOffset;
+		double d2 = z + this.zOffset;
+		int i = MathHelper.floor(d0);
+		int k = MathHelper.floor(d2);
+		double d3 = d0 - (double) i;
+		double d5 = d2 - (double) k;
+		double d6 = MathHelper.smoothstep(d3);
+		double d8 = MathHelper.smoothstep(d5);
+		int permutedX0 = this.permute(i);
+		int permutedX1 = this.permute(i + 1);
+		double d1;
+		int j;
+		double d4;
+		double d7;
+		double d9;
+		for (int index = 0; index < count; index++)
+		{
+			if (mask != null && !mask[index])
+			{
+				continue;
+			}
+			d1 = y[index] + this.yOffset;
+			j = MathHelper.floor(d1);
+			d4 = d1 - (double) j;
+			d7 = MathHelper.smoothstep(d4);
+			if (yScale != 0.0D)
+			{
+				d9 = (double) MathHelper.floor(Math.min(yOffset[index], d4) / yScale) * yScale;
+			} else {
+				d9 = 0.0D;
+			}
+			out[index] += this.sample(permutedX0, permutedX1, j, k, d3, d4 - d9, d5, d6, d7, d8) / amplitude;
+		}
 	}
 
 	private int permute(int idx)
@@ -72,12 +120,13 @@ public class PerlinNoiseSampler
 		return this.permutations[idx & 255] & 255;
 	}
 
-	private double sample(int sectionX, int sectionY, int sectionZ, double localX, double localY, double localZ, double smoothedX, double smoothedY, double smoothedZ)
+	// permutedX0 and permutedX1 are permute(sectionX) and permute(sectionX + 1)
+	private double sample(int permutedX0, int permutedX1, int sectionY, int sectionZ, double localX, double localY, double localZ, double smoothedX, double smoothedY, double smoothedZ)
 	{
-		int i = this.permute(sectionX) + sectionY;
+		int i = permutedX0 + sectionY;
 		int j = this.permute(i) + sectionZ;
 		int k = this.permute(i + 1) + sectionZ;
-		int l = this.permute(sectionX + 1) + sectionY;
+		int l = permutedX1 + sectionY;
 		int i1 = this.permute(l) + sectionZ;
 		int j1 = this.permute(l + 1) + sectionZ;
 		double d0 = grad(this.permute(j), localX, localY, localZ);
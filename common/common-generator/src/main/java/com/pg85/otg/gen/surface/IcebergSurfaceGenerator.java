@@ -39,14 +39,14 @@ public class IcebergSurfaceGenerator extends MultipleLayersSurfaceGenerator
 			this.icebergCutoffNoise = new OctaveSimplexNoiseSampler(random, ImmutableList.of(0));
 		}
 
-		Random random = generatingChunk.random;
+		Random random = generatingChunk.getRandom();
 		IBiomeConfig biomeConfig = biome.getBiomeConfig();
 
 		// Bedrock on the ceiling
 		if (biomeConfig.isCeilingBedrock())
 		{
 			// Moved one block lower to fix lighting issues
-			chunkBuffer.setBlock(internalX, generatingChunk.heightCap - 2, internalZ, biomeConfig.getBedrockBlockReplaced(generatingChunk.heightCap - 2));
+			chunkBuffer.setBlock(internalX, generatingChunk.getHeightCap() - 2, internalZ, biomeConfig.getBedrockBlockReplaced(generatingChunk.getHeightCap() - 2));
 		}
 
 		double icebergHeight = 0;
@@ -80,7 +80,7 @@ public class IcebergSurfaceGenerator extends MultipleLayersSurfaceGenerator
 			}
 		}
 
-		int dirtDepth = (int) (generatingChunk.getNoise(internalX, internalZ) / 3.0D + 3.0D + generatingChunk.random.nextDouble() * 0.25D);
+		int dirtDepth = (int) (generatingChunk.getNoise(internalX, internalZ) / 3.0D + 3.0D + generatingChunk.getRandom().nextDouble() * 0.25D);
 
 		int generatedSnow = 0;
 		int snowHeight = 2 + random.nextInt(4);
@@ -298,7 +298,7 @@ public class IcebergSurfaceGenerator extends MultipleLayersSurfaceGenerator
 							(layerGroundBlockIsSand || (layer == null && biomeGroundBlockIsSand))
 						)
 						{
-							groundLayerDepth = generatingChunk.random.nextInt(4) + Math.max(0, y - seaLevel);
+							groundLayerDepth = generatingChunk.getRandom().nextInt(4) + Math.max(0, y - seaLevel);
 							useSandStoneForGround = true;
 						}
 					}
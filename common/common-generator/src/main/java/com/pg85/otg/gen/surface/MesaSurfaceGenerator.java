@@ -298,7 +298,7 @@ class MesaSurfaceGenerator implements SurfaceGenerator
 		LocalMaterialData currentGroundBlock = null;
 		boolean groundIsStainedClay = true;
 		
-		int noisePlusRandomFactor = (int) (noise / 3.0D + 3.0D + generatingChunk.random.nextDouble() * 0.25D);
+		int noisePlusRandomFactor = (int) (noise / 3.0D + 3.0D + generatingChunk.getRandom().nextDouble() * 0.25D);
 		
 		int groundLayerDepth = -1;
 		boolean belowSand = false;
@@ -310,7 +310,7 @@ class MesaSurfaceGenerator implements SurfaceGenerator
 		if (biomeConfig.isCeilingBedrock())
 		{
 			// Moved one block lower to fix lighting issues
-			chunkBuffer.setBlock(x, generatingChunk.heightCap - 2, z, biomeConfig.getBedrockBlockReplaced(generatingChunk.heightCap - 2));
+			chunkBuffer.setBlock(x, generatingChunk.getHeightCap() - 2, z, biomeConfig.getBedrockBlockReplaced(generatingChunk.getHeightCap() - 2));
 		}
 		
 		int highestBlockInColumn = chunkBuffer.getHighestBlockForColumn(x, z);
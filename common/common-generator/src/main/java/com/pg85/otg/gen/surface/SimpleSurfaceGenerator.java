@@ -36,13 +36,13 @@ public class SimpleSurfaceGenerator implements SurfaceGenerator
 		int internalZ = zInWorld & 0xf;
 		IBiomeConfig biomeConfig = biome.getBiomeConfig(); 
 		// Used to create a variable depth ground layer per column
-		int biomeBlocksNoise = (int) (generatingChunk.getNoise(internalX, internalZ) / 3.0D + 3.0D + generatingChunk.random.nextDouble() * 0.25D);
+		int biomeBlocksNoise = (int) (generatingChunk.getNoise(internalX, internalZ) / 3.0D + 3.0D + generatingChunk.getRandom().nextDouble() * 0.25D);
 
 		// Bedrock on the ceiling
 		if (biomeConfig.isCeilingBedrock())
 		{
 			// Moved one block lower to fix lighting issues
-			chunkBuffer.setBlock(internalX, generatingChunk.heightCap - 2, internalZ, biomeConfig.getBedrockBlockReplaced(generatingChunk.heightCap - 2));
+			chunkBuffer.setBlock(internalX, generatingChunk.getHeightCap() - 2, internalZ, biomeConfig.getBedrockBlockReplaced(generatingChunk.getHeightCap() - 2));
 		}
 
 		// Traverse down the block column to place bedrock, ground and surface blocks
@@ -232,7 +232,7 @@ public class SimpleSurfaceGenerator implements SurfaceGenerator
 								(layerGroundBlockIsSand || (layer == null && biomeGroundBlockIsSand))
 							)
 							{
-								groundLayerDepth = generatingChunk.random.nextInt(4) + Math.max(0, y - currentWaterLevel);
+								groundLayerDepth = generatingChunk.getRandom().nextInt(4) + Math.max(0, y - currentWaterLevel);
 								useSandStoneForGround = true;
 							}
 						} 
@@ -21,6 +21,8 @@ public class Constants
 	public static final String GLOBAL_OBJECTS_FOLDER = "GlobalObjects";
 	public static final String DIMENSION_CONFIGS_FOLDER = "DimensionConfigs";	
 	public static final String DEFAULT_PRESET_NAME = "Default";	
+	// Binary snapshots of the presets' configs, see PresetCache.
+	public static final String PRESET_CACHE_FOLDER = "PresetCache";
 	
 	// Network
 	
@@ -69,6 +71,10 @@ public class Constants
 	// Data about structure start points and bo4 groups, used for distance.
 	public static final String SpawnedStructuresFileName = StructureDataFolderName + File.separator + "SpawnedStructures" + StructureDataFileExtension;
 	public static final String SpawnedStructuresBackupFileName = StructureDataFolderName + File.separator + "SpawnedStructures" + StructureDataBackupFileExtension;
+	// Lists the structure data region files, and which of them have unspawned BO4 parts.
+	public static final String StructureDataIndexFileName = StructureDataFolderName + File.separator + "StructureDataIndex" + StructureDataFileExtension;
+	// Noise resolution biome ids, see PersistentBiomeCache.
+	public static final String BiomeCacheFolderName = "BiomeCache";
 	
 	/**
 	 * Temperatures below this temperature will cause the biome to be covered
@@ -3,4 +3,11 @@ package com.pg85.otg.interfaces;
 public interface ILayerSampler
 {
 	int sample(int x, int z);
+
+	/**
+	 * Samples width x height positions starting at x, z into out,
+	 * stored at [(x - startX) * height + (z - startZ)]. Returns the
+	 * same values as sample(x, z) for each position.
+	 */
+	void sampleArea(int x, int z, int width, int height, int[] out);
 }
@@ -2,5 +2,9 @@ package com.pg85.otg.interfaces;
 
 public interface ILayerSource
 {
+	/**
+	 * Returns the layer sampler for the current thread. Samplers aren't
+	 * thread-safe, don't share the result with other threads.
+	 */
 	ILayerSampler getSampler();
 }
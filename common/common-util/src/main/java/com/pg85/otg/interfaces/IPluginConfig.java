@@ -17,6 +17,7 @@ public interface IPluginConfig
 {
 	public LogLevels getLogLevel();
 	public int getMaxWorkerThreads();
+	public int getBO4DataCacheSize();
 	public boolean getDeveloperModeEnabled();
 	public boolean logCustomObjects();
 	public boolean logStructurePlotting();
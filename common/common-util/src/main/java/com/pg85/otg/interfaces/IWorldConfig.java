@@ -93,6 +93,8 @@ public interface IWorldConfig
 	public int getWorldHeightScale();
 	public void setMaxSmoothRadius(int smoothRadius);
 	public int getMaxSmoothRadius();
+	public int getBiomeCacheSize();
+	public boolean getPersistentBiomeCacheEnabled();
 	public boolean isBetterSnowFall();
 	public int getWaterLevelMax();
 	public int getWaterLevelMin();
@@ -0,0 +1,404 @@
+package com.pg85.otg.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+import com.pg85.otg.util.helpers.MathHelper;
+
+/**
+ * A bounded, thread-safe cache keyed by primitive longs (typically
+ * chunk or region coords packed via MathHelper.toLong).
+ *
+ * The cache is split into lock-striped segments, each with its own
+ * open-addressed hash table and CLOCK (second chance) eviction, so
+ * worldgen threads working on different chunks rarely contend. Reads
+ * are optimistic and don't take a lock unless a write happened during
+ * the read.
+ *
+ * Values are shared between threads and should be treated as immutable
+ * once they've been put into the cache.
+ *
+ * Optionally, entries can be given a weight (for instance their size) and
+ * the total weight of the cache can be limited as well as the entry count.
+ */
+public class ConcurrentClockCache<T>
+{
+	private final Segment<T>[] segments;
+	private final int segmentMask;
+	private final int capacity;
+	private final long maxWeight;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	public ConcurrentClockCache(int capacity)
+	{
+		this(capacity, Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ConcurrentClockCache(int capacity, int concurrencyLevel)
+	{
+		this(capacity, concurrencyLevel, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @param maxWeight The maximum total weight of the cached entries, see put(long, T, int).
+	 */
+	public ConcurrentClockCache(int capacity, int concurrencyLevel, long maxWeight)
+	{
+		if(capacity < 1)
+		{
+			throw new IllegalArgumentException("Cache capacity must be at least 1, was " + capacity);
+		}
+		this.capacity = capacity;
+		this.maxWeight = maxWeight;
+
+		// Keep at least 8 entries per segment, CLOCK doesn't do much with fewer.
+		int segmentCount = MathHelper.smallestEncompassingPowerOfTwo(Math.max(1, Math.min(concurrencyLevel, capacity / 8)));
+		this.segmentMask = segmentCount - 1;
+		this.segments = new Segment[segmentCount];
+		int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+		long segmentMaxWeight = maxWeight == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(1, maxWeight / segmentCount);
+		for(int i = 0; i < segmentCount; i++)
+		{
+			this.segments[i] = new Segment<T>(segmentCapacity, segmentMaxWeight);
+		}
+	}
+
+	public T get(long key)
+	{
+		int hash = hash(key);
+		T value = this.segments[hash & this.segmentMask].get(key, hash);
+		if(value != null)
+		{
+			this.hits.increment();
+		} else {
+			this.misses.increment();
+		}
+		return value;
+	}
+
+	public void put(long key, T value)
+	{
+		put(key, value, 1);
+	}
+
+	/**
+	 * Caches the value with the given weight, evicting entries until the total
+	 * weight is within the cache's maximum weight. Values that are heavier than
+	 * a segment of the cache can hold aren't cached.
+	 */
+	public void put(long key, T value, int weight)
+	{
+		if(value == null)
+		{
+			throw new IllegalArgumentException("Null values can't be cached");
+		}
+		if(weight < 1)
+		{
+			throw new IllegalArgumentException("Weight must be at least 1, was " + weight);
+		}
+		int hash = hash(key);
+		int evicted = this.segments[hash & this.segmentMask].put(key, hash, value, weight);
+		if(evicted > 0)
+		{
+			this.evictions.add(evicted);
+		}
+	}
+
+	public void clear()
+	{
+		for(Segment<T> segment : this.segments)
+		{
+			segment.clear();
+		}
+	}
+
+	public int size()
+	{
+		int size = 0;
+		for(Segment<T> segment : this.segments)
+		{
+			size += segment.size();
+		}
+		return size;
+	}
+
+	public int getCapacity()
+	{
+		return this.capacity;
+	}
+
+	public long getMaxWeight()
+	{
+		return this.maxWeight;
+	}
+
+	public long getHits()
+	{
+		return this.hits.sum();
+	}
+
+	public long getMisses()
+	{
+		return this.misses.sum();
+	}
+
+	public long getEvictions()
+	{
+		return this.evictions.sum();
+	}
+
+	// Murmur3 fmix64, spreads packed x/z coords over the whole int range.
+	private static int hash(long key)
+	{
+		long h = key;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int)h;
+	}
+
+	private static class Segment<T>
+	{
+		private final StampedLock lock = new StampedLock();
+
+		// Entries, the CLOCK hand sweeps over these.
+		private final long[] entryKeys;
+		private final Object[] entryValues;
+		private final boolean[] referenced;
+		private final int[] weights;
+		private final long maxWeight;
+		private long weight = 0;
+		private int size = 0;
+		private int hand = 0;
+
+		// Open-addressed index into the entries (entry index + 1, 0 is empty),
+		// kept at most half full so probe sequences stay short.
+		private final int[] table;
+		private final int tableMask;
+
+		private Segment(int capacity, long maxWeight)
+		{
+			this.entryKeys = new long[capacity];
+			this.entryValues = new Object[capacity];
+			this.referenced = new boolean[capacity];
+			this.weights = new int[capacity];
+			this.maxWeight = maxWeight;
+			this.table = new int[MathHelper.smallestEncompassingPowerOfTwo(capacity * 2)];
+			this.tableMask = this.table.length - 1;
+		}
+
+		private T get(long key, int hash)
+		{
+			long stamp = this.lock.tryOptimisticRead();
+			T value = find(key, hash);
+			if(!this.lock.validate(stamp))
+			{
+				stamp = this.lock.readLock();
+				try
+				{
+					value = find(key, hash);
+				} finally {
+					this.lock.unlockRead(stamp);
+				}
+			}
+			return value;
+		}
+
+		@SuppressWarnings("unchecked")
+		private T find(long key, int hash)
+		{
+			// Probes are bounded since optimistic reads may see a table that's being modified.
+			int slot = Integer.rotateRight(hash, 16) & this.tableMask;
+			int entry;
+			for(int i = 0; i <= this.tableMask; i++)
+			{
+				entry = this.table[slot];
+				if(entry == 0)
+				{
+					return null;
+				}
+				entry--;
+				if(this.entryKeys[entry] == key)
+				{
+					Object value = this.entryValues[entry];
+					if(value != null)
+					{
+						// Racy write, but losing a reference bit only makes eviction slightly less accurate.
+						this.referenced[entry] = true;
+					}
+					return (T)value;
+				}
+				slot = (slot + 1) & this.tableMask;
+			}
+			return null;
+		}
+
+		/**
+		 * @return The number of entries evicted to make room.
+		 */
+		private int put(long key, int hash, T value, int weight)
+		{
+			if(weight > this.maxWeight)
+			{
+				return 0;
+			}
+			long stamp = this.lock.writeLock();
+			try
+			{
+				int slot = Integer.rotateRight(hash, 16) & this.tableMask;
+				int entry;
+				while((entry = this.table[slot]) != 0)
+				{
+					entry--;
+					if(this.entryKeys[entry] == key)
+					{
+						// Another thread got here first, replace the value.
+						this.entryValues[entry] = value;
+						this.referenced[entry] = true;
+						this.weight += weight - this.weights[entry];
+						this.weights[entry] = weight;
+						return 0;
+					}
+					slot = (slot + 1) & this.tableMask;
+				}
+
+				int evicted = 0;
+				while(this.size > 0 && (this.size == this.entryKeys.length || this.weight + weight > this.maxWeight))
+				{
+					removeEntry(evict());
+					evicted++;
+				}
+				if(evicted > 0)
+				{
+					// Removing entries may have shifted our empty slot, find it again.
+					slot = Integer.rotateRight(hash, 16) & this.tableMask;
+					while(this.table[slot] != 0)
+					{
+						slot = (slot + 1) & this.tableMask;
+					}
+				}
+				entry = this.size++;
+				this.entryKeys[entry] = key;
+				this.entryValues[entry] = value;
+				this.referenced[entry] = false;
+				this.weights[entry] = weight;
+				this.weight += weight;
+				this.table[slot] = entry + 1;
+				return evicted;
+			} finally {
+				this.lock.unlockWrite(stamp);
+			}
+		}
+
+		// Advances the CLOCK hand until it finds an entry that hasn't been
+		// referenced since the last sweep, removes it from the table and
+		// returns its index.
+		private int evict()
+		{
+			int victim;
+			while(true)
+			{
+				victim = this.hand;
+				this.hand = this.hand + 1 >= this.size ? 0 : this.hand + 1;
+				if(this.referenced[victim])
+				{
+					this.referenced[victim] = false;
+				} else {
+					break;
+				}
+			}
+			removeFromTable(this.entryKeys[victim], victim);
+			return victim;
+		}
+
+		// Frees the entry at the given index, which has already been removed from
+		// the table, by moving the last entry into it so entries stay contiguous.
+		private void removeEntry(int entry)
+		{
+			this.weight -= this.weights[entry];
+			int last = this.size - 1;
+			if(entry != last)
+			{
+				int slot = Integer.rotateRight(hash(this.entryKeys[last]), 16) & this.tableMask;
+				while(this.table[slot] != last + 1)
+				{
+					slot = (slot + 1) & this.tableMask;
+				}
+				this.table[slot] = entry + 1;
+				this.entryKeys[entry] = this.entryKeys[last];
+				this.entryValues[entry] = this.entryValues[last];
+				this.referenced[entry] = this.referenced[last];
+				this.weights[entry] = this.weights[last];
+			}
+			this.entryValues[last] = null;
+			this.size = last;
+			if(this.hand >= this.size)
+			{
+				this.hand = 0;
+			}
+		}
+
+		// Linear probing deletion, shifts any following entries of the same
+		// cluster back so lookups never stop early at the freed slot.
+		private void removeFromTable(long key, int entry)
+		{
+			int slot = Integer.rotateRight(hash(key), 16) & this.tableMask;
+			while(this.table[slot] != entry + 1)
+			{
+				slot = (slot + 1) & this.tableMask;
+			}
+			int next = slot;
+			int home;
+			while(true)
+			{
+				next = (next + 1) & this.tableMask;
+				if(this.table[next] == 0)
+				{
+					break;
+				}
+				home = Integer.rotateRight(hash(this.entryKeys[this.table[next] - 1]), 16) & this.tableMask;
+				// Move the entry back if its home slot isn't cyclically in (slot, next].
+				if(slot <= next ? (slot >= home || home > next) : (slot >= home && home > next))
+				{
+					this.table[slot] = this.table[next];
+					slot = next;
+				}
+			}
+			this.table[slot] = 0;
+		}
+
+		private void clear()
+		{
+			long stamp = this.lock.writeLock();
+			try
+			{
+				Arrays.fill(this.table, 0);
+				Arrays.fill(this.entryValues, null);
+				Arrays.fill(this.referenced, false);
+				this.weight = 0;
+				this.size = 0;
+				this.hand = 0;
+			} finally {
+				this.lock.unlockWrite(stamp);
+			}
+		}
+
+		private int size()
+		{
+			long stamp = this.lock.readLock();
+			try
+			{
+				return this.size;
+			} finally {
+				this.lock.unlockRead(stamp);
+			}
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package com.pg85.otg.util.gen;
 
+import java.util.Arrays;
+
 import com.pg85.otg.constants.Constants;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.materials.LocalMaterialData;
@@ -34,4 +36,10 @@ public abstract class ChunkBuffer
 			highestBlockHeight[blockX * Constants.CHUNK_SIZE + blockZ] = (short)height;
 		}
 	}
+
+	// For buffers that are reused for multiple chunks.
+	protected void clearHighestBlocks()
+	{
+		Arrays.fill(highestBlockHeight, (short)0);
+	}
 }
@@ -0,0 +1,46 @@
+package com.pg85.otg.util.gen;
+
+import com.pg85.otg.interfaces.IWorldGenRegion;
+import com.pg85.otg.util.biome.ReplaceBlockMatrix;
+import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.materials.LocalMaterialData;
+
+/**
+ * Reads and writes blocks for code that does many getMaterial/setBlock
+ * calls in a row, like spawning a BO3/BO4 or a smoothing area. Platforms
+ * override this to remember the last chunk that was accessed, so it
+ * doesn't have to be looked up and checked again for every block. This
+ * default implementation just calls the world gen region.
+ *
+ * Writes are applied immediately, so reads see earlier writes. Cursors
+ * aren't thread safe, create one per spawn via IWorldGenRegion.createChunkCursor.
+ */
+public class ChunkCursor
+{
+	protected final IWorldGenRegion worldGenRegion;
+
+	public ChunkCursor(IWorldGenRegion worldGenRegion)
+	{
+		this.worldGenRegion = worldGenRegion;
+	}
+
+	public IWorldGenRegion getWorldGenRegion()
+	{
+		return this.worldGenRegion;
+	}
+
+	public LocalMaterialData getMaterial(int x, int y, int z)
+	{
+		return this.worldGenRegion.getMaterial(x, y, z);
+	}
+
+	public void setBlock(int x, int y, int z, LocalMaterialData material)
+	{
+		setBlock(x, y, z, material, null, null);
+	}
+
+	public void setBlock(int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag, ReplaceBlockMatrix replaceBlocksMatrix)
+	{
+		this.worldGenRegion.setBlock(x, y, z, material, metaDataTag, replaceBlocksMatrix);
+	}
+}
@@ -7,15 +7,16 @@ import java.util.Random;
 
 /**
  * Holds early generator information about a chunk, like water levels, noise
- * values, etc.
+ * values, etc. Instances may be reused for multiple chunks by the same thread,
+ * see reset().
  */
 public final class GeneratingChunk
 {
 
 	private static final int BEDROCK_LAYER_HEIGHT = 5;
 
-	public final int heightCap;
-	public final Random random;
+	private int heightCap;
+	private Random random;
 	private final int[] waterLevel;
 	private final double[] surfaceNoise;
 
@@ -27,6 +28,28 @@ public final class GeneratingChunk
 		this.heightCap = heightCap;
 	}
 
+	/**
+	 * Prepares this instance for a new chunk. The water level and
+	 * surface noise arrays are kept, the caller is expected to have
+	 * filled them in for the new chunk. Only the generator that owns
+	 * this instance should call this.
+	 */
+	public void reset(Random random, int heightCap)
+	{
+		this.random = random;
+		this.heightCap = heightCap;
+	}
+
+	public int getHeightCap()
+	{
+		return this.heightCap;
+	}
+
+	public Random getRandom()
+	{
+		return this.random;
+	}
+
 	/**
 	 * Gets the surface noise value at the given position.
 	 * 
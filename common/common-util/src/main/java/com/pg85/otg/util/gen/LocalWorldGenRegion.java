@@ -65,4 +65,10 @@ public abstract class LocalWorldGenRegion implements IWorldGenRegion
 	{
 		return this.decorationArea;
 	}
+
+	@Override
+	public ChunkCursor createChunkCursor()
+	{
+		return new ChunkCursor(this);
+	}
 }
@@ -0,0 +1,342 @@
+package com.pg85.otg.util.gen;
+
+import java.util.Arrays;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.util.ChunkCoordinate;
+import com.pg85.otg.util.materials.LocalMaterialData;
+import com.pg85.otg.util.materials.LocalMaterials;
+
+/**
+ * Platform-independent ChunkBuffer that stores each 16x16x16 section as
+ * palette indices bit-packed into a long[], similar to MC's chunk sections.
+ * Sections that only contain air aren't allocated, after compact() sections
+ * that contain a single material (usually stone) don't store any indices.
+ * Also keeps a heightmap of the highest non-air block per column.
+ *
+ * Used for shadowgen, /otg map and BO4 material/height checks, so chunks
+ * only have to be converted to MC chunks (see copyTo) when MC actually
+ * requests them.
+ *
+ * Not thread-safe, fill the buffer on one thread and only share it
+ * once it's done (for instance via a synchronized cache).
+ */
+public class PackedChunkBuffer extends ChunkBuffer
+{
+	private static final int SECTION_COUNT = 16;
+	private static final int SECTION_VOLUME = 16 * 16 * 16;
+
+	private final ChunkCoordinate chunkCoord;
+	private final Section[] sections = new Section[SECTION_COUNT];
+	// Highest non-air block y + 1 per column, 0 for empty columns.
+	private final short[] heightMap = new short[Constants.CHUNK_SIZE * Constants.CHUNK_SIZE];
+
+	public PackedChunkBuffer(ChunkCoordinate chunkCoord)
+	{
+		this.chunkCoord = chunkCoord;
+	}
+
+	@Override
+	public ChunkCoordinate getChunkCoordinate()
+	{
+		return this.chunkCoord;
+	}
+
+	@Override
+	public void setBlock(int internalX, int blockY, int internalZ, LocalMaterialData material)
+	{
+		if(blockY < 0 || blockY >= SECTION_COUNT * 16 || material == null)
+		{
+			return;
+		}
+
+		boolean isAir = material.isAir();
+		Section section = this.sections[blockY >> 4];
+		if(section == null)
+		{
+			if(isAir)
+			{
+				return;
+			}
+			section = new Section();
+			this.sections[blockY >> 4] = section;
+		}
+		section.set(getIndex(internalX, blockY, internalZ), material);
+
+		// The heightmap is only ever raised, blocks that are replaced
+		// with air afterwards may leave it above the highest block.
+		if(!isAir)
+		{
+			int column = getColumnIndex(internalX, internalZ);
+			if(blockY >= this.heightMap[column])
+			{
+				this.heightMap[column] = (short)(blockY + 1);
+			}
+		}
+	}
+
+	@Override
+	public LocalMaterialData getBlock(int internalX, int blockY, int internalZ)
+	{
+		if(blockY < 0 || blockY >= SECTION_COUNT * 16)
+		{
+			return LocalMaterials.AIR;
+		}
+		Section section = this.sections[blockY >> 4];
+		return section == null ? LocalMaterials.AIR : section.get(getIndex(internalX, blockY, internalZ));
+	}
+
+	/**
+	 * Returns the y of the highest non-air block in the given column,
+	 * or -1 if the column is empty.
+	 */
+	public int getHighestNonAirBlock(int internalX, int internalZ)
+	{
+		return this.heightMap[getColumnIndex(internalX, internalZ)] - 1;
+	}
+
+	/**
+	 * Repacks all sections with the smallest palette and index size they
+	 * need. Call this once the chunk has been generated, before caching it.
+	 */
+	public void compact()
+	{
+		for(int i = 0; i < SECTION_COUNT; i++)
+		{
+			if(this.sections[i] != null && !this.sections[i].compact())
+			{
+				// Only air left
+				this.sections[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * Writes all non-air blocks and the highest block heights
+	 * to the given buffer, which should be empty.
+	 */
+	public void copyTo(ChunkBuffer buffer)
+	{
+		Section section;
+		boolean[] paletteIsAir;
+		int index;
+		for(int i = 0; i < SECTION_COUNT; i++)
+		{
+			section = this.sections[i];
+			if(section == null)
+			{
+				continue;
+			}
+			paletteIsAir = new boolean[section.paletteSize];
+			for(int j = 0; j < section.paletteSize; j++)
+			{
+				paletteIsAir[j] = section.palette[j].isAir();
+			}
+			index = 0;
+			for(int y = i << 4; y < (i + 1) << 4; y++)
+			{
+				for(int z = 0; z < Constants.CHUNK_SIZE; z++)
+				{
+					for(int x = 0; x < Constants.CHUNK_SIZE; x++)
+					{
+						int paletteIndex = section.getPaletteIndex(index++);
+						if(!paletteIsAir[paletteIndex])
+						{
+							buffer.setBlock(x, y, z, section.palette[paletteIndex]);
+						}
+					}
+				}
+			}
+		}
+		for(int x = 0; x < Constants.CHUNK_SIZE; x++)
+		{
+			for(int z = 0; z < Constants.CHUNK_SIZE; z++)
+			{
+				buffer.setHighestBlockForColumn(x, z, getHighestBlockForColumn(x, z));
+			}
+		}
+	}
+
+	/**
+	 * Returns the approximate number of bytes used by the
+	 * block data, for cache size estimates.
+	 */
+	public int getPackedSize()
+	{
+		int size = this.heightMap.length * 2;
+		for(Section section : this.sections)
+		{
+			if(section != null)
+			{
+				size += section.palette.length * 8 + (section.data == null ? 0 : section.data.length * 8);
+			}
+		}
+		return size;
+	}
+
+	// Like MC's chunk sections, x and z are masked so callers can pass world coordinates.
+	private static int getIndex(int internalX, int blockY, int internalZ)
+	{
+		return (blockY & 0xF) << 8 | (internalZ & 0xF) << 4 | (internalX & 0xF);
+	}
+
+	private static int getColumnIndex(int internalX, int internalZ)
+	{
+		return (internalX & 0xF) * Constants.CHUNK_SIZE + (internalZ & 0xF);
+	}
+
+	// Palette indices are packed into longs without spanning two longs.
+	// Index 0 is always air when a section is created, so new (zeroed) data
+	// arrays are empty. A section with 0 bits only contains palette[0].
+	private static final class Section
+	{
+		private static final int MIN_BITS = 4;
+		// Once the palette has 2^MAX_BITS entries, unused entries are removed
+		// instead of growing it further. There can be at most SECTION_VOLUME
+		// entries in use, so this always frees up space.
+		private static final int MAX_BITS = 13;
+
+		private LocalMaterialData[] palette;
+		private int paletteSize;
+		private int bits;
+		private int entriesPerLong;
+		private long mask;
+		private long[] data;
+
+		Section()
+		{
+			this.palette = new LocalMaterialData[1 << MIN_BITS];
+			this.palette[0] = LocalMaterials.AIR;
+			this.paletteSize = 1;
+			setBits(MIN_BITS);
+		}
+
+		LocalMaterialData get(int index)
+		{
+			return this.palette[getPaletteIndex(index)];
+		}
+
+		void set(int index, LocalMaterialData material)
+		{
+			int paletteIndex = -1;
+			for(int i = 0; i < this.paletteSize; i++)
+			{
+				if(this.palette[i] == material || this.palette[i].equals(material))
+				{
+					paletteIndex = i;
+					break;
+				}
+			}
+			if(paletteIndex == -1)
+			{
+				if(this.paletteSize == this.palette.length)
+				{
+					if(this.bits < MAX_BITS)
+					{
+						repack(Math.max(MIN_BITS, this.bits + 1), false);
+					} else {
+						repack(this.bits, true);
+					}
+				}
+				paletteIndex = this.paletteSize++;
+				this.palette[paletteIndex] = material;
+			}
+			// With 0 bits, the material must be palette[0] already.
+			if(this.bits > 0)
+			{
+				setPaletteIndex(index, paletteIndex);
+			}
+		}
+
+		// Returns false if the section only contains air.
+		boolean compact()
+		{
+			repack(this.bits, true);
+			if(this.paletteSize == 1 && this.palette[0].isAir())
+			{
+				return false;
+			}
+			int neededBits = this.paletteSize == 1 ? 0 : 32 - Integer.numberOfLeadingZeros(this.paletteSize - 1);
+			if(neededBits != this.bits)
+			{
+				repack(neededBits, false);
+			}
+			this.palette = Arrays.copyOf(this.palette, this.paletteSize);
+			return true;
+		}
+
+		int getPaletteIndex(int index)
+		{
+			if(this.bits == 0)
+			{
+				return 0;
+			}
+			int longIndex = index / this.entriesPerLong;
+			int shift = (index - longIndex * this.entriesPerLong) * this.bits;
+			return (int)((this.data[longIndex] >>> shift) & this.mask);
+		}
+
+		private void setPaletteIndex(int index, int paletteIndex)
+		{
+			int longIndex = index / this.entriesPerLong;
+			int shift = (index - longIndex * this.entriesPerLong) * this.bits;
+			this.data[longIndex] = (this.data[longIndex] & ~(this.mask << shift)) | ((long)paletteIndex << shift);
+		}
+
+		private void setBits(int bits)
+		{
+			this.bits = bits;
+			if(bits == 0)
+			{
+				this.entriesPerLong = 0;
+				this.mask = 0;
+				this.data = null;
+			} else {
+				this.entriesPerLong = 64 / bits;
+				this.mask = (1L << bits) - 1;
+				this.data = new long[(SECTION_VOLUME + this.entriesPerLong - 1) / this.entriesPerLong];
+			}
+		}
+
+		// Re-encodes the section with the given index size, optionally
+		// dropping palette entries that aren't used by any block.
+		private void repack(int newBits, boolean removeUnused)
+		{
+			int[] indices = new int[SECTION_VOLUME];
+			for(int i = 0; i < SECTION_VOLUME; i++)
+			{
+				indices[i] = getPaletteIndex(i);
+			}
+
+			if(removeUnused)
+			{
+				int[] remap = new int[this.paletteSize];
+				Arrays.fill(remap, -1);
+				LocalMaterialData[] newPalette = new LocalMaterialData[this.palette.length];
+				int newSize = 0;
+				for(int i = 0; i < SECTION_VOLUME; i++)
+				{
+					if(remap[indices[i]] == -1)
+					{
+						remap[indices[i]] = newSize;
+						newPalette[newSize++] = this.palette[indices[i]];
+					}
+					indices[i] = remap[indices[i]];
+				}
+				this.palette = newPalette;
+				this.paletteSize = newSize;
+			} else if(this.palette.length < 1 << newBits) {
+				this.palette = Arrays.copyOf(this.palette, 1 << newBits);
+			}
+
+			setBits(newBits);
+			if(newBits > 0)
+			{
+				for(int i = 0; i < SECTION_VOLUME; i++)
+				{
+					setPaletteIndex(i, indices[i]);
+				}
+			}
+		}
+	}
+}
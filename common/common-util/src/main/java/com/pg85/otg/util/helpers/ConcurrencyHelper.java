@@ -0,0 +1,83 @@
+package com.pg85.otg.util.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrencyHelper
+{
+	/**
+	 * Creates a fixed size pool of daemon threads named name + " " + index.
+	 */
+	public static ExecutorService createFixedPool(int threads, final String name)
+	{
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, name + " " + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Runs the tasks on the executor, or on the calling thread if the
+	 * executor is null, and returns their results in the order of the tasks.
+	 * Exceptions thrown by a task are rethrown on the calling thread.
+	 */
+	public static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks)
+	{
+		List<T> results = new ArrayList<T>(tasks.size());
+		try {
+			if(executor == null)
+			{
+				for(Callable<T> task : tasks)
+				{
+					results.add(task.call());
+				}
+			} else {
+				for(Future<T> future : executor.invokeAll(tasks))
+				{
+					results.add(future.get());
+				}
+			}
+		}
+		catch (ExecutionException e)
+		{
+			throw rethrow(e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		catch (Exception e)
+		{
+			throw rethrow(e);
+		}
+		return results;
+	}
+
+	private static RuntimeException rethrow(Throwable throwable)
+	{
+		if(throwable instanceof RuntimeException)
+		{
+			return (RuntimeException)throwable;
+		}
+		if(throwable instanceof Error)
+		{
+			throw (Error)throwable;
+		}
+		return new RuntimeException(throwable);
+	}
+}
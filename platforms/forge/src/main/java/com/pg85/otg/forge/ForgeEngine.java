@@ -11,6 +11,7 @@ import net.minecraft.util.registry.MutableRegistry;
 import net.minecraft.world.IWorld;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.server.ServerChunkProvider;
+import net.minecraft.world.server.ServerWorld;
 import net.minecraftforge.fml.ModList;
 import net.minecraftforge.fml.loading.FMLLoader;
 import java.io.File;
@@ -40,6 +41,19 @@ public class ForgeEngine extends OTGEngine
 		((ForgePresetLoader)this.presetLoader).reloadPresetFromDisk(presetFolderName, this.biomeResourcesManager, this.logger, biomeRegistry);
 	}
 	
+	public void onLoad(IWorld world)
+	{
+		// For server worlds, the world save folder and dimension are known from here on.
+		if(
+			!world.isClientSide() && 
+			world.getChunkSource() instanceof ServerChunkProvider && 
+			((ServerChunkProvider)world.getChunkSource()).generator instanceof OTGNoiseChunkGenerator
+		)
+		{
+			((OTGNoiseChunkGenerator)((ServerChunkProvider)world.getChunkSource()).generator).enablePersistentBiomeCache((ServerWorld)world);
+		}
+	}
+
 	public void onSave(IWorld world)
 	{
 		// For server worlds, save the structure cache.
@@ -55,7 +69,7 @@ public class ForgeEngine extends OTGEngine
 
 	public void onUnload(IWorld world)
 	{
-		// For server worlds, stop any worker threads.
+		// For server worlds, stop any worker threads and close the biome cache.
 		if(
 			!world.isClientSide() && 
 			world.getChunkSource() instanceof ServerChunkProvider && 
@@ -63,6 +77,7 @@ public class ForgeEngine extends OTGEngine
 		)
 		{
 			((OTGNoiseChunkGenerator)((ServerChunkProvider)world.getChunkSource()).generator).stopWorkerThreads();
+			((OTGNoiseChunkGenerator)((ServerChunkProvider)world.getChunkSource()).generator).disablePersistentBiomeCache();
 		}
 	}
 	
@@ -109,6 +109,12 @@ public class OTGPlugin
 		OTGCommand.register(event.getDispatcher());
 	}
 
+	@SubscribeEvent
+	public void onLoad(WorldEvent.Load event)
+	{
+		((ForgeEngine)OTG.getEngine()).onLoad(event.getWorld());
+	}
+
 	@SubscribeEvent
 	public void onSave(Save event)
 	{
@@ -0,0 +1,97 @@
+package com.pg85.otg.forge.gen;
+
+import com.pg85.otg.constants.Constants;
+import com.pg85.otg.forge.materials.ForgeMaterialData;
+import com.pg85.otg.util.biome.ReplaceBlockMatrix;
+import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.gen.ChunkCursor;
+import com.pg85.otg.util.gen.DecorationArea;
+import com.pg85.otg.util.materials.LocalMaterialData;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ISeedReader;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.IChunk;
+
+/**
+ * Remembers the last chunk that was accessed, so getMaterial/setBlock
+ * only look up the chunk and check the decoration area when moving to
+ * another chunk. Behaves the same as ForgeWorldGenRegion.getMaterial/setBlock.
+ */
+class ForgeChunkCursor extends ChunkCursor
+{
+	private final ForgeWorldGenRegion forgeWorldGenRegion;
+	private final ISeedReader world;
+	private final DecorationArea decorationArea;
+	private final BlockPos.Mutable mutable = new BlockPos.Mutable();
+
+	private boolean hasChunk = false;
+	private int chunkX;
+	private int chunkZ;
+	private boolean inDecorationArea;
+	// Null if the chunk isn't loaded, isn't in the decoration area or hasn't been carved yet.
+	private IChunk chunk;
+
+	ForgeChunkCursor(ForgeWorldGenRegion worldGenRegion, ISeedReader world, DecorationArea decorationArea)
+	{
+		super(worldGenRegion);
+		this.forgeWorldGenRegion = worldGenRegion;
+		this.world = world;
+		this.decorationArea = decorationArea;
+	}
+
+	private void moveTo(int x, int z)
+	{
+		int chunkX = x >> 4;
+		int chunkZ = z >> 4;
+		if(this.hasChunk && chunkX == this.chunkX && chunkZ == this.chunkZ)
+		{
+			return;
+		}
+		this.hasChunk = true;
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+
+		// The decoration area is aligned to chunks, so checking one block per chunk is enough.
+		this.inDecorationArea = this.decorationArea == null || this.decorationArea.isInAreaBeingDecorated(x, z);
+		IChunk chunk = this.inDecorationArea && this.world.hasChunk(chunkX, chunkZ) ? this.world.getChunk(chunkX, chunkZ) : null;
+		this.chunk = chunk != null && chunk.getStatus().isOrAfter(ChunkStatus.LIQUID_CARVERS) ? chunk : null;
+	}
+
+	@Override
+	public LocalMaterialData getMaterial(int x, int y, int z)
+	{
+		if (y >= Constants.WORLD_HEIGHT || y < Constants.WORLD_DEPTH)
+		{
+			return null;
+		}
+
+		moveTo(x, z);
+		if(this.chunk == null)
+		{
+			return null;
+		}
+		return ForgeMaterialData.ofBlockState(this.chunk.getBlockState(this.mutable.set(x & 0xF, y, z & 0xF)));
+	}
+
+	@Override
+	public void setBlock(int x, int y, int z, LocalMaterialData material, NamedBinaryTag metaDataTag, ReplaceBlockMatrix replaceBlocksMatrix)
+	{
+		if(y < Constants.WORLD_DEPTH || y >= Constants.WORLD_HEIGHT)
+		{
+			return;
+		}
+
+		if(material.isEmpty())
+		{
+			// Happens when configs contain blocks that don't exist.
+			return;
+		}
+
+		moveTo(x, z);
+		if(this.inDecorationArea)
+		{
+			this.forgeWorldGenRegion.setBlockInDecorationArea(x, y, z, material, metaDataTag, replaceBlocksMatrix);
+		}
+	}
+}
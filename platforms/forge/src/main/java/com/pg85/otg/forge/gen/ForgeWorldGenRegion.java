@@ -20,6 +20,7 @@ import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.FifoMap;
 import com.pg85.otg.util.biome.ReplaceBlockMatrix;
 import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.gen.LocalWorldGenRegion;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
@@ -405,29 +406,41 @@ public class ForgeWorldGenRegion extends LocalWorldGenRegion
 		// into separate classes, one for decoration, one for non-decoration.		
 		if(this.decorationArea == null || this.decorationArea.isInAreaBeingDecorated(x, z))
 		{
-			if(replaceBlocksMatrix != null)
-			{
-				material = material.parseWithBiomeAndHeight(this.getWorldConfig().getBiomeConfigsHaveReplacement(), replaceBlocksMatrix, y);
-			}
+			setBlockInDecorationArea(x, y, z, material, nbt, replaceBlocksMatrix);
+		}
+	}
 
-			BlockPos pos = new BlockPos(x, y, z);
-			// Notify world: (2 | 16) == update client, don't update observers
-			this.worldGenRegion.setBlock(pos, ((ForgeMaterialData)material).internalBlock(), 2 | 16);
+	// Used by setBlock and ForgeChunkCursor, the caller checks the height, material and decoration area.
+	void setBlockInDecorationArea(int x, int y, int z, LocalMaterialData material, NamedBinaryTag nbt, ReplaceBlockMatrix replaceBlocksMatrix)
+	{
+		if(replaceBlocksMatrix != null)
+		{
+			material = material.parseWithBiomeAndHeight(this.getWorldConfig().getBiomeConfigsHaveReplacement(), replaceBlocksMatrix, y);
+		}
 
-			if (material.isLiquid())
-			{
-				this.worldGenRegion.getLiquidTicks().scheduleTick(pos, ((ForgeMaterialData)material).internalBlock().getFluidState().getType(), 0);
-			}
-			else if (material.isMaterial(LocalMaterials.COMMAND_BLOCK))
-			{
-				this.worldGenRegion.getBlockTicks().scheduleTick(pos, ((ForgeMaterialData) material).internalBlock().getBlock(), 0);
-			}
+		BlockPos pos = new BlockPos(x, y, z);
+		// Notify world: (2 | 16) == update client, don't update observers
+		this.worldGenRegion.setBlock(pos, ((ForgeMaterialData)material).internalBlock(), 2 | 16);
 
-			if (nbt != null)
-			{
-				this.attachNBT(x, y, z, nbt, worldGenRegion.getBlockState(pos));
-			}
+		if (material.isLiquid())
+		{
+			this.worldGenRegion.getLiquidTicks().scheduleTick(pos, ((ForgeMaterialData)material).internalBlock().getFluidState().getType(), 0);
+		}
+		else if (material.isMaterial(LocalMaterials.COMMAND_BLOCK))
+		{
+			this.worldGenRegion.getBlockTicks().scheduleTick(pos, ((ForgeMaterialData) material).internalBlock().getBlock(), 0);
 		}
+
+		if (nbt != null)
+		{
+			this.attachNBT(x, y, z, nbt, worldGenRegion.getBlockState(pos));
+		}
+	}
+
+	@Override
+	public ChunkCursor createChunkCursor()
+	{
+		return new ForgeChunkCursor(this, this.worldGenRegion, this.decorationArea);
 	}
 
 	private void attachNBT(int x, int y, int z, NamedBinaryTag nbt, BlockState state)
@@ -15,6 +15,7 @@ import com.pg85.otg.interfaces.IWorldConfig;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.biome.ReplaceBlockMatrix;
 import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.materials.LocalMaterialData;
@@ -175,6 +176,13 @@ public class MCWorldGenRegion extends ForgeWorldGenRegion
 		}
 	}
 	
+	// getMaterial/setBlock are overridden, so don't use the platform's chunk cursor.
+	@Override
+	public ChunkCursor createChunkCursor()
+	{
+		return new ChunkCursor(this);
+	}
+
 	@Override
 	public boolean placeTree(TreeType type, Random rand, int x, int y, int z)
 	{
@@ -29,6 +29,7 @@ import com.pg85.otg.presets.Preset;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.gen.ChunkBuffer;
 import com.pg85.otg.util.gen.JigsawStructureData;
+import com.pg85.otg.util.gen.PackedChunkBuffer;
 import com.pg85.otg.util.materials.LocalMaterialData;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
@@ -39,6 +40,7 @@ import net.minecraftforge.registries.ForgeRegistries;
 import net.minecraft.block.BlockState;
 import net.minecraft.crash.CrashReport;
 import net.minecraft.crash.ReportedException;
+import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.SharedSeedRandom;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
@@ -163,10 +165,10 @@ public final class OTGNoiseChunkGenerator extends NoiseChunkGenerator
 		// If we've already (shadow-)generated and cached this	
 		// chunk while it was unloaded, use cached data.
 		ChunkBuffer buffer = new ForgeChunkBuffer((ChunkPrimer) chunk);
-		IChunk cachedChunk = this.shadowChunkGenerator.getChunkWithWait(chunkCoord);
+		PackedChunkBuffer cachedChunk = this.shadowChunkGenerator.getChunkWithWait(chunkCoord);
 		if (cachedChunk != null)
 		{
-			this.shadowChunkGenerator.fillWorldGenChunkFromShadowChunk(chunk, cachedChunk);
+			this.shadowChunkGenerator.fillWorldGenChunkFromShadowChunk(buffer, cachedChunk);
 		} else {
 			// Setup jigsaw data
 			ObjectList<JigsawStructureData> structures = new ObjectArrayList<>(10);
@@ -407,6 +409,19 @@ public final class OTGNoiseChunkGenerator extends NoiseChunkGenerator
 		return this.structureCache;
 	}
 
+	// Dimensions using the same preset share the world save folder, so the biome cache folder is per dimension.
+	public void enablePersistentBiomeCache(ServerWorld world)
+	{
+		Path worldSaveFolder = world.getServer().getWorldPath(FolderName.PLAYER_DATA_DIR).getParent();
+		ResourceLocation dimension = world.dimension().location();
+		this.internalGenerator.enablePersistentBiomeCache(worldSaveFolder, dimension.getNamespace() + "_" + dimension.getPath().replace('/', '_'));
+	}
+
+	public void disablePersistentBiomeCache()
+	{
+		this.internalGenerator.disablePersistentBiomeCache();
+	}
+
 	double getBiomeBlocksNoiseValue(int blockX, int blockZ)
 	{
 		return this.internalGenerator.getBiomeBlocksNoiseValue(blockX, blockZ);
@@ -434,7 +449,7 @@ public final class OTGNoiseChunkGenerator extends NoiseChunkGenerator
 		return this.shadowChunkGenerator.getMaterialInUnloadedChunk(this.internalGenerator, this.preset.getWorldConfig().getWorldHeightCap(), worldRandom, x, y, z);
 	}
 
-	public ForgeChunkBuffer getChunkWithoutLoadingOrCaching(Random random, ChunkCoordinate chunkCoord)
+	public PackedChunkBuffer getChunkWithoutLoadingOrCaching(Random random, ChunkCoordinate chunkCoord)
 	{
 		return this.shadowChunkGenerator.getChunkWithoutLoadingOrCaching(this.internalGenerator, this.preset.getWorldConfig().getWorldHeightCap(), random, chunkCoord);
 	}
@@ -3,31 +3,43 @@ package com.pg85.otg.forge.gen;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
+import com.pg85.otg.OTG;
 import com.pg85.otg.forge.biome.ForgeBiome;
 import com.pg85.otg.forge.biome.OTGBiomeProvider;
-import com.pg85.otg.forge.materials.ForgeMaterialData;
 import com.pg85.otg.gen.OTGChunkGenerator;
 import com.pg85.otg.interfaces.IBiome;
 import com.pg85.otg.interfaces.ICachedBiomeProvider;
-import com.pg85.otg.util.BlockPos2D;
+import com.pg85.otg.interfaces.ILogger;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.FifoMap;
+import com.pg85.otg.util.gen.ChunkBuffer;
 import com.pg85.otg.util.gen.JigsawStructureData;
+import com.pg85.otg.util.gen.PackedChunkBuffer;
+import com.pg85.otg.util.logging.LogCategory;
+import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.materials.LocalMaterialData;
 import com.pg85.otg.util.materials.LocalMaterials;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
-import net.minecraft.block.BlockState;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.util.SharedSeedRandom;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.chunk.ChunkPrimer;
 import net.minecraft.world.chunk.ChunkStatus;
@@ -52,6 +64,10 @@ import net.minecraftforge.registries.ForgeRegistries;
  * for those chunks via normal worldgen. Shadowgen is used for BO4's,
  * worker threads to speed up world generation and /otg mapterrain.
  *
+ * Worker threads run on a fixed size executor, each queued chunk has a
+ * future that worldgen threads can wait on. If a worldgen thread needs a
+ * chunk that's still queued, it generates the chunk itself.
+ *
  * Shadowgen can only be done for chunks that don't contain vanilla structures,
  * since those structures may use density based smoothing applied during noisegen,
  * which unfortunately is done in a non-thread-safe/blocking manner, necessitating
@@ -59,47 +75,106 @@ import net.minecraftforge.registries.ForgeRegistries;
  */
 public class ShadowChunkGenerator
 {
+	private static final long IDLE_TIMEOUT_SECONDS = 30;
+
 	// TODO: Add a setting to the worldconfig for the size of these caches?
-	private final FifoMap<BlockPos2D, LocalMaterialData[]> unloadedBlockColumnsCache = new FifoMap<BlockPos2D, LocalMaterialData[]>(1024);
-	private final FifoMap<ChunkCoordinate, IChunk> unloadedChunksCache = new FifoMap<ChunkCoordinate, IChunk>(512);
+	// Shadowgenned chunks are stored as PackedChunkBuffers, which usually take a few KB per chunk.
+	// A null entry means the chunk shouldn't be shadowgenned, due to a vanilla structure start nearby.
+	private final FifoMap<ChunkCoordinate, PackedChunkBuffer> unloadedChunksCache = new FifoMap<ChunkCoordinate, PackedChunkBuffer>(2048);
 	private final FifoMap<ChunkCoordinate, Integer> hasVanillaStructureChunkCache = new FifoMap<ChunkCoordinate, Integer>(2048);
 	private final FifoMap<ChunkCoordinate, Integer> hasVanillaNoiseStructureChunkCache = new FifoMap<ChunkCoordinate, Integer>(2048);
 
+	// Guards unloadedChunksCache, tasks and chunksBeingGenerated. Finished
+	// tasks are moved to unloadedChunksCache while holding the lock, so a
+	// chunk is always either cached, queued/being generated or neither.
 	private final Object workerLock = new Object();
+	private final Map<ChunkCoordinate, ShadowChunkTask> tasks = new HashMap<ChunkCoordinate, ShadowChunkTask>();
+	// Chunks that are being generated by worldgen threads, not shadowgen.
+	private final Set<ChunkCoordinate> chunksBeingGenerated = new HashSet<ChunkCoordinate>();
 	private final int maxConcurrent;
-	private final Worker[] threads;
-	private boolean threadsInitialized = false;
-	private final LinkedList<ChunkCoordinate> chunksToLoad = new LinkedList<ChunkCoordinate>();
 	private final int maxQueueSize = 512;
-	private final ChunkCoordinate[] chunksBeingLoaded;
-	private final int waitTimeInMS = 25;
-	private final int idleTimeInMS = 50;
-	@SuppressWarnings("unused")
-	private int cacheHits = 0;
-	@SuppressWarnings("unused")
-	private int cacheMisses = 0;
+	private final ThreadPoolExecutor executor;
+
+	// Metrics
+	private final AtomicLong cacheHits = new AtomicLong();
+	private final AtomicLong cacheMisses = new AtomicLong();
+	private final AtomicLong chunksGenerated = new AtomicLong();
+	private final AtomicLong chunksStolen = new AtomicLong();
+	private final AtomicLong waits = new AtomicLong();
+	private final AtomicLong totalWaitTimeNanos = new AtomicLong();
 
 	public ShadowChunkGenerator(int maxConcurrentThreads)
 	{
 		this.maxConcurrent = maxConcurrentThreads;
-		this.threads = new Worker[this.maxConcurrent];
-		// chunksBeingLoaded[maxConcurrent] means worldgen thread, not a worker thread.
-		this.chunksBeingLoaded = new ChunkCoordinate[this.maxConcurrent + 1];
+		if(this.maxConcurrent > 0)
+		{
+			final AtomicInteger threadCount = new AtomicInteger();
+			this.executor = new ThreadPoolExecutor(this.maxConcurrent, this.maxConcurrent, IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "OTG Shadowgen Worker " + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			this.executor.allowCoreThreadTimeOut(true);
+		} else {
+			this.executor = null;
+		}
 	}
 
 	// Called on world unload to stop threads and release resources.
 	public void stopWorkerThreads()
 	{
-		if(this.maxConcurrent > 0)
+		if(this.executor != null)
 		{
-			for(int i = 0; i < this.maxConcurrent; i++)
+			// Complete any queued tasks, so nothing waits for them.
+			for(Runnable runnable : this.executor.shutdownNow())
 			{
-				if(this.threads[i] != null)
-				{
-					this.threads[i].stop();
-				}
+				((ShadowChunkTask)runnable).cancel();
 			}
 		}
+		ILogger logger = OTG.getEngine().getLogger();
+		if(logger.getLogCategoryEnabled(LogCategory.PERFORMANCE))
+		{
+			logger.log(LogLevel.INFO, LogCategory.PERFORMANCE, "Shadowgen: " + this.chunksGenerated.get() + " chunks generated (" + this.chunksStolen.get() + " by worldgen threads), cache hit rate " + getCacheHitRate() + "%, " + this.waits.get() + " waits, average wait " + getAverageWaitTimeMillis() + " ms.");
+		}
+	}
+
+	public int getQueueDepth()
+	{
+		return this.executor == null ? 0 : this.executor.getQueue().size();
+	}
+
+	public long getCacheHits()
+	{
+		return this.cacheHits.get();
+	}
+
+	public long getCacheMisses()
+	{
+		return this.cacheMisses.get();
+	}
+
+	// Percentage of base terrain requests that were served from the cache.
+	public int getCacheHitRate()
+	{
+		long hits = this.cacheHits.get();
+		long total = hits + this.cacheMisses.get();
+		return total == 0 ? 0 : (int)(hits * 100 / total);
+	}
+
+	public long getWaits()
+	{
+		return this.waits.get();
+	}
+
+	public long getAverageWaitTimeMillis()
+	{
+		long waits = this.waits.get();
+		return waits == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(this.totalWaitTimeNanos.get() / waits);
 	}
 
 	// Whenever MC requests noisegen/base terrain gen for a chunk, it also exposes a cache of chunks currently loaded/queued.
@@ -108,63 +183,58 @@ public class ShadowChunkGenerator
 	// we return the async generated chunk data.
 	public void queueChunksForWorkerThreads(WorldGenRegion worldGenRegion, StructureManager manager, IChunk chunk, ChunkGenerator chunkGenerator, OTGBiomeProvider biomeProvider, OTGChunkGenerator otgChunkGenerator, DimensionStructuresSettings dimensionStructuresSettings, int worldHeightCap)
 	{
-		if(this.maxConcurrent > 0)
+		if(this.executor == null || this.executor.isShutdown())
 		{
-			if(!this.threadsInitialized)
-			{
-				for(int i = 0; i < this.maxConcurrent; i++)
-				{
-					@SuppressWarnings("deprecation")
-					Worker thread = this.new Worker(i, this.unloadedChunksCache, this.chunksToLoad, this.chunksBeingLoaded, worldGenRegion.getLevel(), chunkGenerator, biomeProvider, otgChunkGenerator, dimensionStructuresSettings, worldHeightCap);
-					this.threads[i] = thread;
-					thread.start(worldGenRegion.getRandom());
-				}
-				this.threadsInitialized = true;
-			}
-			synchronized(this.workerLock)
+			return;
+		}
+		int queueSize = this.executor.getQueue().size();
+		if(queueSize >= this.maxQueueSize)
+		{
+			return;
+		}
+		List<ShadowChunkTask> tasksToQueue = new ArrayList<ShadowChunkTask>();
+		synchronized(this.workerLock)
+		{
+			for(IChunk wgrChunk : worldGenRegion.cache)
 			{
-				if(this.chunksToLoad.size() == 0)
+				if(wgrChunk != chunk && !wgrChunk.getStatus().isOrAfter(ChunkStatus.NOISE))
 				{
-					//OTG.log(LogMarker.INFO, "Fetching chunks for async chunkgen");
-					for(IChunk wgrChunk : worldGenRegion.cache)
+					ChunkCoordinate wgrChunkCoord = ChunkCoordinate.fromChunkCoords(wgrChunk.getPos().x, wgrChunk.getPos().z);
+					// Skip chunks that are already cached, queued or being generated.
+					if (
+						!this.unloadedChunksCache.containsKey(wgrChunkCoord) &&
+						!this.tasks.containsKey(wgrChunkCoord) &&
+						!this.chunksBeingGenerated.contains(wgrChunkCoord)
+					)
 					{
-						ChunkCoordinate wgrChunkCoord = ChunkCoordinate.fromChunkCoords(wgrChunk.getPos().x, wgrChunk.getPos().z);
-						if(wgrChunk != chunk && !wgrChunk.getStatus().isOrAfter(ChunkStatus.NOISE))
+						@SuppressWarnings("deprecation")
+						ShadowChunkTask task = new ShadowChunkTask(wgrChunkCoord, worldGenRegion.getLevel(), chunkGenerator, biomeProvider, otgChunkGenerator, dimensionStructuresSettings, worldHeightCap, worldGenRegion.getRandom());
+						this.tasks.put(wgrChunkCoord, task);
+						tasksToQueue.add(task);
+						if(queueSize + tasksToQueue.size() == this.maxQueueSize)
 						{
-							if (!this.unloadedChunksCache.containsKey(wgrChunkCoord))
-							{
-								boolean bFound = false;
-								for(int i = 0; i < this.chunksBeingLoaded.length; i++)
-								{
-									if(this.chunksBeingLoaded[i] == wgrChunkCoord)
-									{
-										bFound = true;
-										break;
-									}
-								}
-								if(!bFound)
-								{
-									// TODO: Queue order shouldn't really matter bc
-									// of the way maxQueueSize is enforced here.
-									// Might affect cache hits/misses and waits tho, test?
-									this.chunksToLoad.addFirst(wgrChunkCoord);
-									if(this.chunksToLoad.size() == this.maxQueueSize)
-									{
-										break;
-									}
-								}
-							}
+							break;
 						}
-					};
+					}
 				}
 			}
 		}
+		for(ShadowChunkTask task : tasksToQueue)
+		{
+			try {
+				this.executor.execute(task);
+			}
+			catch (RejectedExecutionException e)
+			{
+				// Shut down while queueing
+				task.cancel();
+			}
+		}
 	}
 
-	private ForgeChunkBuffer getUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
+	private PackedChunkBuffer getUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
 	{
-		ChunkPrimer chunk = new ChunkPrimer(new ChunkPos(chunkCoordinate.getChunkX(), chunkCoordinate.getChunkZ()), null);
-		ForgeChunkBuffer buffer = new ForgeChunkBuffer(chunk);
+		PackedChunkBuffer buffer = new PackedChunkBuffer(chunkCoordinate);
 
 		// This is where vanilla processes any noise affecting structures like villages, in order to spawn smoothing areas.
 		// Doing this for unloaded chunks causes a hang on load since getChunk is called by StructureManager.
@@ -176,93 +246,77 @@ public class ShadowChunkGenerator
 		ObjectList<JigsawStructureData> junctions = new ObjectArrayList<>(32);
 
 		otgChunkGenerator.populateNoise(worldHeightCap, random, buffer, buffer.getChunkCoordinate(), structures, junctions);
+		buffer.compact();
 		return buffer;
 	}
 
-	public IChunk getChunkWithWait(ChunkCoordinate chunkCoord)
+	// Fetches the chunk if it is cached, otherwise checks if it's queued or being
+	// generated by a worker. If it's queued, it's generated on this thread right
+	// away, if a worker is generating it, waits for the worker. If neither, the
+	// chunk is claimed by this thread (see setChunkGenerated) and null is returned.
+	public PackedChunkBuffer getChunkWithWait(ChunkCoordinate chunkCoord)
 	{
-		// Fetch the chunk if it is cached, otherwise check if no other thread
-		// is generating the chunk. If not, claim the chunk and generate it.
-		// If so, wait for the other thread to finish.
+		return getChunkWithWait(chunkCoord, true);
+	}
+
+	private PackedChunkBuffer getChunkWithWait(ChunkCoordinate chunkCoord, boolean claim)
+	{
+		ShadowChunkTask task;
 		synchronized(this.workerLock)
 		{
-			IChunk cachedChunk = this.unloadedChunksCache.get(chunkCoord);
+			PackedChunkBuffer cachedChunk = this.unloadedChunksCache.get(chunkCoord);
 			if(cachedChunk != null)
 			{
 				return cachedChunk;
-			} else {
-				// If a chunk is in unloadedChunksCache but is null, it's in a chunk that
-				// shouldn't be generated async due to a vanilla structure start nearby.
-				if(this.unloadedChunksCache.containsKey(chunkCoord))
+			}
+			// If a chunk is in unloadedChunksCache but is null, it's in a chunk that
+			// shouldn't be generated async due to a vanilla structure start nearby.
+			this.unloadedChunksCache.remove(chunkCoord);
+			task = this.tasks.get(chunkCoord);
+			if(task == null)
+			{
+				if(claim)
 				{
-					this.unloadedChunksCache.remove(chunkCoord);
-					this.chunksToLoad.remove(chunkCoord);
-					// MaxConcurrent means worldgen thread, not a worker thread.
-					this.chunksBeingLoaded[this.maxConcurrent] = chunkCoord;
-					return null;
-				} else {
-					boolean bFound = false;
-					for(int i = 0; i < this.chunksBeingLoaded.length; i++)
-					{
-						if(this.chunksBeingLoaded[i] == chunkCoord)
-						{
-							bFound = true;
-							break;
-						}
-					}
-					if(!bFound)
-					{
-						this.chunksToLoad.remove(chunkCoord);
-						// MaxConcurrent means worldgen thread, not a worker thread.
-						this.chunksBeingLoaded[this.maxConcurrent] = chunkCoord;
-						return null;
-					}
+					this.chunksBeingGenerated.add(chunkCoord);
 				}
+				return null;
 			}
 		}
 
-		// A worker thread is generating the chunk, wait.
+		// Don't wait for the chunk to reach the front of the queue.
+		if(task.claim())
+		{
+			this.chunksStolen.incrementAndGet();
+			task.generate();
+		} else {
+			long startTime = System.nanoTime();
+			task.future.join();
+			this.waits.incrementAndGet();
+			this.totalWaitTimeNanos.addAndGet(System.nanoTime() - startTime);
+		}
 
-		while(true)
+		PackedChunkBuffer chunk = task.future.join();
+		if(chunk == null)
 		{
-			try {
-				//OTG.log(LogMarker.INFO, "Waiting for chunk");
-				// TODO: If a worker thread is stuck or crashed, this may wait indefinitely.
-				Thread.sleep(this.waitTimeInMS);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
 			synchronized(this.workerLock)
 			{
-				IChunk cachedChunk = this.unloadedChunksCache.get(chunkCoord);
-				if(cachedChunk != null)
+				this.unloadedChunksCache.remove(chunkCoord);
+				if(claim)
 				{
-					return cachedChunk;
-				} else {
-					// If a chunk is in unloadedChunksCache but is null, it's in a chunk that
-					// shouldn't be generated async due to a vanilla structure start nearby.
-					if(this.unloadedChunksCache.containsKey(chunkCoord))
-					{
-						this.unloadedChunksCache.remove(chunkCoord);
-						this.chunksToLoad.remove(chunkCoord);
-						// MaxConcurrent means worldgen thread, not a worker thread.
-						this.chunksBeingLoaded[this.maxConcurrent] = chunkCoord;
-						return null;
-					}
+					this.chunksBeingGenerated.add(chunkCoord);
 				}
 			}
 		}
+		return chunk;
 	}
 
-	public void fillWorldGenChunkFromShadowChunk(IChunk chunk, IChunk cachedChunk)
+	public void fillWorldGenChunkFromShadowChunk(ChunkBuffer buffer, PackedChunkBuffer cachedChunk)
 	{
-		ChunkCoordinate chunkCoord = ChunkCoordinate.fromChunkCoords(chunk.getPos().x, chunk.getPos().z);
-		// Re-use base terrain generated via shadowgen for worldgen.
-		((ChunkPrimer)chunk).sections = ((ChunkPrimer)cachedChunk).sections;
-		((ChunkPrimer)chunk).heightmaps = ((ChunkPrimer)cachedChunk).heightmaps;
-		((ChunkPrimer)chunk).lights = ((ChunkPrimer)cachedChunk).lights;
-		this.cacheHits++;
-		//OTG.log(LogMarker.INFO, "Cache hit " + this.cacheHits);
+		ChunkCoordinate chunkCoord = buffer.getChunkCoordinate();
+		// Re-use base terrain generated via shadowgen for worldgen. Only
+		// non-air blocks are written, so empty sections are skipped.
+		cachedChunk.copyTo(buffer);
+		this.cacheHits.incrementAndGet();
 		synchronized(this.workerLock)
 		{
 			this.unloadedChunksCache.remove(chunkCoord);
@@ -271,13 +325,10 @@ public class ShadowChunkGenerator
 
 	public void setChunkGenerated(ChunkCoordinate chunkCoord)
 	{
-		this.cacheMisses++;
-		//OTG.log(LogMarker.INFO, "Cache miss " + + this.cacheMisses);
-		synchronized(workerLock)
+		this.cacheMisses.incrementAndGet();
+		synchronized(this.workerLock)
 		{
-			// Zero index, so MaxConcurrent means worldgen thread, not a worker thread.
-			this.chunksBeingLoaded[this.maxConcurrent] = null;
-			this.chunksToLoad.remove(chunkCoord);
+			this.chunksBeingGenerated.remove(chunkCoord);
 		}
 	}
 
@@ -496,7 +547,7 @@ public class ShadowChunkGenerator
 	// resources used for worldgen or bo4 shadowgen, since the chunks aren't actually supposed to generate in the world.
 	// We won't get any density based smoothing applied to noisegen for vanilla structures, but that's ok for /otg mapterrain.
 
-	public ForgeChunkBuffer getChunkWithoutLoadingOrCaching(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
+	public PackedChunkBuffer getChunkWithoutLoadingOrCaching(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
 	{
 		return getUnloadedChunk(otgChunkGenerator, worldHeightCap, random, chunkCoordinate);
 	}
@@ -508,72 +559,42 @@ public class ShadowChunkGenerator
 	// Async worker threads may also pre-emptively shadowgen and cache unloaded chunks, which speeds up base terrain generation but also BO4's.
 	// Note: BO4's are always processed on the worldgen thread, never on a worker thread, since they are not a part of base terrain generation.
 
-	private LocalMaterialData[] getBlockColumnInUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, int x, int z)
+	private PackedChunkBuffer getOrGenerateUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, ChunkCoordinate chunkCoord)
 	{
-		BlockPos2D blockPos = new BlockPos2D(x, z);
-		ChunkCoordinate chunkCoord = ChunkCoordinate.fromBlockCoords(x, z);
-
-		// Get internal coordinates for block in chunk
-		byte blockX = (byte) (x &= 0xF);
-		byte blockZ = (byte) (z &= 0xF);
-
-		LocalMaterialData[] cachedColumn = this.unloadedBlockColumnsCache.get(blockPos);
-
-		if (cachedColumn != null)
-		{
-			return cachedColumn;
-		}
-
-		IChunk chunk = this.getChunkWithWait(chunkCoord);
+		PackedChunkBuffer chunk = getChunkWithWait(chunkCoord, false);
 		if (chunk == null)
 		{
 			// Generate a chunk without loading/decorating it
-			chunk = getUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, chunkCoord).getChunk();
+			chunk = getUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, chunkCoord);
 			synchronized(this.workerLock)
 			{
 				this.unloadedChunksCache.put(chunkCoord, chunk);
-				// Zero index, so MaxConcurrent means worldgen thread, not a worker thread.
-				this.chunksBeingLoaded[this.maxConcurrent] = null;
-			}
-		}
-
-		cachedColumn = new LocalMaterialData[256];
-
-		LocalMaterialData[] blocksInColumn = new LocalMaterialData[256];
-		BlockState blockInChunk;
-		for (short y = 0; y < 256; y++)
-		{
-			blockInChunk = chunk.getBlockState(new BlockPos(blockX, y, blockZ));
-			if (blockInChunk != null)
-			{
-				blocksInColumn[y] = ForgeMaterialData.ofBlockState(blockInChunk);
-			} else {
-				break;
 			}
 		}
-		this.unloadedBlockColumnsCache.put(blockPos, cachedColumn);
-
-		return blocksInColumn;
+		return chunk;
 	}
 
 	public LocalMaterialData getMaterialInUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, int x, int y, int z)
 	{
-		LocalMaterialData[] blockColumn = getBlockColumnInUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, x, z);
-		return blockColumn[y];
+		PackedChunkBuffer chunk = getOrGenerateUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, ChunkCoordinate.fromBlockCoords(x, z));
+		return chunk.getBlock(x & 0xF, y, z & 0xF);
 	}
 
 	public int getHighestBlockYInUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, int x, int z, boolean findSolid, boolean findLiquid, boolean ignoreLiquid, boolean ignoreSnow)
 	{
 		int height = -1;
 
-		LocalMaterialData[] blockColumn = getBlockColumnInUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, x, z);
-		ForgeMaterialData material;
+		PackedChunkBuffer chunk = getOrGenerateUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, ChunkCoordinate.fromBlockCoords(x, z));
+		int internalX = x & 0xF;
+		int internalZ = z & 0xF;
+		LocalMaterialData material;
 		boolean isLiquid;
 		boolean isSolid;
 
-		for (int y = 255; y >= 0; y--)
+		// Everything above the heightmap is air, so start there.
+		for (int y = chunk.getHighestNonAirBlock(internalX, internalZ); y >= 0; y--)
 		{
-			material = (ForgeMaterialData) blockColumn[y];
+			material = chunk.getBlock(internalX, y, internalZ);
 			isLiquid = material.isLiquid();
 			isSolid = material.isSolid() || (!ignoreSnow && material.isMaterial(LocalMaterials.SNOW));
 			if (!(isLiquid && ignoreLiquid))
@@ -591,109 +612,90 @@ public class ShadowChunkGenerator
 		return height;
 	}
 
-	// Async Worker for generating chunks up to ChunkStatus.NOISE.
-	// This is only used for chunks that don't require density based
-	// smoothing for vanilla structures, since that cannot be done
-	// in a thread-safe/non-blocking manner.
+	// Generates a chunk up to ChunkStatus.NOISE on a worker thread, or on a
+	// worldgen thread that needs the chunk before a worker has picked it up.
+	// Chunks that require density based smoothing for vanilla structures are
+	// skipped, since that cannot be done in a thread-safe/non-blocking manner.
 
-	private class Worker implements Runnable
+	private class ShadowChunkTask implements Runnable
 	{
-		private Thread runner;
-		private boolean stop = false;
-		private Random worldRandom;
-
-		private final int index;
-		private final FifoMap<ChunkCoordinate, IChunk> unloadedChunksCache;
-		private final List<ChunkCoordinate> chunksToLoad;
-		private final ChunkCoordinate[] chunksBeingLoaded;
+		private final ChunkCoordinate chunkCoord;
 		private final ServerWorld serverWorld;
 		private final ChunkGenerator chunkGenerator;
 		private final OTGBiomeProvider biomeProvider;
 		private final OTGChunkGenerator otgChunkGenerator;
 		private final DimensionStructuresSettings dimensionStructuresSettings;
 		private final int worldHeightCap;
+		private final Random worldRandom;
+		private final AtomicBoolean started = new AtomicBoolean();
+		// Completes with null if the chunk shouldn't be shadowgenned.
+		private final CompletableFuture<PackedChunkBuffer> future = new CompletableFuture<PackedChunkBuffer>();
 
-		Worker(int index, FifoMap<ChunkCoordinate, IChunk> unloadedChunksCache, List<ChunkCoordinate> chunksToLoad, ChunkCoordinate[] chunksBeingLoaded, ServerWorld serverWorld, ChunkGenerator chunkGenerator, OTGBiomeProvider biomeProvider, OTGChunkGenerator otgChunkGenerator, DimensionStructuresSettings dimensionStructuresSettings, int worldHeightCap)
+		ShadowChunkTask(ChunkCoordinate chunkCoord, ServerWorld serverWorld, ChunkGenerator chunkGenerator, OTGBiomeProvider biomeProvider, OTGChunkGenerator otgChunkGenerator, DimensionStructuresSettings dimensionStructuresSettings, int worldHeightCap, Random worldRandom)
 		{
-			this.index = index;
-			this.unloadedChunksCache = unloadedChunksCache;
-			this.chunksToLoad = chunksToLoad;
-			this.chunksBeingLoaded = chunksBeingLoaded;
+			this.chunkCoord = chunkCoord;
 			this.serverWorld = serverWorld;
 			this.chunkGenerator = chunkGenerator;
-			this.biomeProvider  = biomeProvider;
+			this.biomeProvider = biomeProvider;
 			this.otgChunkGenerator = otgChunkGenerator;
 			this.dimensionStructuresSettings = dimensionStructuresSettings;
 			this.worldHeightCap = worldHeightCap;
-		}
-
-		public void start(Random worldRandom)
-		{
-			this.runner = new Thread(this);
-			this.runner.start();
 			this.worldRandom = worldRandom;
 		}
 
-		public void stop()
+		// Returns false if another thread has already started the task.
+		boolean claim()
 		{
-			this.stop = true;
+			return this.started.compareAndSet(false, true);
 		}
 
 		@Override
 		public void run()
 		{
-			// Process chunks if any are in the queue,
-			// otherwise wait for the queue to be filled.
-			while(true)
+			if(claim())
 			{
-				if(this.stop)
-				{
-					this.stop = false;
-					return;
-				}
+				generate();
+			}
+		}
 
-				ChunkCoordinate coords = null;
-				int sizeLeft;
-				synchronized(workerLock)
-				{
-					sizeLeft = this.chunksToLoad.size();
-					if(sizeLeft > 0)
-					{
-						coords = this.chunksToLoad.remove(sizeLeft - 1);
-						this.chunksBeingLoaded[this.index] = coords;
-					}
-				}
-				if(coords != null)
+		void cancel()
+		{
+			if(claim())
+			{
+				finish(null);
+			}
+		}
+
+		void generate()
+		{
+			PackedChunkBuffer chunk = null;
+			try {
+				if(!checkHasVanillaStructureWithoutLoading(this.serverWorld, this.chunkGenerator, this.biomeProvider, this.dimensionStructuresSettings, this.chunkCoord, this.otgChunkGenerator.getCachedBiomeProvider(), true))
 				{
-					if(!checkHasVanillaStructureWithoutLoading(this.serverWorld, this.chunkGenerator, this.biomeProvider, this.dimensionStructuresSettings, coords, this.otgChunkGenerator.getCachedBiomeProvider(), true))
-					{
-						// Generate a chunk without loading/decorating it.
-						IChunk cachedChunk = getUnloadedChunk(this.otgChunkGenerator, this.worldHeightCap, this.worldRandom, coords).getChunk();
-						synchronized(workerLock)
-						{
-							this.unloadedChunksCache.put(coords, cachedChunk);
-							this.chunksBeingLoaded[this.index] = null;
-						}
-					} else {
-						synchronized(workerLock)
-						{
-							// This chunk should not be shadowgenned, add it
-							// to the unloadedChunksCache as null so workers
-							// avoid it and the worldgen thread takes care
-							// of it in getChunkWithWait().
-							this.unloadedChunksCache.put(coords, null);
-							this.chunksBeingLoaded[this.index] = null;
-						}
-					}
-				} else {
-					try {
-						//OTG.log(LogMarker.INFO, "Worker " + this.index + " idle");
-						Thread.sleep(idleTimeInMS);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
+					// Generate a chunk without loading/decorating it.
+					chunk = getUnloadedChunk(this.otgChunkGenerator, this.worldHeightCap, this.worldRandom, this.chunkCoord);
+					chunksGenerated.incrementAndGet();
 				}
 			}
+			catch (Exception e)
+			{
+				// Leave the chunk to the worldgen thread.
+				OTG.getEngine().getLogger().log(LogLevel.ERROR, LogCategory.MAIN, "Shadowgen failed for chunk " + this.chunkCoord + ", exception:");
+				e.printStackTrace();
+			}
+			finish(chunk);
+		}
+
+		private void finish(PackedChunkBuffer chunk)
+		{
+			synchronized(workerLock)
+			{
+				// Store null for chunks that shouldn't be shadowgenned, so they
+				// aren't queued again and are left to the worldgen thread.
+				unloadedChunksCache.put(this.chunkCoord, chunk);
+				tasks.remove(this.chunkCoord);
+			}
+			this.future.complete(chunk);
 		}
 	}
 }
@@ -5,13 +5,15 @@ import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.pg85.otg.OTG;
 import com.pg85.otg.exceptions.InvalidConfigException;
 import com.pg85.otg.interfaces.IMaterialReader;
-import com.pg85.otg.util.FifoMap;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
 import com.pg85.otg.util.materials.LocalMaterialData;
 import com.pg85.otg.util.materials.LocalMaterialTag;
 import com.pg85.otg.util.minecraft.BlockNames;
 
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
@@ -22,9 +24,13 @@ import net.minecraftforge.registries.ForgeRegistries;
 
 public class ForgeMaterialReader implements IMaterialReader
 {
-	// TODO: Smaller caches should be ok, only most frequently used should be cached?
-	private final FifoMap<String, LocalMaterialData> cachedMaterials = new FifoMap<>(4096);
-	private final FifoMap<String, LocalMaterialTag> cachedTags = new FifoMap<>(4096);	
+	// Presets are loaded in parallel, so the caches have to be thread-safe.
+	// Once a cache holds MAX_CACHE_SIZE entries new entries aren't cached,
+	// concurrent puts may go slightly over.
+	private static final int MAX_CACHE_SIZE = 4096;
+	private final ConcurrentHashMap<String, LocalMaterialData> cachedMaterials = new ConcurrentHashMap<>();
+	private final Set<String> invalidMaterials = ConcurrentHashMap.newKeySet();
+	private final ConcurrentHashMap<String, LocalMaterialTag> cachedTags = new ConcurrentHashMap<>();
 	
 	@Override
 	public LocalMaterialData readMaterial(String material) throws InvalidConfigException
@@ -39,7 +45,7 @@ public class ForgeMaterialReader implements IMaterialReader
 		{
 			return localMaterial;
 		}
-		else if(this.cachedMaterials.containsKey(material))
+		else if(this.invalidMaterials.contains(material))
 		{
 			throw new InvalidConfigException("Cannot read block: " + material);
 		}
@@ -57,7 +63,17 @@ public class ForgeMaterialReader implements IMaterialReader
 			}
 		}
 
-		this.cachedMaterials.put(material, localMaterial);
+		if(localMaterial != null)
+		{
+			if(this.cachedMaterials.size() < MAX_CACHE_SIZE)
+			{
+				this.cachedMaterials.put(material, localMaterial);
+			}
+		}
+		else if(this.invalidMaterials.size() < MAX_CACHE_SIZE)
+		{
+			this.invalidMaterials.add(material);
+		}
 		
 		return localMaterial;
 	}
@@ -77,7 +93,10 @@ public class ForgeMaterialReader implements IMaterialReader
 		}
 
 		localTag = ForgeMaterialTag.ofString(tag);
-		this.cachedTags.put(tag, localTag);
+		if(localTag != null && this.cachedTags.size() < MAX_CACHE_SIZE)
+		{
+			this.cachedTags.put(tag, localTag);
+		}
 		return localTag;
 	}
 
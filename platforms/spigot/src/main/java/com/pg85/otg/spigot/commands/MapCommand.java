@@ -1,33 +1,24 @@
 package com.pg85.otg.spigot.commands;
 
-import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-
-import javax.imageio.ImageIO;
+import java.util.Random;
 
 import org.bukkit.command.CommandSender;
 import org.bukkit.craftbukkit.v1_16_R3.CraftWorld;
 import org.bukkit.entity.Player;
 import org.bukkit.util.StringUtil;
 
-import com.pg85.otg.constants.Constants;
-import com.pg85.otg.interfaces.ICachedBiomeProvider;
-import com.pg85.otg.spigot.biome.OTGBiomeProvider;
+import com.pg85.otg.OTG;
+import com.pg85.otg.map.MapRenderer;
 import com.pg85.otg.spigot.gen.OTGNoiseChunkGenerator;
 import com.pg85.otg.spigot.gen.OTGSpigotChunkGen;
-import com.pg85.otg.spigot.gen.SpigotChunkBuffer;
 import com.pg85.otg.spigot.materials.SpigotMaterialData;
 import com.pg85.otg.util.ChunkCoordinate;
-import com.pg85.otg.util.materials.LocalMaterials;
-
-import net.minecraft.server.v1_16_R3.BlockPosition;
-import net.minecraft.server.v1_16_R3.Blocks;
-import net.minecraft.server.v1_16_R3.IBlockData;
+import com.pg85.otg.util.gen.PackedChunkBuffer;
+import com.pg85.otg.util.materials.LocalMaterialData;
 
 public class MapCommand extends BaseCommand
 {
@@ -36,15 +27,17 @@ public class MapCommand extends BaseCommand
 	public MapCommand() {
 		super("map");
 		this.helpMessage = "Generates an image of the biome or terrain layout.";
-		this.usage = "/otg map <biomes/terrain> [width] [height] [threads]";
+		this.usage = "/otg map <biomes/terrain> [-s size] [-ox offsetX] [-oz offsetZ] [-n name] [-t threads]";
 		this.detailedHelp = new String[] { 
 				"<biomes/terrain>: The type of map to create.",
 				" - biomes: Creates an image using the color specified in each biome's config file.",
 				" - terrain: Creates an image using the colours of the blocks shaded to show the altitude of the terrain.",
-				"[width]: Image width in pixels.",
-				"[height]: Image height in pixels.",
-				"[threads]: The number of threads to use while rendering the image."
-				
+				"-s: Image width and height in pixels.",
+				"-ox, -oz: Block coords of the top left corner of the image, defaults to the player's position.",
+				"-n: Name to add to the output folder.",
+				"-t: The number of threads to use while rendering the image.",
+				"The map is written as a folder of 512x512 tiles, each level halving the",
+				"resolution of the level below it. Run the same command again to resume."
 			};
 	}
 	
@@ -56,10 +49,10 @@ public class MapCommand extends BaseCommand
 		}
 		if (args[0].equalsIgnoreCase("biomes"))
 		{
-			return mapBiomes(sender, args);
+			return map(sender, args, true);
 		} else if (args[0].equalsIgnoreCase("terrain"))
 		{
-			return mapTerrain(sender, args);
+			return map(sender, args, false);
 		}
 		return true;
 	}
@@ -70,14 +63,14 @@ public class MapCommand extends BaseCommand
 		return StringUtil.copyPartialMatches(args[1], TYPES, new ArrayList<>());
 	}
 	
-	@SuppressWarnings("resource")
-	private boolean mapBiomes (CommandSender sender, String[] args)
+	private boolean map(CommandSender sender, String[] args, boolean mapBiomes)
 	{
 		CraftWorld world;
 		Player player;
 		int size = 2048;
 		int offsetX = 0;
 		int offsetZ = 0;
+		int threads = 1;
 		String name = "";
 		for (int i = 1; i < args.length-1; i++)
 		{
@@ -89,6 +82,8 @@ public class MapCommand extends BaseCommand
 				offsetZ = Integer.parseInt(args[i+1]);
 			if (args[i].equalsIgnoreCase("-n"))
 				name = args[i+1];
+			if (args[i].equalsIgnoreCase("-t"))
+				threads = Integer.parseInt(args[i+1]);
 		}
 		if (sender instanceof Player)
 		{
@@ -109,180 +104,43 @@ public class MapCommand extends BaseCommand
 			return true;
 		}
 
-		ICachedBiomeProvider provider = ((OTGNoiseChunkGenerator)world.getHandle().getChunkProvider().getChunkGenerator()).getCachedBiomeProvider();
-
-		BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
-
-		int progressUpdate = img.getHeight() / 8;
-
-		for (int noiseX = 0; noiseX < img.getHeight(); noiseX++)
+		OTGNoiseChunkGenerator generator = (OTGNoiseChunkGenerator)world.getHandle().getChunkProvider().getChunkGenerator();
+		Random random = world.getHandle().getRandom();
+		MapRenderer.TerrainSource terrainSource = new MapRenderer.TerrainSource()
 		{
-			for (int noiseZ = 0; noiseZ < img.getWidth(); noiseZ++)
+			@Override
+			public PackedChunkBuffer getChunk(ChunkCoordinate chunkCoord)
 			{
-				// TODO: Fetch biome data per chunk, not per column, probably very slow atm.
-				// TODO: Forge doesn't use an offset, always starts at 0,0?
-				img.setRGB(noiseX, noiseZ, provider.getNoiseBiomeConfig(noiseX + offsetX, noiseZ + offsetZ, true).getBiomeColor());
+				return ((OTGSpigotChunkGen)world.getHandle().generator).generator.getChunkWithoutLoadingOrCaching(random, chunkCoord);
 			}
-			if (noiseX % progressUpdate == 0)
-			{
-				sender.sendMessage((((double) noiseX / img.getHeight()) * 100) + "% Done mapping");
-			}
-		}
 
-		String fileName = player.getWorld().getName()+" "+name+" biomes.png";
-		sender.sendMessage("Finished mapping! The resulting image is located at " + fileName + ".");
-		Path p = Paths.get(fileName);
-		try
-		{
-			ImageIO.write(img, "png", p.toAbsolutePath().toFile());
-		} catch (IOException ex) {
-			ex.printStackTrace();
-		}
-
-		return true;
-	}
-	
-	@SuppressWarnings("resource")
-	private boolean mapTerrain (CommandSender sender, String[] args)
-	{
-		CraftWorld world;
-		Player player;
-		int size = 2048;
-		int offsetX = 0;
-		int offsetZ = 0;
-		String name = "";
-		for (int i = 1; i < args.length-1; i++)
-		{
-			if (args[i].equalsIgnoreCase("-s"))
-				size = Integer.parseInt(args[i+1]);
-			if (args[i].equalsIgnoreCase("-ox"))
-				offsetX = Integer.parseInt(args[i+1]);
-			if (args[i].equalsIgnoreCase("-oz"))
-				offsetZ = Integer.parseInt(args[i+1]);
-			if (args[i].equalsIgnoreCase("-n"))
-				name = args[i+1];
-		}
-		if (sender instanceof Player)
-		{
-			player = (Player) sender;
-			world = (CraftWorld) player.getWorld();
-			if (offsetX == 0 && offsetZ == 0)
+			@Override
+			public int getMapColor(LocalMaterialData material)
 			{
-				offsetX += player.getLocation().getBlockX();
-				offsetZ += player.getLocation().getBlockZ();
+				return ((SpigotMaterialData)material).internalBlock().getBlock().s().rgb;
 			}
-		} else {
-			sender.sendMessage("Only in-game for now");
-			return true;
-		}
-		if (!(world.getHandle().getChunkProvider().chunkGenerator.getWorldChunkManager() instanceof OTGBiomeProvider))
-		{
-			sender.sendMessage("This is not an OTG world");
-			return true;
-		}
-	
-		BufferedImage img = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
-		int progressUpdate = img.getHeight() / 8;
-		HighestBlockInfo highestBlockInfo;
-		int min = 0;
-		int max = 255;
-		int range = max - min;
-		int distance;
-		float relativeDistance;
-		int shadePercentage;
-		int rgbColor;
-		int progress = 0;
-		for (int chunkX = 0; chunkX < (int)Math.ceil(img.getWidth() / 16f); chunkX++)
-		{
-			for (int chunkZ = 0; chunkZ < (int)Math.ceil(img.getHeight() / 16f); chunkZ++)
-			{
-				SpigotChunkBuffer chunk = ((OTGSpigotChunkGen)world.getHandle().generator).generator.getChunkWithoutLoadingOrCaching(world.getHandle().getRandom(), ChunkCoordinate.fromChunkCoords(chunkX, chunkZ));
-				for(int internalX = 0; internalX < Constants.CHUNK_SIZE; internalX++)
+		};
+
+		// Maps are written as tiles to a folder per map, rendering the same map again resumes it.
+		String folderName = world.getName() + " " + name + " " + (mapBiomes ? "biomes" : "terrain") + " " + size + " " + offsetX + "," + offsetZ;
+		MapRenderer renderer = new MapRenderer(generator.getCachedBiomeProvider(), terrainSource, Paths.get(folderName), mapBiomes, offsetX, offsetZ, size, size, OTG.getEngine().getLogger());
+		sender.sendMessage("Started mapping, the resulting tiles are located in " + folderName + ".");
+
+		// Render in the background, large maps can take hours.
+		final int renderThreads = threads;
+		new Thread(() -> {
+			try {
+				if(renderer.render(renderThreads, message -> sender.sendMessage(message)))
 				{
-					for(int internalZ = 0; internalZ < Constants.CHUNK_SIZE; internalZ++)
-					{
-						if(
-							chunkX * Constants.CHUNK_SIZE + internalX < img.getWidth() &&
-							chunkZ * Constants.CHUNK_SIZE + internalZ < img.getHeight()
-						)
-						{
-							highestBlockInfo = getHighestBlockInfoInUnloadedChunk(chunk, internalX, internalZ);
-			
-							// Color depth relative to waterlevel
-							//int worldHeight = 255;
-							//int worldWaterLevel = 63;
-							//int min = worldWaterLevel - worldHeight;
-							//int max = worldWaterLevel + worldHeight;
-							// Color depth relative to 0-255						
-							distance = -min + highestBlockInfo.y;
-							relativeDistance = (float)distance / (float)range;
-							shadePercentage = (int)Math.floor(relativeDistance * 2 * 100);
-							rgbColor = shadeColor(highestBlockInfo.material.internalBlock().getBlock().s().rgb, shadePercentage);
-							img.setRGB(chunkX * Constants.CHUNK_SIZE + internalX, chunkZ * Constants.CHUNK_SIZE + internalZ, rgbColor);						
-						}
-					}
+					sender.sendMessage("Finished mapping! The resulting tiles are located in " + folderName + ", the overview is in " + folderName + "/" + (renderer.getLevels() - 1) + "/0_0.png.");
 				}
-				progress++;
-				if (progress % progressUpdate == 0)
-				{
-					sender.sendMessage((((double) chunkX / (int)Math.ceil(img.getWidth() / 16f)) * 100) + "% Done mapping");
-				}				
 			}
-		}
-
-		String fileName = player.getWorld().getName()+" " + name + " terrain.png";
-		sender.sendMessage("Finished mapping! The resulting image is located at " + fileName + ".");
-		Path p = Paths.get(fileName);
-		try
-		{
-			ImageIO.write(img, "png", p.toAbsolutePath().toFile());
-		} catch (IOException ex) {
-			ex.printStackTrace();
-		}
-
-		return true;
-	}
-
-	private static int shadeColor(int rgbColor, int percent)
-	{
-		int red = (rgbColor >> 16) & 0xFF;
-		int green = (rgbColor >> 8) & 0xFF;
-		int blue = rgbColor & 0xFF;
-		
-		red = red * percent / 100;
-		red = red > 255 ? 255 : red;
-		green = green * percent / 100;
-		green = green > 255 ? 255 : green;
-		blue = blue * percent / 100;
-		blue = blue > 255 ? 255 : blue;
-
-		return 65536 * red + 256 * green + blue;
-	}
-
-	private HighestBlockInfo getHighestBlockInfoInUnloadedChunk(SpigotChunkBuffer chunk, int internalX, int internalZ)
-	{
-		// TODO: Just use heightmaps?
-		IBlockData blockInChunk;
-		for (int y = chunk.getHighestBlockForColumn(internalX, internalZ); y >= 0; y--)
-		{
-			blockInChunk = chunk.getChunk().getType(new BlockPosition(internalX, y, internalZ));
-			if (blockInChunk != null && blockInChunk.getBlock() != Blocks.AIR)
+			catch (InterruptedException e)
 			{
-				return new HighestBlockInfo((SpigotMaterialData)SpigotMaterialData.ofBlockData(blockInChunk), y);					
+				sender.sendMessage("Mapping was interrupted, run the same command again to resume.");
 			}
-		}
-		return new HighestBlockInfo((SpigotMaterialData)LocalMaterials.AIR, 63);
-	}
-	
-	public class HighestBlockInfo
-	{
-		public final SpigotMaterialData material;
-		public final int y;
-		
-		public HighestBlockInfo(SpigotMaterialData material, int y)
-		{
-			this.material = material;
-			this.y = y;
-		}
+		}, "OTG Map").start();
+
+		return true;
 	}
 }
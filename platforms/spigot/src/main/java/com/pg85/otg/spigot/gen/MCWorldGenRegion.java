@@ -8,6 +8,7 @@ import com.pg85.otg.spigot.materials.SpigotMaterialData;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.biome.ReplaceBlockMatrix;
 import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.materials.LocalMaterialData;
 import com.pg85.otg.util.minecraft.TreeType;
 
@@ -120,6 +121,13 @@ public class MCWorldGenRegion extends SpigotWorldGenRegion
 		}
 	}
 
+	// getMaterial/setBlock are overridden, so don't use the platform's chunk cursor.
+	@Override
+	public ChunkCursor createChunkCursor()
+	{
+		return new ChunkCursor(this);
+	}
+
 	@Override
 	public boolean placeTree(TreeType type, Random rand, int x, int y, int z)
 	{
@@ -23,6 +23,7 @@ import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.gen.ChunkBuffer;
 import com.pg85.otg.util.gen.DecorationArea;
 import com.pg85.otg.util.gen.JigsawStructureData;
+import com.pg85.otg.util.gen.PackedChunkBuffer;
 import com.pg85.otg.util.materials.LocalMaterialData;
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
@@ -289,10 +290,10 @@ public class OTGNoiseChunkGenerator extends ChunkGenerator
 	public void buildNoiseSpigot (WorldServer world, org.bukkit.generator.ChunkGenerator.ChunkData chunk, ChunkCoordinate chunkCoord, Random random)
 	{
 		ChunkBuffer buffer = new SpigotChunkBuffer(chunk, chunkCoord);
-		IChunkAccess cachedChunk = this.shadowChunkGenerator.getChunkFromCache(chunkCoord);
+		PackedChunkBuffer cachedChunk = this.shadowChunkGenerator.getChunkFromCache(chunkCoord);
 		if (cachedChunk != null)
 		{
-			this.shadowChunkGenerator.fillWorldGenChunkFromShadowChunk(chunkCoord, chunk, cachedChunk);
+			this.shadowChunkGenerator.fillWorldGenChunkFromShadowChunk(buffer, cachedChunk);
 		} else {
 			// Setup jigsaw data
 			ObjectList<JigsawStructureData> structures = new ObjectArrayList<>(10);
@@ -366,10 +367,10 @@ public class OTGNoiseChunkGenerator extends ChunkGenerator
 		}
 		// ChunkPrimer -> ProtoChunk
 		ChunkBuffer buffer = new SpigotChunkBuffer((ProtoChunk)chunk);
-		IChunkAccess cachedChunk = this.shadowChunkGenerator.getChunkFromCache(chunkCoord);
+		PackedChunkBuffer cachedChunk = this.shadowChunkGenerator.getChunkFromCache(chunkCoord);
 		if (cachedChunk != null)
 		{
-			this.shadowChunkGenerator.fillWorldGenChunkFromShadowChunk(chunkCoord, chunk, cachedChunk);
+			this.shadowChunkGenerator.fillWorldGenChunkFromShadowChunk(buffer, cachedChunk);
 		} else {
 			// Setup jigsaw data
 			ObjectList<JigsawStructureData> structures = new ObjectArrayList<>(10);
@@ -697,6 +698,9 @@ public class OTGNoiseChunkGenerator extends ChunkGenerator
 		if(this.structureCache == null)
 		{
 			this.structureCache = OTG.getEngine().createCustomStructureCache(this.preset.getFolderName(), worldSaveFolder, this.worldSeed, this.preset.getWorldConfig().getCustomStructureType() == SettingsEnums.CustomStructureType.BO4);
+			// The world save folder is known from here on.
+			// Each Spigot world has its own save folder, use its name as the dimension name.
+			this.internalGenerator.enablePersistentBiomeCache(worldSaveFolder, worldSaveFolder.getFileName().toString());
 		}
 		return this.structureCache;
 	}
@@ -728,7 +732,7 @@ public class OTGNoiseChunkGenerator extends ChunkGenerator
 		return this.shadowChunkGenerator.getMaterialInUnloadedChunk(this.internalGenerator, this.preset.getWorldConfig().getWorldHeightCap(), worldRandom, x, y, z);
 	}
 
-	public SpigotChunkBuffer getChunkWithoutLoadingOrCaching(Random random, ChunkCoordinate chunkCoord)
+	public PackedChunkBuffer getChunkWithoutLoadingOrCaching(Random random, ChunkCoordinate chunkCoord)
 	{
 		return this.shadowChunkGenerator.getChunkWithoutLoadingOrCaching(this.internalGenerator, this.preset.getWorldConfig().getWorldHeightCap(), random, chunkCoord);
 	}	
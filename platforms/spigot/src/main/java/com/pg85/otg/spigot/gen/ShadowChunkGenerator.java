@@ -1,6 +1,5 @@
 package com.pg85.otg.spigot.gen;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -9,30 +8,24 @@ import java.util.Map;
 import java.util.Random;
 import java.util.function.Supplier;
 
-import org.bukkit.craftbukkit.v1_16_R3.generator.CraftChunkData;
-
-import com.pg85.otg.constants.Constants;
 import com.pg85.otg.gen.OTGChunkGenerator;
 import com.pg85.otg.interfaces.IBiome;
 import com.pg85.otg.interfaces.ICachedBiomeProvider;
 import com.pg85.otg.spigot.biome.SpigotBiome;
-import com.pg85.otg.spigot.materials.SpigotMaterialData;
-import com.pg85.otg.util.BlockPos2D;
 import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.FifoMap;
+import com.pg85.otg.util.gen.ChunkBuffer;
 import com.pg85.otg.util.gen.JigsawStructureData;
+import com.pg85.otg.util.gen.PackedChunkBuffer;
 import com.pg85.otg.util.materials.LocalMaterialData;
 import com.pg85.otg.util.materials.LocalMaterials;
 
 import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ObjectList;
 import net.minecraft.server.v1_16_R3.BiomeBase;
-import net.minecraft.server.v1_16_R3.BlockPosition;
 import net.minecraft.server.v1_16_R3.ChunkCoordIntPair;
 import net.minecraft.server.v1_16_R3.ChunkGenerator;
 import net.minecraft.server.v1_16_R3.DefinedStructureManager;
-import net.minecraft.server.v1_16_R3.HeightMap;
-import net.minecraft.server.v1_16_R3.IBlockData;
 import net.minecraft.server.v1_16_R3.IChunkAccess;
 import net.minecraft.server.v1_16_R3.IRegistryCustom;
 import net.minecraft.server.v1_16_R3.ProtoChunk;
@@ -62,31 +55,9 @@ import net.minecraft.server.v1_16_R3.WorldServer;
 public class ShadowChunkGenerator
 {
 	// TODO: Add a setting to the worldconfig for the size of these caches?
-	private final FifoMap<BlockPos2D, LocalMaterialData[]> unloadedBlockColumnsCache = new FifoMap<BlockPos2D, LocalMaterialData[]>(1024);
-	private final FifoMap<ChunkCoordinate, IChunkAccess> unloadedChunksCache = new FifoMap<ChunkCoordinate, IChunkAccess>(512);
+	// Shadowgenned chunks are stored as PackedChunkBuffers, which usually take a few KB per chunk.
+	private final FifoMap<ChunkCoordinate, PackedChunkBuffer> unloadedChunksCache = new FifoMap<ChunkCoordinate, PackedChunkBuffer>(2048);
 	private final FifoMap<ChunkCoordinate, Integer> hasVanillaStructureChunkCache = new FifoMap<ChunkCoordinate, Integer>(2048);
-	
-	static Field heightMaps;
-	static Field light;
-	static Field sections;
-	
-	static
-	{
-		try
-		{
-			heightMaps = ProtoChunk.class.getDeclaredField("f");
-			heightMaps.setAccessible(true);
-
-			light = ProtoChunk.class.getDeclaredField("l");
-			light.setAccessible(true);
-
-			sections = ProtoChunk.class.getDeclaredField("j");
-			sections.setAccessible(true);
-		} catch (ReflectiveOperationException ex)
-		{
-			ex.printStackTrace();
-		}
-	}
 
 	@SuppressWarnings("unused")
 	private int cacheHits = 0;
@@ -95,10 +66,9 @@ public class ShadowChunkGenerator
 
 	public ShadowChunkGenerator() { }
 
-	private SpigotChunkBuffer getUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
+	private PackedChunkBuffer getUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
 	{
-		ProtoChunk chunk = new ProtoChunk(new ChunkCoordIntPair(chunkCoordinate.getChunkX(), chunkCoordinate.getChunkZ()), null);
-		SpigotChunkBuffer buffer = new SpigotChunkBuffer(chunk);
+		PackedChunkBuffer buffer = new PackedChunkBuffer(chunkCoordinate);
 
 		// This is where vanilla processes any noise affecting structures like villages, in order to spawn smoothing areas.
 		// Doing this for unloaded chunks causes a hang on load since getChunk is called by StructureManager.
@@ -110,80 +80,31 @@ public class ShadowChunkGenerator
 		ObjectList<JigsawStructureData> junctions = new ObjectArrayList<>(32);
 
 		otgChunkGenerator.populateNoise(worldHeightCap, random, buffer, buffer.getChunkCoordinate(), structures, junctions);
+		buffer.compact();
 		return buffer;
 	}
 
-	public IChunkAccess getChunkFromCache(ChunkCoordinate chunkCoord)
+	public PackedChunkBuffer getChunkFromCache(ChunkCoordinate chunkCoord)
 	{
-		IChunkAccess cachedChunk = this.unloadedChunksCache.get(chunkCoord);
-		if(cachedChunk != null)
+		synchronized(this.unloadedChunksCache)
 		{
-			return cachedChunk;
-		} else {
-			return null;
+			return this.unloadedChunksCache.get(chunkCoord);
 		}
 	}
 
-	public void fillWorldGenChunkFromShadowChunk(ChunkCoordinate chunkCoord, org.bukkit.generator.ChunkGenerator.ChunkData chunk, IChunkAccess cachedChunk)
+	public void fillWorldGenChunkFromShadowChunk(ChunkBuffer buffer, PackedChunkBuffer cachedChunk)
 	{
-		// Re-use base terrain generated via shadowgen for worldgen.	
-		// TODO: Find some way to clone/swap chunk data efficiently, 
-		// like we do for forge with accesstransformers.
-		/*
-		((ProtoChunk)chunk).sections = ((ProtoChunk)cachedChunk).sections;
-		((ProtoChunk)chunk).heightmaps = ((ProtoChunk)cachedChunk).heightmaps;
-		((ProtoChunk)chunk).lights = ((ProtoChunk)cachedChunk).lights;
-		*/
-		CraftChunkData data = (CraftChunkData) chunk;
-		for (int x = 0; x < Constants.CHUNK_SIZE; x++)
-		{
-			for (int z = 0; z < Constants.CHUNK_SIZE; z++)
-			{
-				int endY = cachedChunk.a(HeightMap.Type.WORLD_SURFACE_WG).a(x, z);
-				for (int y = 0; y <= endY; y++)
-				{
-					BlockPosition pos = new BlockPosition(x, y, z);
-					data.setRegion(x, y, z, x + 1, y + 1, z + 1, cachedChunk.getType(pos));
-				}
-			}
-		}
-		
+		// Re-use base terrain generated via shadowgen for worldgen. Only
+		// non-air blocks are written, so empty sections are skipped.
+		cachedChunk.copyTo(buffer);
+
 		this.cacheHits++;
 		//OTG.log(LogMarker.INFO, "Cache hit " + this.cacheHits);
-		this.unloadedChunksCache.remove(chunkCoord);
-	}
-	
-	public void fillWorldGenChunkFromShadowChunk(ChunkCoordinate chunkCoord, IChunkAccess chunk, IChunkAccess cachedChunk)
-	{
-		// TODO: This is experimental and may be slower than not cloning it
-		try
+		synchronized(this.unloadedChunksCache)
 		{
-			sections.set((ProtoChunk) chunk, sections.get((ProtoChunk) cachedChunk));
-			light.set((ProtoChunk) chunk, light.get((ProtoChunk) cachedChunk));
-			heightMaps.set((ProtoChunk) chunk, heightMaps.get((ProtoChunk) cachedChunk));
-		} catch (ReflectiveOperationException e)
-		{
-			e.printStackTrace();
+			this.unloadedChunksCache.remove(buffer.getChunkCoordinate());
 		}
-		
-		
-		for (int x = 0; x < Constants.CHUNK_SIZE; x++)
-		{
-			for (int z = 0; z < Constants.CHUNK_SIZE; z++)
-			{
-				int endY = cachedChunk.a(HeightMap.Type.WORLD_SURFACE_WG).a(x, z);
-				for (int y = 0; y <= endY; y++)
-				{
-					BlockPosition pos = new BlockPosition(x, y, z);
-					chunk.setType(pos, cachedChunk.getType(pos), false);
-				}
-			}
-		}
-		
-		this.cacheHits++;
-		//OTG.log(LogMarker.INFO, "Cache hit " + this.cacheHits);
-		this.unloadedChunksCache.remove(chunkCoord);
-	}	
+	}
 
 	public void setChunkGenerated(ChunkCoordinate chunkCoord)
 	{
@@ -345,7 +266,7 @@ public class ShadowChunkGenerator
 	// resources used for worldgen or bo4 shadowgen, since the chunks aren't actually supposed to generate in the world.
 	// We won't get any density based smoothing applied to noisegen for vanilla structures, but that's ok for /otg mapterrain.
 
-	public SpigotChunkBuffer getChunkWithoutLoadingOrCaching(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
+	public PackedChunkBuffer getChunkWithoutLoadingOrCaching(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random random, ChunkCoordinate chunkCoordinate)
 	{
 		return getUnloadedChunk(otgChunkGenerator, worldHeightCap, random, chunkCoordinate);
 	}
@@ -355,67 +276,42 @@ public class ShadowChunkGenerator
 	// BO4's and smoothing areas may do material and height checks in unloaded chunks during decoration.
 	// Shadowgen is used to do this without causing cascades. Shadowgenned chunks are requested on-demand for the worldgen thread (BO4's).
 
-	private LocalMaterialData[] getBlockColumnInUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, int x, int z)
+	private PackedChunkBuffer getOrGenerateUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, ChunkCoordinate chunkCoord)
 	{
-		BlockPos2D blockPos = new BlockPos2D(x, z);
-		ChunkCoordinate chunkCoord = ChunkCoordinate.fromBlockCoords(x, z);
-
-		// Get internal coordinates for block in chunk
-		byte blockX = (byte) (x &= 0xF);
-		byte blockZ = (byte) (z &= 0xF);
-
-		LocalMaterialData[] cachedColumn = this.unloadedBlockColumnsCache.get(blockPos);
-
-		if (cachedColumn != null)
-		{
-			return cachedColumn;
-		}
-
-		IChunkAccess chunk = getChunkFromCache(chunkCoord);
+		PackedChunkBuffer chunk = getChunkFromCache(chunkCoord);
 		if (chunk == null)
 		{
 			// Generate a chunk without loading/decorating it
-			chunk = getUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, chunkCoord).getChunk();
-			this.unloadedChunksCache.put(chunkCoord, chunk);
-		}
-
-		cachedColumn = new LocalMaterialData[256];
-
-		LocalMaterialData[] blocksInColumn = new LocalMaterialData[256];
-		IBlockData blockInChunk;
-		for (short y = 0; y < 256; y++)
-		{
-			blockInChunk = chunk.getType(new BlockPosition(blockX, y, blockZ));
-			if (blockInChunk != null)
+			chunk = getUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, chunkCoord);
+			synchronized(this.unloadedChunksCache)
 			{
-				blocksInColumn[y] = SpigotMaterialData.ofBlockData(blockInChunk);
-			} else {
-				break;
+				this.unloadedChunksCache.put(chunkCoord, chunk);
 			}
 		}
-		this.unloadedBlockColumnsCache.put(blockPos, cachedColumn);
-
-		return blocksInColumn;
+		return chunk;
 	}
 
 	public LocalMaterialData getMaterialInUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, int x, int y, int z)
 	{
-		LocalMaterialData[] blockColumn = getBlockColumnInUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, x, z);
-		return blockColumn[y];
+		PackedChunkBuffer chunk = getOrGenerateUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, ChunkCoordinate.fromBlockCoords(x, z));
+		return chunk.getBlock(x & 0xF, y, z & 0xF);
 	}
 
 	public int getHighestBlockYInUnloadedChunk(OTGChunkGenerator otgChunkGenerator, int worldHeightCap, Random worldRandom, int x, int z, boolean findSolid, boolean findLiquid, boolean ignoreLiquid, boolean ignoreSnow)
 	{
 		int height = -1;
 
-		LocalMaterialData[] blockColumn = getBlockColumnInUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, x, z);
-		SpigotMaterialData material;
+		PackedChunkBuffer chunk = getOrGenerateUnloadedChunk(otgChunkGenerator, worldHeightCap, worldRandom, ChunkCoordinate.fromBlockCoords(x, z));
+		int internalX = x & 0xF;
+		int internalZ = z & 0xF;
+		LocalMaterialData material;
 		boolean isLiquid;
 		boolean isSolid;
 
-		for (int y = 255; y >= 0; y--)
+		// Everything above the heightmap is air, so start there.
+		for (int y = chunk.getHighestNonAirBlock(internalX, internalZ); y >= 0; y--)
 		{
-			material = (SpigotMaterialData) blockColumn[y];
+			material = chunk.getBlock(internalX, y, internalZ);
 			isLiquid = material.isLiquid();
 			isSolid = material.isSolid() || (!ignoreSnow && material.isMaterial(LocalMaterials.SNOW));
 			if (!(isLiquid && ignoreLiquid))
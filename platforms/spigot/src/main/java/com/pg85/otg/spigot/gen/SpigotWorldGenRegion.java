@@ -16,6 +16,7 @@ import com.pg85.otg.util.ChunkCoordinate;
 import com.pg85.otg.util.FifoMap;
 import com.pg85.otg.util.biome.ReplaceBlockMatrix;
 import com.pg85.otg.util.bo3.NamedBinaryTag;
+import com.pg85.otg.util.gen.ChunkCursor;
 import com.pg85.otg.util.gen.LocalWorldGenRegion;
 import com.pg85.otg.util.logging.LogCategory;
 import com.pg85.otg.util.logging.LogLevel;
@@ -381,29 +382,41 @@ public class SpigotWorldGenRegion extends LocalWorldGenRegion
 		// into separate classes, one for decoration, one for non-decoration.		
 		if(this.decorationArea == null || this.decorationArea.isInAreaBeingDecorated(x, z))
 		{
-			if(replaceBlocksMatrix != null)
-			{
-				material = material.parseWithBiomeAndHeight(this.getWorldConfig().getBiomeConfigsHaveReplacement(), replaceBlocksMatrix, y);
-			}
+			setBlockInDecorationArea(x, y, z, material, nbt, replaceBlocksMatrix);
+		}
+	}
 
-			BlockPosition pos = new BlockPosition(x, y, z);
-			// Notify world: (2 | 16) == update client, don't update observers
-			this.worldGenRegion.setTypeAndData(pos, ((SpigotMaterialData) material).internalBlock(), 2 | 16);
+	// Used by setBlock and SpigotChunkCursor, the caller checks the height, material and decoration area.
+	void setBlockInDecorationArea(int x, int y, int z, LocalMaterialData material, NamedBinaryTag nbt, ReplaceBlockMatrix replaceBlocksMatrix)
+	{
+		if(replaceBlocksMatrix != null)
+		{
+			material = material.parseWithBiomeAndHeight(this.getWorldConfig().getBiomeConfigsHaveReplacement(), replaceBlocksMatrix, y);
+		}
 
-			if (material.isLiquid())
-			{
-				this.worldGenRegion.getFluidTickList().a(pos, ((SpigotMaterialData)material).internalBlock().getFluid().getType(), 0);
-			}
-			else if (material.isMaterial(LocalMaterials.COMMAND_BLOCK))
-			{
-				this.worldGenRegion.getBlockTickList().a(pos, ((SpigotMaterialData)material).internalBlock().getBlock(), 0);
-			}
+		BlockPosition pos = new BlockPosition(x, y, z);
+		// Notify world: (2 | 16) == update client, don't update observers
+		this.worldGenRegion.setTypeAndData(pos, ((SpigotMaterialData) material).internalBlock(), 2 | 16);
 
-			if (nbt != null)
-			{
-				this.attachNBT(x, y, z, nbt, worldGenRegion.getType(pos));
-			}
+		if (material.isLiquid())
+		{
+			this.worldGenRegion.getFluidTickList().a(pos, ((SpigotMaterialData)material).internalBlock().getFluid().getType(), 0);
+		}
+		else if (material.isMaterial(LocalMaterials.COMMAND_BLOCK))
+		{
+			this.worldGenRegion.getBlockTickList().a(pos, ((SpigotMaterialData)material).internalBlock().getBlock(), 0);
 		}
+
+		if (nbt != null)
+		{
+			this.attachNBT(x, y, z, nbt, worldGenRegion.getType(pos));
+		}
+	}
+
+	@Override
+	public ChunkCursor createChunkCursor()
+	{
+		return new SpigotChunkCursor(this, this.worldGenRegion, this.decorationArea);
 	}
 
 	protected void attachNBT(int x, int y, int z, NamedBinaryTag nbt, IBlockData state)